@@ -0,0 +1,72 @@
+package com.xm.cryptorecservice.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xm.cryptorecservice.persistence.InMemoryAggregateStats;
+import com.xm.cryptorecservice.persistence.InMemoryPriceSeriesStore;
+import com.xm.cryptorecservice.service.CryptoRecService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static com.xm.cryptorecservice.util.Constants.DATE_FORMATTER;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CryptoRecService#getBestCryptoForDate(String)} over cryptos whose price series are all in the
+ * {@link InMemoryPriceSeriesStore}, i.e. the path that never touches the on-disk database.
+ *
+ * @author jason
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BestOfDayBenchmark {
+
+    private static final int PRICES_PER_CRYPTO = 44_640; // A month of prices, one per minute.
+
+    @Param({"10", "100", "1000"})
+    private int cryptos;
+
+    private CryptoRecService service;
+    private String date;
+
+    @Setup(Level.Trial)
+    public void loadSeries() {
+        InMemoryAggregateStats inMemoryDb = new InMemoryAggregateStats(new ObjectMapper());
+        InMemoryPriceSeriesStore seriesStore = new InMemoryPriceSeriesStore();
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < cryptos; i++) {
+            String symbol = SyntheticPriceData.symbol(i);
+            inMemoryDb.add(symbol, SyntheticPriceData.stats(random));
+            seriesStore.put(symbol, SyntheticPriceData.series(PRICES_PER_CRYPTO, i));
+        }
+        // Every crypto is in memory, so neither the on-disk database nor the worker pools are ever used.
+        service = new CryptoRecService(null, inMemoryDb, seriesStore, null);
+        date = DATE_FORMATTER.format(Instant.ofEpochMilli(SyntheticPriceData.START_EPOCH_MILLI)
+                .plus(Duration.ofDays(15)).atZone(seriesStore.getZone()));
+    }
+
+    @Benchmark
+    public Map.Entry<String, BigDecimal> bestCryptoForDate() {
+        return service.getBestCryptoForDate(date);
+    }
+}
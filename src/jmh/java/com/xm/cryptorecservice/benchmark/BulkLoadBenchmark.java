@@ -0,0 +1,140 @@
+package com.xm.cryptorecservice.benchmark;
+
+import com.xm.cryptorecservice.model.crypto.CryptoPriceChunk;
+import com.xm.cryptorecservice.model.crypto.PriceSeries;
+import com.xm.cryptorecservice.persistence.AdaptiveBatchSize;
+import com.xm.cryptorecservice.persistence.BulkPriceLoader;
+import com.xm.cryptorecservice.persistence.DatabaseConnectionImpl;
+import com.xm.cryptorecservice.util.concurrent.WorkerMode;
+import com.xm.cryptorecservice.util.concurrent.WorkerPools;
+import com.xm.cryptorecservice.util.metrics.CryptoMetrics;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Loading the prices of a single crypto to a table created by {@link DatabaseConnectionImpl}: as JDBC batches of
+ * single-row statements, the way we used to; as multi-row statements sized by an {@link AdaptiveBatchSize}, over a single
+ * connection; and through {@link BulkPriceLoader}, over {@literal crypto.jdbc.bulk.connections} connections. Runs on an
+ * in-memory H2 database in MySQL mode by default; pass {@literal -jvmArgsAppend -Dbench.jdbc.url=jdbc:mysql://...}
+ * (and {@literal bench.jdbc.username} and {@literal bench.jdbc.password}) in {@literal jmh.args} to run it against a
+ * MySQL server instead, where round trips make the difference much larger. Rows per second are the rows over the time
+ * per load.
+ *
+ * @author jason
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BulkLoadBenchmark {
+
+    private static final int CHUNK_SIZE = 1000; // Like CSV_CHUNK_SIZE.
+    private static final String TABLE = "BULK_LOAD_BENCH";
+
+    @Param({"1000000"})
+    private int rows;
+
+    @Param({"4"})
+    private int connections;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private DatabaseConnectionImpl dbConnection;
+    private WorkerPools workerPools;
+    private BulkPriceLoader bulkLoader;
+    private PriceSeries series;
+
+    @Setup(Level.Trial)
+    public void createTable() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getProperty("bench.jdbc.url", "jdbc:h2:mem:bulk;MODE=MySQL;DB_CLOSE_DELAY=-1"));
+        dataSource.setUsername(System.getProperty("bench.jdbc.username", "sa"));
+        dataSource.setPassword(System.getProperty("bench.jdbc.password", ""));
+        dataSource.setMaximumPoolSize(connections + 1);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        CryptoMetrics metrics = new CryptoMetrics(new SimpleMeterRegistry());
+        dbConnection = new DatabaseConnectionImpl(jdbcTemplate, metrics, new AdaptiveBatchSize(16, 128, 4096));
+        dbConnection.createCryptoPriceTable(TABLE);
+        workerPools = new WorkerPools(1, 100, 30, WorkerMode.PLATFORM, 600, 10, connections);
+        bulkLoader = new BulkPriceLoader(workerPools, metrics, connections, 0);
+        series = SyntheticPriceData.series(rows, 42);
+    }
+
+    @Setup(Level.Iteration)
+    public void truncateTable() {
+        jdbcTemplate.execute("TRUNCATE TABLE " + TABLE);
+    }
+
+    @TearDown(Level.Trial)
+    public void dropTable() {
+        jdbcTemplate.execute("DROP TABLE " + TABLE);
+        workerPools.shutdown();
+        dataSource.close();
+    }
+
+    @Benchmark
+    public void singleRowBatches() {
+        String insertQuery = String.format("INSERT INTO %s (timestamp, price) VALUES (?, ?)", TABLE);
+        forEachChunk(chunk -> jdbcTemplate.batchUpdate(insertQuery, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setTimestamp(1, new Timestamp(chunk.getEpochMilli(i)));
+                ps.setBigDecimal(2, chunk.getPrice(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return chunk.size();
+            }
+        }));
+    }
+
+    @Benchmark
+    public void multiRowStatements() {
+        forEachChunk(chunk -> dbConnection.insertCryptoPrices(TABLE, chunk));
+    }
+
+    @Benchmark
+    public void parallelBulkLoad() {
+        bulkLoader.load(dbConnection, TABLE, series);
+    }
+
+    private void forEachChunk(Consumer<CryptoPriceChunk> sink) {
+        CryptoPriceChunk chunk = new CryptoPriceChunk(CHUNK_SIZE);
+        for (int i = 0; i < series.size(); i++) {
+            chunk.add(series.getEpochMilli(i), series.getScaledPrice(i));
+            if (chunk.isFull()) {
+                sink.accept(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            sink.accept(chunk);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.xm.cryptorecservice.benchmark;
+
+import com.xm.cryptorecservice.model.crypto.CryptoPrice;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a single CSV row into a {@link CryptoPrice} through {@link CryptoPrice#fromCSVRow(String[], String)}, with and
+ * without splitting the row first.
+ *
+ * @author jason
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CryptoPriceRowBenchmark {
+
+    private String row = "1641009600000,BTC,46813.21";
+    private String[] rowParts = row.split(",");
+
+    @Benchmark
+    public CryptoPrice fromCSVRow() {
+        return CryptoPrice.fromCSVRow(rowParts, "BTC");
+    }
+
+    @Benchmark
+    public CryptoPrice splitAndFromCSVRow() {
+        return CryptoPrice.fromCSVRow(row.split(","), "BTC");
+    }
+}
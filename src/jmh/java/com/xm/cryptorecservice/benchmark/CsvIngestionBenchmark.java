@@ -0,0 +1,72 @@
+package com.xm.cryptorecservice.benchmark;
+
+import com.xm.cryptorecservice.io.CryptoPriceFileReader;
+import com.xm.cryptorecservice.model.crypto.CryptoPrice;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceChunk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a whole CSV file of a single crypto, the way ingestion does: into {@link CryptoPrice} objects through
+ * {@link CryptoPriceFileReader#readCSV(File)}, and into primitive chunks through
+ * {@link CryptoPriceFileReader#streamCSV(File, java.util.function.Consumer)}.
+ *
+ * @author jason
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g") // readCSV holds all 10M rows as objects.
+public class CsvIngestionBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    private int rows;
+
+    private final CryptoPriceFileReader reader = new CryptoPriceFileReader();
+    private Path directory;
+    private File csv;
+
+    @Setup(Level.Trial)
+    public void writeFile() throws IOException {
+        directory = Files.createTempDirectory("crypto-bench");
+        csv = SyntheticPriceData.writeCSV(directory, "BTC", rows, 42);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(csv.toPath());
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public List<CryptoPrice> readCSV() throws IOException {
+        return reader.readCSV(csv);
+    }
+
+    @Benchmark
+    public long streamCSV(Blackhole blackhole) throws IOException {
+        return reader.streamCSV(csv, (CryptoPriceChunk chunk) -> blackhole.consume(chunk.getScaledPrice(0)));
+    }
+}
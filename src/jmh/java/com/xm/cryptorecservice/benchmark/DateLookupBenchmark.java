@@ -0,0 +1,87 @@
+package com.xm.cryptorecservice.benchmark;
+
+import com.xm.cryptorecservice.model.crypto.CryptoPrice;
+import com.xm.cryptorecservice.persistence.AdaptiveBatchSize;
+import com.xm.cryptorecservice.persistence.DatabaseConnectionImpl;
+import com.xm.cryptorecservice.util.metrics.CryptoMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looking up the prices of a crypto for a single day, in a table created by {@link DatabaseConnectionImpl}, on an
+ * in-memory H2 database in MySQL mode. Compares the predicate we used to filter with, which wraps the column in a
+ * function (H2's equivalent of MySQL's {@literal DATE_FORMAT}) and scans the whole table, with {@link
+ * DatabaseConnectionImpl#getCryptoPricesForDate(String, String)}, whose half-open range on the bare column seeks the
+ * timestamp index. Loading 10M rows takes a while, and some memory.
+ *
+ * @author jason
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class DateLookupBenchmark {
+
+    @Param({"1000000", "10000000"})
+    private int rows;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private DatabaseConnectionImpl dbConnection;
+    private String date;
+
+    @Setup(Level.Trial)
+    public void loadTable() {
+        // H2 would otherwise hand back the previous result of a query over an unmodified table without running it.
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:prices;MODE=MySQL;DB_CLOSE_DELAY=-1;OPTIMIZE_REUSE_RESULTS=0", true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        dbConnection = new DatabaseConnectionImpl(jdbcTemplate, new CryptoMetrics(new SimpleMeterRegistry()),
+                new AdaptiveBatchSize(16, 128, 4096));
+        dbConnection.createCryptoPriceTable("BTC");
+        // One price per minute, generated by the database itself, so that loading does not dominate the trial.
+        jdbcTemplate.update("INSERT INTO BTC (timestamp, price) SELECT DATEADD(MINUTE, X, TIMESTAMP '2022-01-01 00:00:00'), "
+                + "40000 + MOD(X * 7919, 1000) / 100.0 FROM SYSTEM_RANGE(0, ?)", rows - 1);
+        LocalDate day = LocalDate.of(2022, 1, 1).plusDays(rows / 1440 / 2); // A day in the middle of the table.
+        date = day.toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void dropTable() {
+        jdbcTemplate.execute("DROP TABLE BTC");
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> functionOfColumn() {
+        return jdbcTemplate.queryForList(
+                "SELECT timestamp, price FROM BTC WHERE FORMATDATETIME(timestamp, 'yyyy-MM-dd') = ?", date);
+    }
+
+    @Benchmark
+    public List<CryptoPrice> getCryptoPricesForDate() {
+        return dbConnection.getCryptoPricesForDate("BTC", date);
+    }
+}
@@ -0,0 +1,84 @@
+package com.xm.cryptorecservice.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceStats;
+import com.xm.cryptorecservice.model.crypto.CryptoRank;
+import com.xm.cryptorecservice.persistence.InMemoryAggregateStats;
+import com.xm.cryptorecservice.util.SortOrder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The aggregate-stats hot paths of our endpoints: computing the normalized price of a single {@link CryptoPriceStats},
+ * both as the {@link BigDecimal} we serve and as the scaled {@literal long} we compute on, ranking a crypto and finding
+ * the first ten cryptos through the rank index, and sorting all cryptos of the {@link InMemoryAggregateStats} by normalized price, for 10 to 10k cryptos.
+ *
+ * @author jason
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatsBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    private int cryptos;
+
+    private final InMemoryAggregateStats inMemoryDb = new InMemoryAggregateStats(new ObjectMapper());
+    private CryptoPriceStats stats;
+
+    @Setup(Level.Trial)
+    public void loadStats() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < cryptos; i++) {
+            inMemoryDb.add(SyntheticPriceData.symbol(i), SyntheticPriceData.stats(random));
+        }
+        stats = inMemoryDb.get(SyntheticPriceData.symbol(0));
+    }
+
+    @Benchmark
+    public BigDecimal normalizedPrice() {
+        return stats.getNormalizedPrice();
+    }
+
+    @Benchmark
+    public long normalizedScaledPrice() {
+        return stats.getNormalizedScaledPrice();
+    }
+
+    @Benchmark
+    public SortedMap<String, BigDecimal> cryptosSortedByNormalizedPriceDescending() {
+        return inMemoryDb.cryptosSortedByNormalizedPriceDescending(SortOrder.DESC);
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, CryptoPriceStats>> firstTenByNormalizedPrice() {
+        return inMemoryDb.firstByNormalizedPrice(SortOrder.DESC, 10);
+    }
+
+    @Benchmark
+    public Optional<CryptoRank> rankByNormalizedPrice() {
+        return inMemoryDb.rankByNormalizedPrice(SyntheticPriceData.symbol(0));
+    }
+}
@@ -0,0 +1,123 @@
+package com.xm.cryptorecservice.benchmark;
+
+import com.xm.cryptorecservice.model.crypto.CryptoPriceColumns;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceStats;
+import com.xm.cryptorecservice.model.crypto.PriceSeries;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Generates synthetic crypto prices for our benchmarks: CSV files in the {@literal timestamp,symbol,price} format of
+ * the files under ./task/prices, and the in-memory structures that ingesting them would produce. Prices follow a
+ * random walk with two decimal digits, one price per {@value #STEP_MILLIS} ms starting at {@value #START_EPOCH_MILLI}.
+ * Generation is deterministic for a given seed.
+ * <p>
+ * Can also be run on its own, to write files for manual testing:
+ * {@code java SyntheticPriceData <directory> <rows per file> <symbol>...}
+ *
+ * @author jason
+ */
+public final class SyntheticPriceData {
+
+    static final long START_EPOCH_MILLI = 1641009600000L; // 2022-01-01T04:00:00Z, like the sample files.
+    static final long STEP_MILLIS = 60_000L;
+    private static final long START_PRICE_CENTS = 4_000_000L;
+
+    private SyntheticPriceData() {}
+
+    /**
+     * Write a CSV file with the provided number of rows of the provided symbol, named after the symbol.
+     *
+     * @param directory The directory to write the file to.
+     * @param symbol The crypto symbol, e.g. BTC.
+     * @param rows The number of price rows, besides the header.
+     * @param seed The seed of the random walk.
+     * @return The {@link File} written.
+     * @throws IOException if the file cannot be written.
+     */
+    public static File writeCSV(Path directory, String symbol, int rows, long seed) throws IOException {
+        Path csv = directory.resolve(symbol + ".csv");
+        SplittableRandom random = new SplittableRandom(seed);
+        long cents = START_PRICE_CENTS;
+        try (BufferedWriter writer = Files.newBufferedWriter(csv, StandardCharsets.US_ASCII)) {
+            writer.write("timestamp,symbol,price\n");
+            StringBuilder row = new StringBuilder(48);
+            for (int i = 0; i < rows; i++) {
+                cents = nextCents(random, cents);
+                row.setLength(0);
+                row.append(START_EPOCH_MILLI + i * STEP_MILLIS).append(',').append(symbol).append(',')
+                        .append(cents / 100).append('.').append((char) ('0' + cents / 10 % 10))
+                        .append((char) ('0' + cents % 10)).append('\n');
+                writer.append(row);
+            }
+        }
+        return csv.toFile();
+    }
+
+    /**
+     * @param rows The number of prices.
+     * @param seed The seed of the random walk.
+     * @return A {@link PriceSeries} with the same prices a file written by {@link #writeCSV(Path, String, int, long)}
+     * with the same rows and seed would be ingested into.
+     */
+    public static PriceSeries series(int rows, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        CryptoPriceColumns columns = new CryptoPriceColumns(rows);
+        long cents = START_PRICE_CENTS;
+        for (int i = 0; i < rows; i++) {
+            cents = nextCents(random, cents);
+            columns.add(START_EPOCH_MILLI + i * STEP_MILLIS, cents * 100_000_000L); // Scaled to 10 decimal digits.
+        }
+        return columns.toSeries();
+    }
+
+    /**
+     * @param random The source of randomness.
+     * @return Aggregate stats of a random walk of 1,000 prices, so that normalized prices differ between cryptos.
+     */
+    public static CryptoPriceStats stats(SplittableRandom random) {
+        long cents = START_PRICE_CENTS, min = cents, max = cents, first = nextCents(random, cents), last = first;
+        for (int i = 0; i < 1_000; i++) {
+            last = cents = nextCents(random, cents);
+            min = Math.min(min, cents);
+            max = Math.max(max, cents);
+        }
+        return new CryptoPriceStats(BigDecimal.valueOf(min, 2), BigDecimal.valueOf(max, 2),
+                BigDecimal.valueOf(first, 2), BigDecimal.valueOf(last, 2));
+    }
+
+    /**
+     * @param index A non-negative integer.
+     * @return A distinct symbol of at most 10 letters for every index, e.g. AAAA, AAAB, ...
+     */
+    public static String symbol(int index) {
+        char[] letters = new char[4];
+        for (int i = letters.length - 1; i >= 0; i--, index /= 26) {
+            letters[i] = (char) ('A' + index % 26);
+        }
+        return new String(letters);
+    }
+
+    private static long nextCents(SplittableRandom random, long cents) {
+        return Math.max(1, cents + random.nextLong(-cents / 200 - 1, cents / 200 + 2)); // Moves by up to 0.5%.
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: SyntheticPriceData <directory> <rows per file> <symbol>...");
+            System.exit(1);
+        }
+        Path directory = Files.createDirectories(Path.of(args[0]));
+        int rows = Integer.parseInt(args[1]);
+        for (int i = 2; i < args.length; i++) {
+            System.out.println("Wrote " + writeCSV(directory, args[i], rows, i));
+        }
+    }
+}
@@ -1,23 +1,33 @@
 package com.xm.cryptorecservice;
 
 import com.xm.cryptorecservice.io.CryptoDirectoryParser;
+import com.xm.cryptorecservice.persistence.StoreSnapshotFile;
+import com.xm.cryptorecservice.service.CryptoDirectoryWatcher;
 import com.xm.cryptorecservice.service.StatsCalculationService;
+import com.xm.cryptorecservice.util.concurrent.WorkerPools;
 import com.xm.cryptorecservice.util.logger.Logged;
 
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.io.File;
 import java.util.List;
-
-import static com.xm.cryptorecservice.util.Constants.MAX_THREADS;
+import java.util.stream.Stream;
 
 /**
- * On-disk and in-memory database pre-loader. Reads all CSV files from the directory ./task/prices and based on them
- * creates on-disk database tables and loads aggregate stats to the in-memory database to allow for efficient endpoint
- * response down the line. Uses multiple worker threads to accomplish this.
+ * On-disk and in-memory database pre-loader. Reads all CSV files from the directory {@literal crypto.ingestion.directory}
+ * (./task/prices by default) and based on them creates on-disk database tables, loads the price series of every crypto to the in-memory
+ * {@link com.xm.cryptorecservice.persistence.InMemoryPriceSeriesStore} and loads aggregate stats to the in-memory
+ * database to allow for efficient endpoint response down the line. Uses multiple worker threads to accomplish this.
+ * If store snapshots are enabled, the cryptos whose files have not changed since the latest {@link StoreSnapshotFile}
+ * are restored from it instead, and a new snapshot is written once the rest have been loaded.
+ * If {@literal crypto.ingestion.combined.directory} is set, the CSV files in it, every one of which may hold the prices of
+ * any number of cryptos, are then demultiplexed into a table per crypto, and loaded to memory, on every startup.
+ * Once done, it hands the directory over to the {@link CryptoDirectoryWatcher}, which hot-loads files added later on.
  *
  * @author jason
  */
@@ -26,24 +36,40 @@ import static com.xm.cryptorecservice.util.Constants.MAX_THREADS;
 @Logged
 public class PreloadDatabase {
 
-    private static final String DIR_PATH = "./task/prices";
-
     /**
      * Initialize the on-disk and in-memory databases.
      * @param directoryParser A wired-in {@link CryptoDirectoryParser} instance.
      * @param statsService A wired-in {@link StatsCalculationService} instance.
+     * @param workerPools A wired-in {@link WorkerPools} instance.
+     * @param directoryWatcher A wired-in {@link CryptoDirectoryWatcher} instance.
+     * @param storeSnapshot A wired-in {@link StoreSnapshotFile} instance.
+     * @param directory The directory to read the CSV files from.
+     * @param combinedDirectory The directory to read combined CSV files from, or an empty string for none.
      * @return A {@link CommandLineRunner} instance.
      */
     @Bean
     CommandLineRunner initDatabase(
-            CryptoDirectoryParser directoryParser, StatsCalculationService statsService) {
+            CryptoDirectoryParser directoryParser, StatsCalculationService statsService, WorkerPools workerPools,
+            CryptoDirectoryWatcher directoryWatcher, StoreSnapshotFile storeSnapshot,
+            @Value("${crypto.ingestion.directory:./task/prices}") String directory,
+            @Value("${crypto.ingestion.combined.directory:}") String combinedDirectory) {
         return args -> {
-            log.info("Preloading on-disk and in-memory database with data from " + DIR_PATH);
+            log.info("Preloading on-disk and in-memory database with data from " + directory);
             long timeStart = System.currentTimeMillis();
-            List<String> cryptos = directoryParser.persistAllCSVsInDirectory(DIR_PATH);
-            statsService.computeAndLoadAllStats(cryptos);
-            log.info("Loading on-disk and in-memory databases employed " + Math.min(cryptos.size(), MAX_THREADS) +
+            List<File> csvs = directoryParser.listCSVs(directory);
+            List<File> restored = storeSnapshot.restore(csvs);
+            List<String> cryptos = directoryParser.persistAllCSVs(csvs, restored);
+            if (!combinedDirectory.isBlank()) {
+                cryptos = Stream.concat(cryptos.stream(), directoryParser.persistCombinedCSVs(
+                        directoryParser.listCSVs(combinedDirectory), cryptos).stream()).toList();
+            }
+            statsService.computeAndLoadMissingStats(cryptos);
+            log.info("Loading on-disk and in-memory databases employed " + Math.min(cryptos.size(), workerPools.getPoolSize()) +
                     " threads and took " + (System.currentTimeMillis() - timeStart) + " ms.");
+            if (restored.size() < csvs.size()) {
+                storeSnapshot.write(csvs, timeStart);
+            }
+            directoryWatcher.start(directory);
         };
     }
 }
@@ -0,0 +1,15 @@
+package com.xm.cryptorecservice.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables Spring's {@link org.springframework.scheduling.annotation.Scheduled} methods, e.g. the periodic ingestion of
+ * rows appended to our CSV files.
+ *
+ * @author jason
+ * @see com.xm.cryptorecservice.service.IncrementalIngestionService
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {}
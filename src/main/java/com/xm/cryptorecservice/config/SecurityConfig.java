@@ -84,7 +84,9 @@ public class SecurityConfig {
                         "/v3/api-docs/**",
                         "/webjars/**",
                         "/swagger-ui/index.html",
-                        "/api-docs/**")
+                        "/api-docs/**",
+                        "/actuator/health",
+                        "/actuator/prometheus")
                 .permitAll()
                 .anyRequest()
                 .authenticated()
@@ -0,0 +1,29 @@
+package com.xm.cryptorecservice.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Serves HTTP requests on virtual threads, one per request, instead of Tomcat's pool of platform threads. Only active
+ * when {@literal crypto.tomcat.virtual-threads} is {@literal true}.
+ *
+ * @author jason
+ */
+@Configuration
+@ConditionalOnProperty(name = "crypto.tomcat.virtual-threads", havingValue = "true")
+public class VirtualThreadsConfig {
+
+    /**
+     * Define a Spring Bean that hands Tomcat a virtual-thread-per-task executor.
+     *
+     * @return An instance of type {@link TomcatProtocolHandlerCustomizer}.
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+}
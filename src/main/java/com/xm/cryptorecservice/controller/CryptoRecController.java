@@ -1,12 +1,21 @@
 package com.xm.cryptorecservice.controller;
 
-import static com.xm.cryptorecservice.util.Constants.DATE_FORMATTER;
-import static com.xm.cryptorecservice.util.SortOrder.DESC;
+import static com.xm.cryptorecservice.controller.RequestParameters.checkWindow;
+import static com.xm.cryptorecservice.controller.RequestParameters.first;
+import static com.xm.cryptorecservice.controller.RequestParameters.parseDate;
+import static com.xm.cryptorecservice.controller.RequestParameters.parseWindowBound;
+import static com.xm.cryptorecservice.controller.RequestParameters.sortOrder;
 
+import com.xm.cryptorecservice.model.crypto.CryptoPriceStats;
+import com.xm.cryptorecservice.model.crypto.CryptoRank;
+import com.xm.cryptorecservice.persistence.StatsSnapshot;
 import com.xm.cryptorecservice.service.CryptoRecService;
+import com.xm.cryptorecservice.util.SortOrder;
 import com.xm.cryptorecservice.util.exceptions.BadDateFormatException;
 import com.xm.cryptorecservice.util.exceptions.DateOutOfStoredRangeException;
+import com.xm.cryptorecservice.util.exceptions.InvalidDateRangeException;
 import com.xm.cryptorecservice.util.exceptions.UnsupportedCryptoException;
+import com.xm.cryptorecservice.util.exceptions.WindowOutOfStoredRangeException;
 import com.xm.cryptorecservice.util.logger.Logged;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -16,16 +25,18 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
 
 import lombok.RequiredArgsConstructor;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.format.DateTimeParseException;
 import java.util.Map;
 
 /**
@@ -47,10 +58,14 @@ public class CryptoRecController {
      * Return the aggregate stats for all loaded cryptos. Those include minimum price, maximum price, first price, last price,
      * price range (max - min), price difference (last - first) and normalized price ( (max - min) / min).
      * 
+     * The payload is served pre-serialized from the latest {@link StatsSnapshot}, and labelled with its ETag, so a
+     * request whose {@literal If-None-Match} header carries that ETag is answered with a {@literal 304 Not Modified} by
+     * Spring MVC, without a body.
+     * 
      * @return A {@link ResponseEntity} containing a JSON payload with crypto names as keys, and the aforementioned stats
      * as values. The response payload is sorted lexicographically by keys, in ascending order.
      * 
-     * @see #getAggregateStats(String) 
+     * @see #getAggregateStats(String, String, String) 
      */
     @Operation(summary = "Return aggregate stats for all cryptos")
     @ApiResponses(
@@ -59,6 +74,10 @@ public class CryptoRecController {
                         responseCode = "200",
                         description = "Stats successfully returned",
                         content = @Content),
+                @ApiResponse(
+                        responseCode = "304",
+                        description = "Stats not modified since the ETag in If-None-Match",
+                        content = @Content),
                 @ApiResponse(
                         responseCode = "401",
                         description = "Unauthenticated user",
@@ -66,19 +85,25 @@ public class CryptoRecController {
             })
     @GetMapping("/aggregate")
     public ResponseEntity<?> getAggregateStats() {
-        return ResponseEntity.ok(service.getAggregateStats());
+        return snapshotResponse(service.getStatsSnapshot().getStatsPayload());
     }
 
     /**
      * Get aggregate stats for a specific crypto. Those include minimum price, maximum price, first price, last price,
-     * price range (max - min), price difference (last - first) and normalized price ((max - min) / min).
+     * price range (max - min), price difference (last - first) and normalized price ((max - min) / min). If a window of
+     * days is provided, the stats are computed over that window only.
      * @param cryptoName The crypto to return aggregate stats for.
+     * @param from The first day of the window, inclusive, in YYYY-mm-dd format. Optional.
+     * @param to The last day of the window, inclusive, in YYYY-mm-dd format. Optional.
      * @return A {@link ResponseEntity} with a single entry consisting of the provided crypto as the key and the aforementioned 
      * stats as the value.
      * @throws UnsupportedCryptoException if the user provides an unsupported cryptocurrency.
+     * @throws BadDateFormatException If a window bound is NOT in YYYY-mm-dd format.
+     * @throws InvalidDateRangeException If the window starts after it ends.
+     * @throws WindowOutOfStoredRangeException If the crypto has no prices within the window.
      * @see #getAggregateStats() 
      */
-    @Operation(summary = "Return aggregate stats for a specific crypto")
+    @Operation(summary = "Return aggregate stats for a specific crypto, optionally over a window of days in YYYY-mm-dd format")
     @ApiResponses(
             value = {
                 @ApiResponse(
@@ -87,7 +112,7 @@ public class CryptoRecController {
                         content = @Content),
                 @ApiResponse(
                         responseCode = "400",
-                        description = "Blank name provided",
+                        description = "Blank name provided, or bad window of days",
                         content = @Content),
                 @ApiResponse(
                         responseCode = "401",
@@ -95,39 +120,123 @@ public class CryptoRecController {
                         content = @Content),
                 @ApiResponse(
                         responseCode = "404",
-                        description = "Unsupported cryptocurrency.",
+                        description = "Unsupported cryptocurrency, or no prices within the window.",
                         content = @Content)
             })
     @GetMapping("/aggregate/{cryptoName}")
-    public ResponseEntity<?> getAggregateStats(@PathVariable @NotBlank String cryptoName)
-            throws UnsupportedCryptoException {
+    public ResponseEntity<?> getAggregateStats(@PathVariable @NotBlank String cryptoName,
+                                               @RequestParam(name = "from", required = false) String from,
+                                               @RequestParam(name = "to", required = false) String to)
+            throws UnsupportedCryptoException, BadDateFormatException, InvalidDateRangeException,
+            WindowOutOfStoredRangeException {
         cryptoName = cryptoName.trim();
         if (!service.cryptoSupported(cryptoName)) {
             throw new UnsupportedCryptoException(cryptoName);
         }
-        return ResponseEntity.ok(service.getAggregateStatsOfCrypto(cryptoName));
+        if (from == null && to == null) {
+            return ResponseEntity.ok(service.getAggregateStatsOfCrypto(cryptoName));
+        }
+        LocalDate fromDay = parseWindowBound(from), toDay = parseWindowBound(to);
+        checkWindow(from, to, fromDay, toDay);
+        CryptoPriceStats stats = service.getAggregateStatsOfCrypto(cryptoName, fromDay, toDay);
+        if (stats == null) {
+            throw new WindowOutOfStoredRangeException(cryptoName, from, to);
+        }
+        return ResponseEntity.ok(stats);
     }
 
     /**
-     * Return the cryptos sorted by normalized aggregate price, in descending order.
+     * Return the cryptos sorted by normalized aggregate price, in descending order unless ascending order is requested.
+     * Cryptos with equal normalized prices are sorted by name. If a window of days is provided, the normalized price is
+     * computed over that window only, and cryptos without prices within the window are left out. If a limit is provided,
+     * only the first cryptos are returned; without a window, they are found without sorting all cryptos. Without a
+     * window or a limit, the payload is served pre-serialized from the latest {@link StatsSnapshot}, with its ETag, like
+     * in {@link #getAggregateStats()}.
+     * @param from The first day of the window, inclusive, in YYYY-mm-dd format. Optional.
+     * @param to The last day of the window, inclusive, in YYYY-mm-dd format. Optional.
+     * @param order The sort order, {@literal asc} or {@literal desc}, case-insensitive. Defaults to {@literal desc}.
+     * @param limit The maximum number of cryptos to return. Optional, and positive if provided.
      * @return A {@link ResponseEntity} containing the cryptos as keys and their normalized aggregate price as values,
-     * where the entries are sorted in descending order by the values.
+     * where the entries are sorted in the requested order by the values.
+     * @throws BadDateFormatException If a window bound is NOT in YYYY-mm-dd format.
+     * @throws InvalidDateRangeException If the window starts after it ends.
      */
-    @Operation(summary = "Return cryptos sorted by normalized aggregate price in descending order")
+    @Operation(summary = "Return cryptos sorted by normalized aggregate price, optionally over a window of days, "
+            + "in asc or desc order (default desc), and optionally limited to the first cryptos")
     @ApiResponses(
             value = {
                     @ApiResponse(
                             responseCode = "200",
                             description = "Sorted cryptos returned",
                             content = @Content),
+                    @ApiResponse(
+                            responseCode = "304",
+                            description = "Sorted cryptos not modified since the ETag in If-None-Match",
+                            content = @Content),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Bad window of days, order or limit",
+                            content = @Content),
                     @ApiResponse(
                             responseCode = "401",
                             description = "Unauthenticated user",
                             content = @Content)
                     })
     @GetMapping("/sorted")
-    public ResponseEntity<?> getCryptosSortedByNormalizedPrice(){
-        return ResponseEntity.ok(service.getCryptosSortedByNormalizedPrice(DESC));
+    public ResponseEntity<?> getCryptosSortedByNormalizedPrice(
+            @RequestParam(name = "from", required = false) String from,
+            @RequestParam(name = "to", required = false) String to,
+            @RequestParam(name = "order", defaultValue = "desc")
+                    @Pattern(regexp = "(?i)\\s*(asc|desc)\\s*", message = "order must be asc or desc") String order,
+            @RequestParam(name = "limit", required = false) @Positive Integer limit)
+            throws BadDateFormatException, InvalidDateRangeException {
+        SortOrder sortOrder = sortOrder(order);
+        if (from == null && to == null) {
+            return limit == null
+                    ? snapshotResponse(service.getStatsSnapshot().getSortedByNormalizedPricePayload(sortOrder))
+                    : ResponseEntity.ok(service.getFirstCryptosByNormalizedPrice(sortOrder, limit));
+        }
+        LocalDate fromDay = parseWindowBound(from), toDay = parseWindowBound(to);
+        checkWindow(from, to, fromDay, toDay);
+        return ResponseEntity.ok(first(service.getCryptosSortedByNormalizedPrice(sortOrder, fromDay, toDay), limit));
+    }
+
+    /**
+     * Return the rank of a specific crypto among all cryptos, in descending order of normalized aggregate price. Cryptos
+     * with equal normalized prices share the same rank, and the next rank skips as many places as there are ties.
+     * @param cryptoName The crypto to rank.
+     * @return A {@link ResponseEntity} with the crypto, its normalized price, its rank and the number of ranked cryptos.
+     * @throws UnsupportedCryptoException if the user provides an unsupported cryptocurrency.
+     */
+    @Operation(summary = "Return the rank of a specific crypto by normalized aggregate price, in descending order")
+    @ApiResponses(
+            value = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Rank successfully returned",
+                            content = @Content),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Blank name provided",
+                            content = @Content),
+                    @ApiResponse(
+                            responseCode = "401",
+                            description = "Unauthenticated user",
+                            content = @Content),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Unsupported cryptocurrency",
+                            content = @Content)
+            })
+    @GetMapping("/rank/{cryptoName}")
+    public ResponseEntity<?> getRankOfCrypto(@PathVariable @NotBlank String cryptoName)
+            throws UnsupportedCryptoException {
+        cryptoName = cryptoName.trim();
+        CryptoRank rank = service.getRankOfCrypto(cryptoName);
+        if (rank == null) {
+            throw new UnsupportedCryptoException(cryptoName);
+        }
+        return ResponseEntity.ok(rank);
     }
 
     /**
@@ -162,16 +271,16 @@ public class CryptoRecController {
     public ResponseEntity<?> bestCryptoOfTheDay(@RequestParam(name = "date") @NotBlank String date)
             throws BadDateFormatException, DateOutOfStoredRangeException {
         date = date.strip();
-        // Check to see if the user supplied the date in the required format.
-        try {
-            LocalDate.parse(date, DATE_FORMATTER); // Call for side-effect
-        } catch (DateTimeParseException exception){
-            throw new BadDateFormatException("Date " + date + " not in YYYY-mm-dd format.");
-        }
+        parseDate(date); // Check to see if the user supplied the date in the required format.
         Map.Entry<String, BigDecimal> bestCryptoOfDay = service.getBestCryptoForDate(date);
         if(bestCryptoOfDay == null){ // Signifies that we couldn't find data for *any* crypto for that date.
             throw new DateOutOfStoredRangeException(date);
         }
         return ResponseEntity.ok(bestCryptoOfDay);
     }
+
+    // Spring MVC compares the ETag with If-None-Match itself, and turns a match into a 304 without writing the body.
+    private static ResponseEntity<byte[]> snapshotResponse(StatsSnapshot.Payload payload) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).eTag(payload.eTag()).body(payload.json());
+    }
 }
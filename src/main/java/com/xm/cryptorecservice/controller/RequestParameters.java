@@ -0,0 +1,86 @@
+package com.xm.cryptorecservice.controller;
+
+import static com.xm.cryptorecservice.util.Constants.DATE_FORMATTER;
+
+import com.xm.cryptorecservice.util.SortOrder;
+import com.xm.cryptorecservice.util.exceptions.BadDateFormatException;
+import com.xm.cryptorecservice.util.exceptions.InvalidDateRangeException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * {@literal final} class whose {@literal static} methods parse and check the request parameters of the Crypto
+ * Recommendations API, so that the servlet controllers and the reactive ones of the {@literal reactive} Maven profile
+ * answer bad requests the same way.
+ *
+ * @author jason
+ * @see CryptoRecController
+ */
+final class RequestParameters {
+
+    private RequestParameters() {}
+
+    /**
+     * @param date A date string, which must be in YYYY-mm-dd format, possibly surrounded by whitespace.
+     * @return The parsed {@link LocalDate}.
+     * @throws BadDateFormatException If the date is NOT in YYYY-mm-dd format.
+     */
+    static LocalDate parseDate(String date) throws BadDateFormatException {
+        date = date.strip();
+        try {
+            return LocalDate.parse(date, DATE_FORMATTER);
+        } catch (DateTimeParseException exception){
+            throw new BadDateFormatException("Date " + date + " not in YYYY-mm-dd format.");
+        }
+    }
+
+    /**
+     * @param date An optional window bound, where {@literal null} stands for an unbounded window.
+     * @return The parsed {@link LocalDate}, or {@literal null} if the bound was not provided.
+     * @throws BadDateFormatException If the bound is NOT in YYYY-mm-dd format.
+     */
+    static LocalDate parseWindowBound(String date) throws BadDateFormatException {
+        return date == null ? null : parseDate(date);
+    }
+
+    /**
+     * @param from The first day of the window, as provided.
+     * @param to The last day of the window, as provided.
+     * @param fromDay The parsed first day of the window, or {@literal null}.
+     * @param toDay The parsed last day of the window, or {@literal null}.
+     * @throws InvalidDateRangeException If the window starts after it ends.
+     */
+    static void checkWindow(String from, String to, LocalDate fromDay, LocalDate toDay) throws InvalidDateRangeException {
+        if (fromDay != null && toDay != null && fromDay.isAfter(toDay)) {
+            throw new InvalidDateRangeException(from.strip(), to.strip());
+        }
+    }
+
+    /**
+     * @param order {@literal asc} or {@literal desc}, case-insensitive, as validated by the controllers.
+     * @return The corresponding {@link SortOrder}.
+     */
+    static SortOrder sortOrder(String order) {
+        return SortOrder.valueOf(order.strip().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * @param sorted Cryptos sorted by normalized price.
+     * @param limit The maximum number of cryptos to keep, or {@literal null} to keep them all.
+     * @return The first {@code limit} entries of {@code sorted}, in order.
+     */
+    static Map<String, BigDecimal> first(SortedMap<String, BigDecimal> sorted, Integer limit) {
+        if (limit == null || limit >= sorted.size()) {
+            return sorted;
+        }
+        Map<String, BigDecimal> first = new LinkedHashMap<>();
+        sorted.entrySet().stream().limit(limit).forEach(entry -> first.put(entry.getKey(), entry.getValue()));
+        return first;
+    }
+}
@@ -1,27 +1,47 @@
 package com.xm.cryptorecservice.io;
 
+import com.xm.cryptorecservice.persistence.BulkPriceLoader;
 import com.xm.cryptorecservice.persistence.CryptoPricePersister;
 import com.xm.cryptorecservice.persistence.DatabaseConnection;
+import com.xm.cryptorecservice.persistence.DemultiplexedPricePersister;
+import com.xm.cryptorecservice.persistence.InMemoryAggregateStats;
+import com.xm.cryptorecservice.persistence.InMemoryPriceSeriesStore;
+import com.xm.cryptorecservice.persistence.IngestionCheckpoints;
+import com.xm.cryptorecservice.persistence.IngestionManifest;
+import com.xm.cryptorecservice.util.IngestionMode;
+import com.xm.cryptorecservice.util.concurrent.WorkerPool;
+import com.xm.cryptorecservice.util.concurrent.WorkerPools;
 import com.xm.cryptorecservice.util.logger.Logged;
+import com.xm.cryptorecservice.util.metrics.CryptoMetrics;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
-import static com.xm.cryptorecservice.util.Constants.MAX_THREADS;
 
 /**
  * A utility class responsible for parsing a given directory of CSV files with crypto prices. Creates one database table
- * per CSV file. Spawns multiple worker threads to parallelize this process.
+ * per CSV file, which is streamed into the table chunk by chunk, and publishes the aggregate stats of every file to the
+ * {@link InMemoryAggregateStats} as soon as it has been read. Parallelizes this process across the workers of the
+ * {@link WorkerPool#INGESTION} pool.
+ * <p>
+ * With {@link IngestionMode#MAPPED_PARALLEL}, every file is additionally split across all cores by a
+ * {@link MappedCryptoPriceFileReader}, so that one huge file does not end up on a single thread.
+ * <p>
+ * Combined CSV files, with the interleaved rows of many cryptos, are read by the {@link MappedCryptoPriceFileReader}
+ * too, which routes their rows by symbol, and every crypto in them is then written to a table of its own.
  *
  * @author jason
  */
@@ -32,35 +52,108 @@ import static com.xm.cryptorecservice.util.Constants.MAX_THREADS;
 public class CryptoDirectoryParser {
 
     private final DatabaseConnection db;
+    private final InMemoryPriceSeriesStore seriesStore;
+    private final InMemoryAggregateStats inMemoryDb;
+    private final IngestionCheckpoints checkpoints;
+    private final IngestionManifest manifest;
+    private final BulkPriceLoader bulkLoader;
     private final CryptoPriceFileReader csvReader;
+    private final MappedCryptoPriceFileReader mappedCsvReader;
+    private final WorkerPools workerPools;
+    private final CryptoMetrics metrics;
+
+    @Value("${crypto.ingestion.mode:STREAMING}")
+    private IngestionMode ingestionMode;
 
     /**
-     * Persist all the CSVs in the directory in the database, persisting one table per each CSV,
-     * and creates another table with all the names of supported cryptos. Employs multiple threads to speed up the process.
-     *
      * @param directory An absolute or relative path towards the directory that contains the .csv files.
+     * @return A {@link List} of the .csv files in the directory.
+     */
+    public List<File> listCSVs(String directory) {
+        return Arrays.stream(Objects.requireNonNull(new File(directory).listFiles()))
+                .filter(file -> file.isFile() && file.getName().endsWith(".csv"))
+                .toList();
+    }
+
+    /**
+     * Persist all the provided CSVs in the database, persisting one table per each CSV, except for those whose prices
+     * have already been restored to memory, and whose tables are therefore up to date. Creates another table with all
+     * the names of supported cryptos. Also loads the price series of every CSV persisted to the {@link
+     * InMemoryPriceSeriesStore}, and its aggregate stats to the {@link InMemoryAggregateStats}. Employs multiple threads
+     * to speed up the process.
+     *
+     * @param csvs A {@link List} of .csv files, every one of which is named after the crypto whose prices it holds.
+     * @param restored A {@link Collection} of those of the files whose prices have already been restored to memory, e.g.
+     *                 from a {@link com.xm.cryptorecservice.persistence.StoreSnapshotFile}.
+     * @return A list of crypto names, corresponding to the names of all the provided .csv files.
+     */
+    public List<String> persistAllCSVs(List<File> csvs, Collection<File> restored) {
+        persistCSVs(csvs.stream().filter(csv -> !restored.contains(csv)).toList());
+        List<String> cryptoNames = csvs.stream().map(CryptoDirectoryParser::cryptoName).toList();
+        db.createTableOfCryptoNames(cryptoNames);
+        return cryptoNames;
+    }
+
+    /**
+     * Persist the provided CSVs in the database, one table per CSV, and load their price series to the {@link
+     * InMemoryPriceSeriesStore} and their aggregate stats to the {@link InMemoryAggregateStats}, across the workers of the {@link WorkerPool#INGESTION} pool. The table of supported
+     * cryptos is not touched.
+     *
+     * @param csvs A {@link List} of .csv files, every one of which is named after the crypto whose prices it holds.
      * @return A list of crypto names, corresponding to the names of the .csv files that were parsed.
      */
-    public List<String> persistAllCSVsInDirectory(String directory) {
-        List<File> csvs =
-                Arrays.stream(Objects.requireNonNull(new File(directory).listFiles()))
-                        .filter(file -> file.isFile() && file.getName().endsWith(".csv"))
-                        .toList();
-        int numWorkers = Math.min(csvs.size(), MAX_THREADS);
-        ExecutorService workers = Executors.newFixedThreadPool(numWorkers);
-        CountDownLatch latch = new CountDownLatch(numWorkers);
-        for (File csv : csvs) {
-            workers.submit(new CryptoPricePersister(db, csv, csvReader, latch));
+    public List<String> persistCSVs(List<File> csvs) {
+        CryptoPriceChunkReader reader =
+                ingestionMode == IngestionMode.MAPPED_PARALLEL ? mappedCsvReader : csvReader;
+        log.info("Reading " + csvs.size() + " CSV files in " + ingestionMode + " mode.");
+        workerPools.runAllAndWait(WorkerPool.INGESTION, csvs,
+                (csv, latch) -> new CryptoPricePersister(db, csv, reader, seriesStore, inMemoryDb, checkpoints,
+                        manifest, bulkLoader, metrics, latch));
+        return csvs.stream().map(CryptoDirectoryParser::cryptoName).toList();
+    }
+
+    /**
+     * Persist the prices of every crypto in the provided combined CSVs, each of which may hold the rows of any number of
+     * cryptos, in a table per crypto. Every file is read in parallel and demultiplexed by symbol in memory, without being
+     * split on disk; the prices of a crypto in several files, e.g. daily ones, are merged in the order of their names.
+     * Cryptos that have CSV files of their own are left to those, and skipped. The tables of the rest are rewritten, and
+     * their price series and aggregate stats loaded to memory, across the workers of the {@link WorkerPool#INGESTION}
+     * pool. Their names are added to the table of supported cryptos.
+     *
+     * @param combinedCsvs A {@link List} of combined .csv files.
+     * @param perFileCryptos A {@link Collection} of the cryptos persisted from CSV files of their own.
+     * @return A list of the names of the cryptos persisted from the combined files.
+     */
+    public List<String> persistCombinedCSVs(List<File> combinedCsvs, Collection<String> perFileCryptos) {
+        Map<String, MappedCryptoPriceFileReader.SymbolPrices> bySymbol = new HashMap<>();
+        for (File csv : combinedCsvs.stream().sorted(Comparator.comparing(File::getName)).toList()) {
+            try {
+                log.info("Demultiplexing combined CSV file " + csv.getName() + ".");
+                bySymbol = MappedCryptoPriceFileReader.mergeBySymbol(bySymbol, mappedCsvReader.readBySymbol(csv));
+            } catch (IOException e) {
+                log.warn("Exception received: " + e.getMessage());
+                throw new UncheckedIOException(e);
+            }
         }
-        try {
-            latch.await();
-        } catch (InterruptedException ignored) {
+        List<String> overlapping = bySymbol.keySet().stream().filter(perFileCryptos::contains).sorted().toList();
+        if (!overlapping.isEmpty()) {
+            log.warn("Skipping the rows of cryptos " + overlapping + " in combined CSV files, since they have CSV files "
+                    + "of their own.");
         }
-        List<String> cryptoNames =
-                csvs.stream()
-                        .map(file -> file.getName().substring(0, file.getName().length() - 4))
-                        .toList();
-        db.createTableOfCryptoNames(cryptoNames);
+        Map<String, MappedCryptoPriceFileReader.SymbolPrices> prices = bySymbol;
+        List<String> cryptoNames = prices.keySet().stream().filter(crypto -> !perFileCryptos.contains(crypto)).sorted()
+                .toList();
+        workerPools.runAllAndWait(WorkerPool.INGESTION, cryptoNames,
+                (crypto, latch) -> new DemultiplexedPricePersister(db, crypto, prices.get(crypto).prices(),
+                        prices.get(crypto).stats(), seriesStore, inMemoryDb, manifest, bulkLoader, latch));
+        if (!cryptoNames.isEmpty()) {
+            db.addCryptoNames(cryptoNames);
+        }
+        log.info("Persisted " + cryptoNames.size() + " cryptos from " + combinedCsvs.size() + " combined CSV files.");
         return cryptoNames;
     }
+
+    private static String cryptoName(File csv) {
+        return csv.getName().substring(0, csv.getName().length() - 4);
+    }
 }
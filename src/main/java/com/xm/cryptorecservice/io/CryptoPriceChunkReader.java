@@ -0,0 +1,51 @@
+package com.xm.cryptorecservice.io;
+
+import com.xm.cryptorecservice.model.crypto.CryptoPriceChunk;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Anything that can read a CSV file of crypto prices in the {@code timestamp,symbol,price} layout and hand
+ * its rows downstream in {@link CryptoPriceChunk}s. Every file holds the prices of the single crypto that it is
+ * named after, e.g. BTC.csv those of BTC, and every row must carry its symbol.
+ *
+ * @author jason
+ * @see CryptoPriceFileReader
+ * @see MappedCryptoPriceFileReader
+ */
+public interface CryptoPriceChunkReader {
+
+    /**
+     * Read the provided CSV file and hand its rows to {@code sink} in chunks. The first line of the file
+     * is treated as a header and skipped.
+     *
+     * @param csv A {@link File} to read data from.
+     * @param sink A {@link Consumer} that is handed every chunk of rows. Implementations may re-use the
+     *     same {@link CryptoPriceChunk} instance between calls, so the sink must not hold on to it.
+     * @return The number of rows read.
+     * @throws IOException if the argument does not correspond to a readable file.
+     * @throws NumberFormatException if a row of the file is malformed.
+     * @throws IllegalArgumentException if a row of the file is of another crypto than the file is named after.
+     */
+    long streamCSV(File csv, Consumer<CryptoPriceChunk> sink) throws IOException;
+
+    /**
+     * Read the newline-terminated lines of the provided CSV file that start at or after the provided byte offset, and
+     * hand their rows to {@code sink} in chunks. The first line of the file is treated as a header and skipped if, and
+     * only if, {@code fromOffset} is {@literal 0}. A last line without a newline is considered still being written, and is
+     * left for the next call.
+     *
+     * @param csv A {@link File} to read data from.
+     * @param fromOffset The byte offset to start reading from. Must be the start of a line, e.g. an offset previously
+     *     returned by this method.
+     * @param sink A {@link Consumer} that is handed every chunk of rows. Implementations may re-use the
+     *     same {@link CryptoPriceChunk} instance between calls, so the sink must not hold on to it.
+     * @return The byte offset right after the last line that was read, to resume reading from.
+     * @throws IOException if the argument does not correspond to a readable file.
+     * @throws NumberFormatException if a row of the file is malformed.
+     * @throws IllegalArgumentException if a row of the file is of another crypto than the file is named after.
+     */
+    long tailCSV(File csv, long fromOffset, Consumer<CryptoPriceChunk> sink) throws IOException;
+}
@@ -1,53 +1,190 @@
 package com.xm.cryptorecservice.io;
 
-import com.opencsv.CSVParser;
-import com.opencsv.CSVParserBuilder;
-import com.opencsv.CSVReader;
-import com.opencsv.CSVReaderBuilder;
-import com.opencsv.exceptions.CsvException;
+import static com.xm.cryptorecservice.util.Constants.CSV_CHUNK_SIZE;
+
 import com.xm.cryptorecservice.model.crypto.CryptoPrice;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceChunk;
 import com.xm.cryptorecservice.util.logger.Logged;
 
 import org.springframework.stereotype.Service;
 
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 /**
- * Reads a CSV file in memory and returns a {@link List} of {@link CryptoPrice} instances, one per row of the CSV.
+ * Streams a CSV file of crypto prices in the {@code timestamp,symbol,price} layout. The file is read
+ * through a fixed-size byte buffer and parsed straight into primitive {@link CryptoPriceChunk}s, which
+ * are handed downstream as soon as they fill up. The whole file is never held in memory. Every row must
+ * carry the symbol of the crypto that the file is named after.
  *
- * @see CSVReader
+ * @author jason
+ * @see CryptoPriceRowParser
+ * @see MappedCryptoPriceFileReader
  * @see CryptoDirectoryParser
- * @see CryptoPrice
+ * @see CryptoPriceChunk
  */
 @Service
 @Logged
-public class CryptoPriceFileReader {
+public class CryptoPriceFileReader implements CryptoPriceChunkReader {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Stream a single CSV file in chunks of {@link
+     * com.xm.cryptorecservice.util.Constants#CSV_CHUNK_SIZE} rows. The first line of the file is
+     * treated as a header and skipped.
+     *
+     * @param csv A {@link File} to read data from.
+     * @param sink A {@link Consumer} that is handed every chunk as soon as it fills up, plus one last
+     *     partial chunk at the end of the file. The same {@link CryptoPriceChunk} instance is re-used
+     *     between calls, so the sink must not hold on to it.
+     * @return The number of rows read.
+     * @throws IOException if the argument does not correspond to a readable file, or if any of its lines
+     *     is longer than our read buffer.
+     * @throws NumberFormatException if a row of the file is malformed.
+     * @throws IllegalArgumentException if a row of the file is of another crypto than the file is named after.
+     */
+    @Override
+    public long streamCSV(File csv, Consumer<CryptoPriceChunk> sink) throws IOException {
+        return streamCSV(csv, CSV_CHUNK_SIZE, sink);
+    }
+
+    /**
+     * Stream a single CSV file in chunks of the provided size. The first line of the file is treated as
+     * a header and skipped.
+     *
+     * @param csv A {@link File} to read data from.
+     * @param chunkSize The maximum number of rows handed to the sink at once.
+     * @param sink A {@link Consumer} that is handed every chunk as soon as it fills up, plus one last
+     *     partial chunk at the end of the file. The same {@link CryptoPriceChunk} instance is re-used
+     *     between calls, so the sink must not hold on to it.
+     * @return The number of rows read.
+     * @throws IOException if the argument does not correspond to a readable file, or if any of its lines
+     *     is longer than our read buffer.
+     * @throws NumberFormatException if a row of the file is malformed.
+     * @throws IllegalArgumentException if a row of the file is of another crypto than the file is named after.
+     */
+    public long streamCSV(File csv, int chunkSize, Consumer<CryptoPriceChunk> sink)
+            throws IOException {
+        long[] rows = new long[1];
+        read(csv, 0, true, chunkSize, chunk -> {
+            rows[0] += chunk.size();
+            sink.accept(chunk);
+        });
+        return rows[0];
+    }
 
     /**
-     * Read a single CSV file in memory and parse its rows into a {@link List} of {@link CryptoPrice} instances.
+     * Stream the newline-terminated lines of a CSV file that start at or after the provided byte offset, in chunks of
+     * {@link com.xm.cryptorecservice.util.Constants#CSV_CHUNK_SIZE} rows. See {@link
+     * CryptoPriceChunkReader#tailCSV(File, long, Consumer)}.
+     *
+     * @param csv A {@link File} to read data from.
+     * @param fromOffset The byte offset to start reading from, which must be the start of a line.
+     * @param sink A {@link Consumer} that is handed every chunk as soon as it fills up, plus one last
+     *     partial chunk. The same {@link CryptoPriceChunk} instance is re-used between calls, so the sink must
+     *     not hold on to it.
+     * @return The byte offset right after the last line that was read, to resume reading from.
+     * @throws IOException if the argument does not correspond to a readable file, or if any of its lines
+     *     is longer than our read buffer.
+     * @throws NumberFormatException if a row of the file is malformed.
+     * @throws IllegalArgumentException if a row of the file is of another crypto than the file is named after.
+     */
+    @Override
+    public long tailCSV(File csv, long fromOffset, Consumer<CryptoPriceChunk> sink) throws IOException {
+        return read(csv, fromOffset, false, CSV_CHUNK_SIZE, sink);
+    }
+
+    /** @return The byte offset right after the last line that was parsed. */
+    private static long read(File csv, long fromOffset, boolean parseUnterminatedLastLine, int chunkSize,
+                             Consumer<CryptoPriceChunk> sink) throws IOException {
+        CryptoPriceChunk chunk = new CryptoPriceChunk(chunkSize);
+        CryptoPriceRowParser.RowSink rows =
+                CryptoPriceRowParser.appendingRowsOf(CryptoPriceRowParser.symbolOf(csv), chunk);
+        boolean headerSkipped = fromOffset > 0;
+        long bufferOffset = fromOffset; // File offset of the first byte in the buffer.
+        long consumedOffset = fromOffset;
+        try (FileChannel channel = FileChannel.open(csv.toPath(), StandardOpenOption.READ)) {
+            channel.position(fromOffset);
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            boolean endOfFile = false;
+            while (!endOfFile) {
+                endOfFile = channel.read(buffer) < 0;
+                buffer.flip();
+                int lineStart = 0;
+                int limit = buffer.limit();
+                for (int i = 0; i < limit; i++) {
+                    if (buffer.get(i) != '\n') {
+                        continue;
+                    }
+                    if (headerSkipped) {
+                        parseInto(buffer, lineStart, i, rows, chunk, sink);
+                    }
+                    headerSkipped = true;
+                    lineStart = i + 1;
+                }
+                consumedOffset = bufferOffset + lineStart;
+                if (endOfFile) { // Last line may not be newline-terminated.
+                    if (headerSkipped && parseUnterminatedLastLine && lineStart < limit) {
+                        parseInto(buffer, lineStart, limit, rows, chunk, sink);
+                        consumedOffset = bufferOffset + limit;
+                    }
+                } else {
+                    buffer.position(lineStart);
+                    buffer.compact();
+                    bufferOffset += lineStart;
+                    if (!buffer.hasRemaining()) {
+                        throw new IOException(
+                                "Line longer than " + READ_BUFFER_SIZE + " bytes in " + csv.getName());
+                    }
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            sink.accept(chunk);
+        }
+        return consumedOffset;
+    }
+
+    /**
+     * Read a single CSV file in memory and parse its rows into a {@link List} of {@link CryptoPrice}
+     * instances. Convenient for small files only; prefer {@link #streamCSV(File, Consumer)} for anything
+     * that might not comfortably fit in memory.
+     *
      * @param csv A {@link File} to read data from.
      * @return A {@link List} of {@link CryptoPrice} instances, one per row of the input CSV file.
      * @throws IOException if the argument does not correspond to a valid CSV file.
-     * @throws RuntimeException if the {@link CSVReader} employed throws a {@link CsvException}.
-     * @throws OutOfMemoryError if the CSV file is too large to fit in memory.
+     * @throws NumberFormatException if a row of the file is malformed.
+     * @throws IllegalArgumentException if a row of the file is of another crypto than the file is named after.
      */
     public List<CryptoPrice> readCSV(File csv) throws IOException {
-        FileReader reader = new FileReader(csv);
-        CSVParser parser =
-                new CSVParserBuilder().withSeparator(',').withIgnoreQuotations(true).build();
-        try (CSVReader csvReader =
-                new CSVReaderBuilder(reader).withSkipLines(1).withCSVParser(parser).build()) {
-            return csvReader.readAll().stream()
-                    .map(CryptoPrice::fromCSVRow)
-                    .collect(Collectors.toList()); // memory-intensive operation, consider
-            // parallelStream
-        } catch (CsvException e) {
-            e.printStackTrace();
-            throw new RuntimeException(e);
+        List<CryptoPrice> prices = new ArrayList<>();
+        streamCSV(
+                csv,
+                chunk -> {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        prices.add(chunk.get(i));
+                    }
+                });
+        return prices;
+    }
+
+    private static void parseInto(
+            ByteBuffer buffer,
+            int from,
+            int to,
+            CryptoPriceRowParser.RowSink rows,
+            CryptoPriceChunk chunk,
+            Consumer<CryptoPriceChunk> sink) {
+        if (CryptoPriceRowParser.parseRow(buffer, from, to, rows) && chunk.isFull()) {
+            sink.accept(chunk);
+            chunk.clear();
         }
     }
 }
@@ -0,0 +1,227 @@
+package com.xm.cryptorecservice.io;
+
+import static com.xm.cryptorecservice.util.Constants.BIG_DECIMAL_SCALE;
+
+import com.xm.cryptorecservice.model.crypto.CryptoPriceChunk;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Allocation-free parser for rows of the {@code timestamp,symbol,price} CSV layout. Rows are parsed
+ * straight out of a {@link ByteBuffer}, with the timestamp parsed into epoch milliseconds and the price
+ * into a {@literal long} scaled by {@link com.xm.cryptorecservice.util.Constants#BIG_DECIMAL_SCALE}
+ * decimal digits. Digits beyond that scale are rounded half-up, like MySQL does when inserting into a
+ * {@code DECIMAL(20, 10)} column. The symbol of every row is handed over as is, to be checked against
+ * that of its file, or to route the row to the prices of its crypto.
+ *
+ * @author jason
+ * @see CryptoPriceFileReader
+ */
+final class CryptoPriceRowParser {
+
+    private static final long[] POWERS_OF_TEN = new long[BIG_DECIMAL_SCALE + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private CryptoPriceRowParser() {}
+
+    /**
+     * Receives the fields of every row parsed by {@link #parseRow(ByteBuffer, int, int, RowSink)}. The symbol is handed
+     * over as a range of the buffer, so that it need not be copied for every row.
+     */
+    @FunctionalInterface
+    interface RowSink {
+
+        /**
+         * @param buffer The buffer that the row was parsed out of.
+         * @param symbolFrom The absolute position of the first byte of the symbol.
+         * @param symbolTo The absolute position one past the last byte of the symbol.
+         * @param epochMilli The parsed timestamp, in milliseconds since the epoch.
+         * @param scaledPrice The parsed price, scaled like in {@link CryptoPriceChunk}.
+         */
+        void accept(ByteBuffer buffer, int symbolFrom, int symbolTo, long epochMilli, long scaledPrice);
+    }
+
+    /**
+     * Parse the row that lives in {@code buffer} between the absolute positions {@code from}
+     * (inclusive) and {@code to} (exclusive) and hand its fields to {@code sink}. The row should not
+     * contain its line terminator, although a trailing carriage return is tolerated. Blank rows are
+     * skipped.
+     *
+     * @param buffer The buffer to read bytes from. Its position and limit are left untouched.
+     * @param from The absolute position of the first byte of the row.
+     * @param to The absolute position one past the last byte of the row.
+     * @param sink The {@link RowSink} to hand the fields of the parsed row to.
+     * @return {@literal true} if a row was handed to the sink, {@literal false} if the row was blank.
+     * @throws NumberFormatException if the row is malformed.
+     */
+    static boolean parseRow(ByteBuffer buffer, int from, int to, RowSink sink) {
+        if (to > from && buffer.get(to - 1) == '\r') {
+            to--;
+        }
+        if (to == from) {
+            return false;
+        }
+        int firstComma = indexOf(buffer, (byte) ',', from, to);
+        int secondComma = firstComma < 0 ? -1 : indexOf(buffer, (byte) ',', firstComma + 1, to);
+        if (secondComma < 0) {
+            throw new NumberFormatException("Expected 3 comma-separated fields in row: " + asString(buffer, from, to));
+        }
+        sink.accept(buffer, firstComma + 1, secondComma,
+                parseEpochMilli(buffer, from, firstComma),
+                parseScaledPrice(buffer, secondComma + 1, to));
+        return true;
+    }
+
+    /**
+     * A {@link RowSink} for the rows of a file that holds the prices of a single crypto: every row is appended to {@code
+     * chunk}, which must not be full, once its symbol has been checked against that of the file.
+     *
+     * @param symbol The symbol of the crypto, as returned by {@link #symbolOf(File)}.
+     * @param chunk The {@link CryptoPriceChunk} to append the rows to.
+     * @return A {@link RowSink} that throws an {@link IllegalArgumentException} for rows of any other symbol.
+     */
+    static RowSink appendingRowsOf(byte[] symbol, CryptoPriceChunk chunk) {
+        return (buffer, symbolFrom, symbolTo, epochMilli, scaledPrice) -> {
+            if (!symbolEquals(buffer, symbolFrom, symbolTo, symbol)) {
+                throw new IllegalArgumentException("Row of symbol " + asString(buffer, symbolFrom, symbolTo)
+                        + " in the CSV file of crypto " + new String(symbol, StandardCharsets.US_ASCII));
+            }
+            chunk.add(epochMilli, scaledPrice);
+        };
+    }
+
+    /**
+     * @param csv A CSV file named after the crypto whose prices it holds, e.g. BTC.csv.
+     * @return The symbol that every row of the file is expected to carry, e.g. BTC.
+     */
+    static byte[] symbolOf(File csv) {
+        String name = csv.getName();
+        return (name.endsWith(".csv") ? name.substring(0, name.length() - 4) : name).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Parse an unsigned decimal integer, such as an epoch millisecond timestamp.
+     *
+     * @param buffer The buffer to read bytes from.
+     * @param from The absolute position of the first digit.
+     * @param to The absolute position one past the last digit.
+     * @return The parsed value.
+     * @throws NumberFormatException if the bytes are not all digits or the value overflows a {@literal long}.
+     */
+    static long parseEpochMilli(ByteBuffer buffer, int from, int to) {
+        if (from == to) {
+            throw new NumberFormatException("Empty timestamp field.");
+        }
+        long value = 0;
+        try {
+            for (int i = from; i < to; i++) {
+                value = Math.addExact(Math.multiplyExact(value, 10), digit(buffer, i, from, to));
+            }
+        } catch (ArithmeticException overflow) {
+            throw new NumberFormatException("Timestamp overflows: " + asString(buffer, from, to));
+        }
+        return value;
+    }
+
+    /**
+     * Parse a plain decimal number (optionally signed, no exponent) into a {@literal long} scaled by
+     * {@link com.xm.cryptorecservice.util.Constants#BIG_DECIMAL_SCALE} decimal digits.
+     *
+     * @param buffer The buffer to read bytes from.
+     * @param from The absolute position of the first byte of the number.
+     * @param to The absolute position one past the last byte of the number.
+     * @return The scaled value.
+     * @throws NumberFormatException if the bytes do not form a decimal number or the scaled value
+     *     overflows a {@literal long}.
+     */
+    static long parseScaledPrice(ByteBuffer buffer, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+        if (i == to) {
+            throw new NumberFormatException("Empty price field.");
+        }
+        long unscaled = 0;
+        int fractionDigits = 0;
+        boolean seenPoint = false;
+        boolean roundUp = false;
+        try {
+            for (; i < to; i++) {
+                byte b = buffer.get(i);
+                if (b == '.' && !seenPoint) {
+                    seenPoint = true;
+                    continue;
+                }
+                int digit = digit(buffer, i, from, to);
+                if (seenPoint && fractionDigits == BIG_DECIMAL_SCALE) {
+                    // Only the first digit past our scale matters for half-up rounding.
+                    roundUp = digit >= 5;
+                    for (i++; i < to; i++) {
+                        digit(buffer, i, from, to); // Validate the rest of the digits.
+                    }
+                    break;
+                }
+                unscaled = Math.addExact(Math.multiplyExact(unscaled, 10), digit);
+                if (seenPoint) {
+                    fractionDigits++;
+                }
+            }
+            long scaled =
+                    Math.multiplyExact(unscaled, POWERS_OF_TEN[BIG_DECIMAL_SCALE - fractionDigits]);
+            if (roundUp) {
+                scaled = Math.incrementExact(scaled);
+            }
+            return negative ? -scaled : scaled;
+        } catch (ArithmeticException overflow) {
+            throw new NumberFormatException("Price overflows: " + asString(buffer, from, to));
+        }
+    }
+
+    private static int digit(ByteBuffer buffer, int index, int from, int to) {
+        int digit = buffer.get(index) - '0';
+        if (digit < 0 || digit > 9) {
+            throw new NumberFormatException("Not a number: " + asString(buffer, from, to));
+        }
+        return digit;
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte target, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean symbolEquals(ByteBuffer buffer, int from, int to, byte[] symbol) {
+        if (to - from != symbol.length) {
+            return false;
+        }
+        for (int i = 0; i < symbol.length; i++) {
+            if (buffer.get(from + i) != symbol[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static String asString(ByteBuffer buffer, int from, int to) {
+        StringBuilder builder = new StringBuilder(to - from);
+        for (int i = from; i < to; i++) {
+            builder.append((char) buffer.get(i));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,55 @@
+package com.xm.cryptorecservice.io;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Content hashes of our CSV files, which tell apart files that have the same size and modification time. Files are
+ * streamed through a murmur3 128-bit hasher one memory-mapped window at a time, so hashing never holds a file in memory.
+ *
+ * @author jason
+ * @see com.xm.cryptorecservice.persistence.IngestionManifest
+ * @see com.xm.cryptorecservice.persistence.StoreSnapshotFile
+ */
+public final class FileHashes {
+
+    private static final long WINDOW_BYTES = 1 << 30;
+
+    private FileHashes() {}
+
+    /**
+     * @param file A {@link File} to hash.
+     * @return The murmur3 128-bit hash of the contents of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    public static HashCode hash(File file) throws IOException {
+        return hash(file, file.length());
+    }
+
+    /**
+     * @param file A {@link File} to hash.
+     * @param length The number of bytes to hash, from the start of the file.
+     * @return The murmur3 128-bit hash of the first {@code length} bytes of the file.
+     * @throws IOException if the file cannot be read, or is shorter than {@code length} bytes.
+     */
+    public static HashCode hash(File file, long length) throws IOException {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < length) {
+                throw new IOException("Cannot hash " + length + " bytes of " + file + ", which is " + channel.size()
+                        + " bytes long.");
+            }
+            for (long position = 0; position < length; position += WINDOW_BYTES) {
+                hasher.putBytes(channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(WINDOW_BYTES, length - position)));
+            }
+        }
+        return hasher.hash();
+    }
+}
@@ -0,0 +1,363 @@
+package com.xm.cryptorecservice.io;
+
+import static com.xm.cryptorecservice.util.Constants.CSV_CHUNK_SIZE;
+
+import com.xm.cryptorecservice.model.crypto.CryptoPriceChunk;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceColumns;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceStatsAccumulator;
+import com.xm.cryptorecservice.util.logger.Logged;
+
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+
+/**
+ * Reads a CSV file of crypto prices by memory-mapping it and parsing it in parallel. The file is split
+ * into byte ranges at newline boundaries, every range is mapped with {@link FileChannel#map} and parsed
+ * on the common {@link ForkJoinPool}, and the per-range results are merged in timestamp order on the way
+ * back up the fork-join tree. This lets a single huge file use all available cores, at the cost of
+ * holding all of its rows in (primitive) memory before they are handed downstream.
+ * <p>
+ * A combined file, with the interleaved rows of many cryptos, is read the same way by {@link #readBySymbol(File)}: every
+ * range routes its rows by their symbol column to per-symbol buffers, and the buffers of every symbol are merged on the
+ * way back up, so that the file never needs to be split on disk.
+ *
+ * @author jason
+ * @see CryptoPriceFileReader
+ * @see CryptoDirectoryParser
+ */
+@Service
+@Logged
+public class MappedCryptoPriceFileReader implements CryptoPriceChunkReader {
+
+    private static final long DEFAULT_MIN_SPLIT_BYTES = 1024 * 1024;
+    private static final long MAX_SPLIT_BYTES = Integer.MAX_VALUE; // A single mapping cannot be larger.
+    private static final int BOUNDARY_SCAN_BYTES = 4096;
+
+    /**
+     * The prices of a single crypto in a combined CSV file.
+     *
+     * @param prices The prices of the crypto, sorted by timestamp. Rows with the same timestamp keep their order in the
+     *               file.
+     * @param stats The aggregate stats of the prices, folded as they were parsed.
+     */
+    public record SymbolPrices(CryptoPriceColumns prices, CryptoPriceStatsAccumulator stats) {
+
+        /**
+         * Merge these prices with those of the same crypto in a later part of the file, or in a later file. Consumes
+         * both.
+         *
+         * @param later The {@link SymbolPrices} of the later part.
+         * @return A {@link SymbolPrices} holding the prices of both, sorted by timestamp.
+         */
+        public SymbolPrices merge(SymbolPrices later) {
+            stats.addAll(later.stats);
+            return new SymbolPrices(CryptoPriceColumns.mergeSorted(prices, later.prices), stats);
+        }
+    }
+
+    private final long minSplitBytes;
+
+    public MappedCryptoPriceFileReader() {
+        this(DEFAULT_MIN_SPLIT_BYTES);
+    }
+
+    /**
+     * @param minSplitBytes The smallest byte range that is worth parsing as a separate fork-join task.
+     */
+    public MappedCryptoPriceFileReader(long minSplitBytes) {
+        if (minSplitBytes <= 0) {
+            throw new IllegalArgumentException("Split size must be positive, was " + minSplitBytes);
+        }
+        this.minSplitBytes = minSplitBytes;
+    }
+
+    /**
+     * Read the provided CSV file in parallel and hand its rows to {@code sink}, in timestamp order, in
+     * chunks of {@link com.xm.cryptorecservice.util.Constants#CSV_CHUNK_SIZE} rows.
+     *
+     * @param csv A {@link File} to read data from.
+     * @param sink A {@link Consumer} that is handed every chunk of rows. The same {@link
+     *     CryptoPriceChunk} instance is re-used between calls, so the sink must not hold on to it.
+     * @return The number of rows read.
+     * @throws IOException if the argument does not correspond to a readable file.
+     * @throws NumberFormatException if a row of the file is malformed.
+     * @throws IllegalArgumentException if a row of the file is of another crypto than the file is named after.
+     */
+    @Override
+    public long streamCSV(File csv, Consumer<CryptoPriceChunk> sink) throws IOException {
+        CryptoPriceColumns rows = readSorted(csv);
+        rows.forEachChunk(CSV_CHUNK_SIZE, sink);
+        return rows.size();
+    }
+
+    /**
+     * Read the provided CSV file in parallel into a {@link CryptoPriceColumns} sorted by timestamp.
+     *
+     * @param csv A {@link File} to read data from.
+     * @return All the rows of the file, sorted by timestamp.
+     * @throws IOException if the argument does not correspond to a readable file.
+     * @throws NumberFormatException if a row of the file is malformed.
+     * @throws IllegalArgumentException if a row of the file is of another crypto than the file is named after.
+     */
+    public CryptoPriceColumns readSorted(File csv) throws IOException {
+        try (FileChannel channel = FileChannel.open(csv.toPath(), StandardOpenOption.READ)) {
+            return readSorted(channel, 0, channel.size(), CryptoPriceRowParser.symbolOf(csv));
+        }
+    }
+
+    /**
+     * Read the newline-terminated lines of the provided CSV file that start at or after {@code fromOffset} in parallel,
+     * and hand their rows to {@code sink}, in timestamp order, in chunks of {@link
+     * com.xm.cryptorecservice.util.Constants#CSV_CHUNK_SIZE} rows. See {@link
+     * CryptoPriceChunkReader#tailCSV(File, long, Consumer)}.
+     *
+     * @param csv A {@link File} to read data from.
+     * @param fromOffset The byte offset to start reading from, which must be the start of a line.
+     * @param sink A {@link Consumer} that is handed every chunk of rows. The same {@link
+     *     CryptoPriceChunk} instance is re-used between calls, so the sink must not hold on to it.
+     * @return The byte offset right after the last line that was read, to resume reading from.
+     * @throws IOException if the argument does not correspond to a readable file.
+     * @throws NumberFormatException if a row of the file is malformed.
+     * @throws IllegalArgumentException if a row of the file is of another crypto than the file is named after.
+     */
+    @Override
+    public long tailCSV(File csv, long fromOffset, Consumer<CryptoPriceChunk> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(csv.toPath(), StandardOpenOption.READ)) {
+            long toOffset = lastLineEnd(channel, fromOffset, channel.size());
+            readSorted(channel, fromOffset, toOffset, CryptoPriceRowParser.symbolOf(csv)).forEachChunk(CSV_CHUNK_SIZE, sink);
+            return toOffset;
+        }
+    }
+
+    /**
+     * Read a combined CSV file, whose rows may be of any number of cryptos, in any order, in parallel, and route every
+     * row to the prices of the crypto of its symbol column. The aggregate stats of every crypto are folded as its rows are
+     * parsed.
+     *
+     * @param csv A {@link File} to read data from.
+     * @return A {@link Map} from every symbol in the file to its {@link SymbolPrices}.
+     * @throws IOException if the argument does not correspond to a readable file.
+     * @throws NumberFormatException if a row of the file is malformed.
+     * @throws IllegalArgumentException if the symbol of a row is not 1 to 10 ASCII letters or digits, since it will be
+     *     the name of a table.
+     */
+    public Map<String, SymbolPrices> readBySymbol(File csv) throws IOException {
+        try (FileChannel channel = FileChannel.open(csv.toPath(), StandardOpenOption.READ)) {
+            List<long[]> ranges = splitAtNewlines(channel, 0, channel.size());
+            if (ranges.isEmpty()) {
+                return new HashMap<>();
+            }
+            return parseRanges(new ParseRangesTask<>(channel, ranges, 0, ranges.size(),
+                    MappedCryptoPriceFileReader::demultiplexRange, MappedCryptoPriceFileReader::mergeBySymbol));
+        }
+    }
+
+    /**
+     * Merge the prices of every symbol in {@code earlier} with those in {@code later}. Consumes both.
+     *
+     * @param earlier A {@link Map} from symbols to their {@link SymbolPrices} in an earlier part of a file, or in an
+     *                earlier file.
+     * @param later A {@link Map} from symbols to their {@link SymbolPrices} in a later part.
+     * @return A {@link Map} from every symbol of either to its merged {@link SymbolPrices}.
+     */
+    static Map<String, SymbolPrices> mergeBySymbol(Map<String, SymbolPrices> earlier, Map<String, SymbolPrices> later) {
+        later.forEach((symbol, prices) -> earlier.merge(symbol, prices, SymbolPrices::merge));
+        return earlier;
+    }
+
+    private CryptoPriceColumns readSorted(FileChannel channel, long fromOffset, long toOffset, byte[] symbol)
+            throws IOException {
+        List<long[]> ranges = splitAtNewlines(channel, fromOffset, toOffset);
+        if (ranges.isEmpty()) {
+            return new CryptoPriceColumns();
+        }
+        return parseRanges(new ParseRangesTask<>(channel, ranges, 0, ranges.size(),
+                (buffer, skipHeader) -> parseRange(buffer, skipHeader, symbol), CryptoPriceColumns::mergeSorted));
+    }
+
+    /**
+     * Split the bytes {@code [fromOffset, toOffset)} of the file behind {@code channel} into ranges that end right after a
+     * newline (or at {@code toOffset}). Ranges are roughly equal in size, never larger than a single mapping allows and
+     * never smaller than {@link #minSplitBytes}, unless the bytes to split are fewer.
+     */
+    private List<long[]> splitAtNewlines(FileChannel channel, long fromOffset, long toOffset) throws IOException {
+        long totalBytes = toOffset - fromOffset;
+        int parallelism = ForkJoinPool.commonPool().getParallelism();
+        long numSplits = Math.max(1, Math.min(4L * parallelism, totalBytes / minSplitBytes));
+        numSplits = Math.max(numSplits, (totalBytes + MAX_SPLIT_BYTES - 1) / MAX_SPLIT_BYTES);
+        long targetSplitBytes = Math.max(1, totalBytes / numSplits);
+        List<long[]> ranges = new ArrayList<>();
+        ByteBuffer scanBuffer = ByteBuffer.allocate(BOUNDARY_SCAN_BYTES);
+        long start = fromOffset;
+        while (start < toOffset) {
+            long end = Math.min(toOffset, start + targetSplitBytes);
+            if (end < toOffset) {
+                end = Math.min(toOffset, nextLineStart(channel, end - 1, scanBuffer));
+            }
+            if (end - start > MAX_SPLIT_BYTES) {
+                throw new IOException("Line too long to split " + (end - start) + " bytes after offset " + start);
+            }
+            ranges.add(new long[] {start, end});
+            start = end;
+        }
+        return ranges;
+    }
+
+    /** @return The offset right after the first newline at or after {@code position}, or the file size. */
+    private static long nextLineStart(FileChannel channel, long position, ByteBuffer scanBuffer)
+            throws IOException {
+        long fileSize = channel.size();
+        while (position < fileSize) {
+            scanBuffer.clear();
+            int read = channel.read(scanBuffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (scanBuffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return fileSize;
+    }
+
+    /**
+     * @return The offset right after the last newline in {@code [fromOffset, toOffset)}, or {@code fromOffset} if there
+     * is none.
+     */
+    private static long lastLineEnd(FileChannel channel, long fromOffset, long toOffset) throws IOException {
+        ByteBuffer scanBuffer = ByteBuffer.allocate(BOUNDARY_SCAN_BYTES);
+        long end = toOffset;
+        while (end > fromOffset) {
+            long start = Math.max(fromOffset, end - BOUNDARY_SCAN_BYTES);
+            scanBuffer.clear().limit((int) (end - start));
+            while (scanBuffer.hasRemaining() && channel.read(scanBuffer, start + scanBuffer.position()) >= 0) {
+                // Positional reads of a regular file only come up short at its end.
+            }
+            for (int i = scanBuffer.position() - 1; i >= 0; i--) {
+                if (scanBuffer.get(i) == '\n') {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return fromOffset;
+    }
+
+    private static <T> T parseRanges(ParseRangesTask<T> task) throws IOException {
+        try {
+            return ForkJoinPool.commonPool().invoke(task);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /** Parses the rows of a single crypto, checking that they carry its symbol, and sorts them by timestamp. */
+    private static CryptoPriceColumns parseRange(ByteBuffer buffer, boolean skipHeader, byte[] symbol) {
+        CryptoPriceColumns columns = new CryptoPriceColumns(Math.max(16, buffer.limit() / 32));
+        CryptoPriceChunk chunk = new CryptoPriceChunk(CSV_CHUNK_SIZE);
+        CryptoPriceRowParser.RowSink rows = CryptoPriceRowParser.appendingRowsOf(symbol, chunk);
+        forEachLine(buffer, skipHeader, (from, to) -> {
+            if (CryptoPriceRowParser.parseRow(buffer, from, to, rows) && chunk.isFull()) {
+                columns.addAll(chunk);
+                chunk.clear();
+            }
+        });
+        columns.addAll(chunk);
+        columns.sortByTimestamp();
+        return columns;
+    }
+
+    /** Routes the rows of any number of cryptos to the prices of their symbol. */
+    private static Map<String, SymbolPrices> demultiplexRange(ByteBuffer buffer, boolean skipHeader) {
+        SymbolPriceTable table = new SymbolPriceTable();
+        forEachLine(buffer, skipHeader, (from, to) -> CryptoPriceRowParser.parseRow(buffer, from, to, table));
+        return table.toMap();
+    }
+
+    private interface LineHandler {
+        void handle(int from, int to);
+    }
+
+    private static void forEachLine(ByteBuffer buffer, boolean skipHeader, LineHandler handler) {
+        int length = buffer.limit();
+        boolean skipLine = skipHeader;
+        int lineStart = 0;
+        for (int i = 0; i <= length; i++) {
+            if (i < length && buffer.get(i) != '\n') {
+                continue;
+            }
+            if (skipLine) {
+                skipLine = false;
+            } else {
+                handler.handle(lineStart, i);
+            }
+            lineStart = i + 1;
+        }
+    }
+
+    /** Parses a single mapped range, which starts with the header of the file if {@code skipHeader} is set. */
+    private interface RangeParser<T> {
+        T parse(ByteBuffer buffer, boolean skipHeader);
+    }
+
+    /**
+     * Parses the ranges in {@code [from, to)}, splitting them in halves until a single range is left, and
+     * merges the results of both halves, the earlier half first, on the way back up.
+     */
+    private static final class ParseRangesTask<T> extends RecursiveTask<T> {
+
+        private final FileChannel channel;
+        private final List<long[]> ranges;
+        private final int from;
+        private final int to;
+        private final RangeParser<T> parser;
+        private final BinaryOperator<T> merger;
+
+        private ParseRangesTask(FileChannel channel, List<long[]> ranges, int from, int to, RangeParser<T> parser,
+                                BinaryOperator<T> merger) {
+            this.channel = channel;
+            this.ranges = ranges;
+            this.from = from;
+            this.to = to;
+            this.parser = parser;
+            this.merger = merger;
+        }
+
+        @Override
+        protected T compute() {
+            if (to - from == 1) {
+                long[] range = ranges.get(from);
+                MappedByteBuffer buffer;
+                try {
+                    buffer = channel.map(FileChannel.MapMode.READ_ONLY, range[0], range[1] - range[0]);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return parser.parse(buffer, range[0] == 0); // Only the range at the very beginning has the header.
+            }
+            int mid = (from + to) >>> 1;
+            ParseRangesTask<T> left = new ParseRangesTask<>(channel, ranges, from, mid, parser, merger);
+            left.fork();
+            T right = new ParseRangesTask<>(channel, ranges, mid, to, parser, merger).compute();
+            return merger.apply(left.join(), right);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.xm.cryptorecservice.io;
+
+import com.xm.cryptorecservice.model.crypto.CryptoPriceColumns;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceStatsAccumulator;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Routes the rows of a combined CSV file, by their symbol, to the {@link CryptoPriceColumns} and {@link
+ * CryptoPriceStatsAccumulator} of their crypto. Symbols are looked up straight out of the buffer that their row was
+ * parsed from, in an open-addressing table of their bytes, so that a {@link String} is only allocated for the first row
+ * of every symbol. Not thread-safe: every range of a file that is parsed in parallel gets a table of its own.
+ *
+ * @author jason
+ * @see MappedCryptoPriceFileReader#readBySymbol(java.io.File)
+ */
+final class SymbolPriceTable implements CryptoPriceRowParser.RowSink {
+
+    // Symbols end up in table names and in the CRYPTOS table, whose name column is a VARCHAR(10).
+    private static final int MAX_SYMBOL_LENGTH = 10;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int INITIAL_ROWS_PER_SYMBOL = 16;
+
+    private static final class Slot {
+
+        private final byte[] bytes;
+        private final int hash;
+        private final CryptoPriceColumns prices = new CryptoPriceColumns(INITIAL_ROWS_PER_SYMBOL);
+        private final CryptoPriceStatsAccumulator stats = new CryptoPriceStatsAccumulator();
+
+        private Slot(byte[] bytes, int hash) {
+            this.bytes = bytes;
+            this.hash = hash;
+        }
+
+        private boolean matches(ByteBuffer buffer, int from, int to) {
+            if (to - from != bytes.length) {
+                return false;
+            }
+            for (int i = 0; i < bytes.length; i++) {
+                if (buffer.get(from + i) != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private Slot[] slots = new Slot[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * @throws IllegalArgumentException if the symbol is not 1 to {@value #MAX_SYMBOL_LENGTH} ASCII letters or digits.
+     */
+    @Override
+    public void accept(ByteBuffer buffer, int symbolFrom, int symbolTo, long epochMilli, long scaledPrice) {
+        Slot slot = slotOf(buffer, symbolFrom, symbolTo);
+        slot.prices.add(epochMilli, scaledPrice);
+        slot.stats.add(epochMilli, scaledPrice);
+    }
+
+    /**
+     * @return The prices of every symbol routed so far, each sorted by timestamp.
+     */
+    Map<String, MappedCryptoPriceFileReader.SymbolPrices> toMap() {
+        Map<String, MappedCryptoPriceFileReader.SymbolPrices> bySymbol = new HashMap<>(2 * size);
+        for (Slot slot : slots) {
+            if (slot != null) {
+                slot.prices.sortByTimestamp();
+                bySymbol.put(new String(slot.bytes, StandardCharsets.US_ASCII),
+                        new MappedCryptoPriceFileReader.SymbolPrices(slot.prices, slot.stats));
+            }
+        }
+        return bySymbol;
+    }
+
+    private Slot slotOf(ByteBuffer buffer, int from, int to) {
+        int hash = 1;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+        int mask = slots.length - 1;
+        for (int i = (hash ^ (hash >>> 16)) & mask; ; i = (i + 1) & mask) {
+            Slot slot = slots[i];
+            if (slot == null) {
+                slot = new Slot(validSymbol(buffer, from, to), hash);
+                slots[i] = slot;
+                if (++size * 2 > slots.length) {
+                    resize();
+                }
+                return slot;
+            }
+            if (slot.hash == hash && slot.matches(buffer, from, to)) {
+                return slot;
+            }
+        }
+    }
+
+    private void resize() {
+        Slot[] resized = new Slot[2 * slots.length];
+        int mask = resized.length - 1;
+        for (Slot slot : slots) {
+            if (slot != null) {
+                int i = (slot.hash ^ (slot.hash >>> 16)) & mask;
+                while (resized[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                resized[i] = slot;
+            }
+        }
+        slots = resized;
+    }
+
+    private static byte[] validSymbol(ByteBuffer buffer, int from, int to) {
+        boolean valid = to > from && to - from <= MAX_SYMBOL_LENGTH;
+        byte[] bytes = new byte[Math.max(0, to - from)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(from + i);
+            valid &= (bytes[i] >= 'A' && bytes[i] <= 'Z') || (bytes[i] >= 'a' && bytes[i] <= 'z')
+                    || (bytes[i] >= '0' && bytes[i] <= '9');
+        }
+        if (!valid) {
+            throw new IllegalArgumentException("Invalid symbol " + CryptoPriceRowParser.asString(buffer, from, to)
+                    + "; symbols must be 1 to " + MAX_SYMBOL_LENGTH + " letters or digits.");
+        }
+        return bytes;
+    }
+}
@@ -1,31 +1,60 @@
 package com.xm.cryptorecservice.model.crypto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.sql.Timestamp;
-import java.time.Instant;
 
 /**
  * A simple POJO to represent the price of a particular crypto at a certain timestamp. The name of the crypto is not
- * required, because it is already encoded in the name of the database table.
+ * required, because it is already encoded in the name of the database table. The timestamp is held in milliseconds
+ * since the epoch and the price as a {@literal long} scaled by {@link
+ * com.xm.cryptorecservice.util.Constants#BIG_DECIMAL_SCALE} decimal digits, so an instance is two primitives; the
+ * {@link Timestamp} and {@link BigDecimal} getters allocate, and are the only ones that render instances as JSON.
  *
  * @see CryptoPriceStats
+ * @see ScaledPrices
  *
  * @author jason
  */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonPropertyOrder({"timestamp", "price"})
 public class CryptoPrice {
-    private Timestamp timestamp;
-    private BigDecimal price;
+    @Getter(onMethod_ = @JsonIgnore)
+    private long epochMilli;
+    @Getter(onMethod_ = @JsonIgnore)
+    private long scaledPrice;
+
+    public CryptoPrice(Timestamp timestamp, BigDecimal price) {
+        this(timestamp.getTime(), ScaledPrices.of(price));
+    }
+
+    /**
+     * @param csvRowParts The &lt; timestamp, symbol, price &gt; columns of a CSV row.
+     * @param cryptoName The crypto whose CSV file the row comes from.
+     * @return The {@link CryptoPrice} of the row.
+     * @throws IllegalArgumentException If the symbol of the row is not the provided crypto.
+     */
+    public static CryptoPrice fromCSVRow(String[] csvRowParts, String cryptoName) {
+        if (!csvRowParts[1].equals(cryptoName)) {
+            throw new IllegalArgumentException("Row of symbol " + csvRowParts[1] + " in the CSV file of crypto " + cryptoName);
+        }
+        return new CryptoPrice(Long.parseLong(csvRowParts[0]), ScaledPrices.of(new BigDecimal(csvRowParts[2])));
+    }
+
+    public Timestamp getTimestamp() {
+        return new Timestamp(epochMilli);
+    }
 
-    public static CryptoPrice fromCSVRow(String[] csvRowParts) {
-        return new CryptoPrice(
-                Timestamp.from(Instant.ofEpochMilli(Long.parseLong(csvRowParts[0]))),
-                new BigDecimal(csvRowParts[2]));
+    public BigDecimal getPrice() {
+        return ScaledPrices.toBigDecimal(scaledPrice);
     }
 }
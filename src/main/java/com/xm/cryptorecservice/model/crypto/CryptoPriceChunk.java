@@ -0,0 +1,124 @@
+package com.xm.cryptorecservice.model.crypto;
+
+import static com.xm.cryptorecservice.util.Constants.BIG_DECIMAL_SCALE;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+/**
+ * A fixed-capacity batch of &lt; timestamp, price &gt; pairs held in two primitive arrays. Timestamps are
+ * stored as epoch milliseconds and prices as {@literal long} values scaled by {@link
+ * com.xm.cryptorecservice.util.Constants#BIG_DECIMAL_SCALE} decimal digits, which matches the
+ * {@code DECIMAL(20, 10)} column that prices end up in. No object is allocated per row.
+ *
+ * <p>Instances are meant to be re-used by their producer: once a consumer has been handed a chunk, it
+ * should copy out whatever it needs before returning, since the chunk will be cleared and refilled.
+ *
+ * @author jason
+ * @see CryptoPrice
+ * @see com.xm.cryptorecservice.io.CryptoPriceFileReader
+ */
+public final class CryptoPriceChunk {
+
+    private final long[] timestamps;
+    private final long[] prices;
+    private int size;
+
+    /**
+     * Create an empty chunk.
+     *
+     * @param capacity The maximum number of rows the chunk can hold.
+     */
+    public CryptoPriceChunk(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Chunk capacity must be positive, was " + capacity);
+        }
+        this.timestamps = new long[capacity];
+        this.prices = new long[capacity];
+    }
+
+    /**
+     * Append a row to the chunk.
+     *
+     * @param epochMilli The timestamp of the price, in milliseconds since the epoch.
+     * @param scaledPrice The price, scaled by {@link
+     *     com.xm.cryptorecservice.util.Constants#BIG_DECIMAL_SCALE} decimal digits.
+     * @throws IllegalStateException if the chunk is full.
+     */
+    public void add(long epochMilli, long scaledPrice) {
+        if (size == timestamps.length) {
+            throw new IllegalStateException("Chunk is full (capacity " + timestamps.length + ").");
+        }
+        timestamps[size] = epochMilli;
+        prices[size] = scaledPrice;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return timestamps.length;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size == timestamps.length;
+    }
+
+    /** Logically empty the chunk so that it can be refilled. */
+    public void clear() {
+        size = 0;
+    }
+
+    public long getEpochMilli(int index) {
+        checkIndex(index);
+        return timestamps[index];
+    }
+
+    public long getScaledPrice(int index) {
+        checkIndex(index);
+        return prices[index];
+    }
+
+    /**
+     * Materialize the timestamp of the given row. Allocates, so avoid on hot paths.
+     *
+     * @param index The index of the row.
+     * @return A {@link Timestamp} for the row.
+     */
+    public Timestamp getTimestamp(int index) {
+        return new Timestamp(getEpochMilli(index));
+    }
+
+    /**
+     * Materialize the price of the given row. Allocates, so avoid on hot paths.
+     *
+     * @param index The index of the row.
+     * @return A {@link BigDecimal} with {@link
+     *     com.xm.cryptorecservice.util.Constants#BIG_DECIMAL_SCALE} decimal digits.
+     */
+    public BigDecimal getPrice(int index) {
+        return BigDecimal.valueOf(getScaledPrice(index), BIG_DECIMAL_SCALE);
+    }
+
+    /**
+     * Materialize the given row as a {@link CryptoPrice}, which holds the same two primitives.
+     *
+     * @param index The index of the row.
+     * @return A new {@link CryptoPrice} instance.
+     */
+    public CryptoPrice get(int index) {
+        return new CryptoPrice(getEpochMilli(index), getScaledPrice(index));
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.xm.cryptorecservice.model.crypto;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * A growable, column-oriented collection of &lt; timestamp, price &gt; pairs, backed by two primitive
+ * {@literal long} arrays with the same encoding as {@link CryptoPriceChunk}. Used wherever we need to
+ * hold on to more rows than a single chunk, e.g. to merge the results of parsing different parts of a
+ * file in timestamp order. Not thread-safe.
+ *
+ * @author jason
+ * @see CryptoPriceChunk
+ */
+public final class CryptoPriceColumns {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private long[] timestamps;
+    private long[] prices;
+    private int size;
+
+    public CryptoPriceColumns() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public CryptoPriceColumns(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1);
+        this.timestamps = new long[capacity];
+        this.prices = new long[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getEpochMilli(int index) {
+        checkIndex(index);
+        return timestamps[index];
+    }
+
+    public long getScaledPrice(int index) {
+        checkIndex(index);
+        return prices[index];
+    }
+
+    /**
+     * Append a single row.
+     *
+     * @param epochMilli The timestamp of the price, in milliseconds since the epoch.
+     * @param scaledPrice The price, scaled like in {@link CryptoPriceChunk}.
+     */
+    public void add(long epochMilli, long scaledPrice) {
+        ensureCapacity(size + 1);
+        timestamps[size] = epochMilli;
+        prices[size] = scaledPrice;
+        size++;
+    }
+
+    /**
+     * Append (a copy of) all the rows of the provided chunk.
+     *
+     * @param chunk The {@link CryptoPriceChunk} to copy rows from.
+     */
+    public void addAll(CryptoPriceChunk chunk) {
+        ensureCapacity(size + chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            timestamps[size] = chunk.getEpochMilli(i);
+            prices[size] = chunk.getScaledPrice(i);
+            size++;
+        }
+    }
+
+    /**
+     * @return {@literal true} if the rows are in non-decreasing order of timestamp.
+     */
+    public boolean isSortedByTimestamp() {
+        for (int i = 1; i < size; i++) {
+            if (timestamps[i] < timestamps[i - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sort the rows by timestamp, in ascending order. The sort is stable, so rows with the same
+     * timestamp keep their relative order. Runs in linear time if the rows are already sorted, which is
+     * the common case for our CSV files.
+     */
+    public void sortByTimestamp() {
+        if (isSortedByTimestamp()) {
+            return;
+        }
+        // Bottom-up merge sort over both columns at once.
+        long[] srcTimestamps = timestamps, srcPrices = prices;
+        long[] dstTimestamps = new long[timestamps.length], dstPrices = new long[prices.length];
+        for (int width = 1; width < size; width *= 2) {
+            for (int lo = 0; lo < size; lo += 2 * width) {
+                int mid = Math.min(lo + width, size);
+                int hi = Math.min(lo + 2 * width, size);
+                merge(srcTimestamps, srcPrices, lo, mid, srcTimestamps, srcPrices, mid, hi,
+                        dstTimestamps, dstPrices, lo);
+            }
+            long[] tmp = srcTimestamps;
+            srcTimestamps = dstTimestamps;
+            dstTimestamps = tmp;
+            tmp = srcPrices;
+            srcPrices = dstPrices;
+            dstPrices = tmp;
+        }
+        timestamps = srcTimestamps;
+        prices = srcPrices;
+    }
+
+    /**
+     * Sort the rows by timestamp and keep only the last of the rows with the same timestamp, in the order they were
+     * added, for layouts whose tables hold a single price per timestamp and replace it on every insert.
+     *
+     * @return {@literal true} if any rows were dropped.
+     */
+    public boolean keepLastRowOfEveryTimestamp() {
+        sortByTimestamp();
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (kept > 0 && timestamps[kept - 1] == timestamps[i]) {
+                kept--;
+            }
+            timestamps[kept] = timestamps[i];
+            prices[kept++] = prices[i];
+        }
+        boolean dropped = kept < size;
+        size = kept;
+        return dropped;
+    }
+
+    /**
+     * Merge two collections that are each sorted by timestamp into a new collection that is also sorted
+     * by timestamp. On equal timestamps, rows of {@code first} come before rows of {@code second}.
+     *
+     * @param first A {@link CryptoPriceColumns} sorted by timestamp.
+     * @param second A {@link CryptoPriceColumns} sorted by timestamp.
+     * @return A new {@link CryptoPriceColumns} holding the rows of both arguments, sorted by timestamp.
+     */
+    public static CryptoPriceColumns mergeSorted(CryptoPriceColumns first, CryptoPriceColumns second) {
+        CryptoPriceColumns merged = new CryptoPriceColumns(first.size + second.size);
+        merge(first.timestamps, first.prices, 0, first.size, second.timestamps, second.prices, 0,
+                second.size, merged.timestamps, merged.prices, 0);
+        merged.size = first.size + second.size;
+        return merged;
+    }
+
+    /**
+     * Sort the rows by timestamp and freeze a trimmed copy of them into an immutable {@link PriceSeries}.
+     *
+     * @return A {@link PriceSeries} holding the rows of {@literal this}.
+     */
+    public PriceSeries toSeries() {
+        sortByTimestamp();
+        return PriceSeries.copyOf(timestamps, prices, size);
+    }
+
+    /**
+     * Hand the rows to the provided sink in chunks of at most {@code chunkSize} rows. Like {@link
+     * com.xm.cryptorecservice.io.CryptoPriceFileReader}, a single {@link CryptoPriceChunk} is re-used
+     * between calls.
+     *
+     * @param chunkSize The maximum number of rows per chunk.
+     * @param sink The {@link Consumer} to hand chunks to.
+     */
+    public void forEachChunk(int chunkSize, Consumer<CryptoPriceChunk> sink) {
+        CryptoPriceChunk chunk = new CryptoPriceChunk(chunkSize);
+        for (int i = 0; i < size; i++) {
+            chunk.add(timestamps[i], prices[i]);
+            if (chunk.isFull()) {
+                sink.accept(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            sink.accept(chunk);
+        }
+    }
+
+    private static void merge(
+            long[] leftTimestamps, long[] leftPrices, int leftFrom, int leftTo,
+            long[] rightTimestamps, long[] rightPrices, int rightFrom, int rightTo,
+            long[] dstTimestamps, long[] dstPrices, int dstFrom) {
+        int i = leftFrom, j = rightFrom, k = dstFrom;
+        while (i < leftTo && j < rightTo) {
+            if (rightTimestamps[j] < leftTimestamps[i]) {
+                dstTimestamps[k] = rightTimestamps[j];
+                dstPrices[k++] = rightPrices[j++];
+            } else {
+                dstTimestamps[k] = leftTimestamps[i];
+                dstPrices[k++] = leftPrices[i++];
+            }
+        }
+        int leftRemaining = leftTo - i;
+        System.arraycopy(leftTimestamps, i, dstTimestamps, k, leftRemaining);
+        System.arraycopy(leftPrices, i, dstPrices, k, leftRemaining);
+        k += leftRemaining;
+        System.arraycopy(rightTimestamps, j, dstTimestamps, k, rightTo - j);
+        System.arraycopy(rightPrices, j, dstPrices, k, rightTo - j);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > timestamps.length) {
+            int newCapacity = Math.max(required, timestamps.length + (timestamps.length >> 1));
+            timestamps = Arrays.copyOf(timestamps, newCapacity);
+            prices = Arrays.copyOf(prices, newCapacity);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+    }
+}
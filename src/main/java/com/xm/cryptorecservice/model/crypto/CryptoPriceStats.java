@@ -1,72 +1,116 @@
 package com.xm.cryptorecservice.model.crypto;
 
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import static com.xm.cryptorecservice.util.Constants.BIG_DECIMAL_SCALE;
 
 /**
  * A class that holds aggregate stats of a particular crypto in memory. The name of the crypto is not supplied, because
  * it is encoded in the database table from which the data was pulled.
+ * <p>
+ * Prices are held as {@literal long}s scaled by {@link com.xm.cryptorecservice.util.Constants#BIG_DECIMAL_SCALE}
+ * decimal digits, and all arithmetic on them is done through {@link ScaledPrices}, so an instance is a handful of
+ * primitives and comparing or ranking instances does not allocate. {@link BigDecimal}s are only built by the getters
+ * that render instances as JSON.
  *
  * @see CryptoPrice
+ * @see ScaledPrices
  *
  * @author jason
  */
-@Data
-@NoArgsConstructor
-public class CryptoPriceStats {
-    private BigDecimal minPrice;
-    private BigDecimal maxPrice;
-    private BigDecimal firstPrice;
-    private BigDecimal lastPrice;
-
-    // Fields used for caching results of BigDecimal operations,
-    // which can be computationally intensive.
-
-    private BigDecimal priceRange;
-    private BigDecimal priceDifference;
-    private BigDecimal normalizedPrice;
+@Getter(onMethod_ = @JsonIgnore)
+@EqualsAndHashCode
+@ToString
+@JsonPropertyOrder({"minPrice", "maxPrice", "firstPrice", "lastPrice", "priceRange", "priceDifference",
+        "normalizedPrice"})
+public final class CryptoPriceStats {
+    private final long minScaledPrice;
+    private final long maxScaledPrice;
+    private final long firstScaledPrice;
+    private final long lastScaledPrice;
 
     public CryptoPriceStats(BigDecimal minPrice, BigDecimal maxPrice,
                             BigDecimal firstPrice, BigDecimal lastPrice){
-        this.minPrice = minPrice;
-        this.maxPrice = maxPrice;
-        this.firstPrice = firstPrice;
-        this.lastPrice = lastPrice;
+        this(ScaledPrices.of(minPrice), ScaledPrices.of(maxPrice),
+                ScaledPrices.of(firstPrice), ScaledPrices.of(lastPrice));
+    }
+
+    /**
+     * @param minScaledPrice The scaled minimum price.
+     * @param maxScaledPrice The scaled maximum price.
+     * @param firstScaledPrice The scaled earliest price.
+     * @param lastScaledPrice The scaled latest price.
+     */
+    public CryptoPriceStats(long minScaledPrice, long maxScaledPrice, long firstScaledPrice, long lastScaledPrice) {
+        this.minScaledPrice = minScaledPrice;
+        this.maxScaledPrice = maxScaledPrice;
+        this.firstScaledPrice = firstScaledPrice;
+        this.lastScaledPrice = lastScaledPrice;
+    }
+
+    /**
+     * @return The scaled normalized price, i.e. (max - min) / min.
+     * @throws ArithmeticException if the minimum price is not positive.
+     */
+    @JsonIgnore
+    public long getNormalizedScaledPrice() {
+        return ScaledPrices.normalizedPrice(minScaledPrice, maxScaledPrice);
+    }
+
+    /**
+     * Compare the normalized price of {@literal this} with that of other stats, exactly and without allocating.
+     *
+     * @param other Some other {@link CryptoPriceStats}.
+     * @return A negative integer, zero or a positive integer if the normalized price of {@literal this} is less than,
+     * equal to, or greater than that of {@code other}.
+     */
+    public int compareNormalizedPrice(CryptoPriceStats other) {
+        return ScaledPrices.compareNormalizedPrices(minScaledPrice, maxScaledPrice,
+                other.minScaledPrice, other.maxScaledPrice);
     }
+
+    public BigDecimal getMinPrice() {
+        return ScaledPrices.toBigDecimal(minScaledPrice);
+    }
+
+    public BigDecimal getMaxPrice() {
+        return ScaledPrices.toBigDecimal(maxScaledPrice);
+    }
+
+    public BigDecimal getFirstPrice() {
+        return ScaledPrices.toBigDecimal(firstScaledPrice);
+    }
+
+    public BigDecimal getLastPrice() {
+        return ScaledPrices.toBigDecimal(lastScaledPrice);
+    }
+
     public BigDecimal getPriceRange() {
-        if (priceRange == null) {
-            priceRange = maxPrice.subtract(minPrice);
-        }
-        return priceRange;
+        return ScaledPrices.toBigDecimal(ScaledPrices.subtract(maxScaledPrice, minScaledPrice));
     }
 
     public BigDecimal getNormalizedPrice() {
-        if (normalizedPrice == null) {
-            normalizedPrice = getPriceRange().divide(minPrice, BIG_DECIMAL_SCALE, RoundingMode.HALF_EVEN);
-        }
-        return normalizedPrice;
+        return ScaledPrices.toBigDecimalWithFullScale(getNormalizedScaledPrice());
     }
 
     public BigDecimal getPriceDifference() {
-        if (priceDifference == null) {
-            priceDifference = lastPrice.subtract(firstPrice);
-        }
-        return priceDifference;
+        return ScaledPrices.toBigDecimal(ScaledPrices.subtract(lastScaledPrice, firstScaledPrice));
     }
 
     public boolean gain() {
-        return getPriceDifference().compareTo(BigDecimal.ZERO) > 0;
+        return lastScaledPrice > firstScaledPrice;
     }
 
     public boolean loss() {
-        return getPriceDifference().compareTo(BigDecimal.ZERO) < 0;
+        return lastScaledPrice < firstScaledPrice;
     }
 
     public boolean neitherGainNorLoss() {
-        return getPriceDifference().compareTo(BigDecimal.ZERO) == 0;
+        return lastScaledPrice == firstScaledPrice;
     }
 }
@@ -0,0 +1,101 @@
+package com.xm.cryptorecservice.model.crypto;
+
+import java.util.Optional;
+
+/**
+ * Folds the &lt; timestamp, price &gt; rows of a crypto into its {@link CryptoPriceStats} in a single pass, in O(1) time
+ * and space per row, so that the stats of a CSV file are known as soon as it has been parsed, without querying the
+ * database for them. Rows may come in any order of timestamp. Among rows with the same timestamp, the first price is
+ * that of the earliest row added and the last price that of the latest row added, just like the database, which breaks
+ * such ties by insertion order. Not thread-safe.
+ *
+ * @author jason
+ * @see com.xm.cryptorecservice.persistence.CryptoPricePersister
+ */
+public final class CryptoPriceStatsAccumulator {
+
+    private long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+    private long firstEpochMilli = Long.MAX_VALUE, firstPrice;
+    private long lastEpochMilli = Long.MIN_VALUE, lastPrice;
+    private long count;
+
+    /**
+     * Fold a single row.
+     *
+     * @param epochMilli The timestamp of the price, in milliseconds since the epoch.
+     * @param scaledPrice The price, scaled like in {@link CryptoPriceChunk}.
+     */
+    public void add(long epochMilli, long scaledPrice) {
+        min = Math.min(min, scaledPrice);
+        max = Math.max(max, scaledPrice);
+        if (epochMilli < firstEpochMilli) {
+            firstEpochMilli = epochMilli;
+            firstPrice = scaledPrice;
+        }
+        if (epochMilli >= lastEpochMilli) {
+            lastEpochMilli = epochMilli;
+            lastPrice = scaledPrice;
+        }
+        count++;
+    }
+
+    /**
+     * Fold all the rows of the provided chunk, in order.
+     *
+     * @param chunk The {@link CryptoPriceChunk} to fold the rows of.
+     */
+    public void addAll(CryptoPriceChunk chunk) {
+        for (int i = 0; i < chunk.size(); i++) {
+            add(chunk.getEpochMilli(i), chunk.getScaledPrice(i));
+        }
+    }
+
+    /**
+     * Fold all the rows folded by another accumulator, as if they had been added after the rows of this one, e.g. those
+     * of a later part of the same file. The other accumulator is left untouched.
+     *
+     * @param later The {@link CryptoPriceStatsAccumulator} to fold the rows of.
+     */
+    public void addAll(CryptoPriceStatsAccumulator later) {
+        if (later.count == 0) {
+            return;
+        }
+        min = Math.min(min, later.min);
+        max = Math.max(max, later.max);
+        if (later.firstEpochMilli < firstEpochMilli) {
+            firstEpochMilli = later.firstEpochMilli;
+            firstPrice = later.firstPrice;
+        }
+        if (later.lastEpochMilli >= lastEpochMilli) {
+            lastEpochMilli = later.lastEpochMilli;
+            lastPrice = later.lastPrice;
+        }
+        count += later.count;
+    }
+
+    /**
+     * Fold all the rows of the provided collection, in order.
+     *
+     * @param rows The {@link CryptoPriceColumns} to fold the rows of.
+     * @return A new {@link CryptoPriceStatsAccumulator} holding the rows.
+     */
+    public static CryptoPriceStatsAccumulator of(CryptoPriceColumns rows) {
+        CryptoPriceStatsAccumulator stats = new CryptoPriceStatsAccumulator();
+        for (int i = 0; i < rows.size(); i++) {
+            stats.add(rows.getEpochMilli(i), rows.getScaledPrice(i));
+        }
+        return stats;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    /**
+     * @return An {@link Optional} over the {@link CryptoPriceStats} of the rows folded so far, or {@link
+     * Optional#empty()} if no row has been folded.
+     */
+    public Optional<CryptoPriceStats> toStats() {
+        return count == 0 ? Optional.empty() : Optional.of(new CryptoPriceStats(min, max, firstPrice, lastPrice));
+    }
+}
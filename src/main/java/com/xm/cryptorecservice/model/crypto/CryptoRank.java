@@ -0,0 +1,16 @@
+package com.xm.cryptorecservice.model.crypto;
+
+import java.math.BigDecimal;
+
+/**
+ * The rank of a crypto among all supported cryptos, in descending order of normalized price.
+ *
+ * @param crypto The name of the crypto.
+ * @param normalizedPrice The normalized price of the crypto, i.e. (max - min) / min.
+ * @param rank The 1-based competition rank of the crypto: cryptos with equal normalized prices share the same rank.
+ * @param totalCryptos The number of cryptos ranked.
+ *
+ * @author jason
+ * @see NormalizedPriceRankIndex
+ */
+public record CryptoRank(String crypto, BigDecimal normalizedPrice, int rank, int totalCryptos) {}
@@ -0,0 +1,148 @@
+package com.xm.cryptorecservice.model.crypto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+/**
+ * A per-calendar-day rollup of a {@link PriceSeries}: for every day with at least one price, the open
+ * (first), high (max), low (min) and close (last) price and the number of prices. Days are kept sorted, so
+ * the rollup of a given day is found by binary search, and the daily normalized price is computed from the
+ * high and the low without touching the underlying series. Prices are scaled like in {@link
+ * CryptoPriceChunk}. Immutable.
+ *
+ * @author jason
+ * @see PriceSeries
+ * @see com.xm.cryptorecservice.persistence.InMemoryPriceSeriesStore
+ */
+public final class DailyPriceIndex {
+
+    private final long[] epochDays;
+    private final long[] open;
+    private final long[] high;
+    private final long[] low;
+    private final long[] close;
+    private final int[] counts;
+
+    private DailyPriceIndex(
+            long[] epochDays, long[] open, long[] high, long[] low, long[] close, int[] counts) {
+        this.epochDays = epochDays;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.counts = counts;
+    }
+
+    /**
+     * Roll up the provided series into calendar days of the provided time zone, in a single pass.
+     *
+     * @param series The {@link PriceSeries} to roll up.
+     * @param zone The {@link ZoneId} whose calendar days we bucket prices into.
+     * @return A new {@link DailyPriceIndex}.
+     */
+    public static DailyPriceIndex of(PriceSeries series, ZoneId zone) {
+        int capacity = 16;
+        long[] epochDays = new long[capacity], open = new long[capacity], high = new long[capacity],
+                low = new long[capacity], close = new long[capacity];
+        int[] counts = new int[capacity];
+        int days = 0;
+        long dayStart = Long.MAX_VALUE, nextDayStart = Long.MIN_VALUE;
+        for (int i = 0; i < series.size(); i++) {
+            long timestamp = series.getEpochMilli(i);
+            long price = series.getScaledPrice(i);
+            if (timestamp < dayStart || timestamp >= nextDayStart) {
+                // Only resolve calendar days when we cross a day boundary, which is rare.
+                LocalDate day = Instant.ofEpochMilli(timestamp).atZone(zone).toLocalDate();
+                dayStart = day.atStartOfDay(zone).toInstant().toEpochMilli();
+                nextDayStart = day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+                if (days == capacity) {
+                    capacity += capacity >> 1;
+                    epochDays = Arrays.copyOf(epochDays, capacity);
+                    open = Arrays.copyOf(open, capacity);
+                    high = Arrays.copyOf(high, capacity);
+                    low = Arrays.copyOf(low, capacity);
+                    close = Arrays.copyOf(close, capacity);
+                    counts = Arrays.copyOf(counts, capacity);
+                }
+                epochDays[days] = day.toEpochDay();
+                open[days] = high[days] = low[days] = price;
+                days++;
+            }
+            int d = days - 1;
+            high[d] = Math.max(high[d], price);
+            low[d] = Math.min(low[d], price);
+            close[d] = price;
+            counts[d]++;
+        }
+        return new DailyPriceIndex(
+                Arrays.copyOf(epochDays, days), Arrays.copyOf(open, days), Arrays.copyOf(high, days),
+                Arrays.copyOf(low, days), Arrays.copyOf(close, days), Arrays.copyOf(counts, days));
+    }
+
+    /** @return The number of days with at least one price. */
+    public int size() {
+        return epochDays.length;
+    }
+
+    /**
+     * Binary search for the rollup of the provided day.
+     *
+     * @param epochDay A day, as returned by {@link LocalDate#toEpochDay()}.
+     * @return The index of the day's rollup, or {@literal -1} if there are no prices for that day.
+     */
+    public int indexOfDay(long epochDay) {
+        int index = Arrays.binarySearch(epochDays, epochDay);
+        return index >= 0 ? index : -1;
+    }
+
+    public long getEpochDay(int index) {
+        return epochDays[index];
+    }
+
+    public long getOpen(int index) {
+        return open[index];
+    }
+
+    public long getHigh(int index) {
+        return high[index];
+    }
+
+    public long getLow(int index) {
+        return low[index];
+    }
+
+    public long getClose(int index) {
+        return close[index];
+    }
+
+    public int getCount(int index) {
+        return counts[index];
+    }
+
+    /**
+     * @param index The index of a day's rollup.
+     * @return The normalized price of that day, i.e. (high - low) / low, with {@link
+     *     com.xm.cryptorecservice.util.Constants#BIG_DECIMAL_SCALE} decimal digits.
+     */
+    public BigDecimal normalizedPrice(int index) {
+        return ScaledPrices.toBigDecimalWithFullScale(ScaledPrices.normalizedPrice(low[index], high[index]));
+    }
+
+    /**
+     * Compare the normalized price of a day of {@literal this} index with that of a day of another index,
+     * exactly and without allocating.
+     *
+     * @param index The index of a day's rollup in {@literal this}.
+     * @param other Another {@link DailyPriceIndex}.
+     * @param otherIndex The index of a day's rollup in {@code other}.
+     * @return A negative integer, zero or a positive integer if the normalized price of {@literal this}
+     *     day is less than, equal to, or greater than that of the other day.
+     */
+    public int compareNormalizedPrice(int index, DailyPriceIndex other, int otherIndex) {
+        return ScaledPrices.compareNormalizedPrices(
+                low[index], high[index], other.low[otherIndex], other.high[otherIndex]);
+    }
+}
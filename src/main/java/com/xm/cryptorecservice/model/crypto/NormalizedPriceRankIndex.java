@@ -0,0 +1,221 @@
+package com.xm.cryptorecservice.model.crypto;
+
+import com.xm.cryptorecservice.util.SortOrder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.SplittableRandom;
+
+/**
+ * An order-statistics index of cryptos by the normalized price of their {@link CryptoPriceStats}, kept up to date one
+ * crypto at a time. Cryptos are held in a treap (a binary search tree balanced by random priorities) in descending
+ * order of normalized price, and in ascending order of name among equal normalized prices, and every node knows the
+ * size of its subtree. Hence:
+ * <ul>
+ *     <li>adding or updating the stats of a crypto takes O(log n) expected time, </li>
+ *     <li>the first K cryptos in either order are found in O(K + log n) time, plus the ties of the K-th crypto in
+ *     ascending order, and </li>
+ *     <li>the rank of a crypto is found in O(log n) expected time.</li>
+ * </ul>
+ * Normalized prices are compared exactly, on the scaled prices, through {@link
+ * CryptoPriceStats#compareNormalizedPrice(CryptoPriceStats)}. Ranks are competition ranks: cryptos with equal
+ * normalized prices share the same rank, and the next rank skips as many places as there are ties (1, 2, 2, 4). Not
+ * thread-safe.
+ *
+ * @author jason
+ * @see com.xm.cryptorecservice.persistence.InMemoryAggregateStats
+ */
+public final class NormalizedPriceRankIndex {
+
+    private static final class Node {
+        private final String crypto;
+        private final CryptoPriceStats stats;
+        private final int priority;
+        private Node left, right;
+        private int size = 1;
+
+        private Node(String crypto, CryptoPriceStats stats, int priority) {
+            this.crypto = crypto;
+            this.stats = stats;
+            this.priority = priority;
+        }
+    }
+
+    private final Map<String, CryptoPriceStats> statsByCrypto = new HashMap<>();
+    private final SplittableRandom random = new SplittableRandom();
+    private Node root;
+
+    /**
+     * Add the provided crypto to the index, or move it to the position of its new stats.
+     *
+     * @param crypto The name of the cryptocurrency.
+     * @param stats The {@link CryptoPriceStats} of the cryptocurrency. Its minimum price must be positive.
+     */
+    public void put(String crypto, CryptoPriceStats stats) {
+        CryptoPriceStats previous = statsByCrypto.put(crypto, stats);
+        if (previous != null) {
+            root = remove(root, crypto, previous);
+        }
+        Node[] split = split(root, crypto, stats);
+        root = merge(merge(split[0], new Node(crypto, stats, random.nextInt())), split[1]);
+    }
+
+    public int size() {
+        return statsByCrypto.size();
+    }
+
+    /**
+     * @param crypto The name of a cryptocurrency.
+     * @return The {@link CryptoPriceStats} the crypto is indexed by, or {@literal null} if it is not in the index.
+     */
+    public CryptoPriceStats get(String crypto) {
+        return statsByCrypto.get(crypto);
+    }
+
+    /**
+     * @param crypto The name of a cryptocurrency.
+     * @return An {@link OptionalInt} over the 1-based competition rank of the crypto in descending order of normalized
+     * price, i.e. one more than the number of cryptos with a strictly greater normalized price, or {@link
+     * OptionalInt#empty()} if the crypto is not in the index.
+     */
+    public OptionalInt rank(String crypto) {
+        CryptoPriceStats stats = statsByCrypto.get(crypto);
+        if (stats == null) {
+            return OptionalInt.empty();
+        }
+        int greater = 0;
+        for (Node node = root; node != null; ) {
+            if (node.stats.compareNormalizedPrice(stats) > 0) {
+                greater += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return OptionalInt.of(greater + 1);
+    }
+
+    /**
+     * @param limit The maximum number of cryptos to return. Must not be negative.
+     * @param sortOrder A {@link SortOrder} instance that determines if we want the cryptos with the lowest ({@link
+     *                  SortOrder#ASC}) or the highest ({@link SortOrder#DESC}) normalized prices.
+     * @return A {@link List} of at most {@code limit} entries of crypto names and their {@link CryptoPriceStats}, in
+     * the provided order of normalized price, and in ascending order of name among equal normalized prices.
+     */
+    public List<Map.Entry<String, CryptoPriceStats>> first(int limit, SortOrder sortOrder) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative, was " + limit);
+        }
+        List<Map.Entry<String, CryptoPriceStats>> first = new ArrayList<>(Math.min(limit, size()));
+        if (sortOrder == SortOrder.DESC) {
+            // An in-order walk, stopped after the first K nodes.
+            Deque<Node> path = new ArrayDeque<>();
+            for (Node node = root; first.size() < limit && (node != null || !path.isEmpty()); ) {
+                if (node != null) {
+                    path.push(node);
+                    node = node.left;
+                } else {
+                    node = path.pop();
+                    first.add(Map.entry(node.crypto, node.stats));
+                    node = node.right;
+                }
+            }
+            return first;
+        }
+        // A reverse in-order walk lists ties in descending order of name. So we finish the run of ties that the K-th
+        // node belongs to, and then reverse every run of ties, to keep the alphabetically first of the K-th node's ties.
+        List<Node> walked = new ArrayList<>();
+        Deque<Node> path = new ArrayDeque<>();
+        for (Node node = root; node != null || !path.isEmpty(); ) {
+            if (node != null) {
+                path.push(node);
+                node = node.right;
+            } else {
+                node = path.pop();
+                if (walked.size() >= limit && (limit == 0
+                        || node.stats.compareNormalizedPrice(walked.get(walked.size() - 1).stats) != 0)) {
+                    break;
+                }
+                walked.add(node);
+                node = node.left;
+            }
+        }
+        for (int runStart = 0; first.size() < limit && runStart < walked.size(); ) {
+            int runEnd = runStart + 1;
+            while (runEnd < walked.size()
+                    && walked.get(runEnd).stats.compareNormalizedPrice(walked.get(runStart).stats) == 0) {
+                runEnd++;
+            }
+            for (int i = runEnd - 1; i >= runStart && first.size() < limit; i--) {
+                first.add(Map.entry(walked.get(i).crypto, walked.get(i).stats));
+            }
+            runStart = runEnd;
+        }
+        return first;
+    }
+
+    // Negative if the key comes before the node: higher normalized prices first, then names in ascending order.
+    private static int compare(String crypto, CryptoPriceStats stats, Node node) {
+        int compareNormalizedPrices = node.stats.compareNormalizedPrice(stats);
+        return compareNormalizedPrices != 0 ? compareNormalizedPrices : crypto.compareTo(node.crypto);
+    }
+
+    // Split the subtree into the nodes before the key and the nodes at or after it.
+    private static Node[] split(Node node, String crypto, CryptoPriceStats stats) {
+        if (node == null) {
+            return new Node[] {null, null};
+        }
+        if (compare(crypto, stats, node) <= 0) {
+            Node[] split = split(node.left, crypto, stats);
+            node.left = split[1];
+            update(node);
+            return new Node[] {split[0], node};
+        }
+        Node[] split = split(node.right, crypto, stats);
+        node.right = split[0];
+        update(node);
+        return new Node[] {node, split[1]};
+    }
+
+    // Merge two subtrees, every node of the first of which comes before every node of the second.
+    private static Node merge(Node first, Node second) {
+        if (first == null || second == null) {
+            return first == null ? second : first;
+        }
+        if (first.priority > second.priority) {
+            first.right = merge(first.right, second);
+            update(first);
+            return first;
+        }
+        second.left = merge(first, second.left);
+        update(second);
+        return second;
+    }
+
+    private static Node remove(Node node, String crypto, CryptoPriceStats stats) {
+        int comparison = compare(crypto, stats, node);
+        if (comparison == 0) {
+            return merge(node.left, node.right);
+        }
+        if (comparison < 0) {
+            node.left = remove(node.left, crypto, stats);
+        } else {
+            node.right = remove(node.right, crypto, stats);
+        }
+        update(node);
+        return node;
+    }
+
+    private static void update(Node node) {
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+}
@@ -0,0 +1,235 @@
+package com.xm.cryptorecservice.model.crypto;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An immutable time series of the prices of a single crypto, held column-wise in two primitive arrays
+ * sorted by timestamp: epoch milliseconds and prices scaled like in {@link CryptoPriceChunk}. There are no
+ * per-row objects, so a series costs 16 bytes per price, and time ranges are located by binary search.
+ * <p>
+ * A series can be {@link #append(CryptoPriceColumns) appended to}, which returns a new, longer series that shares the
+ * arrays of the old one whenever they have spare capacity. Since every series only ever reads its own prefix of the
+ * arrays, the old series is unaffected.
+ *
+ * @author jason
+ * @see CryptoPriceColumns#toSeries()
+ * @see com.xm.cryptorecservice.persistence.InMemoryPriceSeriesStore
+ */
+public final class PriceSeries {
+
+    private final long[] timestamps;
+    private final long[] prices;
+    private final int size;
+
+    // The number of array slots used by the longest series sharing our arrays; we may only append in place if it is us.
+    private final AtomicInteger usedSlots;
+
+    /** Callers hand over ownership of the arrays, which must have equal lengths and be sorted by timestamp. */
+    PriceSeries(long[] timestamps, long[] prices) {
+        this(timestamps, prices, timestamps.length, new AtomicInteger(timestamps.length));
+    }
+
+    private PriceSeries(long[] timestamps, long[] prices, int size, AtomicInteger usedSlots) {
+        this.timestamps = timestamps;
+        this.prices = prices;
+        this.size = size;
+        this.usedSlots = usedSlots;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getEpochMilli(int index) {
+        checkIndex(index);
+        return timestamps[index];
+    }
+
+    public long getScaledPrice(int index) {
+        checkIndex(index);
+        return prices[index];
+    }
+
+    /**
+     * Return a new series holding the prices of {@literal this}, followed by the provided rows. Runs in amortized time
+     * proportional to the number of appended rows.
+     *
+     * @param rows A {@link CryptoPriceColumns}, sorted by timestamp, none of which is earlier than the last price of
+     *     {@literal this}.
+     * @return A new {@link PriceSeries}.
+     * @throws IllegalArgumentException If the rows are not sorted, or start before the end of {@literal this}.
+     */
+    public PriceSeries append(CryptoPriceColumns rows) {
+        if (rows.isEmpty()) {
+            return this;
+        }
+        if (!rows.isSortedByTimestamp() || (size > 0 && rows.getEpochMilli(0) < timestamps[size - 1])) {
+            throw new IllegalArgumentException("Appended rows must be sorted and not precede the series.");
+        }
+        int newSize = size + rows.size();
+        long[] newTimestamps = timestamps, newPrices = prices;
+        AtomicInteger newUsedSlots = usedSlots;
+        // Only the longest series sharing the arrays may claim the slots after it; anyone else copies.
+        if (newSize > timestamps.length || !usedSlots.compareAndSet(size, newSize)) {
+            int capacity = Math.max(newSize, size + (size >> 1));
+            newTimestamps = Arrays.copyOf(timestamps, capacity);
+            newPrices = Arrays.copyOf(prices, capacity);
+            newUsedSlots = new AtomicInteger(newSize);
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            newTimestamps[size + i] = rows.getEpochMilli(i);
+            newPrices[size + i] = rows.getScaledPrice(i);
+        }
+        return new PriceSeries(newTimestamps, newPrices, newSize, newUsedSlots);
+    }
+
+    /**
+     * Binary search for the first price whose timestamp is not before the provided one.
+     *
+     * @param epochMilli A timestamp in milliseconds since the epoch.
+     * @return The index of the first price at or after {@code epochMilli}, or {@link #size()} if there is
+     *     none.
+     */
+    public int firstIndexAtOrAfter(long epochMilli) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timestamps[mid] < epochMilli) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Return a view over the prices with timestamps in {@code [fromEpochMilli, toEpochMilli)}. Runs in
+     * O(log n) and copies nothing.
+     *
+     * @param fromEpochMilli The inclusive start of the range, in milliseconds since the epoch.
+     * @param toEpochMilli The exclusive end of the range, in milliseconds since the epoch.
+     * @return A (possibly empty) {@link Slice} of this series.
+     */
+    public Slice slice(long fromEpochMilli, long toEpochMilli) {
+        int from = firstIndexAtOrAfter(fromEpochMilli);
+        int to = Math.max(from, firstIndexAtOrAfter(toEpochMilli));
+        return new Slice(from, to);
+    }
+
+    @Override
+    public String toString() {
+        return "PriceSeries(size=" + size() + ")";
+    }
+
+    /** A contiguous, possibly empty, range of indices of the enclosing {@link PriceSeries}. */
+    public final class Slice {
+
+        private final int from;
+        private final int to;
+
+        private Slice(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        public int size() {
+            return to - from;
+        }
+
+        public boolean isEmpty() {
+            return from == to;
+        }
+
+        /** @return The index of the first price of the slice in the enclosing series. */
+        public int fromIndex() {
+            return from;
+        }
+
+        /** @return One past the index of the last price of the slice in the enclosing series. */
+        public int toIndex() {
+            return to;
+        }
+
+        public long firstScaledPrice() {
+            checkNotEmpty();
+            return prices[from];
+        }
+
+        public long lastScaledPrice() {
+            checkNotEmpty();
+            return prices[to - 1];
+        }
+
+        public long minScaledPrice() {
+            checkNotEmpty();
+            long min = prices[from];
+            for (int i = from + 1; i < to; i++) {
+                min = Math.min(min, prices[i]);
+            }
+            return min;
+        }
+
+        public long maxScaledPrice() {
+            checkNotEmpty();
+            long max = prices[from];
+            for (int i = from + 1; i < to; i++) {
+                max = Math.max(max, prices[i]);
+            }
+            return max;
+        }
+
+        /**
+         * @return The normalized price of the slice, i.e. (max - min) / min, with {@link
+         *     com.xm.cryptorecservice.util.Constants#BIG_DECIMAL_SCALE} decimal digits.
+         */
+        public BigDecimal normalizedPrice() {
+            return ScaledPrices.toBigDecimalWithFullScale(
+                    ScaledPrices.normalizedPrice(minScaledPrice(), maxScaledPrice()));
+        }
+
+        private void checkNotEmpty() {
+            if (isEmpty()) {
+                throw new IllegalStateException("Empty slice.");
+            }
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+    }
+
+    /**
+     * Wrap the provided columns into a series, without copying them. Runs in linear time, to check that the timestamps
+     * are sorted.
+     *
+     * @param timestamps The timestamps of the prices, in milliseconds since the epoch, sorted in ascending order.
+     * @param prices The prices, scaled like in {@link CryptoPriceChunk}.
+     * @return A new {@link PriceSeries}, which takes ownership of both arrays, so the caller must not modify them.
+     * @throws IllegalArgumentException If the arrays differ in length, or the timestamps are not sorted.
+     */
+    public static PriceSeries ofSorted(long[] timestamps, long[] prices) {
+        if (timestamps.length != prices.length) {
+            throw new IllegalArgumentException("Got " + timestamps.length + " timestamps, but " + prices.length
+                    + " prices.");
+        }
+        for (int i = 1; i < timestamps.length; i++) {
+            if (timestamps[i] < timestamps[i - 1]) {
+                throw new IllegalArgumentException("Timestamps must be sorted.");
+            }
+        }
+        return new PriceSeries(timestamps, prices);
+    }
+
+    static PriceSeries copyOf(long[] timestamps, long[] prices, int size) {
+        return new PriceSeries(Arrays.copyOf(timestamps, size), Arrays.copyOf(prices, size));
+    }
+}
@@ -0,0 +1,136 @@
+package com.xm.cryptorecservice.model.crypto;
+
+/**
+ * A range-minimum / range-maximum index over the prices of a {@link PriceSeries}, answering the min and max
+ * price of any contiguous range of the series in constant time. Prices are grouped in blocks of {@value
+ * #BLOCK_SIZE}; a sparse table over the per-block minima and maxima answers the whole blocks a range covers
+ * with two lookups, and at most two partial blocks are scanned at the edges of the range. This costs
+ * O((n / {@value #BLOCK_SIZE}) log n) memory, a small fraction of the series itself, whereas a plain sparse
+ * table over every price would cost O(n log n). Immutable.
+ *
+ * @author jason
+ * @see PriceSeries
+ * @see com.xm.cryptorecservice.persistence.InMemoryPriceSeriesStore
+ */
+public final class RangeMinMaxIndex {
+
+    private static final int BLOCK_SHIFT = 5;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+    private final PriceSeries series;
+
+    // minTable[k][b] (maxTable[k][b]) is the min (max) price of blocks [b, b + 2^k).
+    private final long[][] minTable;
+    private final long[][] maxTable;
+
+    private RangeMinMaxIndex(PriceSeries series, long[][] minTable, long[][] maxTable) {
+        this.series = series;
+        this.minTable = minTable;
+        this.maxTable = maxTable;
+    }
+
+    /**
+     * Build the index of the provided series, in O(n) time.
+     *
+     * @param series The {@link PriceSeries} to index.
+     * @return A new {@link RangeMinMaxIndex}.
+     */
+    public static RangeMinMaxIndex of(PriceSeries series) {
+        int blocks = (series.size() + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+        int levels = blocks == 0 ? 0 : 32 - Integer.numberOfLeadingZeros(blocks);
+        long[][] minTable = new long[levels][], maxTable = new long[levels][];
+        if (levels > 0) {
+            long[] blockMin = new long[blocks], blockMax = new long[blocks];
+            for (int b = 0; b < blocks; b++) {
+                int from = b << BLOCK_SHIFT, to = Math.min(from + BLOCK_SIZE, series.size());
+                long min = series.getScaledPrice(from), max = min;
+                for (int i = from + 1; i < to; i++) {
+                    long price = series.getScaledPrice(i);
+                    min = Math.min(min, price);
+                    max = Math.max(max, price);
+                }
+                blockMin[b] = min;
+                blockMax[b] = max;
+            }
+            minTable[0] = blockMin;
+            maxTable[0] = blockMax;
+            for (int k = 1; k < levels; k++) {
+                int half = 1 << (k - 1), length = blocks - (1 << k) + 1;
+                minTable[k] = new long[length];
+                maxTable[k] = new long[length];
+                for (int b = 0; b < length; b++) {
+                    minTable[k][b] = Math.min(minTable[k - 1][b], minTable[k - 1][b + half]);
+                    maxTable[k][b] = Math.max(maxTable[k - 1][b], maxTable[k - 1][b + half]);
+                }
+            }
+        }
+        return new RangeMinMaxIndex(series, minTable, maxTable);
+    }
+
+    /**
+     * @param fromIndex The inclusive start of a non-empty range of indices of the series.
+     * @param toIndex The exclusive end of a non-empty range of indices of the series.
+     * @return The minimum price within the range, scaled like in {@link CryptoPriceChunk}.
+     */
+    public long minScaledPrice(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex);
+        long min = Long.MAX_VALUE;
+        int firstBlock = fromIndex >> BLOCK_SHIFT, lastBlock = (toIndex - 1) >> BLOCK_SHIFT;
+        if (firstBlock == lastBlock) {
+            for (int i = fromIndex; i < toIndex; i++) {
+                min = Math.min(min, series.getScaledPrice(i));
+            }
+            return min;
+        }
+        for (int i = fromIndex, end = (firstBlock + 1) << BLOCK_SHIFT; i < end; i++) {
+            min = Math.min(min, series.getScaledPrice(i));
+        }
+        for (int i = lastBlock << BLOCK_SHIFT; i < toIndex; i++) {
+            min = Math.min(min, series.getScaledPrice(i));
+        }
+        if (firstBlock + 1 < lastBlock) {
+            int k = log2(lastBlock - firstBlock - 1);
+            min = Math.min(min, Math.min(minTable[k][firstBlock + 1], minTable[k][lastBlock - (1 << k)]));
+        }
+        return min;
+    }
+
+    /**
+     * @param fromIndex The inclusive start of a non-empty range of indices of the series.
+     * @param toIndex The exclusive end of a non-empty range of indices of the series.
+     * @return The maximum price within the range, scaled like in {@link CryptoPriceChunk}.
+     */
+    public long maxScaledPrice(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex);
+        long max = Long.MIN_VALUE;
+        int firstBlock = fromIndex >> BLOCK_SHIFT, lastBlock = (toIndex - 1) >> BLOCK_SHIFT;
+        if (firstBlock == lastBlock) {
+            for (int i = fromIndex; i < toIndex; i++) {
+                max = Math.max(max, series.getScaledPrice(i));
+            }
+            return max;
+        }
+        for (int i = fromIndex, end = (firstBlock + 1) << BLOCK_SHIFT; i < end; i++) {
+            max = Math.max(max, series.getScaledPrice(i));
+        }
+        for (int i = lastBlock << BLOCK_SHIFT; i < toIndex; i++) {
+            max = Math.max(max, series.getScaledPrice(i));
+        }
+        if (firstBlock + 1 < lastBlock) {
+            int k = log2(lastBlock - firstBlock - 1);
+            max = Math.max(max, Math.max(maxTable[k][firstBlock + 1], maxTable[k][lastBlock - (1 << k)]));
+        }
+        return max;
+    }
+
+    private static int log2(int n) {
+        return 31 - Integer.numberOfLeadingZeros(n);
+    }
+
+    private void checkRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > series.size() || fromIndex >= toIndex) {
+            throw new IndexOutOfBoundsException(
+                    "Range [" + fromIndex + ", " + toIndex + ") is empty or out of bounds for size " + series.size());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.xm.cryptorecservice.model.crypto;
+
+import static com.xm.cryptorecservice.util.Constants.BIG_DECIMAL_SCALE;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Arithmetic on prices held as {@literal long} values scaled by {@link
+ * com.xm.cryptorecservice.util.Constants#BIG_DECIMAL_SCALE} decimal digits, the compact representation that {@link
+ * CryptoPriceChunk}, {@link PriceSeries}, {@link CryptoPrice} and {@link CryptoPriceStats} keep prices in. The scale
+ * matches the {@code DECIMAL(20, 10)} column that prices end up in, so the conversions to and from the column are
+ * exact, and every price in the app shares it, so prices of different cryptos compare as plain {@literal long}s.
+ * {@link BigDecimal}s are only meant to be built at the edges: when reading the database and when rendering JSON.
+ * <p>
+ * All operations are exact, or rounded exactly like the {@link BigDecimal} operations they replace. They throw an
+ * {@link ArithmeticException} instead of overflowing.
+ *
+ * @author jason
+ */
+public final class ScaledPrices {
+
+    /** The scaled value of a price of 1. */
+    public static final long ONE = BigDecimal.ONE.setScale(BIG_DECIMAL_SCALE).unscaledValue().longValueExact();
+
+    private ScaledPrices() {}
+
+    /**
+     * @param price A price.
+     * @return The price scaled by {@link com.xm.cryptorecservice.util.Constants#BIG_DECIMAL_SCALE} decimal digits.
+     * Digits beyond our scale are rounded half-up, like MySQL does for {@code DECIMAL(20, 10)}.
+     * @throws ArithmeticException if the scaled price does not fit in a {@literal long}.
+     */
+    public static long of(BigDecimal price) {
+        return price.setScale(BIG_DECIMAL_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Render a scaled price the way MySQL renders {@code trim(price) + 0}: without trailing zeros, and never in
+     * scientific notation. This is the form prices are served in.
+     *
+     * @param scaledPrice A scaled price.
+     * @return A {@link BigDecimal} with the value of the price and no trailing zeros.
+     */
+    public static BigDecimal toBigDecimal(long scaledPrice) {
+        BigDecimal price = BigDecimal.valueOf(scaledPrice, BIG_DECIMAL_SCALE).stripTrailingZeros();
+        return price.scale() < 0 ? price.setScale(0) : price;
+    }
+
+    /**
+     * @param scaledValue A scaled value whose scale is significant, such as a normalized price.
+     * @return A {@link BigDecimal} with the value and exactly {@link
+     * com.xm.cryptorecservice.util.Constants#BIG_DECIMAL_SCALE} decimal digits.
+     */
+    public static BigDecimal toBigDecimalWithFullScale(long scaledValue) {
+        return BigDecimal.valueOf(scaledValue, BIG_DECIMAL_SCALE);
+    }
+
+    /**
+     * @param price A scaled price.
+     * @param otherPrice Another scaled price.
+     * @return The scaled difference {@code price - otherPrice}.
+     * @throws ArithmeticException on overflow.
+     */
+    public static long subtract(long price, long otherPrice) {
+        return Math.subtractExact(price, otherPrice);
+    }
+
+    /**
+     * Compute the normalized price (max - min) / min, rounded half-even to {@link
+     * com.xm.cryptorecservice.util.Constants#BIG_DECIMAL_SCALE} decimal digits, exactly like {@code
+     * max.subtract(min).divide(min, BIG_DECIMAL_SCALE, RoundingMode.HALF_EVEN)}, but without allocating for any price
+     * below {@literal Long.MAX_VALUE / 10} scaled units, i.e. all but the most absurd ones.
+     *
+     * @param minPrice The scaled minimum price. Must be positive.
+     * @param maxPrice The scaled maximum price.
+     * @return The scaled normalized price.
+     * @throws ArithmeticException if {@code minPrice} is not positive, or the normalized price does not fit in a
+     * {@literal long}.
+     */
+    public static long normalizedPrice(long minPrice, long maxPrice) {
+        if (minPrice <= 0) {
+            throw new ArithmeticException("Cannot normalize by non-positive price " + minPrice);
+        }
+        long range = subtract(maxPrice, minPrice);
+        if (range < 0 || minPrice > Long.MAX_VALUE / 10) {
+            return normalizedPriceWithBigDecimals(minPrice, range);
+        }
+        // Long division, one decimal digit at a time, so that no intermediate result exceeds 10 * minPrice.
+        long quotient = range / minPrice, remainder = range % minPrice;
+        for (int digit = 0; digit < BIG_DECIMAL_SCALE; digit++) {
+            remainder *= 10;
+            quotient = Math.addExact(Math.multiplyExact(quotient, 10), remainder / minPrice);
+            remainder %= minPrice;
+        }
+        int compareHalf = Long.compare(2 * remainder, minPrice);
+        if (compareHalf > 0 || (compareHalf == 0 && (quotient & 1) == 1)) {
+            quotient = Math.addExact(quotient, 1);
+        }
+        return quotient;
+    }
+
+    /**
+     * Compare the normalized prices (max - min) / min of two price ranges, exactly and without allocating. Since (max -
+     * min) / min = max / min - 1, we compare max / min by cross-multiplying in 128 bits.
+     *
+     * @param minPrice The scaled minimum price of the first range. Must be positive.
+     * @param maxPrice The scaled maximum price of the first range. Must not be negative.
+     * @param otherMinPrice The scaled minimum price of the second range. Must be positive.
+     * @param otherMaxPrice The scaled maximum price of the second range. Must not be negative.
+     * @return A negative integer, zero or a positive integer if the normalized price of the first range is less than,
+     * equal to, or greater than that of the second.
+     */
+    public static int compareNormalizedPrices(long minPrice, long maxPrice, long otherMinPrice, long otherMaxPrice) {
+        int compareHighWords = Long.compare(Math.multiplyHigh(maxPrice, otherMinPrice),
+                Math.multiplyHigh(otherMaxPrice, minPrice));
+        return compareHighWords != 0
+                ? compareHighWords
+                : Long.compareUnsigned(maxPrice * otherMinPrice, otherMaxPrice * minPrice);
+    }
+
+    private static long normalizedPriceWithBigDecimals(long minPrice, long range) {
+        return BigDecimal.valueOf(range)
+                .divide(BigDecimal.valueOf(minPrice), BIG_DECIMAL_SCALE, RoundingMode.HALF_EVEN)
+                .unscaledValue()
+                .longValueExact();
+    }
+}
@@ -0,0 +1,108 @@
+package com.xm.cryptorecservice.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * The number of rows that our multi-row {@literal INSERT ... VALUES (...), (...), ...} statements carry. Larger
+ * statements mean fewer round trips and less parsing per row, up to the point where the server spends more time on the
+ * statement than the round trips cost, which depends on the server, the network and the table. So instead of fixing
+ * it, we hill-climb it: every {@value #SAMPLES_PER_STEP} batches, the rows per second of the last ones are compared with
+ * those of the batches before them, and the size is doubled or halved, in the same direction as the last step if
+ * throughput went up and in the opposite one if it went down. A statement that failed for its size, e.g. for being over
+ * the server's {@literal max_allowed_packet}, halves the size right away, and is retried with smaller statements.
+ * <p>
+ * Bounded by {@literal crypto.jdbc.bulk.min-rows-per-statement} and {@literal crypto.jdbc.bulk.max-rows-per-statement},
+ * and shared by every thread that inserts prices.
+ *
+ * @author jason
+ * @see DatabaseConnectionImpl
+ * @see PartitionedDatabaseConnection
+ */
+@Component
+@Slf4j
+public class AdaptiveBatchSize {
+
+    static final int SAMPLES_PER_STEP = 8;
+
+    private final int minRows;
+    private final int maxRows;
+    private int rows;
+    private boolean growing = true;
+    private double previousRowsPerSecond;
+    private int samples;
+    private long sampledRows;
+    private long sampledNanos;
+
+    public AdaptiveBatchSize(@Value("${crypto.jdbc.bulk.min-rows-per-statement:16}") int minRows,
+                             @Value("${crypto.jdbc.bulk.initial-rows-per-statement:128}") int initialRows,
+                             @Value("${crypto.jdbc.bulk.max-rows-per-statement:4096}") int maxRows) {
+        if (minRows < 1 || initialRows < minRows || maxRows < initialRows) {
+            throw new IllegalArgumentException("Rows per statement must satisfy 1 <= min <= initial <= max, but were "
+                    + minRows + ", " + initialRows + " and " + maxRows + ".");
+        }
+        this.minRows = minRows;
+        this.maxRows = maxRows;
+        this.rows = initialRows;
+    }
+
+    /**
+     * @return The number of rows the next statement should carry.
+     */
+    public synchronized int get() {
+        return rows;
+    }
+
+    /**
+     * @return The fewest rows a statement may carry, below which a failed statement is not retried.
+     */
+    public int getMinRows() {
+        return minRows;
+    }
+
+    /**
+     * Record a batch of statements that carried rows as {@link #get()} asked them to, or fewer, if there were not that
+     * many rows to insert. Batches taken with a size we have moved away from since are ignored.
+     *
+     * @param statementRows What {@link #get()} returned before the batch.
+     * @param rowsInserted The number of rows the batch inserted.
+     * @param nanos How long the batch took, in nanoseconds.
+     */
+    public synchronized void record(int statementRows, long rowsInserted, long nanos) {
+        if (statementRows != rows) {
+            return;
+        }
+        sampledRows += rowsInserted;
+        sampledNanos += nanos;
+        if (++samples < SAMPLES_PER_STEP) {
+            return;
+        }
+        double rowsPerSecond = sampledRows * 1e9 / Math.max(sampledNanos, 1);
+        if (rowsPerSecond < previousRowsPerSecond) {
+            growing = !growing;
+        }
+        previousRowsPerSecond = rowsPerSecond;
+        resize(growing ? Math.min(maxRows, rows * 2) : Math.max(minRows, rows / 2));
+    }
+
+    /**
+     * Record that a statement of {@link #get()} rows failed for its size, and halve the size.
+     */
+    public synchronized void shrink() {
+        growing = false;
+        previousRowsPerSecond = 0;
+        resize(Math.max(minRows, rows / 2));
+    }
+
+    private void resize(int newRows) {
+        if (newRows != rows) {
+            log.debug("Rows per insert statement: {} -> {}", rows, newRows);
+        }
+        rows = newRows;
+        samples = 0;
+        sampledRows = 0;
+        sampledNanos = 0;
+    }
+}
@@ -0,0 +1,129 @@
+package com.xm.cryptorecservice.persistence;
+
+import com.xm.cryptorecservice.model.crypto.CryptoPriceChunk;
+import com.xm.cryptorecservice.model.crypto.PriceSeries;
+import com.xm.cryptorecservice.util.concurrent.WorkerPool;
+import com.xm.cryptorecservice.util.concurrent.WorkerPools;
+import com.xm.cryptorecservice.util.logger.Logged;
+import com.xm.cryptorecservice.util.metrics.CryptoMetrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Loads the prices of a crypto, already held in memory as a {@link PriceSeries}, to its freshly truncated table. The
+ * prices are split in up to {@literal crypto.jdbc.bulk.connections} contiguous slices of at least {@value
+ * #MIN_ROWS_PER_SLICE} rows, which are inserted concurrently on the {@link WorkerPool#BULK_LOAD} pool, every one of them
+ * over a pooled connection of its own, with {@link DatabaseConnection#insertCryptoPrices(String, CryptoPriceChunk,
+ * long)}. A single, very large crypto is then no longer bound by the round trips of a single connection. Files of at
+ * least {@literal crypto.jdbc.bulk.parallel-threshold-bytes} bytes are loaded this way by the {@link
+ * CryptoPricePersister}; smaller ones are inserted while they are being read.
+ * <p>
+ * Every load is recorded in {@link CryptoMetrics}, and logged with its rows per second.
+ *
+ * @author jason
+ */
+@Component
+@Slf4j
+@Logged
+public class BulkPriceLoader {
+
+    static final int CHUNK_SIZE = 8192;
+    static final int MIN_ROWS_PER_SLICE = 16 * CHUNK_SIZE;
+
+    private record Slice(int from, int to) {}
+
+    private final WorkerPools workerPools;
+    private final CryptoMetrics metrics;
+    private final int connections;
+    private final long parallelThresholdBytes;
+
+    public BulkPriceLoader(WorkerPools workerPools, CryptoMetrics metrics,
+                           @Value("${crypto.jdbc.bulk.connections:4}") int connections,
+                           @Value("${crypto.jdbc.bulk.parallel-threshold-bytes:67108864}") long parallelThresholdBytes) {
+        this.workerPools = workerPools;
+        this.metrics = metrics;
+        this.connections = Math.max(1, connections);
+        this.parallelThresholdBytes = parallelThresholdBytes;
+    }
+
+    /**
+     * @param bytes The size of a CSV file.
+     * @return {@literal true} if the prices of a file of that size are worth reading in full and loading over several
+     * connections, {@literal false} if they are better inserted while they are being read.
+     */
+    public boolean loadsInParallel(long bytes) {
+        return connections > 1 && bytes >= parallelThresholdBytes;
+    }
+
+    /**
+     * Insert all the provided prices to the provided table, which must have been truncated, in timestamp order.
+     *
+     * @param dbConnection The {@link DatabaseConnection} to insert with.
+     * @param tableName The name of the table, which is also the name of the crypto.
+     * @param series The {@link PriceSeries} to insert.
+     * @throws RuntimeException Whatever the first slice that failed threw, once all slices are done.
+     * @throws IllegalStateException If the load was interrupted, or a slice failed with an {@link Error}, before all
+     * slices were inserted.
+     */
+    public void load(DatabaseConnection dbConnection, String tableName, PriceSeries series) {
+        if (series.isEmpty()) {
+            return;
+        }
+        int sliceCount = (int) Math.max(1, Math.min(connections, series.size() / MIN_ROWS_PER_SLICE));
+        List<Slice> slices = new ArrayList<>(sliceCount);
+        for (int i = 0; i < sliceCount; i++) {
+            slices.add(new Slice((int) ((long) series.size() * i / sliceCount),
+                    (int) ((long) series.size() * (i + 1) / sliceCount)));
+        }
+        long start = System.nanoTime();
+        if (sliceCount == 1) {
+            insert(dbConnection, tableName, series, slices.get(0));
+        } else {
+            AtomicReference<RuntimeException> failure = new AtomicReference<>();
+            AtomicInteger inserted = new AtomicInteger();
+            workerPools.runAllAndWait(WorkerPool.BULK_LOAD, slices, (slice, latch) -> () -> {
+                try {
+                    insert(dbConnection, tableName, series, slice);
+                    inserted.incrementAndGet();
+                } catch (RuntimeException exception) {
+                    failure.compareAndSet(null, exception);
+                } finally {
+                    latch.countDown();
+                }
+            });
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+            if (inserted.get() < sliceCount) {
+                throw new IllegalStateException("Could not bulk load the prices of crypto " + tableName + "; only "
+                        + inserted.get() + " of " + sliceCount + " slices were inserted.");
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        metrics.recordBulkLoad(tableName, series.size(), sliceCount, nanos);
+        log.info(String.format("Bulk loaded %d prices of crypto %s over %d connection(s) in %d ms (%.0f rows/s).",
+                series.size(), tableName, sliceCount, nanos / 1_000_000, series.size() / (Math.max(nanos, 1) / 1e9)));
+    }
+
+    private static void insert(DatabaseConnection dbConnection, String tableName, PriceSeries series, Slice slice) {
+        CryptoPriceChunk chunk = new CryptoPriceChunk(CHUNK_SIZE);
+        for (int i = slice.from(); i < slice.to(); i++) {
+            chunk.add(series.getEpochMilli(i), series.getScaledPrice(i));
+            if (chunk.isFull()) {
+                dbConnection.insertCryptoPrices(tableName, chunk, i + 1 - chunk.size());
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            dbConnection.insertCryptoPrices(tableName, chunk, slice.to() - chunk.size());
+        }
+    }
+}
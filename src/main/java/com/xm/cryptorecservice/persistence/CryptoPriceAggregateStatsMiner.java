@@ -2,6 +2,7 @@ package com.xm.cryptorecservice.persistence;
 
 import com.xm.cryptorecservice.model.crypto.CryptoPriceStats;
 import com.xm.cryptorecservice.util.logger.Logged;
+import com.xm.cryptorecservice.util.metrics.CryptoMetrics;
 
 import lombok.RequiredArgsConstructor;
 
@@ -10,7 +11,7 @@ import java.util.concurrent.CountDownLatch;
 
 /**
  * A {@link Runnable} that queries the {@link DatabaseConnection} object with which it is constructed
- * for aggregate stats of the provided crypto.
+ * for aggregate stats of the provided crypto, and records how long that took in the provided {@link CryptoMetrics}.
  *
  * Once finished, it counts down the provided {@link CountDownLatch} instance.
  *
@@ -22,12 +23,15 @@ public class CryptoPriceAggregateStatsMiner implements Runnable {
     private final DatabaseConnection dbConnection;
     private final InMemoryAggregateStats inMemoryDb;
     private final String cryptoName;
+    private final CryptoMetrics metrics;
     private final CountDownLatch latch;
 
     @Override
     public void run() {
         try {
+            long start = System.nanoTime();
             Optional<CryptoPriceStats> priceStats = dbConnection.getCryptoPriceStats(cryptoName);
+            metrics.recordStatsMined(cryptoName, System.nanoTime() - start);
             priceStats.ifPresent(cryptoPriceStats -> inMemoryDb.add(cryptoName, cryptoPriceStats));
         } finally {
             latch.countDown();
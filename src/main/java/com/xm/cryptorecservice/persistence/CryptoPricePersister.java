@@ -1,24 +1,48 @@
 package com.xm.cryptorecservice.persistence;
 
+import com.xm.cryptorecservice.io.CryptoPriceChunkReader;
 import com.xm.cryptorecservice.io.CryptoPriceFileReader;
-import com.xm.cryptorecservice.model.crypto.CryptoPrice;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceChunk;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceColumns;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceStatsAccumulator;
+import com.xm.cryptorecservice.model.crypto.PriceSeries;
 import com.xm.cryptorecservice.util.logger.Logged;
+import com.xm.cryptorecservice.util.metrics.CryptoMetrics;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
 
 /**
  * A {@link Runnable} which:
  * <ol>
  *  <li>Uses the {@link DatabaseConnection} object provided at construction to create the table corresponding to the {@link File} parameter object's name.</li>
- *  <li>Uses the provided {@link CryptoPriceFileReader} to read the file in memory.</li>
- *  <li>Uses the {@link DatabaseConnection} object to persist the file rows on the DB table just created.</li>
+ *  <li>Uses the provided {@link CryptoPriceChunkReader} (e.g. a {@link CryptoPriceFileReader}) to stream the
+ *  newline-terminated lines of the file in {@link CryptoPriceChunk}s. A last line without a newline is considered still
+ *  being written, and is left out of the table, the manifest and memory alike, until its newline is.</li>
+ *  <li>Uses the {@link DatabaseConnection} object to persist every chunk on the DB table just created, as soon as
+ *  the chunk has been parsed. Files large enough for the provided {@link BulkPriceLoader} to split across several
+ *  connections are instead loaded by it once they have been read in full. If the provided {@link IngestionManifest} shows that the table is already up to date with
+ *  the file, nothing is persisted, and if the file has only been appended to since it was ingested, only the appended
+ *  lines are. The manifest is then updated to match the file.</li>
+ *  <li>Publishes the prices of the file to the provided {@link InMemoryPriceSeriesStore} as a single
+ *  {@link com.xm.cryptorecservice.model.crypto.PriceSeries}. If the {@link DatabaseConnection} keeps only the last price
+ *  of every timestamp, so do the series, its stats and the row count recorded in the manifest.</li>
+ *  <li>Folds the aggregate stats of the file as its chunks stream through, with a {@link CryptoPriceStatsAccumulator},
+ *  and publishes them to the provided {@link InMemoryAggregateStats} as soon as the file has been read, so that they
+ *  need not be queried back from the database.</li>
+ *  <li>If incremental ingestion is enabled, records how far the file was read in the provided {@link IngestionCheckpoints},
+ *  so that rows appended later can be ingested without a full reload.</li>
  *</ol>
+ *  The bytes of the file are never held in memory in their entirety, but all of its rows are, 16 bytes per row, since
+ *  they make up the {@link PriceSeries} published to the store. The rows and bytes ingested, and the time it took, are
+ *  recorded in the provided {@link CryptoMetrics}.
+ *
  *  Once finished, it counts down the provided {@link CountDownLatch} instance.
  *
  * @author jason
@@ -30,38 +54,156 @@ public class CryptoPricePersister implements Runnable {
 
     private final DatabaseConnection dbConnection;
     private final File csv;
-    private final CryptoPriceFileReader csvReader;
+    private final CryptoPriceChunkReader csvReader;
+    private final InMemoryPriceSeriesStore seriesStore;
+    private final InMemoryAggregateStats inMemoryDb;
+    private final IngestionCheckpoints checkpoints;
+    private final IngestionManifest manifest;
+    private final BulkPriceLoader bulkLoader;
+    private final CryptoMetrics metrics;
     private final CountDownLatch latch;
 
+    // The prices and stats of a CSV file, and the offset right after its last newline-terminated line.
+    private record ReadCsv(PriceSeries prices, CryptoPriceStatsAccumulator stats, long offset) {
+    }
+
     @Override
     public void run() {
         try {
+            long start = System.nanoTime();
             String cryptoName =
                     csv.getName()
                             .substring(0, csv.getName().length() - 4); // Assuming format "name.csv"
-            createTable(cryptoName);
-            List<CryptoPrice> cryptoPrices = null;
+            // Taken before reading, so that we can tell if the file changed while we were reading it.
+            long size = csv.length(), lastModified = csv.lastModified();
+            Optional<IngestionManifest.Entry> ingested = manifest.get(cryptoName);
+            IngestionManifest.Change change = compare(ingested);
+            prepareTable(cryptoName, change);
+            boolean bulkLoaded = change == IngestionManifest.Change.REWRITTEN && bulkLoader.loadsInParallel(size);
+            ReadCsv read;
+            boolean written;
             try {
-                cryptoPrices = csvReader.readCSV(csv);
+                read = read(cryptoName, change == IngestionManifest.Change.REWRITTEN && !bulkLoaded);
+                written = bringTableUpToDate(cryptoName, change, ingested, bulkLoaded, read, size, lastModified);
             } catch (IOException e) {
                 log.warn("Exception received: " + e.getMessage());
                 throw new RuntimeException(e);
             }
-            persistCryptoPrices(cryptoPrices, cryptoName);
+            if (written) {
+                log.info("Inserted all " + read.prices().size() + " prices for crypto: " + cryptoName);
+            } else {
+                log.info("Table of crypto " + cryptoName + " is up to date with its CSV; loaded its "
+                        + read.prices().size() + " prices to memory only.");
+            }
+            metrics.recordCsvIngested(cryptoName, read.prices().size(), read.offset(), System.nanoTime() - start);
+            publish(cryptoName, read);
         } finally {
             latch.countDown();
         }
 
     }
 
+    private void prepareTable(String cryptoName, IngestionManifest.Change change) {
+        createTable(cryptoName);
+        if (change == IngestionManifest.Change.REWRITTEN) {
+            manifest.remove(cryptoName); // Until the table agrees with the file again.
+            dbConnection.truncateCryptoPriceTable(cryptoName);
+        }
+    }
+
+    // Tails the file from its start, inserting its chunks on the way if asked to. With the same end-of-data rule as the
+    // appended lines of bringTableUpToDate, so that memory never holds a row that the table and the manifest do not.
+    private ReadCsv read(String cryptoName, boolean insertWhileReading) throws IOException {
+        CryptoPriceColumns series = new CryptoPriceColumns();
+        CryptoPriceStatsAccumulator folded = new CryptoPriceStatsAccumulator();
+        Consumer<CryptoPriceChunk> sink = chunk -> {
+            if (insertWhileReading) {
+                persistCryptoPrices(chunk, cryptoName);
+            }
+            series.addAll(chunk);
+            folded.addAll(chunk);
+        };
+        long offset = csvReader.tailCSV(csv, 0, sink);
+        if (offset < csv.length()) {
+            log.info("Left out the last line of the CSV of crypto " + cryptoName + ", which has no newline yet.");
+        }
+        CryptoPriceStatsAccumulator stats = folded;
+        if (dbConnection.keepsLastPriceOfEveryTimestamp() && series.keepLastRowOfEveryTimestamp()) {
+            // The table kept a single row per timestamp, so the stats of the rows it dropped no longer hold.
+            log.info("Kept only the last of the prices sharing a timestamp in the CSV of crypto " + cryptoName + ".");
+            stats = CryptoPriceStatsAccumulator.of(series);
+        }
+        return new ReadCsv(series.toSeries(), stats, offset);
+    }
+
+    // Writes whatever the table still lacks of the file and records the file in the manifest; returns false if the table
+    // was already up to date with it.
+    private boolean bringTableUpToDate(String cryptoName, IngestionManifest.Change change,
+                                       Optional<IngestionManifest.Entry> ingested, boolean bulkLoaded, ReadCsv read,
+                                       long size, long lastModified) throws IOException {
+        long ingestedSize = read.offset(), rowCount = read.prices().size();
+        if (bulkLoaded) {
+            bulkLoader.load(dbConnection, cryptoName, read.prices());
+        } else if (change == IngestionManifest.Change.APPENDED) {
+            manifest.remove(cryptoName);
+            long[] appended = new long[1];
+            ingestedSize = csvReader.tailCSV(csv, ingested.orElseThrow().size(), chunk -> {
+                persistCryptoPrices(chunk, cryptoName);
+                appended[0] += chunk.size();
+            });
+            // Appended rows may replace rows of the table rather than add to them; the rows read already account for that.
+            log.info("Inserted " + appended[0] + " prices appended to the CSV of crypto: " + cryptoName);
+        } else if (change == IngestionManifest.Change.UNCHANGED) {
+            if (rowCount == ingested.orElseThrow().rowCount()) {
+                return false;
+            }
+            // Read differently than when it was ingested, e.g. with incremental ingestion toggled.
+            log.info("Reloading table of crypto " + cryptoName + ", which does not agree with its unchanged CSV.");
+            manifest.remove(cryptoName);
+            dbConnection.truncateCryptoPriceTable(cryptoName);
+            bulkLoader.load(dbConnection, cryptoName, read.prices());
+        }
+        recordInManifest(cryptoName, size, lastModified, ingestedSize, rowCount);
+        return true;
+    }
+
+    private void publish(String cryptoName, ReadCsv read) {
+        PriceSeries prices = read.prices();
+        seriesStore.put(cryptoName, prices);
+        read.stats().toStats().ifPresent(cryptoPriceStats -> inMemoryDb.add(cryptoName, cryptoPriceStats));
+        if (checkpoints.isEnabled()) {
+            checkpoints.put(cryptoName, new IngestionCheckpoints.Checkpoint(csv, read.offset(),
+                    prices.isEmpty() ? Long.MIN_VALUE : prices.getEpochMilli(prices.size() - 1)));
+        }
+    }
+
+    private IngestionManifest.Change compare(Optional<IngestionManifest.Entry> ingested) {
+        if (ingested.isEmpty()) {
+            return IngestionManifest.Change.REWRITTEN;
+        }
+        try {
+            return IngestionManifest.compare(ingested.get(), csv);
+        } catch (IOException e) {
+            log.warn("Could not compare " + csv + " with its manifest entry: " + e.getMessage());
+            return IngestionManifest.Change.REWRITTEN;
+        }
+    }
+
+    // Only if the file did not change while we were reading it, since we could not tell which of its bytes we ingested.
+    private void recordInManifest(String cryptoName, long size, long lastModified, long ingestedSize, long rowCount)
+            throws IOException {
+        if (csv.length() == size && csv.lastModified() == lastModified) {
+            manifest.put(cryptoName, IngestionManifest.describe(csv, ingestedSize, lastModified, rowCount));
+        }
+    }
+
     private void createTable(String tableName) {
         log.info("Creating table corresponding to crypto: " + tableName);
         dbConnection.createCryptoPriceTable(tableName);
         log.info("Created table corresponding to crypto: " + tableName);
     }
 
-    private void persistCryptoPrices(List<CryptoPrice> cryptoPrices, String tableName) {
-        dbConnection.insertAllCryptoPrices(tableName, cryptoPrices);
-        log.info("Inserted all prices for crypto: " + tableName);
+    private void persistCryptoPrices(CryptoPriceChunk chunk, String tableName) {
+        dbConnection.insertCryptoPrices(tableName, chunk);
     }
 }
@@ -1,19 +1,17 @@
 package com.xm.cryptorecservice.persistence;
 
 import com.xm.cryptorecservice.model.crypto.CryptoPrice;
+import com.xm.cryptorecservice.model.crypto.ScaledPrices;
 import com.xm.cryptorecservice.util.logger.Logged;
 
 import jakarta.validation.constraints.NotEmpty;
 import lombok.RequiredArgsConstructor;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.List;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 
-import static com.xm.cryptorecservice.util.Constants.BIG_DECIMAL_SCALE;
-
 /**
  * Queries the {@link DatabaseConnection} object provided at construction for the prices of the provided cryptocurrency
  * for the provided day, and stores the normalized price in the provided {@link ConcurrentMap} instance.
@@ -42,9 +40,11 @@ public class CryptoPricesForDateMiner implements Runnable {
     }
 
     private BigDecimal getNormalizedPrice(@NotEmpty List<CryptoPrice> cryptoPrices){
-        BigDecimal maxPrice = cryptoPrices.stream().map(CryptoPrice::getPrice)
-                .max(BigDecimal::compareTo).get();
-        BigDecimal minPrice = cryptoPrices.stream().map(CryptoPrice::getPrice).min(BigDecimal::compareTo).get();
-        return (maxPrice.subtract(minPrice)).divide(minPrice, BIG_DECIMAL_SCALE, RoundingMode.HALF_EVEN);
+        long minPrice = Long.MAX_VALUE, maxPrice = Long.MIN_VALUE;
+        for (CryptoPrice cryptoPrice : cryptoPrices) {
+            minPrice = Math.min(minPrice, cryptoPrice.getScaledPrice());
+            maxPrice = Math.max(maxPrice, cryptoPrice.getScaledPrice());
+        }
+        return ScaledPrices.toBigDecimalWithFullScale(ScaledPrices.normalizedPrice(minPrice, maxPrice));
     }
 }
@@ -1,19 +1,25 @@
 package com.xm.cryptorecservice.persistence;
 
 import com.xm.cryptorecservice.model.crypto.CryptoPrice;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceChunk;
 import com.xm.cryptorecservice.model.crypto.CryptoPriceStats;
 
 import lombok.NonNull;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
- * An interface for communicating with a relational database.
+ * An interface for communicating with a relational database. Methods take the name of a crypto, which layouts with a
+ * table per crypto also use as the name of the table.
  *
  * @author jason
  *
  * @see DatabaseConnectionImpl
+ * @see PartitionedDatabaseConnection
  */
 public interface DatabaseConnection {
 
@@ -31,6 +37,14 @@ public interface DatabaseConnection {
      */
     void createTableOfCryptoNames(@NonNull List<String> cryptoNames);
 
+    /**
+     * Add the provided names to the CRYPTOS table, creating the table if it does not exist. Names that are already in the
+     * table are skipped, and the rest of the table is left untouched.
+     *
+     * @param cryptoNames The list of names to add to the table.
+     */
+    void addCryptoNames(@NonNull List<String> cryptoNames);
+
     /**
      * Insert all provided crypto prices into the table specified by {@code tableName}. Implementations are free to do
      * this in batch mode or not.
@@ -39,6 +53,47 @@ public interface DatabaseConnection {
      */
     void insertAllCryptoPrices(@NonNull String tableName, @NonNull List<CryptoPrice> cryptoPrices);
 
+    /**
+     * Remove all rows from the table specified by {@code tableName}.
+     *
+     * @param tableName The name of the table to truncate.
+     */
+    void truncateCryptoPriceTable(@NonNull String tableName);
+
+    /**
+     * Append the rows of the provided chunk to the table specified by {@code tableName}, without
+     * touching the rows already in the table. Implementations are free to do this in batch mode or not.
+     *
+     * @param tableName The name of the table to insert prices to.
+     * @param chunk A {@link CryptoPriceChunk}, every row of which needs to be persisted as a row in the table.
+     */
+    void insertCryptoPrices(@NonNull String tableName, @NonNull CryptoPriceChunk chunk);
+
+    /**
+     * Insert the rows of the provided chunk to the table specified by {@code tableName}, truncated before the rows of
+     * the table started being inserted, as its rows {@code firstRow}, {@code firstRow + 1}, ... in timestamp order,
+     * counting from 0. Unlike {@link #insertCryptoPrices(String, CryptoPriceChunk)}, calls for disjoint ranges of rows of
+     * the same table can be made concurrently, over different connections, and in any order: the table ends up as if
+     * the rows had been inserted in order.
+     *
+     * @param tableName The name of the table to insert prices to.
+     * @param chunk A {@link CryptoPriceChunk}, every row of which needs to be persisted as a row in the table.
+     * @param firstRow The position of the first row of the chunk among all rows of the table.
+     * @see BulkPriceLoader
+     */
+    void insertCryptoPrices(@NonNull String tableName, @NonNull CryptoPriceChunk chunk, long firstRow);
+
+
+    /**
+     * @return {@literal true} if the layout holds a single price per timestamp of a crypto, so that inserting a row with
+     * the timestamp of a row already in the table replaces the price of that row instead of adding another one. Callers
+     * that keep the prices in memory too should then keep only the last price of every timestamp, in insertion order, so
+     * that memory agrees with the table.
+     * @see com.xm.cryptorecservice.model.crypto.CryptoPriceColumns#keepLastRowOfEveryTimestamp()
+     */
+    default boolean keepsLastPriceOfEveryTimestamp() {
+        return false;
+    }
 
     /**
      * Attempt to retrieve a specific {@link CryptoPrice} entry by its unique ID.
@@ -66,4 +121,33 @@ public interface DatabaseConnection {
      * were no prices or some other error occurred during the lookup).
      */
     List<CryptoPrice> getCryptoPricesForDate(String cryptoName, String date);
+
+    /**
+     * Attempt to retrieve the minimum, maximum, first and last price of all the provided cryptos in a single query.
+     * Layouts that would need a query per crypto anyway do not support this, and callers should then fall back to
+     * {@link #getCryptoPriceStats(String)}.
+     *
+     * @param cryptoNames The names of the cryptos.
+     * @return An {@link Optional} over a {@link Map} from the name of every provided crypto with at least one price to
+     * its {@link CryptoPriceStats}, or {@link Optional#empty()} if the layout does not support the query.
+     */
+    default Optional<Map<String, CryptoPriceStats>> getCryptoPriceStats(@NonNull Collection<String> cryptoNames) {
+        return Optional.empty();
+    }
+
+    /**
+     * Attempt to retrieve the normalized price, i.e. (max - min) / min, of all the provided cryptos for the provided date,
+     * in a single query. Layouts that would need a query per crypto anyway do not support this, and callers should then
+     * fall back to {@link #getCryptoPricesForDate(String, String)}.
+     *
+     * @param cryptoNames The names of the cryptos.
+     * @param date The date (in YYYY-mm-dd format) to compute the normalized prices for.
+     * @return An {@link Optional} over a {@link Map} from the name of every provided crypto with at least one price for
+     * the date to its normalized price for the date, or {@link Optional#empty()} if the layout does not support the
+     * query.
+     */
+    default Optional<Map<String, BigDecimal>> getNormalizedPricesForDate(@NonNull Collection<String> cryptoNames,
+                                                                         @NonNull String date) {
+        return Optional.empty();
+    }
 }
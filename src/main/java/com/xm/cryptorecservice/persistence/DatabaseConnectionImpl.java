@@ -1,8 +1,12 @@
 package com.xm.cryptorecservice.persistence;
 
 import com.xm.cryptorecservice.model.crypto.CryptoPrice;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceChunk;
 import com.xm.cryptorecservice.model.crypto.CryptoPriceStats;
 import com.xm.cryptorecservice.util.logger.Logged;
+import com.xm.cryptorecservice.util.metrics.CryptoMetrics;
+
+import static com.xm.cryptorecservice.util.Constants.DATE_FORMATTER;
 
 import jakarta.validation.constraints.NotBlank;
 
@@ -10,42 +14,78 @@ import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.EmptyResultDataAccessException;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
 
 /**
- * An implementation of {@link DatabaseConnection} that performs batch inserts for
- * {@link DatabaseConnection#insertAllCryptoPrices(String, List)}.
+ * An implementation of {@link DatabaseConnection} that performs multi-row inserts, sized by an {@link AdaptiveBatchSize},
+ * for {@link DatabaseConnection#insertAllCryptoPrices(String, List)} and
+ * {@link DatabaseConnection#insertCryptoPrices(String, CryptoPriceChunk)}, and keeps the prices of every crypto in a
+ * table of its own. This is the default {@link com.xm.cryptorecservice.util.PersistenceLayout}. Price batches are timed
+ * in {@link CryptoMetrics}.
  *
  * @author jason
  */
 @Repository
+@ConditionalOnProperty(name = "crypto.persistence.layout", havingValue = "TABLE_PER_CRYPTO", matchIfMissing = true)
 @RequiredArgsConstructor
 @Logged
 @Slf4j
 public class DatabaseConnectionImpl implements DatabaseConnection {
 
-    private static final int PRICES_BATCH_SIZE = 100;
     private static final int NAMES_BATCH_SIZE = 10;
     private static final String CRYPTO_NAME_TABLE_NAME = "CRYPTOS";
+    // Per table, since index names are unique across a whole schema in H2, unlike in MySQL.
+    private static final String TIMESTAMP_INDEX_NAME = "%s_timestamp_idx";
     private final JdbcTemplate jdbcTemplate;
+    private final CryptoMetrics metrics;
+    private final AdaptiveBatchSize statementRows;
 
     @Override
     public void createCryptoPriceTable(@NonNull @NotBlank String tableName) {
+        String table = tableName.toUpperCase(Locale.ROOT);
         String query =
                 String.format(
                         "CREATE TABLE IF NOT EXISTS %s (id BIGINT NOT NULL AUTO_INCREMENT, timestamp TIMESTAMP NOT"
-                                + " NULL, price DECIMAL(20, 10) NOT NULL, PRIMARY KEY (id))",
-                        tableName.toUpperCase(Locale.ROOT));
+                                + " NULL, price DECIMAL(20, 10) NOT NULL, PRIMARY KEY (id), KEY %s (timestamp))",
+                        table, String.format(TIMESTAMP_INDEX_NAME, table));
         jdbcTemplate.execute(query);
+        // Tables created before we indexed timestamps need the index added. MySQL has no CREATE INDEX IF NOT EXISTS.
+        if (!hasTimestampIndex(table)) {
+            log.info("Adding index on timestamp to table {}", table);
+            jdbcTemplate.execute(String.format("CREATE INDEX %s ON %s (timestamp)",
+                    String.format(TIMESTAMP_INDEX_NAME, table), table));
+        }
+    }
+
+    // Through the JDBC metadata rather than information_schema.STATISTICS, which H2 does not have. Any index led by the
+    // timestamp column will do, whatever its name, e.g. the timestamp_idx of tables created before names were per table.
+    private boolean hasTimestampIndex(String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            try (ResultSet indexes = connection.getMetaData()
+                    .getIndexInfo(connection.getCatalog(), null, table, false, true)) {
+                while (indexes.next()) {
+                    if (indexes.getShort("ORDINAL_POSITION") == 1
+                            && "timestamp".equalsIgnoreCase(indexes.getString("COLUMN_NAME"))) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        }));
     }
 
     @Override
@@ -69,23 +109,78 @@ public class DatabaseConnectionImpl implements DatabaseConnection {
                 (PreparedStatement ps, String s) -> ps.setString(1, s));
     }
 
+    @Override
+    public void addCryptoNames(@NonNull List<String> cryptoNames) {
+        String createQuery =
+                String.format(
+                        "CREATE TABLE IF NOT EXISTS %s (id INTEGER NOT NULL AUTO_INCREMENT, name VARCHAR(10) NOT NULL, PRIMARY KEY (id))",
+                        CRYPTO_NAME_TABLE_NAME);
+        jdbcTemplate.execute(createQuery);
+        // Insert only the names we do not already have
+        String insertQuery =
+                String.format("INSERT INTO %1$s (name) SELECT ? FROM DUAL WHERE NOT EXISTS (SELECT * FROM %1$s WHERE name = ?)",
+                        CRYPTO_NAME_TABLE_NAME);
+        jdbcTemplate.batchUpdate(
+                insertQuery,
+                cryptoNames,
+                NAMES_BATCH_SIZE,
+                (PreparedStatement ps, String s) -> {
+                    ps.setString(1, s);
+                    ps.setString(2, s);
+                });
+    }
+
     @Override
     public void insertAllCryptoPrices(
             @NonNull @NotBlank String tableName, @NonNull List<CryptoPrice> cryptoPrices) {
         // Truncate
         String truncateQuery = String.format("TRUNCATE TABLE %s", tableName);
         jdbcTemplate.execute(truncateQuery);
-        // Batch insert
-        String insertQuery =
-                String.format("INSERT INTO %s (timestamp, price) VALUES (?, ?)", tableName);
-        jdbcTemplate.batchUpdate(
-                insertQuery,
-                cryptoPrices,
-                PRICES_BATCH_SIZE,
-                (PreparedStatement ps, CryptoPrice price) -> {
-                    ps.setTimestamp(1, price.getTimestamp());
-                    ps.setBigDecimal(2, price.getPrice());
+        // Multi-row inserts
+        long start = System.nanoTime();
+        MultiRowInserts.insert(jdbcTemplate, statementRows, insertHead(tableName), "(?, ?)", "", 2,
+                cryptoPrices.size(), (PreparedStatement ps, int parameter, int row) -> {
+                    ps.setTimestamp(parameter, cryptoPrices.get(row).getTimestamp());
+                    ps.setBigDecimal(parameter + 1, cryptoPrices.get(row).getPrice());
+                });
+        metrics.recordJdbcBatch("insert_all_prices", cryptoPrices.size(), System.nanoTime() - start);
+    }
+
+    @Override
+    public void truncateCryptoPriceTable(@NonNull @NotBlank String tableName) {
+        jdbcTemplate.execute(String.format("TRUNCATE TABLE %s", tableName));
+    }
+
+    @Override
+    public void insertCryptoPrices(@NonNull @NotBlank String tableName, @NonNull CryptoPriceChunk chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        MultiRowInserts.insert(jdbcTemplate, statementRows, insertHead(tableName), "(?, ?)", "", 2, chunk.size(),
+                (PreparedStatement ps, int parameter, int row) -> {
+                    ps.setTimestamp(parameter, new Timestamp(chunk.getEpochMilli(row)));
+                    ps.setBigDecimal(parameter + 1, chunk.getPrice(row));
                 });
+        metrics.recordJdbcBatch("insert_prices", chunk.size(), System.nanoTime() - start);
+    }
+
+    @Override
+    public void insertCryptoPrices(@NonNull @NotBlank String tableName, @NonNull CryptoPriceChunk chunk, long firstRow) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        // Ids are the positions of the rows, rather than auto-generated in the order in which concurrent inserts happen
+        // to reach the table, so that they still follow the timestamps. Auto-generated ids resume after the largest one.
+        String insertHead = String.format("INSERT INTO %s (id, timestamp, price) VALUES ", tableName);
+        long start = System.nanoTime();
+        MultiRowInserts.insert(jdbcTemplate, statementRows, insertHead, "(?, ?, ?)", "", 3, chunk.size(),
+                (PreparedStatement ps, int parameter, int row) -> {
+                    ps.setLong(parameter, firstRow + row + 1);
+                    ps.setTimestamp(parameter + 1, new Timestamp(chunk.getEpochMilli(row)));
+                    ps.setBigDecimal(parameter + 2, chunk.getPrice(row));
+                });
+        metrics.recordJdbcBatch("bulk_insert_prices", chunk.size(), System.nanoTime() - start);
     }
 
     @Override
@@ -93,12 +188,12 @@ public class DatabaseConnectionImpl implements DatabaseConnection {
             @NonNull @NotBlank String cryptoName, @NonNull Long id) {
         String query =
                 String.format(
-                        "SELECT timestamp, trim(price)+0 FROM %s WHERE ID = ?",
+                        "SELECT timestamp, price FROM %s WHERE ID = ?",
                         cryptoName.toUpperCase(Locale.ROOT));
         try {
             return Optional.ofNullable(
                     jdbcTemplate.queryForObject(
-                            query, new BeanPropertyRowMapper<>(CryptoPrice.class), id));
+                            query, PriceRowMappers.CRYPTO_PRICE, id));
         } catch (
                 EmptyResultDataAccessException
                         exc) { // queryForObject will throw this if the result set is empty
@@ -109,18 +204,20 @@ public class DatabaseConnectionImpl implements DatabaseConnection {
 
     @Override
     public Optional<CryptoPriceStats> getCryptoPriceStats(@NonNull @NotBlank String cryptoName) {
+        // A single statement and a single pass over the table for min and max; first and last price are read off
+        // either end of the timestamp index (ties broken by insertion order).
         String selectQuery =
                 String.format(
                         """
-                SELECT (select min(trim(price)+0) from %1$s) as 'minprice',\s
-                (select max(trim(price)+0) from %1$s) as 'maxprice',\s
-                (select trim(price)+0 from %1$s order by timestamp asc limit 1) as 'firstprice',\s
-                (select trim(price)+0 from %1$s order by timestamp desc limit 1) as 'lastprice'""",
+                SELECT min(price), max(price),
+                (select price from %1$s order by timestamp asc, id asc limit 1),
+                (select price from %1$s order by timestamp desc, id desc limit 1)
+                FROM %1$s""",
                         cryptoName.toUpperCase(Locale.ROOT));
         try {
             return Optional.ofNullable(
                     jdbcTemplate.queryForObject(
-                            selectQuery, new BeanPropertyRowMapper<>(CryptoPriceStats.class)));
+                            selectQuery, PriceRowMappers.CRYPTO_PRICE_STATS));
         } catch (EmptyResultDataAccessException exc) {
             log.warn("Empty result encountered when getting stats from table {}", cryptoName);
             return Optional.empty();
@@ -130,16 +227,28 @@ public class DatabaseConnectionImpl implements DatabaseConnection {
     @Override
     public List<CryptoPrice> getCryptoPricesForDate(
             @NonNull @NotBlank String cryptoName, @NonNull @NotBlank String date) {
+        // A half-open range on the bare column, so that the timestamp index can be used, and the date is bound.
         String selectQuery =
                 String.format(
-                        "SELECT timestamp as timestamp, trim(price)+0 as price " +
-                        "from %s where DATE_FORMAT(timestamp, '%%Y-%%m-%%d') = '%s'", // MySQL format is %Y-%m-%d
-                        cryptoName, date);
+                        "SELECT timestamp, price " +
+                        "from %s where timestamp >= ? and timestamp < ?",
+                        cryptoName);
+        LocalDate day = LocalDate.parse(date, DATE_FORMATTER);
         try {
-            return jdbcTemplate.query(selectQuery, new BeanPropertyRowMapper<>(CryptoPrice.class));
+            return jdbcTemplate.query(selectQuery, PriceRowMappers.CRYPTO_PRICE,
+                    startOfDay(day), startOfDay(day.plusDays(1)));
         } catch(DataAccessException dataAccessException){
             log.warn("Received exception: {}", dataAccessException.getMessage());
             throw new RuntimeException(dataAccessException.getMessage());
         }
     }
+
+    private static String insertHead(String tableName) {
+        return String.format("INSERT INTO %s (timestamp, price) VALUES ", tableName);
+    }
+
+    // Timestamps are written in the JVM's time zone, so that is the zone whose days we look up.
+    private static Timestamp startOfDay(LocalDate day) {
+        return Timestamp.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
 }
@@ -0,0 +1,65 @@
+package com.xm.cryptorecservice.persistence;
+
+import com.xm.cryptorecservice.model.crypto.CryptoPriceColumns;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceStatsAccumulator;
+import com.xm.cryptorecservice.model.crypto.PriceSeries;
+import com.xm.cryptorecservice.util.logger.Logged;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A {@link Runnable} which writes the prices of a single crypto, routed to it out of one or more combined CSV files by
+ * {@link com.xm.cryptorecservice.io.MappedCryptoPriceFileReader#readBySymbol(java.io.File)}:
+ * <ol>
+ *  <li>Uses the {@link DatabaseConnection} object provided at construction to create the table of the crypto, or to
+ *  truncate it if it already exists, and forgets any {@link IngestionManifest} entry of it, since the table no longer
+ *  agrees with a CSV file of its own.</li>
+ *  <li>Loads the prices to the table with the provided {@link BulkPriceLoader}, over several connections if there are
+ *  enough of them.</li>
+ *  <li>Publishes the prices to the provided {@link InMemoryPriceSeriesStore}, as a single {@link PriceSeries}, and the
+ *  aggregate stats folded while they were being parsed to the provided {@link InMemoryAggregateStats}. If the {@link
+ *  DatabaseConnection} keeps only the last price of every timestamp, so do the series and its stats.</li>
+ *</ol>
+ *  Once finished, it counts down the provided {@link CountDownLatch} instance.
+ *
+ * @author jason
+ * @see CryptoPricePersister
+ */
+@RequiredArgsConstructor
+@Slf4j
+@Logged
+public class DemultiplexedPricePersister implements Runnable {
+
+    private final DatabaseConnection dbConnection;
+    private final String cryptoName;
+    private final CryptoPriceColumns columns;
+    private final CryptoPriceStatsAccumulator stats;
+    private final InMemoryPriceSeriesStore seriesStore;
+    private final InMemoryAggregateStats inMemoryDb;
+    private final IngestionManifest manifest;
+    private final BulkPriceLoader bulkLoader;
+    private final CountDownLatch latch;
+
+    @Override
+    public void run() {
+        try {
+            CryptoPriceStatsAccumulator stats = this.stats;
+            if (dbConnection.keepsLastPriceOfEveryTimestamp() && columns.keepLastRowOfEveryTimestamp()) {
+                stats = CryptoPriceStatsAccumulator.of(columns); // Those of the rows the table keeps.
+            }
+            PriceSeries prices = columns.toSeries();
+            dbConnection.createCryptoPriceTable(cryptoName);
+            manifest.remove(cryptoName);
+            dbConnection.truncateCryptoPriceTable(cryptoName);
+            bulkLoader.load(dbConnection, cryptoName, prices);
+            log.info("Inserted all " + prices.size() + " prices for crypto " + cryptoName + " from combined CSV files.");
+            seriesStore.put(cryptoName, prices);
+            stats.toStats().ifPresent(cryptoPriceStats -> inMemoryDb.add(cryptoName, cryptoPriceStats));
+        } finally {
+            latch.countDown();
+        }
+    }
+}
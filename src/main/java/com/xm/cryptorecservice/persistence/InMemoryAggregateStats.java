@@ -1,25 +1,35 @@
 package com.xm.cryptorecservice.persistence;
 
-import static com.xm.cryptorecservice.util.SortOrder.ASC;
-
-import com.google.common.collect.ImmutableSortedMap;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Maps;
 import com.xm.cryptorecservice.model.crypto.CryptoPriceStats;
+import com.xm.cryptorecservice.model.crypto.CryptoRank;
+import com.xm.cryptorecservice.model.crypto.NormalizedPriceRankIndex;
 import com.xm.cryptorecservice.util.SortOrder;
 import com.xm.cryptorecservice.util.logger.Logged;
 
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
-import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.SortedMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * An in-memory &quot; database &quot; of crypto stats with thread-safe structural modification
- * operations.
+ * operations. Every modification bumps the version of the store, and the first read of a new version publishes an
+ * immutable {@link StatsSnapshot} of the whole store, which every read that covers the whole store is then served from
+ * until the next modification. Bulk loads therefore cost a single snapshot, built on first read. Snapshots serialize their
+ * payloads with the {@link ObjectMapper} provided at construction, which in the application is Spring's own, so that
+ * they honour the {@literal spring.jackson.*} properties like every other response.
+ * <p>
+ * A {@link NormalizedPriceRankIndex} is kept up to date on every modification, so that the top or bottom K cryptos by
+ * normalized price, and the rank of any crypto, are answered without sorting, even with tens of thousands of cryptos.
  *
  * @author jason
  */
@@ -28,6 +38,16 @@ import java.util.stream.Collectors;
 public class InMemoryAggregateStats {
 
     private final Map<String, CryptoPriceStats> cryptoPriceStats = Maps.newConcurrentMap();
+    private final AtomicLong version = new AtomicLong();
+    private final ObjectMapper objectMapper;
+    private volatile StatsSnapshot snapshot;
+    private final NormalizedPriceRankIndex rankIndex = new NormalizedPriceRankIndex();
+    private final ReadWriteLock rankIndexLock = new ReentrantReadWriteLock();
+
+    public InMemoryAggregateStats(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.snapshot = StatsSnapshot.of(0, Map.of(), objectMapper);
+    }
 
     /**
      * Add the pair &lt; crypto, stats &gt; to the in-memory DB.
@@ -35,7 +55,14 @@ public class InMemoryAggregateStats {
      * @param stats An instance of {@link CryptoPriceStats} to associate the cryptocurrency with.
      */
     public void add(String crypto, CryptoPriceStats stats) {
-        cryptoPriceStats.put(crypto, stats);
+        rankIndexLock.writeLock().lock();
+        try { // Under the lock, so that concurrent adds of a crypto leave the map and the index agreeing.
+            cryptoPriceStats.put(crypto, stats);
+            rankIndex.put(crypto, stats);
+        } finally {
+            rankIndexLock.writeLock().unlock();
+        }
+        version.incrementAndGet(); // Only after the put, so that a snapshot of this version is sure to contain it.
     }
 
     /**
@@ -68,37 +95,83 @@ public class InMemoryAggregateStats {
     }
 
     /**
-     * Performs a shallow copy of the statistics held by {@literal  this}. Not thread-safe, but also not structurally
-     * modifying the store in any way.
+     * Returns the latest snapshot of the store, building it if the store has been modified since the last one. Thread-safe;
+     * once a snapshot has been built, this is a single volatile read.
+     *
+     * @return A {@link StatsSnapshot} that reflects at least every modification that completed before the call.
+     */
+    public StatsSnapshot snapshot() {
+        StatsSnapshot current = snapshot;
+        if (current.getVersion() == version.get()) {
+            return current;
+        }
+        synchronized (this) {
+            // Read the version before copying, so that the copy is at least as recent as the version it is labelled with.
+            long latest = version.get();
+            if (snapshot.getVersion() != latest) {
+                snapshot = StatsSnapshot.of(latest, cryptoPriceStats, objectMapper);
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Returns the statistics held by {@literal this}, as of the latest {@link #snapshot()}. Thread-safe.
      * 
-     * @return A {@link java.util.SortedMap} containing the crypto names of the in-memory DB as keys and the relevant
-     * aggregate stats as values. It is sorted by lexicographical order of keys, ascending.
+     * @return An immutable {@link java.util.SortedMap} containing the crypto names of the in-memory DB as keys and the
+     * relevant aggregate stats as values. It is sorted by lexicographical order of keys, ascending.
      */
     public Map<String, CryptoPriceStats> copyOfStats() {
-        // An ImmutableSortedMap created this way will print the k-v pairs
-        // in ascending lexicographical order of key.
-        return ImmutableSortedMap.copyOf(cryptoPriceStats);
+        return snapshot().getStats();
     }
 
     /**
-     * Returns the cryptocurrencies we support in ascending or descending order of normalized price. Not thread safe,
-     * but also not modifying the store in any way.
+     * Returns the cryptocurrencies we support in ascending or descending order of normalized price, as of the latest
+     * {@link #snapshot()}. Thread-safe.
      * @param sortOrder A {@link SortOrder} instance that determines if we want ascending or descending sort order.
-     * @return A {@link SortedMap} whose keys are sorted by value, in ascending or descending order.
+     * @return An immutable {@link SortedMap} whose keys are sorted by value, in ascending or descending order, and by
+     * name among equal values.
      */
     public SortedMap<String, BigDecimal> cryptosSortedByNormalizedPriceDescending(SortOrder sortOrder) {
-        // This time we specify a Comparator argument to compare by normalized price and sort
-        // accordingly.
-        Map<String, BigDecimal> intermediateMap =
-                cryptoPriceStats.entrySet().stream()
-                        .collect(
-                                Collectors.toMap(
-                                        Map.Entry::getKey, e -> e.getValue().getNormalizedPrice()));
-        return ImmutableSortedMap.copyOf(
-                intermediateMap,
-                sortOrder == ASC
-                        ? Comparator.comparing(intermediateMap::get)
-                        : Comparator.comparing(intermediateMap::get).reversed());
+        return snapshot().getSortedByNormalizedPrice(sortOrder);
+    }
+
+    /**
+     * Returns the first cryptocurrencies in ascending or descending order of normalized price, in O(K + log n) time for K
+     * cryptos. Thread-safe.
+     * @param sortOrder A {@link SortOrder} instance that determines if we want ascending or descending sort order.
+     * @param limit The maximum number of cryptos to return. Must not be negative.
+     * @return A {@link List} of at most {@code limit} entries of crypto names and their stats, sorted by normalized
+     * price in the provided order, and by name among equal normalized prices.
+     */
+    public List<Map.Entry<String, CryptoPriceStats>> firstByNormalizedPrice(SortOrder sortOrder, int limit) {
+        rankIndexLock.readLock().lock();
+        try {
+            return rankIndex.first(limit, sortOrder);
+        } finally {
+            rankIndexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the rank of the provided cryptocurrency in descending order of normalized price, in O(log n) time.
+     * Thread-safe.
+     * @param crypto The crypto name to rank.
+     * @return An {@link Optional} over the {@link CryptoRank} of the crypto, or {@link Optional#empty()} if the crypto is
+     * not in the DB.
+     */
+    public Optional<CryptoRank> rankByNormalizedPrice(String crypto) {
+        rankIndexLock.readLock().lock();
+        try {
+            CryptoPriceStats stats = rankIndex.get(crypto);
+            if (stats == null) {
+                return Optional.empty();
+            }
+            return Optional.of(new CryptoRank(crypto, stats.getNormalizedPrice(), rankIndex.rank(crypto).orElseThrow(),
+                    rankIndex.size()));
+        } finally {
+            rankIndexLock.readLock().unlock();
+        }
     }
 
     /**
@@ -0,0 +1,141 @@
+package com.xm.cryptorecservice.persistence;
+
+import com.google.common.collect.Maps;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceColumns;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceStats;
+import com.xm.cryptorecservice.model.crypto.DailyPriceIndex;
+import com.xm.cryptorecservice.model.crypto.PriceSeries;
+import com.xm.cryptorecservice.model.crypto.RangeMinMaxIndex;
+import com.xm.cryptorecservice.util.logger.Logged;
+
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * An in-memory &quot; database &quot; of the full price history of every crypto, kept column-wise in
+ * primitive {@link PriceSeries} instances, alongside a {@link DailyPriceIndex} rollup and a {@link
+ * RangeMinMaxIndex} of every series. Allows per-day and arbitrary time-window queries to be answered by
+ * binary search and constant-time range lookups, without a round trip to the on-disk database. Populated at
+ * ingestion time, see {@link CryptoPricePersister}. Structural modifications are thread-safe, and a series
+ * is always published atomically together with its indices.
+ *
+ * @author jason
+ * @see InMemoryAggregateStats
+ */
+@Component
+@Logged
+public class InMemoryPriceSeriesStore {
+
+    private record Entry(PriceSeries series, DailyPriceIndex dailyIndex, RangeMinMaxIndex rangeIndex) {}
+
+    private final Map<String, Entry> entries = Maps.newConcurrentMap();
+    private final ZoneId zone = ZoneId.systemDefault(); // Same zone our on-disk timestamps are read in.
+
+    /**
+     * Add (or replace) the price series of the provided crypto, rolling it up into calendar days and indexing it
+     * for range min / max queries.
+     * @param crypto The name of the cryptocurrency. It uniquely identifies the cryptocurrency in the store.
+     * @param series The {@link PriceSeries} to associate the cryptocurrency with.
+     */
+    public void put(String crypto, PriceSeries series) {
+        entries.put(crypto, new Entry(series, DailyPriceIndex.of(series, zone), RangeMinMaxIndex.of(series)));
+    }
+
+    /**
+     * Append the provided rows to the price series of the provided crypto, or start a new series with them if the crypto
+     * is not in the store. The longer series is published atomically together with its re-built indices, so readers see
+     * either the old or the new series, never an empty one.
+     * @param crypto The name of the cryptocurrency.
+     * @param rows A {@link CryptoPriceColumns}, sorted by timestamp, none of which precedes the crypto's latest price.
+     */
+    public void append(String crypto, CryptoPriceColumns rows) {
+        entries.compute(crypto, (name, entry) -> {
+            PriceSeries series = entry == null ? rows.toSeries() : entry.series().append(rows);
+            return new Entry(series, DailyPriceIndex.of(series, zone), RangeMinMaxIndex.of(series));
+        });
+    }
+
+    /**
+     * Retrieve the price series of the provided crypto.
+     * @param crypto The unique crypto name to return the price series of.
+     * @return An {@link Optional} over the crypto's {@link PriceSeries}, or {@link Optional#empty()} if the
+     * crypto is not in the store.
+     */
+    public Optional<PriceSeries> get(String crypto) {
+        return Optional.ofNullable(entries.get(crypto)).map(Entry::series);
+    }
+
+    /**
+     * Retrieve the per-day rollup of the price series of the provided crypto.
+     * @param crypto The unique crypto name to return the rollup of.
+     * @return An {@link Optional} over the crypto's {@link DailyPriceIndex}, or {@link Optional#empty()} if the
+     * crypto is not in the store.
+     */
+    public Optional<DailyPriceIndex> getDailyIndex(String crypto) {
+        return Optional.ofNullable(entries.get(crypto)).map(Entry::dailyIndex);
+    }
+
+    /**
+     * Return the prices of the provided crypto with timestamps in {@code [fromEpochMilli, toEpochMilli)}.
+     * @param crypto The unique crypto name to return prices of.
+     * @param fromEpochMilli The inclusive start of the range, in milliseconds since the epoch.
+     * @param toEpochMilli The exclusive end of the range, in milliseconds since the epoch.
+     * @return An {@link Optional} over a (possibly empty) {@link PriceSeries.Slice}, or {@link Optional#empty()}
+     * if the crypto is not in the store.
+     */
+    public Optional<PriceSeries.Slice> slice(String crypto, long fromEpochMilli, long toEpochMilli) {
+        return get(crypto).map(series -> series.slice(fromEpochMilli, toEpochMilli));
+    }
+
+    /**
+     * Compute the aggregate stats of the provided crypto over the time window {@code [fromEpochMilli, toEpochMilli)}.
+     * Two binary searches locate the window and the {@link RangeMinMaxIndex} answers its min and max, so no prices are
+     * scanned beyond the edges of the window.
+     * @param crypto The unique crypto name to return the stats of.
+     * @param fromEpochMilli The inclusive start of the window, in milliseconds since the epoch.
+     * @param toEpochMilli The exclusive end of the window, in milliseconds since the epoch.
+     * @return An {@link Optional} over the {@link CryptoPriceStats} of the window, or {@link Optional#empty()} if the
+     * crypto is not in the store or has no prices within the window.
+     */
+    public Optional<CryptoPriceStats> getStats(String crypto, long fromEpochMilli, long toEpochMilli) {
+        Entry entry = entries.get(crypto);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        PriceSeries.Slice window = entry.series().slice(fromEpochMilli, toEpochMilli);
+        if (window.isEmpty()) {
+            return Optional.empty();
+        }
+        int from = window.fromIndex(), to = window.toIndex();
+        return Optional.of(new CryptoPriceStats(
+                entry.rangeIndex().minScaledPrice(from, to), entry.rangeIndex().maxScaledPrice(from, to),
+                window.firstScaledPrice(), window.lastScaledPrice()));
+    }
+
+    /**
+     * Queries the store for existence of a particular cryptocurrency name.
+     * @param crypto The crypto name to search for.
+     * @return {@literal true} if the crypto is in the store, {@literal false} otherwise.
+     */
+    public boolean containsCrypto(String crypto) {
+        return entries.containsKey(crypto);
+    }
+
+    /**
+     * @return A {@link Set} with the names of all the cryptos in the store.
+     */
+    public Set<String> getCryptos() {
+        return entries.keySet();
+    }
+
+    /**
+     * @return The {@link ZoneId} whose calendar days the {@link DailyPriceIndex} rollups are bucketed in.
+     */
+    public ZoneId getZone() {
+        return zone;
+    }
+}
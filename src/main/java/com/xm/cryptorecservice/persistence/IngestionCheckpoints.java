@@ -0,0 +1,73 @@
+package com.xm.cryptorecservice.persistence;
+
+import com.google.common.collect.Maps;
+import com.xm.cryptorecservice.util.logger.Logged;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Remembers, per crypto, how far its CSV file has been ingested: the byte offset right after the last line read, and the
+ * timestamp of the latest price read. Only populated when incremental ingestion is enabled through {@literal
+ * crypto.ingestion.incremental.enabled}. Structural modifications are thread-safe.
+ *
+ * @author jason
+ * @see CryptoPricePersister
+ * @see com.xm.cryptorecservice.service.IncrementalIngestionService
+ */
+@Component
+@Logged
+public class IngestionCheckpoints {
+
+    /**
+     * How far a CSV file has been ingested.
+     *
+     * @param csv The CSV file.
+     * @param offset The byte offset right after the last line read, to resume reading from.
+     * @param lastEpochMilli The timestamp of the latest price read, or {@link Long#MIN_VALUE} if none was.
+     */
+    public record Checkpoint(File csv, long offset, long lastEpochMilli) {}
+
+    private final Map<String, Checkpoint> checkpoints = Maps.newConcurrentMap();
+
+    @Value("${crypto.ingestion.incremental.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * @return {@literal true} if incremental ingestion is enabled, {@literal false} otherwise.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Add (or replace) the checkpoint of the provided crypto.
+     * @param crypto The name of the cryptocurrency.
+     * @param checkpoint The {@link Checkpoint} of its CSV file.
+     */
+    public void put(String crypto, Checkpoint checkpoint) {
+        checkpoints.put(crypto, checkpoint);
+    }
+
+    /**
+     * Retrieve the checkpoint of the provided crypto.
+     * @param crypto The name of the cryptocurrency.
+     * @return An {@link Optional} over the crypto's {@link Checkpoint}, or {@link Optional#empty()} if its CSV file has not
+     * been ingested incrementally.
+     */
+    public Optional<Checkpoint> get(String crypto) {
+        return Optional.ofNullable(checkpoints.get(crypto));
+    }
+
+    /**
+     * @return A {@link Set} with the names of all the cryptos that have a checkpoint.
+     */
+    public Set<String> getCryptos() {
+        return checkpoints.keySet();
+    }
+}
@@ -0,0 +1,194 @@
+package com.xm.cryptorecservice.persistence;
+
+import com.xm.cryptorecservice.io.FileHashes;
+import com.xm.cryptorecservice.util.PersistenceLayout;
+import com.xm.cryptorecservice.util.logger.Logged;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Optional;
+
+/**
+ * A table in the database, INGESTION_MANIFEST, that records, for every crypto, which CSV file its on-disk prices were
+ * ingested from: the path, size, modification time and murmur3 content hash of the file, and the number of rows ingested
+ * from it. Since it lives in the same database as the prices, it can tell whether the table of a crypto is already up
+ * to date with its file:
+ * <ul>
+ *     <li>{@link Change#UNCHANGED}: the file is exactly what was ingested, so the table need not be touched.</li>
+ *     <li>{@link Change#APPENDED}: what was ingested is a prefix of the file, which ends at a line boundary, so only the
+ *     lines past it need to be inserted.</li>
+ *     <li>{@link Change#REWRITTEN}: anything else, so the table needs to be reloaded from scratch.</li>
+ * </ul>
+ * The entry of a crypto is removed before its table is modified, and only put back once the table agrees with the file
+ * again, so that an ingestion that fails halfway is redone in full. Enabled through {@literal
+ * crypto.ingestion.manifest.enabled}; when disabled, there are no entries, and every file counts as {@link
+ * Change#REWRITTEN}.
+ * <p>
+ * Every entry also records the {@link PersistenceLayout} that its prices were written under, since the tables of one
+ * layout say nothing about those of the other: the prices of a crypto in its own table are not in {@literal
+ * crypto_price}, and a {@link PersistenceLayout#TABLE_PER_CRYPTO} run re-creates the {@literal CRYPTOS} table that the
+ * {@literal symbol_id}s of {@literal crypto_price} point into. Entries of any layout other than {@literal
+ * crypto.persistence.layout} are therefore dropped the first time the manifest is used, and their files count as
+ * {@link Change#REWRITTEN}.
+ * <p>
+ * The manifest only saves database writes: the files of unchanged cryptos are still hashed in full to be compared with
+ * their entries, and parsed in full to build their in-memory prices and stats, unless a {@link StoreSnapshotFile}
+ * restores those.
+ *
+ * @author jason
+ * @see CryptoPricePersister
+ */
+@Repository
+@Slf4j
+@Logged
+public class IngestionManifest {
+
+    private static final String TABLE_NAME = "INGESTION_MANIFEST";
+
+    /**
+     * What was ingested from the CSV file of a crypto.
+     *
+     * @param path The absolute path of the file.
+     * @param size The number of bytes of the file that were ingested, from its start.
+     * @param lastModified The modification time of the file when it was ingested, in milliseconds since the epoch.
+     * @param contentHash The murmur3 128-bit hash of the bytes that were ingested, as a hex string.
+     * @param rowCount The number of rows ingested.
+     */
+    public record Entry(String path, long size, long lastModified, String contentHash, long rowCount) {}
+
+    /** How a CSV file has changed since its {@link Entry} was recorded. */
+    public enum Change {
+        UNCHANGED,
+        APPENDED,
+        REWRITTEN
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final PersistenceLayout layout;
+    private volatile boolean tableCreated;
+
+    public IngestionManifest(JdbcTemplate jdbcTemplate,
+                             @Value("${crypto.ingestion.manifest.enabled:true}") boolean enabled,
+                             @Value("${crypto.persistence.layout:TABLE_PER_CRYPTO}") PersistenceLayout layout) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.layout = layout;
+    }
+
+    /**
+     * @return {@literal true} if the manifest is enabled, {@literal false} otherwise.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Retrieve the entry of the provided crypto.
+     * @param crypto The name of the cryptocurrency.
+     * @return An {@link Optional} over the crypto's {@link Entry}, or {@link Optional#empty()} if the manifest is disabled,
+     * or if the table of the crypto is not known to agree with any file under the current {@link PersistenceLayout}.
+     */
+    public Optional<Entry> get(String crypto) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        createTableIfNotExists();
+        return jdbcTemplate.query(String.format("SELECT path, file_size, last_modified, content_hash, row_count FROM %s "
+                        + "WHERE crypto = ? AND layout = ?", TABLE_NAME),
+                (resultSet, rowNum) -> new Entry(resultSet.getString(1), resultSet.getLong(2), resultSet.getLong(3),
+                        resultSet.getString(4), resultSet.getLong(5)), crypto, layout.name()).stream().findFirst();
+    }
+
+    /**
+     * Add (or replace) the entry of the provided crypto, under the current {@link PersistenceLayout}. Does nothing if the
+     * manifest is disabled.
+     * @param crypto The name of the cryptocurrency.
+     * @param entry The {@link Entry} of the file that the table of the crypto now agrees with.
+     */
+    public void put(String crypto, Entry entry) {
+        if (!enabled) {
+            return;
+        }
+        remove(crypto);
+        jdbcTemplate.update(String.format("INSERT INTO %s (crypto, layout, path, file_size, last_modified, content_hash, "
+                        + "row_count) VALUES (?, ?, ?, ?, ?, ?, ?)", TABLE_NAME), crypto, layout.name(), entry.path(),
+                entry.size(), entry.lastModified(), entry.contentHash(), entry.rowCount());
+    }
+
+    /**
+     * Remove the entry of the provided crypto, if there is one. Does nothing if the manifest is disabled.
+     * @param crypto The name of the cryptocurrency.
+     */
+    public void remove(String crypto) {
+        if (!enabled) {
+            return;
+        }
+        createTableIfNotExists();
+        jdbcTemplate.update(String.format("DELETE FROM %s WHERE crypto = ?", TABLE_NAME), crypto);
+    }
+
+    /**
+     * Describe the first {@code size} bytes of the provided file, hashing them.
+     * @param csv A CSV {@link File}.
+     * @param size The number of bytes of the file that were ingested.
+     * @param lastModified The modification time of the file when it was ingested.
+     * @param rowCount The number of rows ingested.
+     * @return A new {@link Entry}.
+     * @throws IOException if the file cannot be read.
+     */
+    public static Entry describe(File csv, long size, long lastModified, long rowCount) throws IOException {
+        return new Entry(csv.getAbsolutePath(), size, lastModified, FileHashes.hash(csv, size).toString(), rowCount);
+    }
+
+    /**
+     * Find out how the provided file has changed since the provided entry was recorded. Reads as many bytes of the file as
+     * the entry covers, to hash them.
+     * @param entry The {@link Entry} recorded for the file.
+     * @param csv A CSV {@link File}.
+     * @return The {@link Change} of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    public static Change compare(Entry entry, File csv) throws IOException {
+        long size = csv.length();
+        if (!entry.path().equals(csv.getAbsolutePath()) || size < entry.size()
+                || !FileHashes.hash(csv, entry.size()).toString().equals(entry.contentHash())) {
+            return Change.REWRITTEN;
+        }
+        if (size == entry.size()) {
+            return Change.UNCHANGED;
+        }
+        // Appended lines can only be read from the start of a line.
+        return entry.size() > 0 && lastByteBefore(csv, entry.size()) == '\n' ? Change.APPENDED : Change.REWRITTEN;
+    }
+
+    private static int lastByteBefore(File csv, long offset) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(csv, "r")) {
+            file.seek(offset - 1);
+            return file.read();
+        }
+    }
+
+    private void createTableIfNotExists() {
+        if (tableCreated) {
+            return;
+        }
+        jdbcTemplate.execute(String.format("CREATE TABLE IF NOT EXISTS %s (crypto VARCHAR(10) NOT NULL, layout "
+                + "VARCHAR(16) NOT NULL, path VARCHAR(1024) NOT NULL, file_size BIGINT NOT NULL, last_modified BIGINT NOT "
+                + "NULL, content_hash CHAR(32) NOT NULL, row_count BIGINT NOT NULL, PRIMARY KEY (crypto))", TABLE_NAME));
+        // Tables written under another layout may have been left behind, and CRYPTOS re-created, since.
+        int dropped = jdbcTemplate.update(String.format("DELETE FROM %s WHERE layout <> ?", TABLE_NAME), layout.name());
+        if (dropped > 0) {
+            log.info("Dropped " + dropped + " ingestion manifest entries of a persistence layout other than " + layout
+                    + "; their cryptos will be reloaded.");
+        }
+        tableCreated = true;
+    }
+}
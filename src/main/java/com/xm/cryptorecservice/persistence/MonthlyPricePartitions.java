@@ -0,0 +1,123 @@
+package com.xm.cryptorecservice.persistence;
+
+import com.xm.cryptorecservice.model.crypto.CryptoPriceChunk;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Keeps track of the monthly range partitions of a table of prices that is {@literal PARTITION BY RANGE COLUMNS(ts)},
+ * and plans the statements that give every month with prices a partition of its own. The table starts out with a single
+ * {@value #CATCH_ALL} partition; a month is added by splitting the partition its prices currently fall in, so months
+ * can be added in any order, and only the rows of that one partition are moved. Partitions are named after their
+ * exclusive upper bound, e.g. {@literal p20220201} holds prices before 2022-02-01. Thread-safe.
+ *
+ * @author jason
+ * @see PartitionedDatabaseConnection
+ */
+public final class MonthlyPricePartitions {
+
+    static final String CATCH_ALL = "p_max";
+    private static final DateTimeFormatter NAME_FORMATTER = DateTimeFormatter.ofPattern("'p'yyyyMMdd");
+
+    private final String tableName;
+    private final ZoneId zone;
+    private final NavigableSet<LocalDate> bounds = new ConcurrentSkipListSet<>();
+
+    /**
+     * @param tableName The name of the partitioned table.
+     * @param zone The {@link ZoneId} whose months the table is partitioned by, i.e. the one its timestamps are written in.
+     */
+    public MonthlyPricePartitions(String tableName, ZoneId zone) {
+        this.tableName = tableName;
+        this.zone = zone;
+    }
+
+    /**
+     * Record a partition that already exists in the table.
+     *
+     * @param partitionName The name of the partition, as found in {@literal information_schema.PARTITIONS}.
+     * @return {@literal true} if the partition is one of ours, {@literal false} otherwise.
+     */
+    public boolean addExisting(String partitionName) {
+        Optional<LocalDate> bound = boundOf(partitionName);
+        bound.ifPresent(bounds::add);
+        return bound.isPresent();
+    }
+
+    /**
+     * @param chunk A {@link CryptoPriceChunk} about to be inserted in the table.
+     * @return The upper bounds of the partitions that are missing for the prices of the chunk, in ascending order. Both
+     * the start of every month with prices and the start of the following month are bounds, so that the month ends up
+     * in a partition of its own.
+     */
+    public NavigableSet<LocalDate> missingBounds(CryptoPriceChunk chunk) {
+        NavigableSet<LocalDate> missing = new TreeSet<>();
+        long monthStart = Long.MAX_VALUE, nextMonthStart = Long.MIN_VALUE;
+        for (int i = 0; i < chunk.size(); i++) {
+            long timestamp = chunk.getEpochMilli(i);
+            if (timestamp < monthStart || timestamp >= nextMonthStart) {
+                // Only resolve months when we cross a month boundary, which is rare.
+                LocalDate month = Instant.ofEpochMilli(timestamp).atZone(zone).toLocalDate().withDayOfMonth(1);
+                monthStart = month.atStartOfDay(zone).toInstant().toEpochMilli();
+                nextMonthStart = month.plusMonths(1).atStartOfDay(zone).toInstant().toEpochMilli();
+                for (LocalDate bound : new LocalDate[] {month, month.plusMonths(1)}) {
+                    if (!bounds.contains(bound)) {
+                        missing.add(bound);
+                    }
+                }
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Plan the split that adds a partition with the provided upper bound. Callers must serialize splits, execute the
+     * statement and then {@link #recordSplit(LocalDate) record} the split, before inserting prices.
+     *
+     * @param bound The exclusive upper bound of the new partition, the first day of a month.
+     * @return The {@literal ALTER TABLE} statement to execute, or {@link Optional#empty()} if the partition exists.
+     */
+    public Optional<String> split(LocalDate bound) {
+        if (bounds.contains(bound)) {
+            return Optional.empty();
+        }
+        LocalDate next = bounds.higher(bound);
+        String nextPartition = next == null ? CATCH_ALL : NAME_FORMATTER.format(next);
+        String nextBound = next == null ? "MAXVALUE" : "'" + next + "'";
+        return Optional.of(String.format(
+                "ALTER TABLE %1$s REORGANIZE PARTITION %2$s INTO (PARTITION %3$s VALUES LESS THAN ('%4$s'), "
+                        + "PARTITION %2$s VALUES LESS THAN (%5$s))",
+                tableName, nextPartition, NAME_FORMATTER.format(bound), bound, nextBound));
+    }
+
+    /**
+     * Record that the split planned by {@link #split(LocalDate)} has been executed.
+     *
+     * @param bound The exclusive upper bound of the new partition.
+     */
+    public void recordSplit(LocalDate bound) {
+        bounds.add(bound);
+    }
+
+    /**
+     * @return The {@literal PARTITION BY} clause a new, empty table should be created with.
+     */
+    public static String initialPartitioning() {
+        return "PARTITION BY RANGE COLUMNS(ts) (PARTITION " + CATCH_ALL + " VALUES LESS THAN (MAXVALUE))";
+    }
+
+    private static Optional<LocalDate> boundOf(String partitionName) {
+        try {
+            return Optional.of(LocalDate.parse(partitionName, NAME_FORMATTER));
+        } catch (RuntimeException exception) { // p_max, or a partition someone else added.
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.xm.cryptorecservice.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Inserts rows with multi-row {@literal INSERT ... VALUES (...), (...), ...} statements, instead of a JDBC batch of
+ * single-row statements, which MySQL Connector/J sends to the server one statement at a time unless told to rewrite
+ * them. Every statement carries as many rows as the {@link AdaptiveBatchSize} asks for, and all but the last one are
+ * executed, one after the other, through the same prepared statement. Since every statement is atomic, we know exactly
+ * which rows are in when one of them fails for being over the server's {@literal max_allowed_packet}, or for having
+ * too many placeholders: the size is then shrunk and the rest of the rows retried with smaller statements, down to
+ * {@literal crypto.jdbc.bulk.min-rows-per-statement} rows, before giving up. Any other failure, e.g. a duplicate key or
+ * a lost connection, would not go away with smaller statements, and is rethrown right away.
+ *
+ * @author jason
+ */
+@Slf4j
+final class MultiRowInserts {
+
+    // MySQL's ER_NET_PACKET_TOO_LARGE and ER_PS_MANY_PARAM.
+    private static final int PACKET_TOO_LARGE = 1153;
+    private static final int TOO_MANY_PLACEHOLDERS = 1390;
+
+    /** Binds the parameters of a single row, starting at a given parameter index. */
+    @FunctionalInterface
+    interface RowBinder {
+        void bind(PreparedStatement ps, int firstParameter, int row) throws SQLException;
+    }
+
+    private MultiRowInserts() {}
+
+    /**
+     * Insert {@code rows} rows, retrying with smaller statements if one fails.
+     *
+     * @param jdbcTemplate The {@link JdbcTemplate} to insert with.
+     * @param statementRows The {@link AdaptiveBatchSize} to size statements with, and to report their throughput to.
+     * @param head The statement up to its values, e.g. {@literal INSERT INTO BTC (timestamp, price) VALUES }.
+     * @param rowPlaceholders The placeholders of a single row, e.g. {@literal (?, ?)}.
+     * @param tail What follows the values, e.g. {@literal ON DUPLICATE KEY UPDATE ...}, or an empty string.
+     * @param parametersPerRow The number of placeholders in {@code rowPlaceholders}.
+     * @param rows The number of rows to insert, from row 0.
+     * @param binder The {@link RowBinder} of the rows.
+     * @throws DataAccessException If a statement failed for anything but its size, or for its size even with the
+     * minimum number of rows. The rows before it are inserted, the rest are not.
+     */
+    static void insert(JdbcTemplate jdbcTemplate, AdaptiveBatchSize statementRows, String head, String rowPlaceholders,
+                       String tail, int parametersPerRow, int rows, RowBinder binder) {
+        int[] inserted = new int[1];
+        int perStatement = statementRows.get();
+        while (inserted[0] < rows) {
+            int firstRow = inserted[0];
+            long start = System.nanoTime();
+            try {
+                insertFrom(jdbcTemplate, perStatement, head, rowPlaceholders, tail, parametersPerRow, rows, binder,
+                        inserted);
+                statementRows.record(perStatement, inserted[0] - firstRow, System.nanoTime() - start);
+            } catch (DataAccessException exception) {
+                if (!isStatementTooLarge(exception)) {
+                    throw exception;
+                }
+                int failedRows = Math.min(perStatement, rows - inserted[0]);
+                statementRows.shrink();
+                if (failedRows <= statementRows.getMinRows()) {
+                    throw exception;
+                }
+                perStatement = Math.max(statementRows.getMinRows(), Math.min(statementRows.get(), failedRows / 2));
+                log.warn("Insert statement of " + failedRows + " rows failed (" + exception.getMessage() + "); retrying "
+                        + "the remaining " + (rows - inserted[0]) + " rows " + perStatement + " rows at a time.");
+            }
+        }
+    }
+
+    /** Insert the rows from {@code inserted[0]} on, counting every statement that goes through in {@code inserted}. */
+    private static void insertFrom(JdbcTemplate jdbcTemplate, int perStatement, String head, String rowPlaceholders,
+                                   String tail, int parametersPerRow, int rows, RowBinder binder, int[] inserted) {
+        int statements = (rows - inserted[0]) / perStatement;
+        if (statements > 0) {
+            jdbcTemplate.execute(sql(head, rowPlaceholders, tail, perStatement), (PreparedStatement ps) -> {
+                for (int statement = 0; statement < statements; statement++) {
+                    for (int row = 0; row < perStatement; row++) {
+                        binder.bind(ps, row * parametersPerRow + 1, inserted[0] + row);
+                    }
+                    ps.executeUpdate();
+                    inserted[0] += perStatement;
+                }
+                return null;
+            });
+        }
+        int remainder = rows - inserted[0];
+        if (remainder > 0) {
+            int firstRow = inserted[0];
+            jdbcTemplate.update(sql(head, rowPlaceholders, tail, remainder), ps -> {
+                for (int row = 0; row < remainder; row++) {
+                    binder.bind(ps, row * parametersPerRow + 1, firstRow + row);
+                }
+            });
+            inserted[0] += remainder;
+        }
+    }
+
+    /**
+     * @param exception A {@link DataAccessException} thrown by a statement.
+     * @return Whether the statement failed for its size: Connector/J's {@literal PacketTooBigException}, which it throws
+     * before sending a statement over {@literal max_allowed_packet}, or the server's errors for such a statement and for
+     * one with too many placeholders.
+     */
+    static boolean isStatementTooLarge(DataAccessException exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause.getClass().getSimpleName().equals("PacketTooBigException")
+                    || (cause instanceof SQLException sqlException && (sqlException.getErrorCode() == PACKET_TOO_LARGE
+                    || sqlException.getErrorCode() == TOO_MANY_PLACEHOLDERS))
+                    || (cause.getMessage() != null && cause.getMessage().contains("max_allowed_packet"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String sql(String head, String rowPlaceholders, String tail, int rows) {
+        StringBuilder sql = new StringBuilder(head.length() + (rowPlaceholders.length() + 2) * rows + tail.length());
+        sql.append(head);
+        for (int row = 0; row < rows; row++) {
+            if (row > 0) {
+                sql.append(", ");
+            }
+            sql.append(rowPlaceholders);
+        }
+        return sql.append(tail).toString();
+    }
+}
@@ -0,0 +1,312 @@
+package com.xm.cryptorecservice.persistence;
+
+import static com.xm.cryptorecservice.util.Constants.DATE_FORMATTER;
+
+import com.google.common.collect.Maps;
+import com.xm.cryptorecservice.model.crypto.CryptoPrice;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceChunk;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceStats;
+import com.xm.cryptorecservice.model.crypto.ScaledPrices;
+import com.xm.cryptorecservice.util.logger.Logged;
+import com.xm.cryptorecservice.util.metrics.CryptoMetrics;
+
+import jakarta.validation.constraints.NotBlank;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An implementation of {@link DatabaseConnection} that keeps the prices of all cryptos in a single {@value
+ * #PRICE_TABLE_NAME} table of {@literal (symbol_id, ts, price)} rows, keyed by {@literal (symbol_id, ts)} and joined
+ * with the {@value #CRYPTO_NAME_TABLE_NAME} table on {@literal symbol_id}. The table is range-partitioned by month (see
+ * {@link MonthlyPricePartitions}), so that date lookups only touch the partition of their month, and cross-crypto
+ * questions, such as the stats of all cryptos or their normalized prices for a date, are answered by a single indexed
+ * {@literal GROUP BY} query instead of a query per crypto. No SQL is ever built from crypto names. Selected with {@link
+ * com.xm.cryptorecservice.util.PersistenceLayout#PARTITIONED}; requires MySQL. Prices are inserted with multi-row
+ * statements sized by an {@link AdaptiveBatchSize}, and their batches are timed in {@link CryptoMetrics}.
+ *
+ * @author jason
+ */
+@Repository
+@ConditionalOnProperty(name = "crypto.persistence.layout", havingValue = "PARTITIONED")
+@RequiredArgsConstructor
+@Logged
+@Slf4j
+public class PartitionedDatabaseConnection implements DatabaseConnection {
+
+    private static final int NAMES_BATCH_SIZE = 10;
+    private static final String CRYPTO_NAME_TABLE_NAME = "CRYPTOS";
+    private static final String PRICE_TABLE_NAME = "crypto_price";
+    private static final String INSERT_HEAD = String.format("INSERT INTO %s (symbol_id, ts, price) VALUES ",
+            PRICE_TABLE_NAME);
+    // Rows with a timestamp we already have for the crypto replace its price, like re-reading the row would, so a CSV
+    // file with repeated timestamps leaves a single row per timestamp: see keepsLastPriceOfEveryTimestamp().
+    private static final String INSERT_TAIL = " ON DUPLICATE KEY UPDATE price = VALUES(price)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CryptoMetrics metrics;
+    private final AdaptiveBatchSize statementRows;
+    private final ZoneId zone = ZoneId.systemDefault(); // DATETIME columns are written and read in the JVM's zone.
+    private final MonthlyPricePartitions partitions = new MonthlyPricePartitions(PRICE_TABLE_NAME, zone);
+    private final ConcurrentMap<String, Integer> symbolIds = Maps.newConcurrentMap();
+    private volatile boolean schemaCreated;
+
+    @Override
+    public void createCryptoPriceTable(@NonNull @NotBlank String cryptoName) {
+        createSchema();
+        symbolId(cryptoName);
+    }
+
+    @Override
+    public boolean keepsLastPriceOfEveryTimestamp() {
+        return true;
+    }
+
+    @Override
+    public void createTableOfCryptoNames(@NonNull List<String> cryptoNames) {
+        // Prices reference the ids of the names, so instead of re-creating the names we drop those no longer supported.
+        addCryptoNames(cryptoNames);
+        String notIn = cryptoNames.isEmpty() ? "" : " WHERE c.name NOT IN (" + placeholders(cryptoNames.size()) + ")";
+        jdbcTemplate.update(String.format("DELETE p FROM %s p JOIN %s c ON c.id = p.symbol_id%s",
+                PRICE_TABLE_NAME, CRYPTO_NAME_TABLE_NAME, notIn), cryptoNames.toArray());
+        jdbcTemplate.update(String.format("DELETE c FROM %s c%s", CRYPTO_NAME_TABLE_NAME, notIn), cryptoNames.toArray());
+        // Prices of ids that CRYPTOS no longer has, e.g. since a TABLE_PER_CRYPTO run re-created it.
+        jdbcTemplate.update(String.format("DELETE p FROM %s p LEFT JOIN %s c ON c.id = p.symbol_id WHERE c.id IS NULL",
+                PRICE_TABLE_NAME, CRYPTO_NAME_TABLE_NAME));
+        symbolIds.keySet().retainAll(cryptoNames);
+    }
+
+    @Override
+    public void addCryptoNames(@NonNull List<String> cryptoNames) {
+        createSchema();
+        String insertQuery = String.format(
+                "INSERT INTO %1$s (name) SELECT ? FROM DUAL WHERE NOT EXISTS (SELECT * FROM %1$s WHERE name = ?)",
+                CRYPTO_NAME_TABLE_NAME);
+        jdbcTemplate.batchUpdate(
+                insertQuery,
+                cryptoNames,
+                NAMES_BATCH_SIZE,
+                (PreparedStatement ps, String s) -> {
+                    ps.setString(1, s);
+                    ps.setString(2, s);
+                });
+    }
+
+    @Override
+    public void insertAllCryptoPrices(@NonNull @NotBlank String cryptoName, @NonNull List<CryptoPrice> cryptoPrices) {
+        truncateCryptoPriceTable(cryptoName);
+        int symbolId = symbolId(cryptoName);
+        cryptoPrices.stream()
+                .map(price -> price.getTimestamp().toLocalDateTime().toLocalDate().withDayOfMonth(1))
+                .distinct()
+                .forEach(this::ensurePartitionsFor);
+        long start = System.nanoTime();
+        MultiRowInserts.insert(jdbcTemplate, statementRows, INSERT_HEAD, "(?, ?, ?)", INSERT_TAIL, 3,
+                cryptoPrices.size(), (PreparedStatement ps, int parameter, int row) -> {
+                    ps.setInt(parameter, symbolId);
+                    ps.setTimestamp(parameter + 1, cryptoPrices.get(row).getTimestamp());
+                    ps.setBigDecimal(parameter + 2, cryptoPrices.get(row).getPrice());
+                });
+        metrics.recordJdbcBatch("insert_all_prices", cryptoPrices.size(), System.nanoTime() - start);
+    }
+
+    @Override
+    public void truncateCryptoPriceTable(@NonNull @NotBlank String cryptoName) {
+        jdbcTemplate.update(String.format("DELETE FROM %s WHERE symbol_id = ?", PRICE_TABLE_NAME), symbolId(cryptoName));
+    }
+
+    @Override
+    public void insertCryptoPrices(@NonNull @NotBlank String cryptoName, @NonNull CryptoPriceChunk chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        int symbolId = symbolId(cryptoName);
+        if (!partitions.missingBounds(chunk).isEmpty()) {
+            splitPartitions(chunk);
+        }
+        long start = System.nanoTime();
+        MultiRowInserts.insert(jdbcTemplate, statementRows, INSERT_HEAD, "(?, ?, ?)", INSERT_TAIL, 3, chunk.size(),
+                (PreparedStatement ps, int parameter, int row) -> {
+                    ps.setInt(parameter, symbolId);
+                    ps.setTimestamp(parameter + 1, new Timestamp(chunk.getEpochMilli(row)));
+                    ps.setBigDecimal(parameter + 2, chunk.getPrice(row));
+                });
+        metrics.recordJdbcBatch("insert_prices", chunk.size(), System.nanoTime() - start);
+    }
+
+    @Override
+    public void insertCryptoPrices(@NonNull @NotBlank String cryptoName, @NonNull CryptoPriceChunk chunk, long firstRow) {
+        // Rows are keyed and ordered by their timestamps, so where they land does not depend on the order of the inserts.
+        insertCryptoPrices(cryptoName, chunk);
+    }
+
+    @Override
+    public Optional<CryptoPrice> getCryptoPriceById(@NonNull @NotBlank String cryptoName, @NonNull Long id) {
+        // There are no surrogate ids in this layout; the id-th price of the crypto is the one with the id-th timestamp,
+        // just like with the auto-increment ids of prices inserted in timestamp order.
+        String query = String.format(
+                "SELECT p.ts, p.price FROM %s p JOIN %s c ON c.id = p.symbol_id WHERE c.name = ? ORDER BY p.ts LIMIT 1 OFFSET ?",
+                PRICE_TABLE_NAME, CRYPTO_NAME_TABLE_NAME);
+        if (id < 1) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.ofNullable(jdbcTemplate.queryForObject(query, PriceRowMappers.CRYPTO_PRICE, cryptoName, id - 1));
+        } catch (EmptyResultDataAccessException exc) {
+            log.warn("Empty result encountered when looking for ID {} of crypto {}", id, cryptoName);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<CryptoPriceStats> getCryptoPriceStats(@NonNull @NotBlank String cryptoName) {
+        return Optional.ofNullable(getCryptoPriceStats(List.of(cryptoName)).orElseThrow().get(cryptoName));
+    }
+
+    @Override
+    public Optional<Map<String, CryptoPriceStats>> getCryptoPriceStats(@NonNull Collection<String> cryptoNames) {
+        if (cryptoNames.isEmpty()) {
+            return Optional.of(Collections.emptyMap());
+        }
+        // Min and max in one pass over the rows of every crypto; first and last are a single primary key lookup each.
+        String selectQuery = String.format(
+                """
+                SELECT c.name, MIN(p.price), MAX(p.price),
+                (SELECT f.price FROM %1$s f WHERE f.symbol_id = c.id ORDER BY f.ts ASC LIMIT 1),
+                (SELECT l.price FROM %1$s l WHERE l.symbol_id = c.id ORDER BY l.ts DESC LIMIT 1)
+                FROM %2$s c JOIN %1$s p ON p.symbol_id = c.id
+                WHERE c.name IN (%3$s) GROUP BY c.id, c.name""",
+                PRICE_TABLE_NAME, CRYPTO_NAME_TABLE_NAME, placeholders(cryptoNames.size()));
+        Map<String, CryptoPriceStats> stats = Maps.newHashMapWithExpectedSize(cryptoNames.size());
+        jdbcTemplate.query(selectQuery, rs -> {
+            stats.put(rs.getString(1), PriceRowMappers.stats(rs, 2));
+        }, cryptoNames.toArray());
+        return Optional.of(stats);
+    }
+
+    @Override
+    public List<CryptoPrice> getCryptoPricesForDate(@NonNull @NotBlank String cryptoName, @NonNull @NotBlank String date) {
+        String selectQuery = String.format(
+                "SELECT p.ts, p.price FROM %s p JOIN %s c ON c.id = p.symbol_id WHERE c.name = ? AND p.ts >= ? AND p.ts < ?",
+                PRICE_TABLE_NAME, CRYPTO_NAME_TABLE_NAME);
+        LocalDate day = LocalDate.parse(date, DATE_FORMATTER);
+        try {
+            return jdbcTemplate.query(selectQuery, PriceRowMappers.CRYPTO_PRICE, cryptoName, startOf(day), startOf(day.plusDays(1)));
+        } catch (DataAccessException dataAccessException) {
+            log.warn("Received exception: {}", dataAccessException.getMessage());
+            throw new RuntimeException(dataAccessException.getMessage());
+        }
+    }
+
+    @Override
+    public Optional<Map<String, BigDecimal>> getNormalizedPricesForDate(@NonNull Collection<String> cryptoNames,
+                                                                        @NonNull String date) {
+        if (cryptoNames.isEmpty()) {
+            return Optional.of(Collections.emptyMap());
+        }
+        // The ts range prunes every partition but the one of the date's month.
+        String selectQuery = String.format(
+                """
+                SELECT c.name, MIN(p.price), MAX(p.price) FROM %s p JOIN %s c ON c.id = p.symbol_id
+                WHERE p.ts >= ? AND p.ts < ? AND c.name IN (%s) GROUP BY c.id, c.name""",
+                PRICE_TABLE_NAME, CRYPTO_NAME_TABLE_NAME, placeholders(cryptoNames.size()));
+        LocalDate day = LocalDate.parse(date, DATE_FORMATTER);
+        List<Object> args = new ArrayList<>(cryptoNames.size() + 2);
+        args.add(startOf(day));
+        args.add(startOf(day.plusDays(1)));
+        args.addAll(cryptoNames);
+        Map<String, BigDecimal> normalizedPrices = Maps.newHashMapWithExpectedSize(cryptoNames.size());
+        jdbcTemplate.query(selectQuery, rs -> {
+            normalizedPrices.put(rs.getString(1), ScaledPrices.toBigDecimalWithFullScale(ScaledPrices.normalizedPrice(
+                    PriceRowMappers.scaledPrice(rs, 2), PriceRowMappers.scaledPrice(rs, 3))));
+        }, args.toArray());
+        return Optional.of(normalizedPrices);
+    }
+
+    private void createSchema() {
+        if (schemaCreated) {
+            return;
+        }
+        synchronized (this) {
+            if (schemaCreated) {
+                return;
+            }
+            jdbcTemplate.execute(String.format(
+                    "CREATE TABLE IF NOT EXISTS %s (id INTEGER NOT NULL AUTO_INCREMENT, name VARCHAR(10) NOT NULL, "
+                            + "PRIMARY KEY (id), UNIQUE KEY (name))",
+                    CRYPTO_NAME_TABLE_NAME));
+            // MySQL requires every unique key of a partitioned table to include the partitioning column, which the
+            // primary key does. The secondary index on ts serves date lookups across cryptos.
+            jdbcTemplate.execute(String.format(
+                    "CREATE TABLE IF NOT EXISTS %s (symbol_id INTEGER NOT NULL, ts DATETIME(3) NOT NULL, "
+                            + "price DECIMAL(20, 10) NOT NULL, PRIMARY KEY (symbol_id, ts), KEY (ts)) %s",
+                    PRICE_TABLE_NAME, MonthlyPricePartitions.initialPartitioning()));
+            jdbcTemplate.query(
+                    "SELECT PARTITION_NAME FROM information_schema.PARTITIONS WHERE TABLE_SCHEMA = DATABASE() "
+                            + "AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL",
+                    rs -> {
+                        partitions.addExisting(rs.getString(1));
+                    },
+                    PRICE_TABLE_NAME);
+            schemaCreated = true;
+        }
+    }
+
+    private int symbolId(String cryptoName) {
+        return symbolIds.computeIfAbsent(cryptoName, name -> {
+            addCryptoNames(List.of(name));
+            Integer id = jdbcTemplate.queryForObject(
+                    String.format("SELECT MIN(id) FROM %s WHERE name = ?", CRYPTO_NAME_TABLE_NAME), Integer.class, name);
+            if (id == null) {
+                throw new IllegalStateException("Could not register crypto " + name);
+            }
+            return id;
+        });
+    }
+
+    private void splitPartitions(CryptoPriceChunk chunk) {
+        partitions.missingBounds(chunk).forEach(this::split);
+    }
+
+    private void ensurePartitionsFor(LocalDate month) {
+        split(month);
+        split(month.plusMonths(1));
+    }
+
+    // Splits are serialized: every one of them is planned against the partitions the previous ones left behind.
+    private synchronized void split(LocalDate bound) {
+        partitions.split(bound).ifPresent(statement -> {
+            log.info("Adding partition for prices before {} to table {}", bound, PRICE_TABLE_NAME);
+            jdbcTemplate.execute(statement);
+            partitions.recordSplit(bound);
+        });
+    }
+
+    private Timestamp startOf(LocalDate day) {
+        return Timestamp.from(day.atStartOfDay(zone).toInstant());
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
@@ -0,0 +1,59 @@
+package com.xm.cryptorecservice.persistence;
+
+import com.xm.cryptorecservice.model.crypto.CryptoPrice;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceStats;
+import com.xm.cryptorecservice.model.crypto.ScaledPrices;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Hand-written {@link RowMapper}s for the rows our {@link DatabaseConnection} implementations select, reading columns by
+ * position instead of reflectively matching them to bean properties.
+ *
+ * @author jason
+ */
+public final class PriceRowMappers {
+
+    /** Maps a {@literal (timestamp, price)} row to a {@link CryptoPrice}. */
+    public static final RowMapper<CryptoPrice> CRYPTO_PRICE =
+            (rs, rowNum) -> new CryptoPrice(rs.getTimestamp(1).getTime(), scaledPrice(rs, 2));
+
+    /**
+     * Maps a {@literal (min, max, first, last)} row to a {@link CryptoPriceStats}, or to {@literal null} if the
+     * aggregates are {@literal NULL}, which is what aggregating an empty table returns.
+     */
+    public static final RowMapper<CryptoPriceStats> CRYPTO_PRICE_STATS = (rs, rowNum) -> stats(rs, 1);
+
+    private PriceRowMappers() {}
+
+    /**
+     * @param rs A {@link ResultSet} positioned on a row.
+     * @param firstColumn The position of the min price column, followed by the max, first and last price columns.
+     * @return The {@link CryptoPriceStats} of the row, or {@literal null} if its min price is {@literal NULL}.
+     * @throws SQLException if the columns cannot be read.
+     */
+    public static CryptoPriceStats stats(ResultSet rs, int firstColumn) throws SQLException {
+        BigDecimal minPrice = rs.getBigDecimal(firstColumn);
+        return minPrice == null ? null : new CryptoPriceStats(ScaledPrices.of(minPrice), scaledPrice(rs, firstColumn + 1),
+                scaledPrice(rs, firstColumn + 2), scaledPrice(rs, firstColumn + 3));
+    }
+
+    /**
+     * Read a non-{@literal NULL} {@literal DECIMAL(20, 10)} price as a {@literal long}, scaled by {@link
+     * com.xm.cryptorecservice.util.Constants#BIG_DECIMAL_SCALE} decimal digits. The column has the same scale, so the
+     * conversion is exact.
+     *
+     * @param rs A {@link ResultSet} positioned on a row.
+     * @param column The position of the price column.
+     * @return The scaled price.
+     * @throws SQLException if the column cannot be read.
+     * @see ScaledPrices
+     */
+    public static long scaledPrice(ResultSet rs, int column) throws SQLException {
+        return ScaledPrices.of(rs.getBigDecimal(column));
+    }
+}
@@ -0,0 +1,119 @@
+package com.xm.cryptorecservice.persistence;
+
+import static com.xm.cryptorecservice.util.SortOrder.ASC;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceStats;
+import com.xm.cryptorecservice.util.SortOrder;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * An immutable, versioned snapshot of the {@link InMemoryAggregateStats}: the stats of every crypto, the cryptos in both
+ * orders of normalized price, and the JSON payloads of all three, serialized once, when the snapshot is built. Endpoints
+ * that serve the whole store can then write out the payload of the latest snapshot as is, and label it with its {@link
+ * Payload#eTag() ETag}, so that clients that poll them can be answered with a {@literal 304 Not Modified}.
+ *
+ * @author jason
+ * @see InMemoryAggregateStats#snapshot()
+ */
+public final class StatsSnapshot {
+
+    /**
+     * A pre-serialized JSON payload.
+     *
+     * @param json The UTF-8 bytes of the payload. Shared by every request, so they must never be modified.
+     * @param eTag A strong ETag, quotes included, derived from the bytes of the payload, so that it survives restarts.
+     */
+    public record Payload(byte[] json, String eTag) {
+
+        private static Payload of(Object value, ObjectMapper objectMapper) {
+            try {
+                byte[] json = objectMapper.writeValueAsBytes(value);
+                return new Payload(json, '"' + Hashing.murmur3_128().hashBytes(json).toString() + '"');
+            } catch (JsonProcessingException exception) {
+                throw new IllegalStateException("Could not serialize stats snapshot", exception);
+            }
+        }
+    }
+
+    private final long version;
+    private final SortedMap<String, CryptoPriceStats> stats;
+    private final SortedMap<String, BigDecimal> ascending;
+    private final SortedMap<String, BigDecimal> descending;
+    private final Payload statsPayload;
+    private final Payload ascendingPayload;
+    private final Payload descendingPayload;
+
+    private StatsSnapshot(long version, Map<String, CryptoPriceStats> stats, ObjectMapper objectMapper) {
+        this.version = version;
+        this.stats = ImmutableSortedMap.copyOf(stats);
+        // Compare the scaled prices; BigDecimals are only built for the values. Ties are broken by crypto name.
+        Comparator<String> byNormalizedPrice = (crypto, otherCrypto) ->
+                this.stats.get(crypto).compareNormalizedPrice(this.stats.get(otherCrypto));
+        Map<String, BigDecimal> normalizedPrices =
+                Maps.newHashMap(Maps.transformValues(this.stats, CryptoPriceStats::getNormalizedPrice));
+        this.ascending = ImmutableSortedMap.copyOf(normalizedPrices,
+                byNormalizedPrice.thenComparing(Comparator.naturalOrder()));
+        this.descending = ImmutableSortedMap.copyOf(normalizedPrices,
+                byNormalizedPrice.reversed().thenComparing(Comparator.naturalOrder()));
+        this.statsPayload = Payload.of(this.stats, objectMapper);
+        this.ascendingPayload = Payload.of(ascending, objectMapper);
+        this.descendingPayload = Payload.of(descending, objectMapper);
+    }
+
+    /**
+     * Build a snapshot of the provided stats. Allocates and serializes, so should only be called once per data change.
+     *
+     * @param version The version of the store that the stats were copied at.
+     * @param stats A {@link Map} of crypto names to their {@link CryptoPriceStats}, which is copied.
+     * @param objectMapper The {@link ObjectMapper} to serialize the payloads with, i.e. that of the endpoints serving
+     * them, so that the payloads are written exactly like the endpoints would write the maps.
+     * @return A new {@link StatsSnapshot}.
+     */
+    public static StatsSnapshot of(long version, Map<String, CryptoPriceStats> stats, ObjectMapper objectMapper) {
+        return new StatsSnapshot(version, stats, objectMapper);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return An immutable {@link SortedMap} of crypto names to their {@link CryptoPriceStats}, sorted by name.
+     */
+    public SortedMap<String, CryptoPriceStats> getStats() {
+        return stats;
+    }
+
+    /**
+     * @param sortOrder A {@link SortOrder} instance that determines if we want ascending or descending sort order.
+     * @return An immutable {@link SortedMap} of crypto names to their normalized prices, sorted by normalized price in
+     * the provided order, and by name among equal normalized prices.
+     */
+    public SortedMap<String, BigDecimal> getSortedByNormalizedPrice(SortOrder sortOrder) {
+        return sortOrder == ASC ? ascending : descending;
+    }
+
+    /**
+     * @return The {@link Payload} of {@link #getStats()}.
+     */
+    public Payload getStatsPayload() {
+        return statsPayload;
+    }
+
+    /**
+     * @param sortOrder A {@link SortOrder} instance that determines if we want ascending or descending sort order.
+     * @return The {@link Payload} of {@link #getSortedByNormalizedPrice(SortOrder)}.
+     */
+    public Payload getSortedByNormalizedPricePayload(SortOrder sortOrder) {
+        return sortOrder == ASC ? ascendingPayload : descendingPayload;
+    }
+}
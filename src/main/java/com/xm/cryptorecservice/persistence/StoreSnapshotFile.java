@@ -0,0 +1,392 @@
+package com.xm.cryptorecservice.persistence;
+
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.Maps;
+import com.google.common.hash.HashCode;
+import com.xm.cryptorecservice.io.FileHashes;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceStats;
+import com.xm.cryptorecservice.model.crypto.PriceSeries;
+import com.xm.cryptorecservice.persistence.IngestionCheckpoints.Checkpoint;
+import com.xm.cryptorecservice.util.logger.Logged;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * A binary snapshot, on disk, of the prices and aggregate stats of every crypto that we hold in memory, so that a restart
+ * over an unchanged dataset does not have to parse, insert and aggregate it all over again. Enabled through {@literal
+ * crypto.snapshot.enabled}, and written to {@literal crypto.snapshot.path}.
+ * <p>
+ * The snapshot remembers the path, size, modification time and content hash of the CSV file that every crypto was
+ * ingested from. On boot, the snapshot is memory-mapped, and every crypto whose file is unchanged on all four counts,
+ * and whose {@link IngestionManifest} entry shows that its table still holds the rows of that very file, is restored to
+ * the {@link InMemoryPriceSeriesStore}, the {@link InMemoryAggregateStats} and the {@link IngestionCheckpoints}; its
+ * file is then not parsed or inserted at all, and its table is left as it is. Any other crypto, e.g. one whose table was
+ * dropped, truncated or written under another {@literal crypto.persistence.layout} since, is ingested as usual, so that
+ * memory never serves prices that the database does not have. Since the manifest is the only witness of the tables,
+ * nothing is restored while it is disabled.
+ * <p>
+ * Restoring is not free: the file of every candidate crypto is still hashed in full, to catch files rewritten in place,
+ * and its columns are copied out of the mapping to the heap. What it saves is parsing, inserting and aggregating.
+ * <p>
+ * Layout, little-endian: a header of a magic number, the {@link #FORMAT_VERSION} and the number of cryptos; then, for
+ * every crypto, its name, the path, size, modification time and murmur3 hash of its file, its checkpoint, its stats,
+ * the number of its prices, and its timestamps and prices as two columns of {@literal long}s; and finally a CRC32C of
+ * everything before it. A snapshot of another version, or whose checksum does not match, is ignored, and every file is
+ * ingested. Snapshots are written to a temporary file that is then moved into place, so that a crash never leaves a
+ * half-written snapshot behind. A snapshot must be smaller than 2 GiB, i.e. hold fewer than about 130 million prices.
+ *
+ * @author jason
+ * @see com.xm.cryptorecservice.PreloadDatabase
+ */
+@Component
+@Slf4j
+@Logged
+public class StoreSnapshotFile {
+
+    /** The version of the layout. Bumped on every change of it, since snapshots of any other version are ignored. */
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int MAGIC = 0x43525353; // "CRSS"
+    private static final int HEADER_BYTES = 3 * Integer.BYTES;
+    private static final int HASH_BYTES = 16; // murmur3_128
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    /** The CSV file that a crypto was ingested from, as it was when it was ingested. */
+    private record Source(String path, long size, long lastModified, HashCode hash) {}
+
+    private record Entry(String crypto, File csv, Source source, Checkpoint checkpoint, CryptoPriceStats stats,
+                         PriceSeries series) {}
+
+    private final InMemoryPriceSeriesStore seriesStore;
+    private final InMemoryAggregateStats inMemoryDb;
+    private final IngestionCheckpoints checkpoints;
+    private final IngestionManifest manifest;
+    private final boolean enabled;
+    private final Path path;
+
+    // The sources of the cryptos restored on boot, so that writing the next snapshot need not hash their files again.
+    private final Map<String, Source> restoredSources = Maps.newConcurrentMap();
+
+    public StoreSnapshotFile(InMemoryPriceSeriesStore seriesStore, InMemoryAggregateStats inMemoryDb,
+                             IngestionCheckpoints checkpoints, IngestionManifest manifest,
+                             @Value("${crypto.snapshot.enabled:false}") boolean enabled,
+                             @Value("${crypto.snapshot.path:./crypto-store.snapshot}") String path) {
+        this.seriesStore = seriesStore;
+        this.inMemoryDb = inMemoryDb;
+        this.checkpoints = checkpoints;
+        this.manifest = manifest;
+        this.enabled = enabled;
+        this.path = Path.of(path);
+    }
+
+    /**
+     * @return {@literal true} if snapshots are enabled, {@literal false} otherwise.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Restore every crypto of the provided CSV files whose file has not changed since the latest snapshot was written,
+     * and whose table still agrees with the file according to the {@link IngestionManifest}. Nothing is restored if
+     * snapshots or the manifest are disabled, or if there is no valid snapshot.
+     *
+     * @param csvs A {@link List} of .csv files, every one of which is named after the crypto whose prices it holds.
+     * @return A {@link List} of the provided files whose cryptos were restored, and which need not be ingested.
+     */
+    public List<File> restore(List<File> csvs) {
+        if (!enabled || !Files.isRegularFile(path)) {
+            return List.of();
+        }
+        if (!manifest.isEnabled()) {
+            log.warn("Not restoring store snapshot " + path + ", since without the ingestion manifest we cannot tell "
+                    + "whether the tables still hold its prices.");
+            return List.of();
+        }
+        long start = System.nanoTime();
+        List<Entry> entries;
+        try {
+            entries = read(csvs);
+        } catch (IOException | RuntimeException exception) {
+            log.warn("Ignoring store snapshot " + path + ": " + exception.getMessage());
+            return List.of();
+        }
+        List<File> restored = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            seriesStore.put(entry.crypto(), entry.series());
+            inMemoryDb.add(entry.crypto(), entry.stats());
+            if (checkpoints.isEnabled()) {
+                checkpoints.put(entry.crypto(), entry.checkpoint());
+            }
+            restoredSources.put(entry.crypto(), entry.source());
+            restored.add(entry.csv());
+        }
+        log.info("Restored " + restored.size() + " of " + csvs.size() + " cryptos from store snapshot " + path + " in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms.");
+        return restored;
+    }
+
+    /**
+     * Write a new snapshot of the in-memory prices and stats of the cryptos of the provided CSV files, replacing the
+     * previous one. Files modified since {@code notModifiedSince} may have changed after, or while, they were ingested,
+     * so their cryptos are left out, to be ingested again on the next boot. Does nothing if snapshots are disabled.
+     *
+     * @param csvs A {@link List} of .csv files, every one of which is named after the crypto whose prices it holds.
+     * @param notModifiedSince The time at which the ingestion of the files started, in milliseconds since the epoch.
+     */
+    public void write(List<File> csvs, long notModifiedSince) {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            List<Entry> entries = collect(csvs, notModifiedSince);
+            long size = HEADER_BYTES + Integer.BYTES;
+            for (Entry entry : entries) {
+                size += entryBytes(entry);
+            }
+            if (size > Integer.MAX_VALUE) {
+                log.warn("Not writing a store snapshot of " + size + " bytes, which is too large to be mapped.");
+                return;
+            }
+            try (SnapshotWriter writer = new SnapshotWriter(FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
+                writer.putInt(MAGIC);
+                writer.putInt(FORMAT_VERSION);
+                writer.putInt(entries.size());
+                for (Entry entry : entries) {
+                    writeEntry(writer, entry);
+                }
+                writer.finish();
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Wrote store snapshot " + path + " of " + entries.size() + " cryptos and " + size + " bytes in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms.");
+        } catch (IOException exception) {
+            log.warn("Could not write store snapshot " + path + ": " + exception.getMessage());
+        }
+    }
+
+    private List<Entry> read(List<File> csvs) throws IOException {
+        Map<String, File> csvsByCrypto = Maps.newHashMap();
+        for (File csv : csvs) {
+            csvsByCrypto.put(cryptoName(csv), csv);
+        }
+        ByteBuffer snapshot = map(path);
+        if (snapshot.limit() < HEADER_BYTES + Integer.BYTES || snapshot.getInt(0) != MAGIC) {
+            throw new IOException("Not a store snapshot.");
+        }
+        if (snapshot.getInt(Integer.BYTES) != FORMAT_VERSION) {
+            throw new IOException("Snapshot of version " + snapshot.getInt(Integer.BYTES) + " cannot be read by version "
+                    + FORMAT_VERSION + ".");
+        }
+        int checksumPosition = snapshot.limit() - Integer.BYTES;
+        CRC32C crc = new CRC32C();
+        crc.update(snapshot.slice(0, checksumPosition));
+        if ((int) crc.getValue() != snapshot.getInt(checksumPosition)) {
+            throw new IOException("Checksum mismatch.");
+        }
+        snapshot.position(2 * Integer.BYTES);
+        int count = snapshot.getInt();
+        List<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String crypto = getString(snapshot);
+            Source source = new Source(getString(snapshot), snapshot.getLong(), snapshot.getLong(), getHash(snapshot));
+            long offset = snapshot.getLong(), lastEpochMilli = snapshot.getLong();
+            CryptoPriceStats stats = new CryptoPriceStats(snapshot.getLong(), snapshot.getLong(), snapshot.getLong(),
+                    snapshot.getLong());
+            int rows = snapshot.getInt();
+            File csv = csvsByCrypto.get(crypto);
+            if (csv == null || !isInTable(crypto, source, rows) || !isUnchanged(csv, source)) {
+                snapshot.position(snapshot.position() + 2 * rows * Long.BYTES);
+                continue;
+            }
+            PriceSeries series = PriceSeries.ofSorted(getLongs(snapshot, rows), getLongs(snapshot, rows));
+            Checkpoint checkpoint = offset >= 0 ? new Checkpoint(csv, offset, lastEpochMilli) // Read in full otherwise.
+                    : new Checkpoint(csv, source.size(), rows > 0 ? series.getEpochMilli(rows - 1) : Long.MIN_VALUE);
+            entries.add(new Entry(crypto, csv, source, checkpoint, stats, series));
+        }
+        return entries;
+    }
+
+    private List<Entry> collect(List<File> csvs, long notModifiedSince) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        for (File csv : csvs) {
+            String crypto = cryptoName(csv);
+            Optional<PriceSeries> series = seriesStore.get(crypto);
+            CryptoPriceStats stats = inMemoryDb.get(crypto);
+            long lastModified = csv.lastModified();
+            if (series.isEmpty() || stats == null || lastModified == 0 || lastModified >= notModifiedSince) {
+                continue;
+            }
+            Source source = restoredSources.get(crypto);
+            if (source == null || source.lastModified() != lastModified || source.size() != csv.length()) {
+                source = new Source(csv.getAbsolutePath(), csv.length(), lastModified, FileHashes.hash(csv));
+            }
+            Checkpoint checkpoint = checkpoints.get(crypto).orElse(new Checkpoint(csv, -1, Long.MIN_VALUE));
+            entries.add(new Entry(crypto, csv, source, checkpoint, stats, series.get()));
+        }
+        return entries;
+    }
+
+    private static void writeEntry(SnapshotWriter writer, Entry entry) throws IOException {
+        writer.putString(entry.crypto());
+        writer.putString(entry.source().path());
+        writer.putLong(entry.source().size());
+        writer.putLong(entry.source().lastModified());
+        writer.putBytes(entry.source().hash().asBytes());
+        writer.putLong(entry.checkpoint().offset());
+        writer.putLong(entry.checkpoint().lastEpochMilli());
+        writer.putLong(entry.stats().getMinScaledPrice());
+        writer.putLong(entry.stats().getMaxScaledPrice());
+        writer.putLong(entry.stats().getFirstScaledPrice());
+        writer.putLong(entry.stats().getLastScaledPrice());
+        PriceSeries series = entry.series();
+        writer.putInt(series.size());
+        for (int i = 0; i < series.size(); i++) {
+            writer.putLong(series.getEpochMilli(i));
+        }
+        for (int i = 0; i < series.size(); i++) {
+            writer.putLong(series.getScaledPrice(i));
+        }
+    }
+
+    private static long entryBytes(Entry entry) {
+        return 2 * Short.BYTES + entry.crypto().getBytes(UTF_8).length + entry.source().path().getBytes(UTF_8).length
+                + 2 * Long.BYTES + HASH_BYTES + 2 * Long.BYTES + 4 * Long.BYTES + Integer.BYTES
+                + 2L * entry.series().size() * Long.BYTES;
+    }
+
+    // The table may have been dropped, truncated or written under another layout since the snapshot was written; only the
+    // manifest, which lives in the same database as the table, can tell that it still holds the rows of this very file.
+    private boolean isInTable(String crypto, Source source, int rows) {
+        return manifest.get(crypto).filter(entry -> entry.path().equals(source.path()) && entry.size() == source.size()
+                && entry.contentHash().equals(source.hash().toString()) && entry.rowCount() == rows).isPresent();
+    }
+
+    // Size and modification time first, since they are free; the hash catches files rewritten in place.
+    private static boolean isUnchanged(File csv, Source source) throws IOException {
+        return source.path().equals(csv.getAbsolutePath()) && source.size() == csv.length()
+                && source.lastModified() == csv.lastModified() && source.hash().equals(FileHashes.hash(csv));
+    }
+
+    private static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot of " + channel.size() + " bytes is too large to be mapped.");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(LITTLE_ENDIAN);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static HashCode getHash(ByteBuffer buffer) {
+        byte[] bytes = new byte[HASH_BYTES];
+        buffer.get(bytes);
+        return HashCode.fromBytes(bytes);
+    }
+
+    // A bulk copy out of the mapping; slices are big-endian regardless of their parent, hence the order.
+    private static long[] getLongs(ByteBuffer buffer, int count) {
+        long[] longs = new long[count];
+        buffer.slice(buffer.position(), count * Long.BYTES).order(LITTLE_ENDIAN).asLongBuffer().get(longs);
+        buffer.position(buffer.position() + count * Long.BYTES);
+        return longs;
+    }
+
+    private static String cryptoName(File csv) {
+        return csv.getName().substring(0, csv.getName().length() - 4);
+    }
+
+    /** Buffers the writes of a snapshot, and checksums them on their way to the file. */
+    private static final class SnapshotWriter implements Closeable {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(LITTLE_ENDIAN);
+        private final CRC32C crc = new CRC32C();
+
+        private SnapshotWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private void putInt(int value) throws IOException {
+            ensureRemaining(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        private void putLong(long value) throws IOException {
+            ensureRemaining(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        private void putBytes(byte[] bytes) throws IOException {
+            ensureRemaining(bytes.length);
+            buffer.put(bytes);
+        }
+
+        private void putString(String value) throws IOException {
+            byte[] bytes = value.getBytes(UTF_8);
+            if (bytes.length > Short.MAX_VALUE) {
+                throw new IOException("String of " + bytes.length + " bytes is too long for a snapshot.");
+            }
+            ensureRemaining(Short.BYTES);
+            buffer.putShort((short) bytes.length);
+            putBytes(bytes);
+        }
+
+        // Write the checksum of everything written so far, and make sure it all reaches the disk.
+        private void finish() throws IOException {
+            flush();
+            buffer.putInt((int) crc.getValue());
+            flush();
+            channel.force(true);
+        }
+
+        private void ensureRemaining(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
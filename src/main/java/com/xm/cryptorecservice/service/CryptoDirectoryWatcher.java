@@ -0,0 +1,217 @@
+package com.xm.cryptorecservice.service;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import com.xm.cryptorecservice.io.CryptoDirectoryParser;
+import com.xm.cryptorecservice.persistence.DatabaseConnection;
+import com.xm.cryptorecservice.persistence.IngestionCheckpoints;
+import com.xm.cryptorecservice.util.concurrent.WorkerPool;
+import com.xm.cryptorecservice.util.logger.Logged;
+
+import jakarta.annotation.PreDestroy;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Watches the directory of our CSV files after startup, and hot-loads the CSV files that are created or modified in it,
+ * so that new cryptos can be supported without a restart. Runs on a single background thread, which never serves
+ * requests.
+ * <p>
+ * Events are debounced: a file is only loaded once no event has been received for it for {@literal
+ * crypto.ingestion.watch.debounce-ms} milliseconds, so a file that is still being copied is loaded once, and a bulk drop
+ * of many files is loaded as a single batch. Batches are loaded across the bounded {@link WorkerPool#INGESTION} and
+ * {@link WorkerPool#STATS} pools. A crypto is published to the {@link
+ * com.xm.cryptorecservice.persistence.InMemoryAggregateStats} and to the CRYPTOS table only once its file has been
+ * loaded in full; a modified crypto keeps serving its old stats until the new ones replace them.
+ * <p>
+ * If incremental ingestion is enabled and a modified file has already been ingested, only its appended rows are
+ * ingested, through the {@link IncrementalIngestionService}. Deleted files are ignored.
+ *
+ * @author jason
+ * @see CryptoDirectoryParser
+ */
+@Service
+@Slf4j
+@Logged
+public class CryptoDirectoryWatcher {
+
+    // Names end up in table names and in the CRYPTOS table, whose name column is a VARCHAR(10).
+    private static final Pattern CSV_NAME = Pattern.compile("[A-Za-z0-9]{1,10}\\.csv");
+
+    private final CryptoDirectoryParser directoryParser;
+    private final StatsCalculationService statsService;
+    private final IncrementalIngestionService incrementalIngestionService;
+    private final IngestionCheckpoints checkpoints;
+    private final DatabaseConnection dbConnection;
+
+    private final boolean enabled;
+    private final long debounceMs;
+
+    private volatile WatchService watchService;
+
+    public CryptoDirectoryWatcher(CryptoDirectoryParser directoryParser,
+                                  StatsCalculationService statsService,
+                                  IncrementalIngestionService incrementalIngestionService,
+                                  IngestionCheckpoints checkpoints,
+                                  DatabaseConnection dbConnection,
+                                  @Value("${crypto.ingestion.watch.enabled:false}") boolean enabled,
+                                  @Value("${crypto.ingestion.watch.debounce-ms:1000}") long debounceMs) {
+        this.directoryParser = directoryParser;
+        this.statsService = statsService;
+        this.incrementalIngestionService = incrementalIngestionService;
+        this.checkpoints = checkpoints;
+        this.dbConnection = dbConnection;
+        this.enabled = enabled;
+        this.debounceMs = debounceMs;
+    }
+
+    /**
+     * Start watching the provided directory on a background thread, if watching is enabled through {@literal
+     * crypto.ingestion.watch.enabled}. Files already in the directory are not loaded.
+     *
+     * @param directory An absolute or relative path towards the directory that contains the .csv files.
+     * @throws UncheckedIOException if the directory cannot be watched.
+     * @throws IllegalStateException if the watcher has already been started.
+     */
+    public synchronized void start(String directory) {
+        if (!enabled) {
+            return;
+        }
+        if (watchService != null) {
+            throw new IllegalStateException("Already watching a directory.");
+        }
+        Path dir = Path.of(directory);
+        try {
+            watchService = dir.getFileSystem().newWatchService();
+            dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        WatchService service = watchService;
+        Thread.ofPlatform().name("crypto-dir-watcher").daemon().start(() -> watch(dir, service));
+        log.info("Watching " + directory + " for new and modified CSV files.");
+    }
+
+    /**
+     * Stop watching. Files that are being loaded finish loading.
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException exception) {
+                log.warn("Could not close directory watcher: " + exception.getMessage());
+            }
+        }
+    }
+
+    private void watch(Path dir, WatchService service) {
+        Map<Path, Long> lastEventNanos = new LinkedHashMap<>(); // Only touched by the watcher thread.
+        try {
+            while (true) {
+                WatchKey key = service.poll(debounceMs, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == OVERFLOW) { // Events were lost; assume every file changed.
+                            listCSVs(dir).forEach(csv -> lastEventNanos.put(csv, System.nanoTime()));
+                        } else {
+                            Path csv = dir.resolve((Path) event.context());
+                            if (CSV_NAME.matcher(csv.getFileName().toString()).matches()) {
+                                lastEventNanos.put(csv, System.nanoTime());
+                            }
+                        }
+                    }
+                    key.reset();
+                }
+                List<File> settled = new ArrayList<>();
+                long settledBefore = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(debounceMs);
+                for (Iterator<Map.Entry<Path, Long>> it = lastEventNanos.entrySet().iterator(); it.hasNext(); ) {
+                    Map.Entry<Path, Long> entry = it.next();
+                    if (entry.getValue() - settledBefore <= 0) {
+                        it.remove();
+                        if (Files.isRegularFile(entry.getKey())) {
+                            settled.add(entry.getKey().toFile());
+                        }
+                    }
+                }
+                if (!settled.isEmpty()) {
+                    load(settled);
+                }
+            }
+        } catch (ClosedWatchServiceException exception) {
+            log.info("Stopped watching " + dir + ".");
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Load the provided CSV files, as if they had just been created or modified in the watched directory.
+     *
+     * @param csvs A {@link List} of .csv files, every one of which is named after the crypto whose prices it holds.
+     */
+    public void load(List<File> csvs) {
+        List<File> fullLoads = new ArrayList<>();
+        for (File csv : csvs) {
+            String crypto = csv.getName().substring(0, csv.getName().length() - 4);
+            if (checkpoints.isEnabled() && checkpoints.get(crypto).isPresent()) {
+                try {
+                    incrementalIngestionService.ingestAppendedRows(crypto);
+                } catch (RuntimeException exception) {
+                    log.warn("Could not ingest appended rows of crypto " + crypto + ": " + exception.getMessage());
+                }
+            } else {
+                fullLoads.add(csv);
+            }
+        }
+        if (fullLoads.isEmpty()) {
+            return;
+        }
+        try {
+            List<String> cryptos = directoryParser.persistCSVs(fullLoads);
+            statsService.computeAndLoadMissingStats(cryptos);
+            dbConnection.addCryptoNames(cryptos);
+            log.info("Hot-loaded " + cryptos.size() + " CSV files: " + cryptos);
+        } catch (RuntimeException exception) {
+            log.warn("Could not hot-load CSV files " + fullLoads + ": " + exception.getMessage());
+        }
+    }
+
+    private static List<Path> listCSVs(Path dir) {
+        List<Path> csvs = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path path : stream) {
+                if (CSV_NAME.matcher(path.getFileName().toString()).matches()) {
+                    csvs.add(path);
+                }
+            }
+        } catch (IOException exception) {
+            log.warn("Could not list " + dir + ": " + exception.getMessage());
+        }
+        return csvs;
+    }
+}
@@ -4,10 +4,16 @@ package com.xm.cryptorecservice.service;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Maps;
 import com.xm.cryptorecservice.model.crypto.CryptoPriceStats;
+import com.xm.cryptorecservice.model.crypto.CryptoRank;
+import com.xm.cryptorecservice.model.crypto.DailyPriceIndex;
 import com.xm.cryptorecservice.persistence.CryptoPricesForDateMiner;
 import com.xm.cryptorecservice.persistence.DatabaseConnection;
 import com.xm.cryptorecservice.persistence.InMemoryAggregateStats;
+import com.xm.cryptorecservice.persistence.InMemoryPriceSeriesStore;
+import com.xm.cryptorecservice.persistence.StatsSnapshot;
 import com.xm.cryptorecservice.util.SortOrder;
+import com.xm.cryptorecservice.util.concurrent.WorkerPool;
+import com.xm.cryptorecservice.util.concurrent.WorkerPools;
 import com.xm.cryptorecservice.util.logger.Logged;
 
 import lombok.RequiredArgsConstructor;
@@ -15,17 +21,16 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.*;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
-import static com.xm.cryptorecservice.util.Constants.MAX_THREADS;
+import static com.xm.cryptorecservice.util.Constants.DATE_FORMATTER;
 
 /**
  * Service layer class that supports the operations of {@link com.xm.cryptorecservice.controller.CryptoRecController}.
- * Interfaces with a {@link DatabaseConnection} instance and an {@link InMemoryAggregateStats} instance to achieve its goals.
+ * Interfaces with a {@link DatabaseConnection} instance, an {@link InMemoryAggregateStats} instance and an
+ * {@link InMemoryPriceSeriesStore} instance to achieve its goals.
  *
  * @author jason
  *
@@ -38,6 +43,8 @@ public class CryptoRecService {
 
     private final DatabaseConnection onDiskDb;
     private final InMemoryAggregateStats inMemoryDb;
+    private final InMemoryPriceSeriesStore seriesStore;
+    private final WorkerPools workerPools;
 
     /**
      * Get the aggregate stats for all cryptos.
@@ -47,6 +54,14 @@ public class CryptoRecService {
         return inMemoryDb.copyOfStats();
     }
 
+    /**
+     * Get the latest snapshot of the aggregate stats of all cryptos, along with their pre-serialized JSON payloads.
+     * @return The latest {@link StatsSnapshot} of the {@link InMemoryAggregateStats}.
+     */
+    public StatsSnapshot getStatsSnapshot() {
+        return inMemoryDb.snapshot();
+    }
+
     /**
      * Queries the in-memory DB (which the app keeps in sync with the on-disk DB) for the support of a particular cryptocurrency.
      * @param cryptoName The name of the crypto to ask our support of.
@@ -67,6 +82,17 @@ public class CryptoRecService {
     }
 
 
+    /**
+     * Retrieves the aggregate stats of the provided cryptocurrency over a window of days, from the {@link InMemoryPriceSeriesStore}.
+     * @param cryptoName The crypto to retrieve the aggregate stats of.
+     * @param from The first day of the window, inclusive, or {@literal null} for a window open to the past.
+     * @param to The last day of the window, inclusive, or {@literal null} for a window open to the future.
+     * @return An instance of {@link CryptoPriceStats} if the crypto has prices within the window, {@literal null} otherwise.
+     */
+    public CryptoPriceStats getAggregateStatsOfCrypto(String cryptoName, LocalDate from, LocalDate to) {
+        return seriesStore.getStats(cryptoName, windowStart(from), windowEnd(to)).orElse(null);
+    }
+
     /**
      * Retrieve the cryptos in sorted order of normalized price.
      * @param sortOrder A {@link SortOrder} instance that specifies if we want the order to be ascending or descending.
@@ -77,42 +103,120 @@ public class CryptoRecService {
         return inMemoryDb.cryptosSortedByNormalizedPriceDescending(sortOrder);
     }
 
+    /**
+     * Retrieve the first cryptos in sorted order of normalized price, without sorting all cryptos.
+     * @param sortOrder A {@link SortOrder} instance that specifies if we want the order to be ascending or descending.
+     * @param limit The maximum number of cryptos to return.
+     * @return A {@link Map} with at most {@code limit} crypto names as keys and normalized prices as values, iterated in
+     * the provided sort order of normalized price, and in ascending order of name among equal normalized prices.
+     */
+    public Map<String, BigDecimal> getFirstCryptosByNormalizedPrice(SortOrder sortOrder, int limit) {
+        Map<String, BigDecimal> first = new LinkedHashMap<>();
+        for (Map.Entry<String, CryptoPriceStats> entry : inMemoryDb.firstByNormalizedPrice(sortOrder, limit)) {
+            first.put(entry.getKey(), entry.getValue().getNormalizedPrice());
+        }
+        return first;
+    }
+
+    /**
+     * Retrieve the rank of the provided cryptocurrency among all cryptos, in descending order of normalized price.
+     * @param cryptoName The crypto to rank.
+     * @return An instance of {@link CryptoRank} if the crypto is supported, {@literal null} otherwise.
+     */
+    public CryptoRank getRankOfCrypto(String cryptoName) {
+        return inMemoryDb.rankByNormalizedPrice(cryptoName).orElse(null);
+    }
+
+    /**
+     * Retrieve the cryptos in sorted order of their normalized price over a window of days. Cryptos without prices
+     * within the window are left out. Ties are broken by crypto name.
+     * @param sortOrder A {@link SortOrder} instance that specifies if we want the order to be ascending or descending.
+     * @param from The first day of the window, inclusive, or {@literal null} for a window open to the past.
+     * @param to The last day of the window, inclusive, or {@literal null} for a window open to the future.
+     * @return A {@link SortedMap} with crypto names as keys and normalized prices over the window as values, where the
+     * keys are sorted by values according to the provided sort order.
+     */
+    public SortedMap<String, BigDecimal> getCryptosSortedByNormalizedPrice(SortOrder sortOrder, LocalDate from, LocalDate to){
+        long windowStart = windowStart(from), windowEnd = windowEnd(to);
+        Map<String, BigDecimal> normalizedPrices = new HashMap<>();
+        for (String crypto : seriesStore.getCryptos()) {
+            seriesStore.getStats(crypto, windowStart, windowEnd)
+                    .ifPresent(stats -> normalizedPrices.put(crypto, stats.getNormalizedPrice()));
+        }
+        Comparator<String> byNormalizedPrice = Comparator.comparing(normalizedPrices::get);
+        if (sortOrder == SortOrder.DESC) {
+            byNormalizedPrice = byNormalizedPrice.reversed();
+        }
+        return ImmutableSortedMap.copyOf(normalizedPrices, byNormalizedPrice.thenComparing(Comparator.naturalOrder()));
+    }
+
     /**
      * Retrieve the &quot; best scoring &quot; crypto for the provided date (in YYYY-mm-dd format), or {@literal null}
      * if no data existed for <b>any</b> crypto for that date. The best-scoring crypto for a given date is defined as the one
-     * with the greatest normalized price for the given date.
+     * with the greatest normalized price for the given date. Cryptos whose price series are in the
+     * {@link InMemoryPriceSeriesStore} are answered by a lookup in their {@link DailyPriceIndex}, which rolls up every day
+     * at ingestion time; only the rest go to the on-disk DB, in a single query if its layout supports it. Ties are broken in favor of the alphabetically first crypto.
      * @param date A date in YYYY-mm-dd format.
      * @return A {@link Map.Entry} with the crypto name as key and the normalized daily price as value, or {@literal null}
      * if there was no date for <b>any</b> crypto for the provided date.
      */
     public Map.Entry<String, BigDecimal> getBestCryptoForDate(String date){
         Set<String> cryptos = inMemoryDb.getSupportedCryptos(); // Assuming that in-mem DB is in sync with on-disk DB.
-        int numWorkers = Math.min(cryptos.size(), MAX_THREADS);
-        ExecutorService workers = Executors.newFixedThreadPool(numWorkers);
-
-        // Maps.newConcurrentMap() currently returns an instance of ConcurrentHashMap.
-        // For this use case, we could also try a synchronized TreeMap with the keys sorted by the values.
-        // This would lead to a slightly more inefficient put() by each worker, but no need for sorting later.
-
-        ConcurrentMap<String, BigDecimal> cryptoNormalizedPricesForDate = Maps.newConcurrentMap();
-        CountDownLatch latch = new CountDownLatch(numWorkers);
-        for(String crypto : cryptos){
-            workers.submit(new CryptoPricesForDateMiner(onDiskDb, crypto, date, cryptoNormalizedPricesForDate, latch));
+        long epochDay = LocalDate.parse(date, DATE_FORMATTER).toEpochDay();
+
+        // A lookup and an exact, allocation-free comparison per crypto. We only build a BigDecimal for the winner.
+        String bestCrypto = null;
+        DailyPriceIndex bestIndex = null;
+        int bestDay = -1;
+        List<String> cryptosNotInMemory = new ArrayList<>();
+        for (String crypto : cryptos) {
+            Optional<DailyPriceIndex> dailyIndex = seriesStore.getDailyIndex(crypto);
+            if (dailyIndex.isEmpty()) {
+                cryptosNotInMemory.add(crypto);
+                continue;
+            }
+            int day = dailyIndex.get().indexOfDay(epochDay);
+            if (day < 0) {
+                continue;
+            }
+            int comparison = bestIndex == null ? 1 : dailyIndex.get().compareNormalizedPrice(day, bestIndex, bestDay);
+            if (comparison > 0 || (comparison == 0 && crypto.compareTo(bestCrypto) < 0)) {
+                bestCrypto = crypto;
+                bestIndex = dailyIndex.get();
+                bestDay = day;
+            }
+        }
+        Map<String, BigDecimal> cryptoNormalizedPricesForDate = new HashMap<>();
+        if (bestCrypto != null) {
+            cryptoNormalizedPricesForDate.put(bestCrypto, bestIndex.normalizedPrice(bestDay));
         }
-        try {
-            latch.await();
-        } catch (InterruptedException ignored){}
-
-        // Sort by normalized price descending. This would not be required if the Map were a synchronized Treemap.
-        if (!cryptoNormalizedPricesForDate.isEmpty()) {
-            SortedMap<String, BigDecimal> sortedMap =
-                    ImmutableSortedMap.copyOf(
-                            cryptoNormalizedPricesForDate,
-                            Comparator.comparing(cryptoNormalizedPricesForDate::get).reversed());
-            return Map.entry(
-                    sortedMap.firstKey(), // Could also do sort ascending and get the last key.
-                    Objects.requireNonNull(sortedMap.get(sortedMap.firstKey())));
+        if (!cryptosNotInMemory.isEmpty()) {
+            // One query if the on-disk layout can answer for all cryptos at once, a query per crypto otherwise.
+            Map<String, BigDecimal> fromDisk = onDiskDb.getNormalizedPricesForDate(cryptosNotInMemory, date)
+                    .orElseGet(() -> {
+                        ConcurrentMap<String, BigDecimal> minedFromDisk = Maps.newConcurrentMap();
+                        mineNormalizedPricesFromDisk(cryptosNotInMemory, date, minedFromDisk);
+                        return minedFromDisk;
+                    });
+            cryptoNormalizedPricesForDate.putAll(fromDisk);
         }
-        return null;
+        return cryptoNormalizedPricesForDate.entrySet().stream()
+                .max(Map.Entry.<String, BigDecimal>comparingByValue()
+                        .thenComparing(Map.Entry.<String, BigDecimal>comparingByKey().reversed()))
+                .orElse(null);
+    }
+
+    private long windowStart(LocalDate from) {
+        return from == null ? Long.MIN_VALUE : from.atStartOfDay(seriesStore.getZone()).toInstant().toEpochMilli();
+    }
+
+    private long windowEnd(LocalDate to) {
+        return to == null ? Long.MAX_VALUE : to.plusDays(1).atStartOfDay(seriesStore.getZone()).toInstant().toEpochMilli();
+    }
+
+    private void mineNormalizedPricesFromDisk(Collection<String> cryptos, String date,
+                                              ConcurrentMap<String, BigDecimal> cryptoNormalizedPricesForDate) {
+        workerPools.runAllAndWait(WorkerPool.QUERY, cryptos,
+                (crypto, latch) -> new CryptoPricesForDateMiner(onDiskDb, crypto, date, cryptoNormalizedPricesForDate, latch));
     }
 }
@@ -0,0 +1,171 @@
+package com.xm.cryptorecservice.service;
+
+import static com.xm.cryptorecservice.util.Constants.CSV_CHUNK_SIZE;
+
+import com.google.common.collect.Maps;
+import com.xm.cryptorecservice.io.CryptoPriceFileReader;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceColumns;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceStats;
+import com.xm.cryptorecservice.persistence.BulkPriceLoader;
+import com.xm.cryptorecservice.persistence.CryptoPricePersister;
+import com.xm.cryptorecservice.persistence.DatabaseConnection;
+import com.xm.cryptorecservice.persistence.InMemoryAggregateStats;
+import com.xm.cryptorecservice.persistence.InMemoryPriceSeriesStore;
+import com.xm.cryptorecservice.persistence.IngestionCheckpoints;
+import com.xm.cryptorecservice.persistence.IngestionCheckpoints.Checkpoint;
+import com.xm.cryptorecservice.persistence.IngestionManifest;
+import com.xm.cryptorecservice.util.concurrent.WorkerPool;
+import com.xm.cryptorecservice.util.concurrent.WorkerPools;
+import com.xm.cryptorecservice.util.logger.Logged;
+import com.xm.cryptorecservice.util.metrics.CryptoMetrics;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Ingests the rows that have been appended to our CSV files since they were last read, without reloading them. Every
+ * file is read from its {@link IngestionCheckpoints.Checkpoint}, and the new rows are appended to the on-disk table of
+ * the crypto, to its {@link com.xm.cryptorecservice.model.crypto.PriceSeries} and to its aggregate stats, which are
+ * updated in O(1) per row. Every in-memory update is published atomically, so the in-memory view never goes empty.
+ * <p>
+ * Rows not later than the latest price already ingested are dropped as duplicates. A file that has shrunk since it was
+ * last read has been rewritten, and is reloaded in full; in that case the on-disk table is briefly empty, but the
+ * in-memory view keeps serving the old prices until the new ones replace them.
+ *
+ * @author jason
+ * @see IngestionCheckpoints
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Logged
+public class IncrementalIngestionService {
+
+    private final DatabaseConnection dbConnection;
+    private final CryptoPriceFileReader csvReader;
+    private final InMemoryPriceSeriesStore seriesStore;
+    private final InMemoryAggregateStats inMemoryDb;
+    private final IngestionCheckpoints checkpoints;
+    private final IngestionManifest manifest;
+    private final BulkPriceLoader bulkLoader;
+    private final WorkerPools workerPools;
+    private final CryptoMetrics metrics;
+    private final ConcurrentMap<String, Object> locks = Maps.newConcurrentMap();
+
+    /**
+     * Ingest the rows appended to the CSV files of all cryptos with a checkpoint, on the {@link WorkerPool#INGESTION} pool.
+     * Runs every {@literal crypto.ingestion.incremental.poll-interval-ms} milliseconds, if incremental ingestion is enabled.
+     */
+    @Scheduled(fixedDelayString = "${crypto.ingestion.incremental.poll-interval-ms:5000}")
+    public void ingestAppendedRowsOfAllCryptos() {
+        if (!checkpoints.isEnabled()) {
+            return;
+        }
+        workerPools.runAllAndWait(WorkerPool.INGESTION, List.copyOf(checkpoints.getCryptos()),
+                (crypto, latch) -> () -> {
+                    try {
+                        ingestAppendedRows(crypto);
+                    } catch (RuntimeException exception) {
+                        log.warn("Could not ingest appended rows of crypto " + crypto + ": " + exception.getMessage());
+                    } finally {
+                        latch.countDown();
+                    }
+                });
+    }
+
+    /**
+     * Ingest the rows appended to the CSV file of the provided crypto since its checkpoint. Calls for the same crypto are
+     * serialized.
+     *
+     * @param crypto The name of the crypto.
+     * @return The number of rows ingested, or {@literal 0} if the crypto has no checkpoint, or if its aggregate stats
+     * have not been loaded yet.
+     * @throws UncheckedIOException if the CSV file can no longer be read.
+     * @throws NumberFormatException if an appended row is malformed. The checkpoint is not advanced in that case.
+     */
+    public long ingestAppendedRows(String crypto) {
+        synchronized (locks.computeIfAbsent(crypto, name -> new Object())) {
+            Optional<Checkpoint> checkpoint = checkpoints.get(crypto);
+            CryptoPriceStats stats = inMemoryDb.get(crypto);
+            if (checkpoint.isEmpty() || stats == null) { // Nothing to resume from, or still pre-loading.
+                return 0;
+            }
+            File csv = checkpoint.get().csv();
+            long fileSize = csv.length();
+            if (fileSize < checkpoint.get().offset()) {
+                return reload(crypto, csv);
+            }
+            if (fileSize == checkpoint.get().offset()) {
+                return 0;
+            }
+            return append(crypto, checkpoint.get(), stats);
+        }
+    }
+
+    private long append(String crypto, Checkpoint checkpoint, CryptoPriceStats stats) {
+        CryptoPriceColumns rows = new CryptoPriceColumns(CSV_CHUNK_SIZE);
+        long offset;
+        try {
+            offset = csvReader.tailCSV(checkpoint.csv(), checkpoint.offset(), chunk -> {
+                for (int i = 0; i < chunk.size(); i++) {
+                    if (chunk.getEpochMilli(i) > checkpoint.lastEpochMilli()) {
+                        rows.add(chunk.getEpochMilli(i), chunk.getScaledPrice(i));
+                    }
+                }
+            });
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        long lastEpochMilli = checkpoint.lastEpochMilli();
+        if (!rows.isEmpty()) {
+            if (dbConnection.keepsLastPriceOfEveryTimestamp()) {
+                rows.keepLastRowOfEveryTimestamp();
+            } else {
+                rows.sortByTimestamp();
+            }
+            // The table no longer agrees with the bytes the manifest vouches for, so the file is reloaded on next boot.
+            manifest.remove(crypto);
+            rows.forEachChunk(CSV_CHUNK_SIZE, chunk -> dbConnection.insertCryptoPrices(crypto, chunk));
+            seriesStore.append(crypto, rows);
+            inMemoryDb.add(crypto, extend(stats, rows));
+            lastEpochMilli = rows.getEpochMilli(rows.size() - 1);
+            log.info("Ingested " + rows.size() + " appended prices for crypto: " + crypto);
+        }
+        checkpoints.put(crypto, new Checkpoint(checkpoint.csv(), offset, lastEpochMilli));
+        return rows.size();
+    }
+
+    // O(1) per appended row: only min, max and last can change, since the rows come after every stored price.
+    private static CryptoPriceStats extend(CryptoPriceStats stats, CryptoPriceColumns rows) {
+        long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+        for (int i = 0; i < rows.size(); i++) {
+            min = Math.min(min, rows.getScaledPrice(i));
+            max = Math.max(max, rows.getScaledPrice(i));
+        }
+        return new CryptoPriceStats(
+                Math.min(stats.getMinScaledPrice(), min),
+                Math.max(stats.getMaxScaledPrice(), max),
+                stats.getFirstScaledPrice(),
+                rows.getScaledPrice(rows.size() - 1));
+    }
+
+    private long reload(String crypto, File csv) {
+        log.info("CSV file of crypto " + crypto + " has been rewritten; reloading it in full.");
+        // Runs on the calling thread, and publishes the stats of the file too; the latch is only there because the task
+        // expects one.
+        new CryptoPricePersister(dbConnection, csv, csvReader, seriesStore, inMemoryDb, checkpoints, manifest,
+                bulkLoader, metrics, new CountDownLatch(1)).run();
+        return seriesStore.get(crypto).map(series -> (long) series.size()).orElse(0L);
+    }
+}
@@ -1,24 +1,28 @@
 package com.xm.cryptorecservice.service;
 
+import com.xm.cryptorecservice.model.crypto.CryptoPriceStats;
 import com.xm.cryptorecservice.persistence.CryptoPriceAggregateStatsMiner;
 import com.xm.cryptorecservice.persistence.DatabaseConnection;
 import com.xm.cryptorecservice.persistence.InMemoryAggregateStats;
+import com.xm.cryptorecservice.util.concurrent.WorkerPool;
+import com.xm.cryptorecservice.util.concurrent.WorkerPools;
 import com.xm.cryptorecservice.util.logger.Logged;
+import com.xm.cryptorecservice.util.metrics.CryptoMetrics;
 
 import lombok.RequiredArgsConstructor;
 
 import org.springframework.stereotype.Service;
 
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
-import static com.xm.cryptorecservice.util.Constants.MAX_THREADS;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * Computes the aggregate stats for all provided cryptos and loads them to the in-memory database instance provided
- * at construction. Employs multiple workers to make the process efficient.
+ * at construction. Employs the workers of the {@link WorkerPool#STATS} pool to make the process efficient.
+ * <p>
+ * Ingestion already publishes the stats of every CSV file it reads, so after ingestion only the stats that are still
+ * missing, e.g. those of files that could not be read to the end, are queried from the database.
  *
  * @author jason
  */
@@ -29,24 +33,37 @@ public class StatsCalculationService {
 
     private final DatabaseConnection dbConnection;
     private final InMemoryAggregateStats inMemoryDb;
+    private final WorkerPools workerPools;
+    private final CryptoMetrics metrics;
 
     /**
      * Launch several {@link CryptoPriceAggregateStatsMiner} workers to query the DB for aggregate stats of the given
-     * cryptos, and load them to the (thread-safe) in-memory DB.
+     * cryptos, and load them to the (thread-safe) in-memory DB. If the DB can compute the stats of all the cryptos in a
+     * single query, that query is issued instead.
      * @param cryptos A {@link List} with all the cryptos that we want to find and load aggregate stats of.
      */
     public void computeAndLoadAllStats(List<String> cryptos) {
-        // We will launch multiple workers for the computation of these stats
-        // and take advantage of the fact that InMemoryStats is a thread-safe class.
-        int numWorkers = Math.min(MAX_THREADS, cryptos.size());
-        ExecutorService workers = Executors.newFixedThreadPool(numWorkers);
-        CountDownLatch latch = new CountDownLatch(numWorkers);
-        for (String crypto : cryptos) {
-            workers.submit(new CryptoPriceAggregateStatsMiner(dbConnection, inMemoryDb, crypto, latch));
+        if (cryptos.isEmpty()) {
+            return;
         }
-        try {
-            latch.await();
-        } catch (InterruptedException ignored) {
+        // If the on-disk layout computes the stats of all cryptos in a single query, there is nothing to parallelize.
+        Optional<Map<String, CryptoPriceStats>> allStats = dbConnection.getCryptoPriceStats(cryptos);
+        if (allStats.isPresent()) {
+            allStats.get().forEach(inMemoryDb::add);
+            return;
         }
+        // We will launch multiple workers for the computation of these stats
+        // and take advantage of the fact that InMemoryStats is a thread-safe class.
+        workerPools.runAllAndWait(WorkerPool.STATS, cryptos,
+                (crypto, latch) -> new CryptoPriceAggregateStatsMiner(dbConnection, inMemoryDb, crypto, metrics, latch));
+    }
+
+    /**
+     * Like {@link #computeAndLoadAllStats(List)}, but only for the provided cryptos whose stats are not in the in-memory
+     * DB yet. Does not touch the database if there are none.
+     * @param cryptos A {@link List} with all the cryptos that we want to have aggregate stats of.
+     */
+    public void computeAndLoadMissingStats(List<String> cryptos) {
+        computeAndLoadAllStats(cryptos.stream().filter(crypto -> inMemoryDb.get(crypto) == null).toList());
     }
 }
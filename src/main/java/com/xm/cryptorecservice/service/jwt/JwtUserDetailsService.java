@@ -1,5 +1,10 @@
 package com.xm.cryptorecservice.service.jwt;
 
+import static com.xm.cryptorecservice.util.Constants.USER_DETAILS_CACHE_MAX_SIZE;
+import static com.xm.cryptorecservice.util.Constants.USER_DETAILS_CACHE_TTL;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.xm.cryptorecservice.controller.JwtAuthenticationController;
 import com.xm.cryptorecservice.model.user.UserDto;
 import com.xm.cryptorecservice.model.user.UserEntity;
@@ -11,17 +16,21 @@ import com.xm.cryptorecservice.util.logger.Logged;
 import lombok.RequiredArgsConstructor;
 
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.Optional;
 
 /**
- * Service class that talks to the database to retrieve and store user information.
+ * Service class that talks to the database to retrieve and store user information. The details of a user are cached for
+ * {@link com.xm.cryptorecservice.util.Constants#USER_DETAILS_CACHE_TTL} seconds, so that a client issuing authenticated
+ * requests in quick succession does not cost us a query per request.
  *
  * @author jason
  * @see JwtRequestFilter
@@ -35,6 +44,10 @@ public class JwtUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder encoder;
+    private final Cache<String, UserDetails> userDetailsCache = CacheBuilder.newBuilder()
+            .maximumSize(USER_DETAILS_CACHE_MAX_SIZE)
+            .expireAfterWrite(Duration.ofSeconds(USER_DETAILS_CACHE_TTL))
+            .build();
 
     /**
      * Load a user from the database given their email. The name of the method is confusing because
@@ -49,10 +62,29 @@ public class JwtUserDetailsService implements UserDetailsService {
      */
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
+        UserDetails cached = userDetailsCache.getIfPresent(email);
+        if (cached == null) {
+            cached = loadUserFromDatabase(email); // Unknown users are not cached, so that they can sign up.
+            userDetailsCache.put(email, cached);
+        }
+        // Spring Security erases the credentials of the principal after authentication, so hand out copies.
+        return User.withUserDetails(cached).build();
+    }
+
+    /**
+     * Drop the cached details of a user, so that the next lookup goes to the database.
+     *
+     * @param email the user's e-mail.
+     */
+    public void evictUser(String email) {
+        userDetailsCache.invalidate(email);
+    }
+
+    private UserDetails loadUserFromDatabase(String email) throws UsernameNotFoundException {
         Optional<UserEntity> user = userRepository.findByEmail(email);
         if (user.isPresent()) {
             // Return an appropriate instance of org.springframework.security.core.userdetails.User
-            return new org.springframework.security.core.userdetails.User(
+            return new User(
                     user.get().getEmail(), user.get().getPassword(), Collections.emptyList());
         } else {
             throw new UsernameNotFoundException("User with email: " + email + " not found.");
@@ -75,6 +107,7 @@ public class JwtUserDetailsService implements UserDetailsService {
                             new UserEntity(
                                     newUser.getEmail().trim(),
                                     encoder.encode(newUser.getPassword())));
+            evictUser(savedUser.getEmail());
             return new UserDto(savedUser.getEmail(), savedUser.getPassword());
         } catch (DataIntegrityViolationException integrityViolationException) {
             throw new EmailAlreadyInDatabaseException(newUser.getEmail().trim());
@@ -47,9 +47,20 @@ public final class Constants {
     public static final int BIG_DECIMAL_SCALE = 10;
 
     /**
-     * Maximum number of threads that we employ in fixed thread pools
-     * to parallelize tasks across several cryptos.
+     * Number of CSV rows that we parse into a single {@link com.xm.cryptorecservice.model.crypto.CryptoPriceChunk}
+     * before handing it downstream. This is also the size of the JDBC batches that persist those rows.
      */
-    public static final int MAX_THREADS = 10;
+    public static final int CSV_CHUNK_SIZE = 1000;
 
+    /** Maximum number of verified JWTs that we cache, so that a token's signature is only verified on its first use. */
+    public static final long JWT_CACHE_MAX_SIZE = 10_000;
+
+    /**
+     * Number of seconds we cache the details of a user for, so that authenticated requests do not hit the database. Keep
+     * it short, since changes to a user that bypass our service are only picked up once its cached details expire.
+     */
+    public static final long USER_DETAILS_CACHE_TTL = 60;
+
+    /** Maximum number of users whose details we cache. */
+    public static final long USER_DETAILS_CACHE_MAX_SIZE = 10_000;
 }
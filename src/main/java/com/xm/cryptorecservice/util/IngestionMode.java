@@ -0,0 +1,15 @@
+package com.xm.cryptorecservice.util;
+
+/**
+ * A simple enum that selects how CSV files are read at ingestion time. Set through the
+ * {@code crypto.ingestion.mode} application property.
+ *
+ * @author jason
+ * @see com.xm.cryptorecservice.io.CryptoDirectoryParser
+ */
+public enum IngestionMode {
+    /** Every file is streamed sequentially, in constant memory, by a single worker. */
+    STREAMING,
+    /** Every file is memory-mapped, split at newline boundaries and parsed on all cores. */
+    MAPPED_PARALLEL
+}
@@ -0,0 +1,15 @@
+package com.xm.cryptorecservice.util;
+
+/**
+ * A simple enum that selects how crypto prices are laid out in the on-disk database. Set through the
+ * {@code crypto.persistence.layout} application property.
+ *
+ * @author jason
+ * @see com.xm.cryptorecservice.persistence.DatabaseConnection
+ */
+public enum PersistenceLayout {
+    /** One table of prices per crypto, named after the crypto. */
+    TABLE_PER_CRYPTO,
+    /** A single table of prices for all cryptos, keyed by crypto and timestamp and range-partitioned by month. */
+    PARTITIONED
+}
@@ -0,0 +1,104 @@
+package com.xm.cryptorecservice.util.concurrent;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size {@link ThreadPoolExecutor} with a bounded queue and named threads that keeps track of how long tasks
+ * wait in the queue and how long they run. When the queue is full, tasks run on the submitting thread ({@link
+ * ThreadPoolExecutor.CallerRunsPolicy}), which throttles producers instead of failing them; once the pool is shut down,
+ * tasks are rejected with a {@link RejectedExecutionException}. Idle threads time out, so a
+ * pool that is only used at startup does not hold on to its threads forever.
+ *
+ * @author jason
+ * @see WorkerPools
+ */
+public class InstrumentedThreadPoolExecutor extends ThreadPoolExecutor {
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private final WorkerPool pool;
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+    private final LongAdder timedTasks = new LongAdder();
+    private final LongAdder callerRuns = new LongAdder();
+    private final ThreadLocal<Long> runStart = new ThreadLocal<>();
+
+    public InstrumentedThreadPoolExecutor(WorkerPool pool, int poolSize, int queueCapacity) {
+        super(poolSize, poolSize, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                namedThreadFactory(pool), new ThreadPoolExecutor.CallerRunsPolicy());
+        this.pool = pool;
+        allowCoreThreadTimeOut(true);
+        setRejectedExecutionHandler(countingCallerRuns(getRejectedExecutionHandler()));
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        super.execute(new EnqueuedTask(command, System.nanoTime()));
+    }
+
+    @Override
+    protected void beforeExecute(Thread thread, Runnable task) {
+        long now = System.nanoTime();
+        if (task instanceof EnqueuedTask enqueuedTask) {
+            queueWaitNanos.add(now - enqueuedTask.enqueuedAt);
+        }
+        runStart.set(now);
+        super.beforeExecute(thread, task);
+    }
+
+    @Override
+    protected void afterExecute(Runnable task, Throwable throwable) {
+        super.afterExecute(task, throwable);
+        Long start = runStart.get();
+        if (start != null) {
+            runNanos.add(System.nanoTime() - start);
+            timedTasks.increment();
+            runStart.remove();
+        }
+    }
+
+    /**
+     * @return A point-in-time {@link WorkerPoolStats} snapshot of this pool. Tasks that ran on the submitting thread
+     * because the queue was full are counted in {@link WorkerPoolStats#callerRuns()}, but not timed.
+     */
+    public WorkerPoolStats stats() {
+        long tasks = timedTasks.sum();
+        return new WorkerPoolStats(pool, getPoolSize(), getActiveCount(), getQueue().size(),
+                getQueue().remainingCapacity(), getCompletedTaskCount(), callerRuns.sum(),
+                tasks == 0 ? 0 : queueWaitNanos.sum() / tasks / 1_000, tasks == 0 ? 0 : runNanos.sum() / tasks / 1_000);
+    }
+
+    private RejectedExecutionHandler countingCallerRuns(RejectedExecutionHandler delegate) {
+        return (task, executor) -> {
+            if (executor.isShutdown()) { // CallerRunsPolicy would silently drop the task, and latches would never open.
+                throw new RejectedExecutionException("Worker pool " + pool + " has been shut down.");
+            }
+            callerRuns.increment();
+            delegate.rejectedExecution(task, executor);
+        };
+    }
+
+    private static ThreadFactory namedThreadFactory(WorkerPool pool) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, pool.threadNamePrefix() + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Remembers when a task was handed to the pool, so that we can tell queueing time apart from running time.
+    private record EnqueuedTask(Runnable task, long enqueuedAt) implements Runnable {
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.xm.cryptorecservice.util.concurrent;
+
+/**
+ * How {@link WorkerPools} runs per-crypto fan-out work.
+ *
+ * @author jason
+ */
+public enum WorkerMode {
+    /** On the bounded pools of platform threads, one pool per {@link WorkerPool}. */
+    PLATFORM,
+    /** On one virtual thread per task, cancelling the whole fan-out once its deadline passes. */
+    VIRTUAL
+}
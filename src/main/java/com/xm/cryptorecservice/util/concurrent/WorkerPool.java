@@ -0,0 +1,24 @@
+package com.xm.cryptorecservice.util.concurrent;
+
+/**
+ * The named worker pools of the application. Every pool serves a single kind of per-crypto fan-out work, so that,
+ * e.g., a burst of {@code /bestofday} requests cannot starve the ingestion of new price files.
+ *
+ * @author jason
+ * @see WorkerPools
+ */
+public enum WorkerPool {
+    /** Parsing CSV files and persisting their prices, one task per file. */
+    INGESTION,
+    /** Computing the aggregate stats of every crypto from the on-disk database, one task per crypto. */
+    STATS,
+    /** Request-time queries to the on-disk database, one task per crypto. */
+    QUERY,
+    /** Inserting the prices of a single, very large crypto over several connections, one task per slice of its prices. */
+    BULK_LOAD;
+
+    /** @return The prefix of the names of the threads of this pool, e.g. {@literal ingestion-worker-}. */
+    public String threadNamePrefix() {
+        return name().toLowerCase() + "-worker-";
+    }
+}
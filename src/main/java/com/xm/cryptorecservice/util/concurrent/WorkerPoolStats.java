@@ -0,0 +1,20 @@
+package com.xm.cryptorecservice.util.concurrent;
+
+/**
+ * A point-in-time snapshot of the metrics of a {@link WorkerPool}.
+ *
+ * @param pool The pool the snapshot was taken of.
+ * @param poolSize The number of live threads of the pool.
+ * @param activeCount The (approximate) number of threads currently running tasks.
+ * @param queueDepth The number of tasks waiting in the queue.
+ * @param remainingQueueCapacity The number of tasks the queue can still take before tasks run on the submitting thread.
+ * @param completedTasks The (approximate) number of tasks the pool's threads have completed.
+ * @param callerRuns The number of tasks that ran on the submitting thread because the queue was full.
+ * @param meanQueueWaitMicros The mean time that completed tasks waited in the queue, in microseconds.
+ * @param meanRunMicros The mean time that completed tasks took to run, in microseconds.
+ *
+ * @author jason
+ */
+public record WorkerPoolStats(WorkerPool pool, int poolSize, int activeCount, int queueDepth,
+                              int remainingQueueCapacity, long completedTasks, long callerRuns,
+                              long meanQueueWaitMicros, long meanRunMicros) {}
@@ -0,0 +1,184 @@
+package com.xm.cryptorecservice.util.concurrent;
+
+import com.xm.cryptorecservice.util.exceptions.DeadlineExceededException;
+import com.xm.cryptorecservice.util.exceptions.FanOutInterruptedException;
+import com.xm.cryptorecservice.util.logger.Logged;
+
+import jakarta.annotation.PreDestroy;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * The single, application-wide owner of worker threads. Holds one {@link InstrumentedThreadPoolExecutor} per {@link
+ * WorkerPool}, all of them bounded by {@literal crypto.workers.queue-capacity}, and shuts them down gracefully when the
+ * application context closes. Callers must never shut down the pools themselves. Every pool is sized by {@literal
+ * crypto.workers.pool-size}, except for {@link WorkerPool#BULK_LOAD}, which is sized by {@literal
+ * crypto.jdbc.bulk.connections}, so that concurrent bulk loads of several large files never hold more connections than
+ * that between them.
+ * <p>
+ * With {@link WorkerMode#VIRTUAL}, {@link #runAllAndWait(WorkerPool, Collection, BiFunction)} instead starts one virtual
+ * thread per task, so that hundreds of cryptos block on JDBC concurrently rather than ten at a time. Every fan-out is
+ * structured: its threads never outlive it, and they are all interrupted if it misses its deadline or its caller is
+ * interrupted.
+ *
+ * @author jason
+ */
+@Component
+@Slf4j
+@Logged
+public class WorkerPools {
+
+    private final int poolSize;
+    private final long shutdownTimeoutSeconds;
+    private final WorkerMode mode;
+    private final Map<WorkerPool, InstrumentedThreadPoolExecutor> executors = new EnumMap<>(WorkerPool.class);
+    private final Map<WorkerPool, Duration> virtualDeadlines = new EnumMap<>(WorkerPool.class);
+
+    public WorkerPools(@Value("${crypto.workers.pool-size:10}") int poolSize,
+                       @Value("${crypto.workers.queue-capacity:1000}") int queueCapacity,
+                       @Value("${crypto.workers.shutdown-timeout-seconds:30}") long shutdownTimeoutSeconds,
+                       @Value("${crypto.workers.mode:PLATFORM}") WorkerMode mode,
+                       @Value("${crypto.workers.virtual.startup-deadline-seconds:600}") long startupDeadlineSeconds,
+                       @Value("${crypto.workers.virtual.query-deadline-seconds:10}") long queryDeadlineSeconds,
+                       @Value("${crypto.jdbc.bulk.connections:4}") int bulkConnections) {
+        this.poolSize = poolSize;
+        this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+        this.mode = mode;
+        for (WorkerPool pool : WorkerPool.values()) {
+            executors.put(pool, new InstrumentedThreadPoolExecutor(pool,
+                    pool == WorkerPool.BULK_LOAD ? bulkConnections : poolSize, queueCapacity));
+        }
+        virtualDeadlines.put(WorkerPool.INGESTION, Duration.ofSeconds(startupDeadlineSeconds));
+        virtualDeadlines.put(WorkerPool.STATS, Duration.ofSeconds(startupDeadlineSeconds));
+        virtualDeadlines.put(WorkerPool.QUERY, Duration.ofSeconds(queryDeadlineSeconds));
+        virtualDeadlines.put(WorkerPool.BULK_LOAD, Duration.ofSeconds(startupDeadlineSeconds));
+    }
+
+    /**
+     * @param pool A {@link WorkerPool}.
+     * @return The {@link ExecutorService} backing the provided pool.
+     */
+    public ExecutorService get(WorkerPool pool) {
+        return executors.get(pool);
+    }
+
+    /**
+     * @return The number of threads of every pool but {@link WorkerPool#BULK_LOAD}.
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * @return The {@link WorkerMode} fan-out work runs in.
+     */
+    public WorkerMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Run one task per provided item on the provided pool, and wait for all of them to finish. Tasks are expected to count
+     * down the {@link CountDownLatch} they are created with once they are done, successfully or not.
+     *
+     * @param pool The {@link WorkerPool} to run the tasks on.
+     * @param items The items to create tasks for.
+     * @param taskFactory A {@link BiFunction} creating the task of an item, given the item and a latch shared by all the tasks.
+     * @param <T> The type of the items.
+     * @throws DeadlineExceededException If, in {@link WorkerMode#VIRTUAL}, the tasks did not finish within the deadline of
+     * the pool. The tasks are interrupted in that case.
+     * @throws FanOutInterruptedException If the calling thread was interrupted while waiting for the tasks, whose results
+     * are then incomplete. The interrupt status of the thread is left set and, in {@link WorkerMode#VIRTUAL}, the tasks
+     * are interrupted, too.
+     */
+    public <T> void runAllAndWait(WorkerPool pool, Collection<T> items,
+                                  BiFunction<T, CountDownLatch, Runnable> taskFactory)
+            throws DeadlineExceededException, FanOutInterruptedException {
+        if (mode == WorkerMode.VIRTUAL) {
+            runAllOnVirtualThreadsAndWait(pool, items, taskFactory);
+            return;
+        }
+        CountDownLatch latch = new CountDownLatch(items.size()); // One count per task, not per thread.
+        ExecutorService executor = get(pool);
+        for (T item : items) {
+            executor.execute(taskFactory.apply(item, latch));
+        }
+        try {
+            latch.await();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new FanOutInterruptedException(pool.name().toLowerCase() + " work", exception);
+        }
+    }
+
+    private <T> void runAllOnVirtualThreadsAndWait(WorkerPool pool, Collection<T> items,
+                                                   BiFunction<T, CountDownLatch, Runnable> taskFactory) {
+        CountDownLatch latch = new CountDownLatch(items.size());
+        Duration deadline = virtualDeadlines.get(pool);
+        ExecutorService scope = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name(pool.threadNamePrefix(), 1).factory());
+        try {
+            for (T item : items) {
+                scope.execute(taskFactory.apply(item, latch));
+            }
+            if (!latch.await(deadline.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new DeadlineExceededException(pool.name().toLowerCase() + " work", deadline);
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new FanOutInterruptedException(pool.name().toLowerCase() + " work", exception);
+        } finally {
+            scope.shutdownNow(); // No task outlives the fan-out that started it.
+        }
+    }
+
+    /**
+     * @param pool A {@link WorkerPool}.
+     * @return A {@link WorkerPoolStats} snapshot of the provided pool.
+     */
+    public WorkerPoolStats stats(WorkerPool pool) {
+        return executors.get(pool).stats();
+    }
+
+    /**
+     * @return A {@link WorkerPoolStats} snapshot of every pool.
+     */
+    public List<WorkerPoolStats> stats() {
+        return executors.values().stream().map(InstrumentedThreadPoolExecutor::stats).toList();
+    }
+
+    /**
+     * Stop accepting tasks, give queued and running tasks {@literal crypto.workers.shutdown-timeout-seconds} to finish,
+     * and interrupt whatever is still running after that.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executors.values().forEach(ExecutorService::shutdown);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(shutdownTimeoutSeconds);
+        for (InstrumentedThreadPoolExecutor executor : executors.values()) {
+            try {
+                if (!executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    log.warn("Worker pool did not terminate in time, interrupting its tasks: " + executor.stats());
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException exception) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        stats().forEach(stats -> log.info("Worker pool shut down: " + stats));
+    }
+}
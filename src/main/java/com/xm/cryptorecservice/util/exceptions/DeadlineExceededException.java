@@ -0,0 +1,22 @@
+package com.xm.cryptorecservice.util.exceptions;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * A {@link RuntimeException} thrown by our code when work that was fanned out across several cryptos did not finish
+ * within its deadline, and was therefore cancelled.
+ *
+ * @author jason
+ */
+@Getter
+public class DeadlineExceededException extends RuntimeException {
+
+    private final Duration deadline;
+
+    public DeadlineExceededException(String work, Duration deadline) {
+        super("Cancelled " + work + " after it did not finish within " + deadline.toMillis() + " ms.");
+        this.deadline = deadline;
+    }
+}
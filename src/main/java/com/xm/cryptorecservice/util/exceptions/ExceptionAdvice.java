@@ -9,7 +9,9 @@ import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.bind.support.WebExchangeBindException;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import org.springframework.web.server.ServerWebInputException;
 
 /**
  * {@link RestControllerAdvice} for all our custom exceptions, and some non-custom ones, too.
@@ -32,8 +34,11 @@ public class ExceptionAdvice {
         HttpMessageNotReadableException.class,
         MethodArgumentNotValidException.class,
         MethodArgumentTypeMismatchException.class,
+        WebExchangeBindException.class,
+        ServerWebInputException.class,
         ConstraintViolationException.class,
         BadDateFormatException.class,
+        InvalidDateRangeException.class,
         HibernateException.class
     })
     @ResponseStatus(HttpStatus.BAD_REQUEST)
@@ -88,6 +93,7 @@ public class ExceptionAdvice {
     @ExceptionHandler({
             UsernameNotFoundException.class,
             DateOutOfStoredRangeException.class,
+            WindowOutOfStoredRangeException.class,
             UnsupportedCryptoException.class,
     })
     @ResponseStatus(HttpStatus.NOT_FOUND)
@@ -95,4 +101,20 @@ public class ExceptionAdvice {
         return new ResponseEntity<>(
                 new ExceptionMessageContainer(exc.getMessage()), HttpStatus.NOT_FOUND);
     }
+
+    /**
+     * Handler for all exceptions that should return an HTTP Status Code of {@link
+     * HttpStatus#SERVICE_UNAVAILABLE}.
+     *
+     * @param exc The {@link Exception} thrown by our application.
+     * @return A {@link ResponseEntity} with the exception's message as the body and {@link
+     *     HttpStatus#SERVICE_UNAVAILABLE} as the status code.
+     */
+    @ResponseBody
+    @ExceptionHandler({DeadlineExceededException.class, FanOutInterruptedException.class})
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ResponseEntity<ExceptionMessageContainer> serviceUnavailableStatusMessage(Exception exc) {
+        return new ResponseEntity<>(
+                new ExceptionMessageContainer(exc.getMessage()), HttpStatus.SERVICE_UNAVAILABLE);
+    }
 }
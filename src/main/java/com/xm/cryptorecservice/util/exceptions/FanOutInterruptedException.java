@@ -0,0 +1,15 @@
+package com.xm.cryptorecservice.util.exceptions;
+
+/**
+ * A {@link RuntimeException} thrown by our code when the thread waiting for work that was fanned out across several
+ * cryptos was interrupted before the work finished, so that its caller does not go on with partial results. The
+ * interrupt status of the thread is left set.
+ *
+ * @author jason
+ */
+public class FanOutInterruptedException extends RuntimeException {
+
+    public FanOutInterruptedException(String work, InterruptedException cause) {
+        super("Interrupted while waiting for " + work + " to finish.", cause);
+    }
+}
@@ -0,0 +1,14 @@
+package com.xm.cryptorecservice.util.exceptions;
+
+/**
+ * A {@link RuntimeException} thrown by our code when the user provides a window of days whose first day
+ * comes after its last day.
+ *
+ * @author jason
+ */
+public class InvalidDateRangeException extends RuntimeException {
+
+    public InvalidDateRangeException(String from, String to) {
+        super("Window start " + from + " is after window end " + to + ".");
+    }
+}
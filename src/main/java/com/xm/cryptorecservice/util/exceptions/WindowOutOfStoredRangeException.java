@@ -0,0 +1,25 @@
+package com.xm.cryptorecservice.util.exceptions;
+
+import lombok.Getter;
+
+/**
+ * A {@link RuntimeException} thrown by our code when the user provides a window of days for which we have
+ * not stored any price of the requested crypto.
+ *
+ * @author jason
+ */
+@Getter
+public class WindowOutOfStoredRangeException extends RuntimeException {
+
+    private final String crypto;
+    private final String from;
+    private final String to;
+
+    public WindowOutOfStoredRangeException(String crypto, String from, String to) {
+        super("No prices of " + crypto + " stored between " + (from == null ? "the first stored day" : from)
+                + " and " + (to == null ? "the last stored day" : to));
+        this.crypto = crypto;
+        this.from = from;
+        this.to = to;
+    }
+}
@@ -5,6 +5,7 @@ import static com.xm.cryptorecservice.util.Constants.AUTH_HEADER_BEARER_PREFIX;
 import com.xm.cryptorecservice.config.JwtAuthenticationEntryPoint;
 import com.xm.cryptorecservice.service.jwt.JwtAuthenticationService;
 import com.xm.cryptorecservice.service.jwt.JwtUserDetailsService;
+import com.xm.cryptorecservice.util.metrics.CryptoMetrics;
 
 import io.jsonwebtoken.ExpiredJwtException;
 
@@ -27,7 +28,8 @@ import java.io.IOException;
 
 /**
  * A {@link OncePerRequestFilter} that filters every incoming request to make sure that it is
- * properly authenticated with an unexpired JWT token.
+ * properly authenticated with an unexpired JWT token. The time spent authenticating the request, excluding the rest
+ * of the filter chain, is recorded in {@link CryptoMetrics}.
  *
  * @author jason
  * @see JwtTokenUtil
@@ -39,6 +41,7 @@ import java.io.IOException;
 public class JwtRequestFilter extends OncePerRequestFilter {
     private final JwtUserDetailsService jwtUserDetailsService;
     private final JwtTokenUtil jwtTokenUtil;
+    private final CryptoMetrics metrics;
 
     @Override
     protected void doFilterInternal(
@@ -46,6 +49,7 @@ public class JwtRequestFilter extends OncePerRequestFilter {
             @NonNull HttpServletResponse response,
             @NonNull FilterChain filterChain)
             throws ServletException, IOException {
+        final long start = System.nanoTime();
         // Get the token
         final String requestTokenHeader = request.getHeader("Authorization");
         String username = null;
@@ -82,6 +86,7 @@ public class JwtRequestFilter extends OncePerRequestFilter {
                         .setAuthentication(usernamePasswordAuthenticationToken);
             }
         }
+        metrics.recordJwtFilter(System.nanoTime() - start);
         filterChain.doFilter(request, response);
     }
 }
@@ -1,13 +1,18 @@
 package com.xm.cryptorecservice.util.jwt;
 
+import static com.xm.cryptorecservice.util.Constants.JWT_CACHE_MAX_SIZE;
 import static com.xm.cryptorecservice.util.Constants.JWT_VALIDITY;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import com.xm.cryptorecservice.controller.JwtAuthenticationController;
 import com.xm.cryptorecservice.service.jwt.JwtAuthenticationService;
 import com.xm.cryptorecservice.service.jwt.JwtUserDetailsService;
 import com.xm.cryptorecservice.util.logger.Logged;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -20,15 +25,18 @@ import org.springframework.stereotype.Component;
 import java.io.Serial;
 import java.io.Serializable;
 import java.security.Key;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
 
 /**
- * Various utilities for generating and parsing JWTs.
+ * Various utilities for generating and parsing JWTs. The signing key and the parser are derived from the secret once,
+ * and tokens whose signature has been verified are cached until they expire, up to {@link
+ * com.xm.cryptorecservice.util.Constants#JWT_CACHE_MAX_SIZE} tokens, so that a token is only parsed and verified on
+ * its first use.
  *
  * @author jason
  * @see JwtAuthenticationController
@@ -39,8 +47,20 @@ import java.util.function.Function;
 public class JwtTokenUtil implements Serializable {
     @Serial private static final long serialVersionUID = -2550185165626007488L;
 
-    @Value("${jwt.secret}")
-    private String secret;
+    // The claims we need of a token whose signature has been verified.
+    private record VerifiedToken(String username, Date expiration) {}
+
+    private final transient Key signingKey;
+    private final transient JwtParser parser;
+    private final transient Cache<String, VerifiedToken> verifiedTokens = CacheBuilder.newBuilder()
+            .maximumSize(JWT_CACHE_MAX_SIZE)
+            .expireAfterWrite(Duration.ofSeconds(JWT_VALIDITY)) // No token outlives it, so neither does its entry.
+            .build();
+
+    public JwtTokenUtil(@Value("${jwt.secret}") String secret) {
+        this.signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+    }
 
     /**
      * Retrieve the user's username from the provided token.
@@ -49,7 +69,7 @@ public class JwtTokenUtil implements Serializable {
      * @return The user's username.
      */
     public String getUsernameFromToken(String token) {
-        return getClaimFromToken(token, Claims::getSubject);
+        return verify(token).username();
     }
 
     /**
@@ -60,34 +80,28 @@ public class JwtTokenUtil implements Serializable {
      *     expire.
      */
     public LocalDateTime getExpirationDateFromToken(String token) {
-        return getClaimFromToken(token, Claims::getExpiration)
+        return verify(token).expiration()
                 .toInstant()
                 .atZone(ZoneId.systemDefault())
                 .toLocalDateTime();
     }
 
-    private <T> T getClaimFromToken(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = getAllClaimsFromToken(token);
-        return claimsResolver.apply(claims);
-    }
-    // for retrieveing any information from token we will need the secret key
-    private Claims getAllClaimsFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey(secret))
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
-
-    private Key getSigningKey(String secret) {
-        byte[] keyBytes = Decoders.BASE64.decode(secret);
-        return Keys.hmacShaKeyFor(keyBytes);
+    // Parse and verify the token on a cache miss, or on a hit that has expired since, so that the parser throws the
+    // same ExpiredJwtException it would have thrown without the cache.
+    private VerifiedToken verify(String token) {
+        VerifiedToken verified = verifiedTokens.getIfPresent(token);
+        if (verified != null && !isExpired(verified)) {
+            return verified;
+        }
+        verifiedTokens.invalidate(token);
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        verified = new VerifiedToken(claims.getSubject(), claims.getExpiration());
+        verifiedTokens.put(token, verified);
+        return verified;
     }
 
-    // check if the token has expired
-    private Boolean isTokenExpired(String token) {
-        final LocalDateTime expiration = getExpirationDateFromToken(token);
-        return expiration.isBefore(LocalDateTime.now());
+    private static boolean isExpired(VerifiedToken token) {
+        return token.expiration() != null && token.expiration().before(new Date());
     }
 
     /**
@@ -116,7 +130,7 @@ public class JwtTokenUtil implements Serializable {
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + JWT_VALIDITY * 1000))
-                .signWith(getSigningKey(secret), SignatureAlgorithm.HS512)
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .compact();
     }
 
@@ -128,7 +142,7 @@ public class JwtTokenUtil implements Serializable {
      * @return {@literal true} if the token is validated, {@literal false} otherwise.
      */
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = getUsernameFromToken(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        final VerifiedToken verified = verify(token);
+        return (verified.username().equals(userDetails.getUsername()) && !isExpired(verified));
     }
 }
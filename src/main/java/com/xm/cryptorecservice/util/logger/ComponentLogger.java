@@ -2,38 +2,67 @@ package com.xm.cryptorecservice.util.logger;
 
 import static com.xm.cryptorecservice.util.logger.MethodLoggingMessages.msg;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
-import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.*;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.stereotype.Component;
 
 /**
- * AOP-enabled class that logs all calls to {@literal public} methods of repositories annotated with
- * {@link Logged}. Calls to entrance, exit and exception throwing are all logged.
+ * AOP-enabled class that traces calls to {@literal public} methods of classes annotated with {@link Logged}, at the
+ * {@link TraceLevel} and the sample rate that {@link MethodTracer} sets for their class. Sampled calls are timed into
+ * per-method histograms and, at {@link TraceLevel#CALLS}, their entrance and exit are logged, with their arguments
+ * abbreviated. Exceptions are logged whether the call was sampled or not, unless the class is not traced at all.
  *
  * @author jason
+ * @see MethodTracer
  * @see MethodLoggingMessages
  */
 @Component
 @Aspect
 @Slf4j
+@RequiredArgsConstructor
 public class ComponentLogger {
 
-    @Before("execution(* (@com.xm.cryptorecservice.util.logger.Logged *..*).*(..))")
-    public void beforeCallingAnyMethod(JoinPoint jp) {
-        log.info(msg(Loc.BEGIN, jp));
-    }
-
-    @AfterReturning("execution(* (@com.xm.cryptorecservice.util.logger.Logged *..*).*(..))")
-    public void afterCallingAnyMethod(JoinPoint jp) {
-        log.info(msg(Loc.END, jp));
-    }
+    private final MethodTracer tracer;
 
-    @AfterThrowing(
-            value = ("execution(* (@com.xm.cryptorecservice.util.logger.Logged *..*).*(..))"),
-            throwing = "ex")
-    public void afterCallingAMethodThrows(JoinPoint jp, Throwable ex) {
-        log.warn(msg(jp, ex.getClass()));
+    @Around("execution(* (@com.xm.cryptorecservice.util.logger.Logged *..*).*(..))")
+    public Object traceAnyMethod(ProceedingJoinPoint jp) throws Throwable {
+        if (!tracer.isEnabled()) {
+            return jp.proceed();
+        }
+        Class<?> tracedClass = jp.getTarget().getClass();
+        TraceLevel level = tracer.levelOf(tracedClass);
+        if (level == TraceLevel.OFF || !tracer.sample()) {
+            try {
+                return jp.proceed();
+            } catch (Throwable ex) {
+                if (level != TraceLevel.OFF) {
+                    log.warn(msg(jp, ex.getClass()));
+                }
+                throw ex;
+            }
+        }
+        boolean logCalls = level == TraceLevel.CALLS && log.isInfoEnabled();
+        if (logCalls) {
+            log.info(msg(Loc.BEGIN, jp, tracer.getMaxArgumentLength()));
+        }
+        long start = System.nanoTime();
+        try {
+            Object result = jp.proceed();
+            tracer.record(tracedClass, ((MethodSignature) jp.getSignature()).getMethod(), System.nanoTime() - start,
+                    false);
+            if (logCalls) {
+                log.info(msg(Loc.END, jp, tracer.getMaxArgumentLength()));
+            }
+            return result;
+        } catch (Throwable ex) {
+            tracer.record(tracedClass, ((MethodSignature) jp.getSignature()).getMethod(), System.nanoTime() - start,
+                    true);
+            log.warn(msg(jp, ex.getClass()));
+            throw ex;
+        }
     }
 }
@@ -1,9 +1,16 @@
 package com.xm.cryptorecservice.util.logger;
 
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
 /**
- * An empty interface that we decorate classes for which we want to log the entrance and exit
- * (gracious or otherwise) to its methods.
+ * An empty interface that we decorate classes for which we want to trace the calls to their methods, as configured
+ * in {@link MethodTracer}.
  *
  * @author jason
  */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
 public @interface Logged {}
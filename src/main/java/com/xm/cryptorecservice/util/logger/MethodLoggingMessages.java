@@ -1,9 +1,12 @@
 package com.xm.cryptorecservice.util.logger;
 
-import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.aspectj.lang.JoinPoint;
 
-import java.util.Arrays;
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Map;
+import java.util.StringJoiner;
 
 /**
  * {@literal final} class whose {@literal static} methods are used by {@link ComponentLogger}
@@ -21,39 +24,48 @@ public final class MethodLoggingMessages {
      *
      * @param pointInMethod A {@link Loc} enum value signifying entrance to or exit from a method.
      * @param jp The method around which we are applying logging.
+     * @param maxArgumentLength The maximum number of characters of every argument, as in {@link #abbreviate(Object, int)}.
      * @return A {@link String} that informs us when we enter or exit a method.
      */
-    public static String msg(Loc pointInMethod, JoinPoint jp) {
-        String args = Arrays.toString(jp.getArgs());
+    public static String msg(Loc pointInMethod, JoinPoint jp, int maxArgumentLength) {
         return ((pointInMethod == Loc.BEGIN) ? "Making" : "Completed")
                 + " the call "
                 + jp.getSignature().toShortString()
                 + " with arguments: "
-                + ((args.length() == 2) // args.length == 2 means that args = "[]", i.e no args
-                        ? "()"
-                        : args.substring(1, args.length() - 1));
+                + abbreviateAll(jp.getArgs(), maxArgumentLength);
     }
 
     /**
-     * Create a message of entrance or completion to / of a method without including its last
-     * argument. This method is useful for logging around some authentication methods that have the
-     * user's password as the last argument, and we want to avoid logging that.
+     * Render a method argument for logging, without walking through it if it is a collection, a map or an array: those
+     * are rendered as their type and size, since rendering their elements is what made logging hot paths expensive.
      *
-     * @param pointInMethod A {@link Loc} enum value signifying entrance to or exit from a method.
-     * @param jp The method around which we are applying logging.
-     * @return A {@link String} that informs us when we enter or exit a method.
+     * @param arg A method argument, possibly {@literal null}.
+     * @param maxLength The maximum number of characters to render. Must be at least 4.
+     * @return The rendered argument, abbreviated with an ellipsis if it is longer than {@code maxLength} characters.
      */
-    public static String msgWithoutLastArgument(Loc pointInMethod, JoinPoint jp) {
-        String args =
-                Arrays.toString(
-                        ArrayUtils.remove(
-                                jp.getArgs(),
-                                jp.getArgs().length - 1)); // Don't include the last argument.
-        return ((pointInMethod == Loc.BEGIN) ? "Making" : "Completed")
-                + " the call "
-                + jp.getSignature().toShortString()
-                + " with arguments (omitting last argument for security reasons): "
-                + ((args.length() == 2) ? "()" : args.substring(1, args.length() - 1));
+    public static String abbreviate(Object arg, int maxLength) {
+        String rendered;
+        if (arg instanceof Collection<?> collection) {
+            rendered = arg.getClass().getSimpleName() + "(size=" + collection.size() + ")";
+        } else if (arg instanceof Map<?, ?> map) {
+            rendered = arg.getClass().getSimpleName() + "(size=" + map.size() + ")";
+        } else if (arg != null && arg.getClass().isArray()) {
+            rendered = arg.getClass().getComponentType().getSimpleName() + "[" + Array.getLength(arg) + "]";
+        } else {
+            rendered = String.valueOf(arg);
+        }
+        return StringUtils.abbreviate(rendered, maxLength);
+    }
+
+    private static String abbreviateAll(Object[] args, int maxArgumentLength) {
+        if (args.length == 0) {
+            return "()";
+        }
+        StringJoiner joiner = new StringJoiner(", ");
+        for (Object arg : args) {
+            joiner.add(abbreviate(arg, maxArgumentLength));
+        }
+        return joiner.toString();
     }
 
     /**
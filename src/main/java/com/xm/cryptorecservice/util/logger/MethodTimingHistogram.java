@@ -0,0 +1,60 @@
+package com.xm.cryptorecservice.util.logger;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of the durations of the calls to a method, in power-of-two buckets of nanoseconds: bucket
+ * {@literal i} counts the calls that took from 2<sup>i</sup> up to 2<sup>i + 1</sup> nanoseconds. Recording a call
+ * takes a few atomic increments and never allocates.
+ *
+ * @author jason
+ * @see MethodTracer
+ */
+final class MethodTimingHistogram {
+
+    private final String method;
+    private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failedCalls = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+    MethodTimingHistogram(String method) {
+        this.method = method;
+    }
+
+    void record(long nanos, boolean failed) {
+        nanos = Math.max(nanos, 1);
+        buckets.incrementAndGet(Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos));
+        calls.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        if (failed) {
+            failedCalls.increment();
+        }
+    }
+
+    MethodTimingStats stats() {
+        long count = calls.sum(), max = maxNanos.get();
+        return new MethodTimingStats(method, count, failedCalls.sum(), count == 0 ? 0 : totalNanos.sum() / count / 1_000,
+                Math.min(percentileNanos(0.5), max) / 1_000, Math.min(percentileNanos(0.99), max) / 1_000, max / 1_000);
+    }
+
+    // The upper bound of the bucket that the provided fraction of the calls falls in.
+    private long percentileNanos(double fraction) {
+        long total = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            total += buckets.get(i);
+        }
+        long rank = (long) Math.ceil(total * fraction), seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= rank && seen > 0) {
+                return i >= Long.SIZE - 2 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+            }
+        }
+        return 0;
+    }
+}
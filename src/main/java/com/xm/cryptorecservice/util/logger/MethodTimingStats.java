@@ -0,0 +1,18 @@
+package com.xm.cryptorecservice.util.logger;
+
+/**
+ * A point-in-time snapshot of the timings of the sampled calls to a method traced by {@link ComponentLogger}.
+ * Percentiles are read off a histogram with power-of-two buckets, so they are upper bounds, within a factor of two.
+ *
+ * @param method The simple name of the traced class and the name of the method, separated by a dot.
+ * @param sampledCalls The number of calls that were sampled and timed.
+ * @param failedCalls The number of sampled calls that threw.
+ * @param meanMicros The mean time that sampled calls took, in microseconds.
+ * @param p50Micros The median time that sampled calls took, in microseconds.
+ * @param p99Micros The 99th percentile of the time that sampled calls took, in microseconds.
+ * @param maxMicros The longest time that a sampled call took, in microseconds.
+ *
+ * @author jason
+ */
+public record MethodTimingStats(String method, long sampledCalls, long failedCalls, long meanMicros, long p50Micros,
+                                long p99Micros, long maxMicros) {}
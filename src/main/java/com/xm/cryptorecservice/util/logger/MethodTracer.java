@@ -0,0 +1,189 @@
+package com.xm.cryptorecservice.util.logger;
+
+import lombok.extern.slf4j.Slf4j;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The settings and the timings of {@link ComponentLogger}. Every {@link Logged} class is traced at the level of
+ * {@literal crypto.tracing.level}, unless {@literal crypto.tracing.class-levels} overrides it for that class, and only a
+ * {@literal crypto.tracing.sample-rate} fraction of the calls is traced. Every setting can be changed at runtime over JMX,
+ * and with every class at {@link TraceLevel#OFF}, a traced call costs a single volatile read on top of the proxy.
+ *
+ * @author jason
+ * @see ComponentLogger
+ */
+@Component
+@ManagedResource(objectName = "com.xm.cryptorecservice:type=MethodTracer")
+@Slf4j
+public class MethodTracer {
+
+    private volatile TraceLevel level;
+    private volatile double sampleRate;
+    private volatile int maxArgumentLength;
+    private volatile boolean enabled;
+    private final Map<String, TraceLevel> classLevels = new ConcurrentHashMap<>();
+    private volatile Map<Class<?>, TraceLevel> resolvedLevels = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Map<Method, MethodTimingHistogram>> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * @param level The {@link TraceLevel} of every {@link Logged} class without a level of its own.
+     * @param sampleRate The fraction of calls to trace, from 0 to 1.
+     * @param classLevels Comma-separated {@literal SimpleClassName:LEVEL} pairs, e.g. {@literal
+     *                    InMemoryAggregateStats:OFF,CryptoRecService:CALLS}.
+     * @param maxArgumentLength The maximum number of characters that an argument is logged with at {@link
+     *                          TraceLevel#CALLS}.
+     */
+    public MethodTracer(@Value("${crypto.tracing.level:TIMINGS}") TraceLevel level,
+                        @Value("${crypto.tracing.sample-rate:0.01}") double sampleRate,
+                        @Value("${crypto.tracing.class-levels:}") String classLevels,
+                        @Value("${crypto.tracing.max-argument-length:100}") int maxArgumentLength) {
+        this.level = level;
+        setMaxArgumentLength(maxArgumentLength);
+        setSampleRate(sampleRate);
+        for (String classLevel : classLevels.split(",")) {
+            if (!classLevel.isBlank()) {
+                String[] parts = classLevel.split(":");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Bad crypto.tracing.class-levels entry: " + classLevel);
+                }
+                this.classLevels.put(parts[0].trim(), TraceLevel.valueOf(parts[1].trim().toUpperCase(Locale.ROOT)));
+            }
+        }
+        settingsChanged();
+    }
+
+    /**
+     * @return {@literal false} if no class is traced at all, in which case the caller should skip tracing altogether.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param tracedClass A {@link Logged} class.
+     * @return The {@link TraceLevel} that the provided class is traced at.
+     */
+    public TraceLevel levelOf(Class<?> tracedClass) {
+        return resolvedLevels.computeIfAbsent(tracedClass,
+                key -> classLevels.getOrDefault(key.getSimpleName(), level));
+    }
+
+    /**
+     * @return {@literal true} if the current call should be traced, with a probability of the sample rate.
+     */
+    public boolean sample() {
+        double rate = sampleRate;
+        return rate >= 1 || ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    /**
+     * Record the duration of a sampled call.
+     *
+     * @param tracedClass The {@link Logged} class whose method was called.
+     * @param method The {@link Method} that was called.
+     * @param nanos How long the call took, in nanoseconds.
+     * @param failed Whether the call threw.
+     */
+    public void record(Class<?> tracedClass, Method method, long nanos, boolean failed) {
+        histograms.computeIfAbsent(tracedClass, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(method, key -> new MethodTimingHistogram(
+                        tracedClass.getSimpleName() + "." + method.getName()))
+                .record(nanos, failed);
+    }
+
+    /**
+     * @return A {@link MethodTimingStats} snapshot of every method with sampled calls, slowest on average first.
+     */
+    public List<MethodTimingStats> timings() {
+        return histograms.values().stream()
+                .flatMap(byMethod -> byMethod.values().stream())
+                .map(MethodTimingHistogram::stats)
+                .sorted(Comparator.comparingLong(MethodTimingStats::meanMicros).reversed())
+                .toList();
+    }
+
+    @ManagedAttribute(description = "Timings of the sampled calls of every traced method")
+    public String[] getTimings() {
+        return timings().stream().map(MethodTimingStats::toString).toArray(String[]::new);
+    }
+
+    @ManagedOperation(description = "Drop all the timings recorded so far")
+    public void resetTimings() {
+        histograms.clear();
+    }
+
+    @ManagedAttribute(description = "Trace level of every traced class without a level of its own: OFF, TIMINGS or CALLS")
+    public String getLevel() {
+        return level.name();
+    }
+
+    @ManagedAttribute
+    public void setLevel(String level) {
+        this.level = TraceLevel.valueOf(level.trim().toUpperCase(Locale.ROOT));
+        settingsChanged();
+    }
+
+    @ManagedOperation(description = "Trace the class with the provided simple name at the provided level")
+    public void setClassLevel(String simpleClassName, String level) {
+        classLevels.put(simpleClassName.trim(), TraceLevel.valueOf(level.trim().toUpperCase(Locale.ROOT)));
+        settingsChanged();
+    }
+
+    @ManagedOperation(description = "Trace every class at the default level")
+    public void clearClassLevels() {
+        classLevels.clear();
+        settingsChanged();
+    }
+
+    @ManagedAttribute(description = "Fraction of calls to trace, from 0 to 1")
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    @ManagedAttribute
+    public void setSampleRate(double sampleRate) {
+        if (!(sampleRate >= 0 && sampleRate <= 1)) {
+            throw new IllegalArgumentException("Sample rate must be between 0 and 1, was " + sampleRate);
+        }
+        this.sampleRate = sampleRate;
+    }
+
+    @ManagedAttribute(description = "Maximum number of characters that an argument is logged with at level CALLS")
+    public int getMaxArgumentLength() {
+        return maxArgumentLength;
+    }
+
+    @ManagedAttribute
+    public void setMaxArgumentLength(int maxArgumentLength) {
+        if (maxArgumentLength < 4) { // Room for at least one character and the ellipsis.
+            throw new IllegalArgumentException("Max argument length must be at least 4, was " + maxArgumentLength);
+        }
+        this.maxArgumentLength = maxArgumentLength;
+    }
+
+    @PreDestroy
+    public void logTimings() {
+        timings().forEach(timing -> log.info("Method timings: " + timing));
+    }
+
+    // Levels are resolved against the new settings from now on; lookups already in flight may still use the old ones.
+    private void settingsChanged() {
+        resolvedLevels = new ConcurrentHashMap<>();
+        enabled = level != TraceLevel.OFF || classLevels.values().stream().anyMatch(l -> l != TraceLevel.OFF);
+    }
+}
@@ -0,0 +1,16 @@
+package com.xm.cryptorecservice.util.logger;
+
+/**
+ * How much {@link ComponentLogger} traces the methods of a {@link Logged} class.
+ *
+ * @author jason
+ * @see MethodTracer
+ */
+public enum TraceLevel {
+    /** Methods are not traced; only exceptions are logged. */
+    OFF,
+    /** Sampled calls are timed into per-method histograms. */
+    TIMINGS,
+    /** Sampled calls are timed, and their entrance and exit are logged with their (abbreviated) arguments. */
+    CALLS
+}
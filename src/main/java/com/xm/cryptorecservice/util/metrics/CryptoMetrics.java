@@ -0,0 +1,118 @@
+package com.xm.cryptorecservice.util.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The application's own meters, registered with the {@link MeterRegistry} of the application, which the actuator
+ * exposes at {@literal /actuator/prometheus}. Latencies of the endpoints are recorded by Spring MVC itself, as {@literal
+ * http.server.requests}, and the worker pools are bound by {@link WorkerPoolMetrics}. Meters are looked up by name and
+ * tags on every call, which the registry answers from a map; none of them is on a per-row path.
+ * <p>
+ * Tests can construct an instance over a {@link io.micrometer.core.instrument.simple.SimpleMeterRegistry} and read the
+ * meters back from it.
+ *
+ * @author jason
+ */
+@Component
+public class CryptoMetrics {
+
+    public static final String INGESTED_ROWS = "crypto.ingestion.rows";
+    public static final String INGESTED_BYTES = "crypto.ingestion.bytes";
+    public static final String INGESTION_ROWS_PER_SECOND = "crypto.ingestion.rows.per.second";
+    public static final String INGESTION_BYTES_PER_SECOND = "crypto.ingestion.bytes.per.second";
+    public static final String INGESTION_DURATION = "crypto.ingestion.duration";
+    public static final String JDBC_BATCH = "crypto.jdbc.batch";
+    public static final String JDBC_BATCH_ROWS = "crypto.jdbc.batch.rows";
+    public static final String BULK_LOAD = "crypto.jdbc.bulk.load";
+    public static final String BULK_LOAD_ROWS_PER_SECOND = "crypto.jdbc.bulk.rows.per.second";
+    public static final String STATS_MINING = "crypto.stats.mining";
+    public static final String JWT_FILTER = "crypto.jwt.filter";
+    public static final String CRYPTO_TAG = "crypto";
+    public static final String OPERATION_TAG = "operation";
+    public static final String CONNECTIONS_TAG = "connections";
+
+    private final MeterRegistry registry;
+    private final Timer jwtFilter;
+
+    public CryptoMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.jwtFilter = Timer.builder(JWT_FILTER)
+                .description("Time spent authenticating a request in the JWT filter, excluding the rest of the chain")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /**
+     * Record the ingestion of a CSV file.
+     *
+     * @param crypto The crypto that the file holds the prices of.
+     * @param rows The number of rows ingested.
+     * @param bytes The number of bytes read.
+     * @param nanos How long the ingestion took, from reading to persisting, in nanoseconds.
+     */
+    public void recordCsvIngested(String crypto, long rows, long bytes, long nanos) {
+        Counter.builder(INGESTED_ROWS).tag(CRYPTO_TAG, crypto).register(registry).increment(rows);
+        Counter.builder(INGESTED_BYTES).baseUnit("bytes").tag(CRYPTO_TAG, crypto).register(registry).increment(bytes);
+        Timer.builder(INGESTION_DURATION).tag(CRYPTO_TAG, crypto).register(registry).record(nanos, TimeUnit.NANOSECONDS);
+        double seconds = Math.max(nanos, 1) / 1e9;
+        DistributionSummary.builder(INGESTION_ROWS_PER_SECOND).tag(CRYPTO_TAG, crypto).register(registry)
+                .record(rows / seconds);
+        DistributionSummary.builder(INGESTION_BYTES_PER_SECOND).tag(CRYPTO_TAG, crypto).register(registry)
+                .record(bytes / seconds);
+    }
+
+    /**
+     * Record a JDBC batch.
+     *
+     * @param operation What the batch does, e.g. {@literal insert_prices}.
+     * @param rows The number of rows in the batch.
+     * @param nanos How long the batch took, in nanoseconds.
+     */
+    public void recordJdbcBatch(String operation, int rows, long nanos) {
+        Timer.builder(JDBC_BATCH).tag(OPERATION_TAG, operation).publishPercentileHistogram().register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder(JDBC_BATCH_ROWS).tag(OPERATION_TAG, operation).register(registry).record(rows);
+    }
+
+    /**
+     * Record the bulk load of the prices of a crypto to its table.
+     *
+     * @param crypto The crypto whose prices were loaded.
+     * @param rows The number of rows inserted.
+     * @param connections The number of connections the rows were inserted over.
+     * @param nanos How long the load took, in nanoseconds.
+     */
+    public void recordBulkLoad(String crypto, long rows, int connections, long nanos) {
+        String connectionsTag = Integer.toString(connections);
+        Timer.builder(BULK_LOAD).tag(CRYPTO_TAG, crypto).tag(CONNECTIONS_TAG, connectionsTag).register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder(BULK_LOAD_ROWS_PER_SECOND).tag(CRYPTO_TAG, crypto).tag(CONNECTIONS_TAG, connectionsTag)
+                .register(registry).record(rows / (Math.max(nanos, 1) / 1e9));
+    }
+
+    /**
+     * Record the mining of the aggregate stats of a crypto from the database.
+     *
+     * @param crypto The crypto whose stats were mined.
+     * @param nanos How long the mining took, in nanoseconds.
+     */
+    public void recordStatsMined(String crypto, long nanos) {
+        Timer.builder(STATS_MINING).tag(CRYPTO_TAG, crypto).register(registry).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Record the time a request spent in the JWT filter.
+     *
+     * @param nanos The time spent, in nanoseconds.
+     */
+    public void recordJwtFilter(long nanos) {
+        jwtFilter.record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,55 @@
+package com.xm.cryptorecservice.util.metrics;
+
+import com.xm.cryptorecservice.util.concurrent.WorkerPool;
+import com.xm.cryptorecservice.util.concurrent.WorkerPoolStats;
+import com.xm.cryptorecservice.util.concurrent.WorkerPools;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Binds the {@link WorkerPoolStats} of every {@link WorkerPool} to the {@link MeterRegistry}, tagged by pool. The
+ * registry reads them off the pools whenever it is scraped, so the pools do no extra work per task.
+ *
+ * @author jason
+ */
+@Component
+@RequiredArgsConstructor
+public class WorkerPoolMetrics implements MeterBinder {
+
+    public static final String POOL_TAG = "pool";
+
+    private final WorkerPools workerPools;
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        for (WorkerPool pool : WorkerPool.values()) {
+            String name = pool.name().toLowerCase();
+            gauge(registry, "crypto.workers.queue.depth", name, pool, WorkerPoolStats::queueDepth);
+            gauge(registry, "crypto.workers.queue.remaining", name, pool, WorkerPoolStats::remainingQueueCapacity);
+            gauge(registry, "crypto.workers.active", name, pool, WorkerPoolStats::activeCount);
+            gauge(registry, "crypto.workers.size", name, pool, WorkerPoolStats::poolSize);
+            FunctionCounter.builder("crypto.workers.completed", workerPools,
+                            pools -> pools.stats(pool).completedTasks())
+                    .tag(POOL_TAG, name).register(registry);
+            FunctionCounter.builder("crypto.workers.caller.runs", workerPools,
+                            pools -> pools.stats(pool).callerRuns())
+                    .tag(POOL_TAG, name).register(registry);
+        }
+    }
+
+    private void gauge(MeterRegistry registry, String meter, String name, WorkerPool pool,
+                       ToDoubleFunction<WorkerPoolStats> value) {
+        Gauge.builder(meter, workerPools, pools -> value.applyAsDouble(pools.stats(pool)))
+                .tag(POOL_TAG, name).register(registry);
+    }
+}
@@ -0,0 +1,49 @@
+package com.xm.cryptorecservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Configuration of the reactive stack, which is only active when {@literal spring.main.web-application-type} is
+ * {@literal reactive}. Requests are served by Reactor Netty's event loops, which must never block; whatever still blocks,
+ * i.e. JDBC and password hashing, is offloaded to the bounded {@link #jdbcScheduler(int, int)}.
+ *
+ * @author jason
+ * @see com.xm.cryptorecservice.controller.ReactiveCryptoRecController
+ * @see ReactiveSecurityConfig
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveConfig {
+
+    /**
+     * Define the embedded server. Tomcat is on the classpath for the servlet stack, and Spring Boot would otherwise
+     * prefer it over Netty.
+     *
+     * @return A {@link NettyReactiveWebServerFactory}.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * Define the {@link Scheduler} that blocking calls are offloaded to. It is bounded in both threads and queued tasks,
+     * so that a burst of requests queues up, and eventually fails fast, instead of spawning threads without limit.
+     *
+     * @param threads The maximum number of threads, {@literal crypto.reactive.jdbc.threads}.
+     * @param queueCapacity The maximum number of tasks waiting for a thread, {@literal crypto.reactive.jdbc.queue-capacity}.
+     * @return A bounded elastic {@link Scheduler}, disposed of when the application context closes.
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler jdbcScheduler(@Value("${crypto.reactive.jdbc.threads:20}") int threads,
+                                   @Value("${crypto.reactive.jdbc.queue-capacity:10000}") int queueCapacity) {
+        return Schedulers.newBoundedElastic(threads, queueCapacity, "jdbc");
+    }
+}
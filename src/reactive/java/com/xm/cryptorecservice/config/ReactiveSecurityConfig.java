@@ -0,0 +1,91 @@
+package com.xm.cryptorecservice.config;
+
+import com.xm.cryptorecservice.service.jwt.JwtUserDetailsService;
+import com.xm.cryptorecservice.util.jwt.JwtTokenUtil;
+import com.xm.cryptorecservice.util.jwt.ReactiveJwtRequestFilter;
+import com.xm.cryptorecservice.util.metrics.CryptoMetrics;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Spring Security configuration of the reactive stack; the counterpart of {@link SecurityConfig}. Defines {@link
+ * ReactiveAuthenticationManager} and {@link SecurityWebFilterChain} beans, with the same endpoints open to
+ * unauthenticated users, and the same stateless JWT authentication, through a {@link ReactiveJwtRequestFilter}.
+ *
+ * @author jason
+ * @see ReactiveConfig
+ */
+@EnableWebFluxSecurity
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveSecurityConfig {
+
+    /**
+     * Define the {@link ReactiveAuthenticationManager} bean.
+     *
+     * @param jwtUserDetailsService The service to load users with, on the provided {@link Scheduler}.
+     * @param passwordEncoder The password encryption scheme.
+     * @param jdbcScheduler The {@link Scheduler} to offload loading users and checking passwords to.
+     * @return A {@link ReactiveAuthenticationManager} that authenticates usernames and passwords.
+     */
+    @Bean
+    public ReactiveAuthenticationManager reactiveAuthenticationManager(
+            JwtUserDetailsService jwtUserDetailsService, PasswordEncoder passwordEncoder, Scheduler jdbcScheduler) {
+        UserDetailsRepositoryReactiveAuthenticationManager authenticationManager =
+                new UserDetailsRepositoryReactiveAuthenticationManager(username ->
+                        Mono.fromCallable(() -> jwtUserDetailsService.loadUserByUsername(username))
+                                .subscribeOn(jdbcScheduler));
+        authenticationManager.setPasswordEncoder(passwordEncoder);
+        authenticationManager.setScheduler(jdbcScheduler);
+        return authenticationManager;
+    }
+
+    /**
+     * Define the {@link SecurityWebFilterChain} bean.
+     *
+     * @param http An instance of {@link ServerHttpSecurity}.
+     * @param jwtUserDetailsService The service to load authenticated users with.
+     * @param jwtTokenUtil The utility to verify JWTs with.
+     * @param metrics The {@link CryptoMetrics} to record the overhead of the JWT filter in.
+     * @param jdbcScheduler The {@link Scheduler} to offload loading users to.
+     * @return A fully defined {@link SecurityWebFilterChain}, with endpoints to permit without authentication.
+     */
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(
+            ServerHttpSecurity http, JwtUserDetailsService jwtUserDetailsService, JwtTokenUtil jwtTokenUtil,
+            CryptoMetrics metrics, Scheduler jdbcScheduler) {
+        return http.csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+                .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .authorizeExchange(exchanges -> exchanges
+                        .pathMatchers(
+                                "/cryptorecapi/register",
+                                "/cryptorecapi/authenticate",
+                                "/actuator/health",
+                                "/actuator/prometheus")
+                        .permitAll()
+                        .anyExchange()
+                        .authenticated())
+                .exceptionHandling(exceptions -> exceptions
+                        .authenticationEntryPoint(new HttpStatusServerEntryPoint(HttpStatus.UNAUTHORIZED)))
+                .addFilterAt(new ReactiveJwtRequestFilter(jwtUserDetailsService, jwtTokenUtil, metrics, jdbcScheduler),
+                        SecurityWebFiltersOrder.AUTHENTICATION)
+                .build();
+    }
+}
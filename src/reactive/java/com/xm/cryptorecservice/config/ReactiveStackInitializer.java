@@ -0,0 +1,62 @@
+package com.xm.cryptorecservice.config;
+
+import com.xm.cryptorecservice.controller.CryptoRecController;
+import com.xm.cryptorecservice.controller.JwtAuthenticationController;
+import com.xm.cryptorecservice.service.jwt.JwtAuthenticationService;
+import com.xm.cryptorecservice.util.jwt.JwtRequestFilter;
+
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.boot.web.reactive.context.ReactiveWebApplicationContext;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+
+import java.util.Set;
+
+/**
+ * Keeps the servlet stack's controllers, security configuration and JWT filter out of a reactive application context,
+ * where their reactive counterparts take their place, by registering a {@link TypeExcludeFilter} that the component scan
+ * of {@link org.springframework.boot.autoconfigure.SpringBootApplication} consults. Registered in {@literal
+ * META-INF/spring.factories}, so that it only exists in builds of the {@literal reactive} Maven profile, and the default
+ * build needs no conditions on its servlet beans.
+ *
+ * @author jason
+ * @see ReactiveConfig
+ */
+public class ReactiveStackInitializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+    private static final Set<String> SERVLET_STACK_CLASSES = Set.of(
+            CryptoRecController.class.getName(),
+            JwtAuthenticationController.class.getName(),
+            JwtAuthenticationService.class.getName(),
+            SecurityConfig.class.getName(),
+            JwtAuthenticationEntryPoint.class.getName(),
+            JwtRequestFilter.class.getName());
+
+    @Override
+    public void initialize(ConfigurableApplicationContext applicationContext) {
+        if (applicationContext instanceof ReactiveWebApplicationContext) {
+            applicationContext.getBeanFactory().registerSingleton(ServletStackExcludeFilter.class.getName(),
+                    new ServletStackExcludeFilter());
+        }
+    }
+
+    private static final class ServletStackExcludeFilter extends TypeExcludeFilter {
+
+        @Override
+        public boolean match(MetadataReader metadataReader, MetadataReaderFactory metadataReaderFactory) {
+            return SERVLET_STACK_CLASSES.contains(metadataReader.getClassMetadata().getClassName());
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other != null && other.getClass() == getClass();
+        }
+
+        @Override
+        public int hashCode() {
+            return getClass().hashCode();
+        }
+    }
+}
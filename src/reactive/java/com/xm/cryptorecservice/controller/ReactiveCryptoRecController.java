@@ -0,0 +1,138 @@
+package com.xm.cryptorecservice.controller;
+
+import static com.xm.cryptorecservice.controller.RequestParameters.checkWindow;
+import static com.xm.cryptorecservice.controller.RequestParameters.first;
+import static com.xm.cryptorecservice.controller.RequestParameters.parseDate;
+import static com.xm.cryptorecservice.controller.RequestParameters.parseWindowBound;
+import static com.xm.cryptorecservice.controller.RequestParameters.sortOrder;
+
+import com.xm.cryptorecservice.model.crypto.CryptoPriceStats;
+import com.xm.cryptorecservice.model.crypto.CryptoRank;
+import com.xm.cryptorecservice.persistence.StatsSnapshot;
+import com.xm.cryptorecservice.service.CryptoRecService;
+import com.xm.cryptorecservice.util.SortOrder;
+import com.xm.cryptorecservice.util.exceptions.DateOutOfStoredRangeException;
+import com.xm.cryptorecservice.util.exceptions.UnsupportedCryptoException;
+import com.xm.cryptorecservice.util.exceptions.WindowOutOfStoredRangeException;
+import com.xm.cryptorecservice.util.logger.Logged;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * The reactive counterpart of {@link CryptoRecController}, serving the same endpoints, with the same parameters,
+ * responses and errors, when {@literal spring.main.web-application-type} is {@literal reactive}. Everything but {@link
+ * #bestCryptoOfTheDay(String)} is answered from memory, on the event loop; the best crypto of a day may need the on-disk
+ * DB, so it is computed on the bounded {@literal jdbcScheduler}, and a burst of such requests queues up there instead of
+ * tying up the threads that serve every other request. See {@link CryptoRecController} for the documentation of the
+ * endpoints.
+ *
+ * @author jason
+ * @see com.xm.cryptorecservice.config.ReactiveConfig
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/cryptorecapi")
+@RequiredArgsConstructor
+@Logged
+@Validated
+public class ReactiveCryptoRecController {
+
+    private final CryptoRecService service;
+    private final Scheduler jdbcScheduler;
+
+    @GetMapping("/aggregate")
+    public Mono<ResponseEntity<byte[]>> getAggregateStats() {
+        return Mono.fromSupplier(() -> snapshotResponse(service.getStatsSnapshot().getStatsPayload()));
+    }
+
+    @GetMapping("/aggregate/{cryptoName}")
+    public Mono<ResponseEntity<CryptoPriceStats>> getAggregateStats(
+            @PathVariable @NotBlank String cryptoName,
+            @RequestParam(name = "from", required = false) String from,
+            @RequestParam(name = "to", required = false) String to) {
+        return Mono.fromCallable(() -> {
+            String crypto = cryptoName.trim();
+            if (!service.cryptoSupported(crypto)) {
+                throw new UnsupportedCryptoException(crypto);
+            }
+            if (from == null && to == null) {
+                return ResponseEntity.ok(service.getAggregateStatsOfCrypto(crypto));
+            }
+            LocalDate fromDay = parseWindowBound(from), toDay = parseWindowBound(to);
+            checkWindow(from, to, fromDay, toDay);
+            CryptoPriceStats stats = service.getAggregateStatsOfCrypto(crypto, fromDay, toDay);
+            if (stats == null) {
+                throw new WindowOutOfStoredRangeException(crypto, from, to);
+            }
+            return ResponseEntity.ok(stats);
+        });
+    }
+
+    @GetMapping("/sorted")
+    public Mono<ResponseEntity<?>> getCryptosSortedByNormalizedPrice(
+            @RequestParam(name = "from", required = false) String from,
+            @RequestParam(name = "to", required = false) String to,
+            @RequestParam(name = "order", defaultValue = "desc")
+                    @Pattern(regexp = "(?i)\\s*(asc|desc)\\s*", message = "order must be asc or desc") String order,
+            @RequestParam(name = "limit", required = false) @Positive Integer limit) {
+        return Mono.fromCallable(() -> {
+            SortOrder sortOrder = sortOrder(order);
+            if (from == null && to == null) {
+                return limit == null
+                        ? snapshotResponse(service.getStatsSnapshot().getSortedByNormalizedPricePayload(sortOrder))
+                        : ResponseEntity.ok(service.getFirstCryptosByNormalizedPrice(sortOrder, limit));
+            }
+            LocalDate fromDay = parseWindowBound(from), toDay = parseWindowBound(to);
+            checkWindow(from, to, fromDay, toDay);
+            return ResponseEntity.ok(first(service.getCryptosSortedByNormalizedPrice(sortOrder, fromDay, toDay), limit));
+        });
+    }
+
+    @GetMapping("/rank/{cryptoName}")
+    public Mono<ResponseEntity<CryptoRank>> getRankOfCrypto(@PathVariable @NotBlank String cryptoName) {
+        return Mono.fromCallable(() -> {
+            String crypto = cryptoName.trim();
+            CryptoRank rank = service.getRankOfCrypto(crypto);
+            if (rank == null) {
+                throw new UnsupportedCryptoException(crypto);
+            }
+            return ResponseEntity.ok(rank);
+        });
+    }
+
+    @GetMapping("/bestofday")
+    public Mono<ResponseEntity<Map.Entry<String, BigDecimal>>> bestCryptoOfTheDay(
+            @RequestParam(name = "date") @NotBlank String date) {
+        return Mono.fromCallable(() -> parseDate(date))
+                .then(Mono.fromCallable(() -> {
+                    String day = date.strip();
+                    Map.Entry<String, BigDecimal> bestCryptoOfDay = service.getBestCryptoForDate(day);
+                    if (bestCryptoOfDay == null) { // Signifies that we couldn't find data for *any* crypto for that date.
+                        throw new DateOutOfStoredRangeException(day);
+                    }
+                    return ResponseEntity.ok(bestCryptoOfDay);
+                }).subscribeOn(jdbcScheduler));
+    }
+
+    // WebFlux compares the ETag with If-None-Match itself, and turns a match into a 304 without writing the body.
+    private static ResponseEntity<byte[]> snapshotResponse(StatsSnapshot.Payload payload) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).eTag(payload.eTag()).body(payload.json());
+    }
+}
@@ -0,0 +1,61 @@
+package com.xm.cryptorecservice.controller;
+
+import com.xm.cryptorecservice.model.jwt.JwtRequest;
+import com.xm.cryptorecservice.model.jwt.JwtResponse;
+import com.xm.cryptorecservice.model.user.UserDto;
+import com.xm.cryptorecservice.service.jwt.JwtUserDetailsService;
+import com.xm.cryptorecservice.util.jwt.JwtTokenUtil;
+import com.xm.cryptorecservice.util.logger.Logged;
+
+import jakarta.validation.Valid;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * The reactive counterpart of {@link JwtAuthenticationController}, serving the same endpoints, with the same responses
+ * and errors, when {@literal spring.main.web-application-type} is {@literal reactive}. Loading and saving users hits the
+ * database, so it runs on the bounded {@literal jdbcScheduler}.
+ *
+ * @author jason
+ * @see com.xm.cryptorecservice.config.ReactiveSecurityConfig
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/cryptorecapi")
+@RequiredArgsConstructor
+@Validated
+@Logged
+public class ReactiveJwtAuthenticationController {
+
+    private final JwtTokenUtil jwtTokenUtil;
+    private final JwtUserDetailsService userDetailsService;
+    private final ReactiveAuthenticationManager authenticationManager;
+    private final Scheduler jdbcScheduler;
+
+    @PostMapping(value = "/authenticate")
+    public Mono<ResponseEntity<JwtResponse>> authenticate(@RequestBody @Valid JwtRequest authenticationRequest) {
+        return Mono.fromCallable(() -> userDetailsService.loadUserByUsername(authenticationRequest.getEmail()))
+                .subscribeOn(jdbcScheduler)
+                .flatMap(userDetails -> authenticationManager
+                        .authenticate(new UsernamePasswordAuthenticationToken(
+                                authenticationRequest.getEmail(), authenticationRequest.getPassword()))
+                        .thenReturn(ResponseEntity.ok(new JwtResponse(jwtTokenUtil.generateToken(userDetails)))));
+    }
+
+    @PostMapping(value = "/register")
+    public Mono<ResponseEntity<UserDto>> registerUser(@RequestBody @Valid UserDto user) {
+        return Mono.fromCallable(() -> new ResponseEntity<>(userDetailsService.save(user), HttpStatus.CREATED))
+                .subscribeOn(jdbcScheduler);
+    }
+}
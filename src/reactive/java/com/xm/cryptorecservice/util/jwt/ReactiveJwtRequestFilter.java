@@ -0,0 +1,77 @@
+package com.xm.cryptorecservice.util.jwt;
+
+import static com.xm.cryptorecservice.util.Constants.AUTH_HEADER_BEARER_PREFIX;
+
+import com.xm.cryptorecservice.config.ReactiveSecurityConfig;
+import com.xm.cryptorecservice.service.jwt.JwtUserDetailsService;
+import com.xm.cryptorecservice.util.metrics.CryptoMetrics;
+
+import io.jsonwebtoken.ExpiredJwtException;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * The reactive counterpart of {@link JwtRequestFilter}: a {@link WebFilter} that authenticates every incoming request
+ * that carries an unexpired JWT. The token is verified on the event loop, since {@link JwtTokenUtil} only does CPU work;
+ * the user is loaded on the provided {@link Scheduler}, since a miss of the cache of {@link JwtUserDetailsService} goes
+ * to the database. Not a bean, so that WebFlux does not also register it outside the security filter chain.
+ *
+ * @author jason
+ * @see ReactiveSecurityConfig
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveJwtRequestFilter implements WebFilter {
+
+    private final JwtUserDetailsService jwtUserDetailsService;
+    private final JwtTokenUtil jwtTokenUtil;
+    private final CryptoMetrics metrics;
+    private final Scheduler jdbcScheduler;
+
+    @Override
+    public @NonNull Mono<Void> filter(@NonNull ServerWebExchange exchange, @NonNull WebFilterChain chain) {
+        final long start = System.nanoTime();
+        final String requestTokenHeader = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (requestTokenHeader == null || !requestTokenHeader.startsWith(AUTH_HEADER_BEARER_PREFIX)) {
+            log.warn("JWT Token does not begin with \"" + AUTH_HEADER_BEARER_PREFIX + "\" string");
+            metrics.recordJwtFilter(System.nanoTime() - start);
+            return chain.filter(exchange);
+        }
+        final String jwtToken = requestTokenHeader.substring(AUTH_HEADER_BEARER_PREFIX.length());
+        final String username;
+        try {
+            username = jwtTokenUtil.getUsernameFromToken(jwtToken);
+        } catch (IllegalArgumentException e) {
+            log.warn("Unable to get JWT Token");
+            metrics.recordJwtFilter(System.nanoTime() - start);
+            return chain.filter(exchange);
+        } catch (ExpiredJwtException e) {
+            log.warn("JWT Token has expired");
+            metrics.recordJwtFilter(System.nanoTime() - start);
+            return chain.filter(exchange);
+        }
+        return Mono.fromCallable(() -> jwtUserDetailsService.loadUserByUsername(username))
+                .subscribeOn(jdbcScheduler)
+                .filter(userDetails -> jwtTokenUtil.validateToken(jwtToken, userDetails))
+                .map(userDetails -> new UsernamePasswordAuthenticationToken(
+                        userDetails, null, userDetails.getAuthorities()))
+                .doOnTerminate(() -> metrics.recordJwtFilter(System.nanoTime() - start))
+                .flatMap(authentication -> chain.filter(exchange)
+                        .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication))
+                        .thenReturn(true))
+                .switchIfEmpty(Mono.defer(() -> chain.filter(exchange).thenReturn(true)))
+                .then();
+    }
+}
@@ -0,0 +1,102 @@
+package com.xm.cryptorecservice.unit.controller;
+
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xm.cryptorecservice.controller.ReactiveCryptoRecController;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceStats;
+import com.xm.cryptorecservice.persistence.StatsSnapshot;
+import com.xm.cryptorecservice.service.CryptoRecService;
+import com.xm.cryptorecservice.util.SortOrder;
+import com.xm.cryptorecservice.util.exceptions.ExceptionAdvice;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReactiveCryptoRecControllerUnitTests {
+
+    @Mock
+    private CryptoRecService service;
+
+    private final Scheduler jdbcScheduler = Schedulers.newBoundedElastic(2, 10, "jdbc");
+
+    private WebTestClient client;
+
+    @Before
+    public void setUp() {
+        client = WebTestClient.bindToController(new ReactiveCryptoRecController(service, jdbcScheduler))
+                .controllerAdvice(new ExceptionAdvice())
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        jdbcScheduler.dispose();
+    }
+
+    @Test
+    public void whenTheClientAlreadyHasTheLatestSnapshot_thenNotModifiedIsReturnedWithoutABody() {
+        StatsSnapshot snapshot = StatsSnapshot.of(1, Map.of("BTC",
+                new CryptoPriceStats(BigDecimal.ONE, BigDecimal.TEN, BigDecimal.ONE, BigDecimal.TEN)),
+                new ObjectMapper());
+        when(service.getStatsSnapshot()).thenReturn(snapshot);
+        String eTag = snapshot.getStatsPayload().eTag();
+        client.get().uri("/cryptorecapi/aggregate").exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, eTag)
+                .expectBody().json("{\"BTC\": {\"minPrice\": 1, \"maxPrice\": 10, \"normalizedPrice\": 9.0}}");
+        client.get().uri("/cryptorecapi/aggregate").header(HttpHeaders.IF_NONE_MATCH, eTag).exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    public void whenTheBestCryptoOfADayIsRequested_thenItIsComputedOnTheJdbcScheduler() {
+        AtomicReference<String> thread = new AtomicReference<>();
+        when(service.getBestCryptoForDate("2022-01-01")).thenAnswer(invocation -> {
+            thread.set(Thread.currentThread().getName());
+            return Map.entry("XRP", new BigDecimal("0.5"));
+        });
+        client.get().uri("/cryptorecapi/bestofday?date= 2022-01-01 ").exchange()
+                .expectStatus().isOk()
+                .expectBody().json("{\"XRP\": 0.5}");
+        assertTrue(thread.get(), thread.get().startsWith("jdbc"));
+    }
+
+    @Test
+    public void whenTheDateIsMalformedOrOutOfRange_thenBadRequestOrNotFoundIsReturned() {
+        client.get().uri("/cryptorecapi/bestofday?date=01-01-2022").exchange().expectStatus().isBadRequest();
+        verify(service, never()).getBestCryptoForDate("01-01-2022");
+        when(service.getBestCryptoForDate("2030-01-01")).thenReturn(null);
+        client.get().uri("/cryptorecapi/bestofday?date=2030-01-01").exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    public void whenACryptoIsUnsupportedOrALimitIsProvided_thenTheServletResponsesAreMirrored() {
+        when(service.cryptoSupported("DOGE")).thenReturn(false);
+        client.get().uri("/cryptorecapi/aggregate/DOGE").exchange().expectStatus().isNotFound();
+        when(service.getFirstCryptosByNormalizedPrice(SortOrder.ASC, 1)).thenReturn(Map.of("ETH", BigDecimal.ONE));
+        client.get().uri("/cryptorecapi/sorted?order=ASC&limit=1").exchange()
+                .expectStatus().isOk()
+                .expectBody().json("{\"ETH\": 1}");
+        client.get().uri("/cryptorecapi/sorted?from=2022-01-02&to=2022-01-01").exchange()
+                .expectStatus().isBadRequest();
+    }
+}
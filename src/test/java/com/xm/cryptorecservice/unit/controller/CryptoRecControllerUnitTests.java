@@ -1,24 +1,41 @@
 package com.xm.cryptorecservice.unit.controller;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.mockito.Mockito.when;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.xm.cryptorecservice.controller.CryptoRecController;
 import com.xm.cryptorecservice.model.crypto.CryptoPriceStats;
+import com.xm.cryptorecservice.model.crypto.CryptoRank;
+import com.xm.cryptorecservice.persistence.StatsSnapshot;
 import com.xm.cryptorecservice.service.CryptoRecService;
 import com.xm.cryptorecservice.util.SortOrder;
 import com.xm.cryptorecservice.util.exceptions.BadDateFormatException;
 import com.xm.cryptorecservice.util.exceptions.DateOutOfStoredRangeException;
+import com.xm.cryptorecservice.util.exceptions.InvalidDateRangeException;
 import com.xm.cryptorecservice.util.exceptions.UnsupportedCryptoException;
+import com.xm.cryptorecservice.util.exceptions.WindowOutOfStoredRangeException;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
@@ -43,8 +60,32 @@ public class CryptoRecControllerUnitTests {
                         BigDecimal.ONE, BigDecimal.TEN),
                 "LTC", new CryptoPriceStats(BigDecimal.ONE, BigDecimal.TEN, new BigDecimal("0.02"),
                         new BigDecimal("0.012")));
-        when(service.getAggregateStats()).thenReturn(aggStatsMap);
-        assertEquals(ResponseEntity.ok(service.getAggregateStats()), controller.getAggregateStats());
+        StatsSnapshot snapshot = StatsSnapshot.of(1, aggStatsMap, new ObjectMapper());
+        when(service.getStatsSnapshot()).thenReturn(snapshot);
+        ResponseEntity<?> response = controller.getAggregateStats();
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(snapshot.getStatsPayload().json(), response.getBody());
+        assertEquals(snapshot.getStatsPayload().eTag(), response.getHeaders().getETag());
+        assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+    }
+
+    @Test
+    public void whenTheClientAlreadyHasTheLatestSnapshot_thenNotModifiedIsReturnedWithoutABody() throws Exception {
+        StatsSnapshot snapshot = StatsSnapshot.of(1, Map.of("BTC",
+                new CryptoPriceStats(BigDecimal.ONE, BigDecimal.TEN, BigDecimal.ONE, BigDecimal.TEN)),
+                new ObjectMapper());
+        when(service.getStatsSnapshot()).thenReturn(snapshot);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+        String eTag = snapshot.getStatsPayload().eTag();
+        mockMvc.perform(get("/cryptorecapi/aggregate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().json("{\"BTC\": {\"minPrice\": 1, \"maxPrice\": 10, \"normalizedPrice\": 9.0}}"));
+        mockMvc.perform(get("/cryptorecapi/aggregate").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+        mockMvc.perform(get("/cryptorecapi/aggregate").header(HttpHeaders.IF_NONE_MATCH, "\"stale\""))
+                .andExpect(status().isOk());
     }
 
     @Test
@@ -53,21 +94,87 @@ public class CryptoRecControllerUnitTests {
                 new BigDecimal("2.301"), new BigDecimal("10.76"));
         when(service.cryptoSupported(CRYPTO_NAME)).thenReturn(true);
         when(service.getAggregateStatsOfCrypto(CRYPTO_NAME)).thenReturn(stats);
-        assertEquals(ResponseEntity.ok(stats), controller.getAggregateStats(CRYPTO_NAME));
+        assertEquals(ResponseEntity.ok(stats), controller.getAggregateStats(CRYPTO_NAME, null, null));
     }
 
     @Test(expected = UnsupportedCryptoException.class)
     public void whenServiceSaysTheCryptoIsNotSupported_thenUnsupportedCryptoExceptionIsThrown(){
         when(service.cryptoSupported(CRYPTO_NAME)).thenReturn(false);
-        controller.getAggregateStats(CRYPTO_NAME);
+        controller.getAggregateStats(CRYPTO_NAME, null, null);
     }
 
     @Test
     public void whenServiceReturnsCryptosSortedByNormalizedPrice_thenControllerReturnsResponseEntityWithThoseStats(){
-        SortedMap<String, BigDecimal> mockedMap =
-                new TreeMap<>(Map.of("LTC", new BigDecimal("100.1"), "ETH", new BigDecimal("310.009")));
-        when(service.getCryptosSortedByNormalizedPrice(SortOrder.DESC)).thenReturn(mockedMap);
-        assertEquals(ResponseEntity.ok(mockedMap), controller.getCryptosSortedByNormalizedPrice());
+        StatsSnapshot snapshot = StatsSnapshot.of(1, Map.of(
+                "LTC", new CryptoPriceStats(BigDecimal.ONE, new BigDecimal("101.1"), BigDecimal.ONE, BigDecimal.TEN),
+                "ETH", new CryptoPriceStats(BigDecimal.ONE, new BigDecimal("311.009"), BigDecimal.ONE, BigDecimal.TEN)),
+                new ObjectMapper());
+        when(service.getStatsSnapshot()).thenReturn(snapshot);
+        ResponseEntity<?> response = controller.getCryptosSortedByNormalizedPrice(null, null, "desc", null);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(snapshot.getSortedByNormalizedPricePayload(SortOrder.DESC).json(), response.getBody());
+        assertEquals("{\"ETH\":310.0090000000,\"LTC\":100.1000000000}",
+                new String((byte[]) response.getBody(), StandardCharsets.UTF_8));
+        assertEquals(snapshot.getSortedByNormalizedPricePayload(SortOrder.DESC).eTag(), response.getHeaders().getETag());
+    }
+
+    @Test
+    public void whenAWindowIsProvided_thenControllerReturnsTheStatsOfTheWindow(){
+        CryptoPriceStats stats = new CryptoPriceStats(BigDecimal.ONE, BigDecimal.TEN, BigDecimal.ONE, BigDecimal.TEN);
+        when(service.cryptoSupported(CRYPTO_NAME)).thenReturn(true);
+        when(service.getAggregateStatsOfCrypto(CRYPTO_NAME, LocalDate.of(2022, 1, 1), LocalDate.of(2022, 1, 7)))
+                .thenReturn(stats);
+        assertEquals(ResponseEntity.ok(stats), controller.getAggregateStats(CRYPTO_NAME, DATE, "2022-01-07"));
+    }
+
+    @Test
+    public void whenAWindowOpenToTheFutureIsProvided_thenControllerReturnsTheCryptosSortedOverThatWindow(){
+        SortedMap<String, BigDecimal> mockedMap = new TreeMap<>(Map.of("LTC", new BigDecimal("0.5")));
+        when(service.getCryptosSortedByNormalizedPrice(SortOrder.DESC, LocalDate.of(2022, 1, 1), null))
+                .thenReturn(mockedMap);
+        assertEquals(ResponseEntity.ok(mockedMap), controller.getCryptosSortedByNormalizedPrice(DATE, null, "desc", null));
+    }
+
+    @Test
+    public void whenALimitIsProvided_thenControllerReturnsOnlyTheFirstCryptosInTheRequestedOrder(){
+        Map<String, BigDecimal> mockedMap = Map.of("LTC", new BigDecimal("0.5"));
+        when(service.getFirstCryptosByNormalizedPrice(SortOrder.ASC, 1)).thenReturn(mockedMap);
+        assertEquals(ResponseEntity.ok(mockedMap), controller.getCryptosSortedByNormalizedPrice(null, null, " ASC", 1));
+        SortedMap<String, BigDecimal> windowed = new TreeMap<>(Map.of("BTC", BigDecimal.ONE, "ETH", BigDecimal.TEN));
+        when(service.getCryptosSortedByNormalizedPrice(SortOrder.ASC, LocalDate.of(2022, 1, 1), null)).thenReturn(windowed);
+        assertEquals(ResponseEntity.ok(Map.of("BTC", BigDecimal.ONE)),
+                controller.getCryptosSortedByNormalizedPrice(DATE, null, "asc", 1));
+    }
+
+    @Test
+    public void whenServiceRanksTheProvidedCrypto_thenControllerReturnsTheRank(){
+        CryptoRank rank = new CryptoRank(CRYPTO_NAME, new BigDecimal("0.5"), 2, 5);
+        when(service.getRankOfCrypto(CRYPTO_NAME)).thenReturn(rank);
+        assertEquals(ResponseEntity.ok(rank), controller.getRankOfCrypto(" " + CRYPTO_NAME));
+    }
+
+    @Test(expected = UnsupportedCryptoException.class)
+    public void whenServiceCannotRankTheProvidedCrypto_thenUnsupportedCryptoExceptionIsThrown(){
+        when(service.getRankOfCrypto(CRYPTO_NAME)).thenReturn(null);
+        controller.getRankOfCrypto(CRYPTO_NAME);
+    }
+
+    @Test(expected = BadDateFormatException.class)
+    public void whenAWindowBoundIsInTheWrongFormat_thenBadDateFormatExceptionIsThrown(){
+        when(service.cryptoSupported(CRYPTO_NAME)).thenReturn(true);
+        controller.getAggregateStats(CRYPTO_NAME, "01/01/2022", null);
+    }
+
+    @Test(expected = InvalidDateRangeException.class)
+    public void whenTheWindowStartsAfterItEnds_thenInvalidDateRangeExceptionIsThrown(){
+        controller.getCryptosSortedByNormalizedPrice("2022-01-07", DATE, "desc", null);
+    }
+
+    @Test(expected = WindowOutOfStoredRangeException.class)
+    public void whenServiceReturnsNoStatsForTheWindow_thenWindowOutOfStoredRangeExceptionIsThrown(){
+        when(service.cryptoSupported(CRYPTO_NAME)).thenReturn(true);
+        when(service.getAggregateStatsOfCrypto(CRYPTO_NAME, null, LocalDate.of(2021, 1, 1))).thenReturn(null);
+        controller.getAggregateStats(CRYPTO_NAME, null, "2021-01-01");
     }
 
     @Test
@@ -2,12 +2,18 @@ package com.xm.cryptorecservice.unit.io;
 
 import com.xm.cryptorecservice.io.CryptoPriceFileReader;
 import com.xm.cryptorecservice.model.crypto.CryptoPrice;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.io.File;
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
@@ -18,6 +24,9 @@ public class CryptoPriceFileReaderUnitTests {
 
     private final CryptoPriceFileReader fileReader = new CryptoPriceFileReader();
 
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
     @Test
     public void whenValidFileProvided_thenAllLinesAreRead(){
         List<CryptoPrice> ethereumPrices = null;
@@ -33,4 +42,90 @@ public class CryptoPriceFileReaderUnitTests {
     public void whenInvalidFileProvided_thenIOExceptionIsThrown() throws IOException {
         fileReader.readCSV(new File("not_a_valid_file.csv"));
     }
+
+    @Test
+    public void whenFileIsStreamed_thenRowsAreHandedDownInChunksOfAtMostTheGivenSize() throws IOException {
+        List<Integer> chunkSizes = new ArrayList<>();
+        long rows = fileReader.streamCSV(new File("./task/prices/ETH.csv"), 10,
+                chunk -> chunkSizes.add(chunk.size()));
+        assertEquals(95, rows);
+        assertEquals(10, chunkSizes.size());
+        assertEquals(5, (int) chunkSizes.get(chunkSizes.size() - 1));
+        assertEquals(95, chunkSizes.stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    public void whenRowsAreParsed_thenTimestampsAndPricesAreExact() throws IOException {
+        File csv = tempFolder.newFile("TEST.csv");
+        Files.writeString(csv.toPath(),
+                "timestamp,symbol,price\r\n1641009600000,TEST,46813.21\r\n\r\n1641020400000,TEST,0.00000000015",
+                StandardCharsets.US_ASCII);
+        List<CryptoPrice> prices = fileReader.readCSV(csv);
+        assertEquals(2, prices.size());
+        assertEquals(1641009600000L, prices.get(0).getTimestamp().getTime());
+        assertEquals(0, new BigDecimal("46813.21").compareTo(prices.get(0).getPrice()));
+        assertEquals(1641020400000L, prices.get(1).getTimestamp().getTime());
+        // Digits beyond our scale are rounded half-up, like MySQL does for DECIMAL(20, 10).
+        assertEquals(0, new BigDecimal("0.0000000002").compareTo(prices.get(1).getPrice()));
+    }
+
+    @Test
+    public void whenRowsStraddleReadBufferBoundaries_thenNoRowIsLostOrCorrupted() throws IOException {
+        File csv = tempFolder.newFile("BIG.csv");
+        StringBuilder contents = new StringBuilder("timestamp,symbol,price\n");
+        int numRows = 20_000; // ~600KB, well over a single read buffer.
+        for (int i = 0; i < numRows; i++) {
+            contents.append(1641009600000L + i).append(",BIG,").append(i).append(".5\n");
+        }
+        Files.writeString(csv.toPath(), contents, StandardCharsets.US_ASCII);
+        List<CryptoPrice> prices = fileReader.readCSV(csv);
+        assertEquals(numRows, prices.size());
+        for (int i = 0; i < numRows; i++) {
+            assertEquals(1641009600000L + i, prices.get(i).getTimestamp().getTime());
+            assertEquals(0, new BigDecimal(i + ".5").compareTo(prices.get(i).getPrice()));
+        }
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void whenARowIsMalformed_thenNumberFormatExceptionIsThrown() throws IOException {
+        File csv = tempFolder.newFile("BAD.csv");
+        Files.writeString(csv.toPath(), "timestamp,symbol,price\n1641009600000,BAD,12a.4\n",
+                StandardCharsets.US_ASCII);
+        fileReader.readCSV(csv);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenARowIsOfAnotherCrypto_thenIllegalArgumentExceptionIsThrown() throws IOException {
+        File csv = tempFolder.newFile("BTC.csv");
+        Files.writeString(csv.toPath(), "timestamp,symbol,price\n1641009600000,BTC,1\n1641013200000,btc,2\n",
+                StandardCharsets.US_ASCII);
+        fileReader.readCSV(csv);
+    }
+
+    @Test
+    public void whenFileIsTailed_thenOnlyNewlineTerminatedLinesAfterTheOffsetAreRead() throws IOException {
+        File csv = tempFolder.newFile("BTC.csv");
+        String header = "timestamp,symbol,price\r\n", first = "1641009600000,BTC,1\r\n", second = "1641013200000,BTC,2\r\n";
+        Files.writeString(csv.toPath(), header + first + "1641016800000,BTC,3", StandardCharsets.US_ASCII);
+
+        List<Long> timestamps = new ArrayList<>();
+        long offset = fileReader.tailCSV(csv, 0, chunk -> {
+            for (int i = 0; i < chunk.size(); i++) {
+                timestamps.add(chunk.getEpochMilli(i));
+            }
+        });
+        assertEquals(List.of(1641009600000L), timestamps); // The unterminated last line is left for later.
+        assertEquals(header.length() + first.length(), offset);
+
+        Files.writeString(csv.toPath(), header + first + second + "1641016800000,BTC,3\r\n", StandardCharsets.US_ASCII);
+        timestamps.clear();
+        offset = fileReader.tailCSV(csv, offset, chunk -> {
+            for (int i = 0; i < chunk.size(); i++) {
+                timestamps.add(chunk.getEpochMilli(i));
+            }
+        });
+        assertEquals(List.of(1641013200000L, 1641016800000L), timestamps); // No header to skip past the start.
+        assertEquals(csv.length(), offset);
+        assertEquals(offset, fileReader.tailCSV(csv, offset, chunk -> fail("Nothing left to read")));
+    }
 }
@@ -0,0 +1,154 @@
+package com.xm.cryptorecservice.unit.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.xm.cryptorecservice.io.CryptoPriceFileReader;
+import com.xm.cryptorecservice.io.MappedCryptoPriceFileReader;
+import com.xm.cryptorecservice.model.crypto.CryptoPrice;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceColumns;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceStats;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MappedCryptoPriceFileReaderUnitTests {
+
+    // A tiny split size, so that even small files get split across several fork-join tasks.
+    private final MappedCryptoPriceFileReader mappedReader = new MappedCryptoPriceFileReader(64);
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void whenValidFileProvided_thenMappedReaderReturnsTheSameRowsAsTheStreamingReader() throws IOException {
+        File eth = new File("./task/prices/ETH.csv");
+        List<CryptoPrice> streamed = new CryptoPriceFileReader().readCSV(eth);
+        List<CryptoPrice> mapped = new ArrayList<>();
+        long rows = mappedReader.streamCSV(eth, chunk -> {
+            for (int i = 0; i < chunk.size(); i++) {
+                mapped.add(chunk.get(i));
+            }
+        });
+        assertEquals(95, rows);
+        assertEquals(streamed, mapped);
+    }
+
+    @Test
+    public void whenRowsAreOutOfOrderAcrossSplits_thenTheyAreMergedInTimestampOrder() throws IOException {
+        List<Integer> offsets = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            offsets.add(i);
+        }
+        Collections.shuffle(offsets);
+        StringBuilder contents = new StringBuilder("timestamp,symbol,price\n");
+        for (int offset : offsets) {
+            contents.append(1641009600000L + offset).append(",BTC,").append(offset).append(".25\n");
+        }
+        File csv = tempFolder.newFile("BTC.csv");
+        Files.writeString(csv.toPath(), contents, StandardCharsets.US_ASCII);
+
+        CryptoPriceColumns columns = mappedReader.readSorted(csv);
+        assertEquals(5_000, columns.size());
+        assertTrue(columns.isSortedByTimestamp());
+        for (int i = 0; i < columns.size(); i++) {
+            assertEquals(1641009600000L + i, columns.getEpochMilli(i));
+            assertEquals(i * 10_000_000_000L + 2_500_000_000L, columns.getScaledPrice(i));
+        }
+    }
+
+    @Test
+    public void whenFileHasOnlyAHeader_thenNoRowsAreReturned() throws IOException {
+        File csv = tempFolder.newFile("EMPTY.csv");
+        Files.writeString(csv.toPath(), "timestamp,symbol,price", StandardCharsets.US_ASCII);
+        assertEquals(0, mappedReader.readSorted(csv).size());
+    }
+
+    @Test(expected = IOException.class)
+    public void whenInvalidFileProvided_thenIOExceptionIsThrown() throws IOException {
+        mappedReader.readSorted(new File("not_a_valid_file.csv"));
+    }
+
+    @Test
+    public void whenFileIsTailed_thenTheMappedReaderStopsAtTheSameOffsetAsTheStreamingReader() throws IOException {
+        StringBuilder contents = new StringBuilder("timestamp,symbol,price\n");
+        for (int i = 0; i < 1_000; i++) {
+            contents.append(1641009600000L + i).append(",BTC,").append(i).append('\n');
+        }
+        contents.append("1641009700000,BTC,"); // Still being written.
+        File csv = tempFolder.newFile("BTC.csv");
+        Files.writeString(csv.toPath(), contents, StandardCharsets.US_ASCII);
+
+        long[] rows = new long[1];
+        long offset = mappedReader.tailCSV(csv, 0, chunk -> rows[0] += chunk.size());
+        assertEquals(1_000, rows[0]);
+        assertEquals(new CryptoPriceFileReader().tailCSV(csv, 0, chunk -> {}), offset);
+        assertEquals(offset, mappedReader.tailCSV(csv, offset, chunk -> rows[0] += chunk.size()));
+        assertEquals(1_000, rows[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenARowIsOfAnotherCrypto_thenIllegalArgumentExceptionIsThrown() throws IOException {
+        File csv = tempFolder.newFile("BTC.csv");
+        Files.writeString(csv.toPath(), "timestamp,symbol,price\n1641009600000,BTC,1\n1641013200000,ETH,2\n",
+                StandardCharsets.US_ASCII);
+        mappedReader.readSorted(csv);
+    }
+
+    @Test
+    public void whenACombinedFileIsReadBySymbol_thenEveryCryptoGetsItsPricesInOrderAndItsStats() throws IOException {
+        // Few distinct timestamps, so that ties between rows of the same crypto span different ranges of the file.
+        Random random = new Random(42);
+        List<String> symbols = List.of("BTC", "ETH", "DOGE");
+        Map<String, List<long[]>> expected = new LinkedHashMap<>();
+        StringBuilder contents = new StringBuilder("timestamp,symbol,price\n");
+        for (int i = 0; i < 3_000; i++) {
+            String symbol = symbols.get(random.nextInt(symbols.size()));
+            long timestamp = 1641009600000L + random.nextInt(100);
+            contents.append(timestamp).append(',').append(symbol).append(',').append(i).append('\n');
+            expected.computeIfAbsent(symbol, s -> new ArrayList<>()).add(new long[] {timestamp, i * 10_000_000_000L});
+        }
+        File csv = tempFolder.newFile("COMBINED.csv");
+        Files.writeString(csv.toPath(), contents, StandardCharsets.US_ASCII);
+
+        Map<String, MappedCryptoPriceFileReader.SymbolPrices> bySymbol = mappedReader.readBySymbol(csv);
+        assertEquals(expected.keySet(), bySymbol.keySet());
+        expected.forEach((symbol, rows) -> {
+            rows.sort(Comparator.comparingLong(row -> row[0])); // Stable, like the file order of ties should be.
+            CryptoPriceColumns prices = bySymbol.get(symbol).prices();
+            assertEquals(rows.size(), prices.size());
+            for (int i = 0; i < rows.size(); i++) {
+                assertEquals(rows.get(i)[0], prices.getEpochMilli(i));
+                assertEquals(rows.get(i)[1], prices.getScaledPrice(i));
+            }
+            long min = rows.stream().mapToLong(row -> row[1]).min().orElseThrow();
+            long max = rows.stream().mapToLong(row -> row[1]).max().orElseThrow();
+            assertEquals(new CryptoPriceStats(min, max, rows.get(0)[1], rows.get(rows.size() - 1)[1]),
+                    bySymbol.get(symbol).stats().toStats().orElseThrow());
+        });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenASymbolCannotBeATableName_thenIllegalArgumentExceptionIsThrown() throws IOException {
+        File csv = tempFolder.newFile("COMBINED.csv");
+        Files.writeString(csv.toPath(), "timestamp,symbol,price\n1641009600000,BTC; DROP TABLE BTC,1\n",
+                StandardCharsets.US_ASCII);
+        mappedReader.readBySymbol(csv);
+    }
+}
@@ -0,0 +1,39 @@
+package com.xm.cryptorecservice.unit.model;
+
+import static org.junit.Assert.assertEquals;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xm.cryptorecservice.model.crypto.CryptoPrice;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CryptoPriceUnitTests {
+
+    @Test
+    public void whenTheRowIsOfTheExpectedCrypto_thenItsTimestampAndPriceAreParsed() {
+        CryptoPrice price = CryptoPrice.fromCSVRow("1641009600000,BTC,46813.21".split(","), "BTC");
+        assertEquals(1641009600000L, price.getEpochMilli());
+        assertEquals(0, new BigDecimal("46813.21").compareTo(price.getPrice()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenTheRowIsOfAnotherCrypto_thenIllegalArgumentExceptionIsThrown() {
+        CryptoPrice.fromCSVRow("1641009600000,ETH,3715.32".split(","), "BTC");
+    }
+
+    @Test
+    public void whenAPriceIsRenderedAsJson_thenOnlyItsTimestampAndBigDecimalPriceAreWritten() {
+        JsonNode json = new ObjectMapper().valueToTree(new CryptoPrice(1641009600000L, 468132100000000L));
+        assertEquals(List.of("timestamp", "price"), json.properties().stream().map(Map.Entry::getKey).toList());
+        assertEquals(1641009600000L, json.get("timestamp").longValue());
+        assertEquals(0, new BigDecimal("46813.21").compareTo(json.get("price").decimalValue()));
+    }
+}
@@ -0,0 +1,81 @@
+package com.xm.cryptorecservice.unit.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.xm.cryptorecservice.model.crypto.CryptoPriceStats;
+import com.xm.cryptorecservice.model.crypto.NormalizedPriceRankIndex;
+import com.xm.cryptorecservice.util.SortOrder;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+@RunWith(MockitoJUnitRunner.class)
+public class NormalizedPriceRankIndexUnitTests {
+
+    private final NormalizedPriceRankIndex index = new NormalizedPriceRankIndex();
+
+    @Test
+    public void whenStatsAreAddedAndUpdated_thenOrdersAndRanksMatchAFullSort() {
+        Random random = new Random(42);
+        Map<String, CryptoPriceStats> expected = new HashMap<>();
+        for (int update = 0; update < 3_000; update++) {
+            String crypto = "C" + random.nextInt(500);
+            // Few distinct normalized prices, so that there are plenty of ties.
+            CryptoPriceStats stats = stats(1 + random.nextInt(4), 1 + random.nextInt(8));
+            index.put(crypto, stats);
+            expected.put(crypto, stats);
+            if (update % 250 == 0) {
+                assertMatchesFullSort(expected, random);
+            }
+        }
+        assertMatchesFullSort(expected, random);
+    }
+
+    @Test
+    public void whenNormalizedPricesAreTied_thenTiesShareARankAndAreListedByName() {
+        index.put("XRP", stats(1, 3));
+        index.put("ETH", stats(2, 4));
+        index.put("BTC", stats(2, 4));
+        index.put("LTC", stats(4, 6));
+        assertEquals(List.of(1, 2, 2, 4), List.of(index.rank("XRP").getAsInt(), index.rank("BTC").getAsInt(),
+                index.rank("ETH").getAsInt(), index.rank("LTC").getAsInt()));
+        assertEquals(List.of("LTC", "BTC"), names(index.first(2, SortOrder.ASC)));
+        assertEquals(List.of("XRP", "BTC", "ETH"), names(index.first(3, SortOrder.DESC)));
+        assertTrue(index.first(0, SortOrder.ASC).isEmpty());
+        assertTrue(index.rank("DOGE").isEmpty());
+    }
+
+    private void assertMatchesFullSort(Map<String, CryptoPriceStats> expected, Random random) {
+        Comparator<String> byNormalizedPrice =
+                (crypto, otherCrypto) -> expected.get(crypto).compareNormalizedPrice(expected.get(otherCrypto));
+        List<String> descending = new ArrayList<>(expected.keySet()), ascending = new ArrayList<>(expected.keySet());
+        descending.sort(byNormalizedPrice.reversed().thenComparing(Comparator.naturalOrder()));
+        ascending.sort(byNormalizedPrice.thenComparing(Comparator.naturalOrder()));
+        int limit = random.nextInt(expected.size() + 2);
+        assertEquals(expected.size(), index.size());
+        assertEquals(descending.subList(0, Math.min(limit, descending.size())), names(index.first(limit, SortOrder.DESC)));
+        assertEquals(ascending.subList(0, Math.min(limit, ascending.size())), names(index.first(limit, SortOrder.ASC)));
+        for (String crypto : expected.keySet()) {
+            long greater = expected.values().stream()
+                    .filter(stats -> stats.compareNormalizedPrice(expected.get(crypto)) > 0).count();
+            assertEquals(greater + 1, index.rank(crypto).getAsInt());
+        }
+    }
+
+    private static List<String> names(List<Map.Entry<String, CryptoPriceStats>> entries) {
+        return entries.stream().map(Map.Entry::getKey).toList();
+    }
+
+    private static CryptoPriceStats stats(long min, long max) {
+        return new CryptoPriceStats(min, min + max, min, max);
+    }
+}
@@ -0,0 +1,73 @@
+package com.xm.cryptorecservice.unit.model;
+
+import static com.xm.cryptorecservice.util.Constants.BIG_DECIMAL_SCALE;
+
+import static org.junit.Assert.assertEquals;
+
+import com.xm.cryptorecservice.model.crypto.ScaledPrices;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ScaledPricesUnitTests {
+
+    @Test
+    public void whenNormalizedPricesAreComputed_thenTheyMatchBigDecimalDivisionDigitForDigit() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            // From fractions of a cent up to the prices that take the BigDecimal fallback.
+            long min = 1 + (random.nextLong() >>> (1 + random.nextInt(62)));
+            long max = min + (random.nextLong() >>> (1 + random.nextInt(62))) % (Long.MAX_VALUE - min);
+            BigDecimal expected = BigDecimal.valueOf(max - min)
+                    .divide(BigDecimal.valueOf(min), BIG_DECIMAL_SCALE, RoundingMode.HALF_EVEN);
+            try {
+                assertEquals(expected, ScaledPrices.toBigDecimalWithFullScale(ScaledPrices.normalizedPrice(min, max)));
+            } catch (ArithmeticException exception) { // Only if the normalized price itself does not fit.
+                assertEquals(1, expected.unscaledValue().compareTo(BigDecimal.valueOf(Long.MAX_VALUE).toBigInteger()));
+            }
+        }
+    }
+
+    @Test
+    public void whenNormalizedPricesAreExactlyHalfway_thenTheyAreRoundedHalfEven() {
+        // (3 - 2) / 2 * 1e-10 = 0.5e-10 rounds down to 0, (5 - 2) / 2 * 1e-10 = 1.5e-10 rounds up to 2e-10.
+        long billion = 1_000_000_000L;
+        assertEquals(0L, ScaledPrices.normalizedPrice(2 * billion * 10, 2 * billion * 10 + 1));
+        assertEquals(2L, ScaledPrices.normalizedPrice(2 * billion * 10, 2 * billion * 10 + 3));
+    }
+
+    @Test
+    public void whenNormalizedPricesAreCompared_thenTheOrderMatchesTheExactRatios() {
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            long min = 1 + (random.nextLong() >>> 1), max = min + (random.nextLong() >>> 1) % (Long.MAX_VALUE - min);
+            long otherMin = 1 + (random.nextLong() >>> 1);
+            long otherMax = otherMin + (random.nextLong() >>> 1) % (Long.MAX_VALUE - otherMin);
+            int expected = BigDecimal.valueOf(max).multiply(BigDecimal.valueOf(otherMin))
+                    .compareTo(BigDecimal.valueOf(otherMax).multiply(BigDecimal.valueOf(min)));
+            assertEquals(expected, Integer.signum(ScaledPrices.compareNormalizedPrices(min, max, otherMin, otherMax)));
+        }
+        assertEquals(0, ScaledPrices.compareNormalizedPrices(2, 3, 4, 6));
+    }
+
+    @Test
+    public void whenPricesAreConverted_thenTheyRoundTripAndRenderWithoutTrailingZeros() {
+        assertEquals(468132100000000L, ScaledPrices.of(new BigDecimal("46813.21")));
+        assertEquals(2L, ScaledPrices.of(new BigDecimal("0.00000000015"))); // Half-up, like DECIMAL(20, 10).
+        assertEquals("46813.21", ScaledPrices.toBigDecimal(468132100000000L).toString());
+        assertEquals("40", ScaledPrices.toBigDecimal(ScaledPrices.of(new BigDecimal("4E+1"))).toString());
+        assertEquals("0.0000000001", ScaledPrices.toBigDecimal(1L).toPlainString());
+        assertEquals(new BigDecimal("1.0000000000"), ScaledPrices.toBigDecimalWithFullScale(ScaledPrices.ONE));
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void whenAPriceDoesNotFitInALong_thenArithmeticExceptionIsThrown() {
+        ScaledPrices.of(new BigDecimal("1000000000000"));
+    }
+}
@@ -0,0 +1,62 @@
+package com.xm.cryptorecservice.unit.persistence;
+
+import static org.junit.Assert.assertEquals;
+
+import com.xm.cryptorecservice.persistence.AdaptiveBatchSize;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AdaptiveBatchSizeUnitTests {
+
+    private static final int SAMPLES_PER_STEP = 8;
+
+    private final AdaptiveBatchSize statementRows = new AdaptiveBatchSize(16, 128, 1024);
+
+    @Test
+    public void whenThroughputKeepsImproving_thenStatementsGrowUpToTheMaximum() {
+        long nanos = 1_000_000;
+        for (int step = 0; step < 5; step++) {
+            recordStep(statementRows.get(), nanos);
+            nanos /= 2; // Twice the rows per second every time.
+        }
+        assertEquals(1024, statementRows.get());
+    }
+
+    @Test
+    public void whenThroughputDrops_thenTheDirectionIsReversed() {
+        recordStep(128, 1_000_000); // 128 -> 256
+        recordStep(256, 500_000); // Faster: 256 -> 512
+        recordStep(512, 4_000_000); // Slower: back to 256
+        assertEquals(256, statementRows.get());
+    }
+
+    @Test
+    public void whenAStatementFails_thenStatementsShrinkDownToTheMinimum() {
+        for (int i = 0; i < 10; i++) {
+            statementRows.shrink();
+        }
+        assertEquals(16, statementRows.get());
+    }
+
+    @Test
+    public void whenBatchesOfAnotherSizeAreRecorded_thenTheyAreIgnored() {
+        for (int i = 0; i < 2 * SAMPLES_PER_STEP; i++) {
+            statementRows.record(64, 64, 1);
+        }
+        assertEquals(128, statementRows.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenTheBoundsAreInconsistent_thenItCannotBeConstructed() {
+        new AdaptiveBatchSize(128, 16, 1024);
+    }
+
+    private void recordStep(int rows, long nanosPerBatch) {
+        for (int i = 0; i < SAMPLES_PER_STEP; i++) {
+            statementRows.record(rows, rows, nanosPerBatch);
+        }
+    }
+}
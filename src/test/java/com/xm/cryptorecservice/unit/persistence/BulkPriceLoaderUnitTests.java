@@ -0,0 +1,111 @@
+package com.xm.cryptorecservice.unit.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+
+import com.xm.cryptorecservice.model.crypto.CryptoPriceChunk;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceColumns;
+import com.xm.cryptorecservice.model.crypto.PriceSeries;
+import com.xm.cryptorecservice.persistence.BulkPriceLoader;
+import com.xm.cryptorecservice.persistence.DatabaseConnection;
+import com.xm.cryptorecservice.util.concurrent.WorkerMode;
+import com.xm.cryptorecservice.util.concurrent.WorkerPools;
+import com.xm.cryptorecservice.util.metrics.CryptoMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.BitSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BulkPriceLoaderUnitTests {
+
+    private static final int MIN_ROWS_PER_SLICE = 16 * 8192;
+
+    @Mock
+    private DatabaseConnection dbConnection;
+
+    private final WorkerPools workerPools = new WorkerPools(4, 100, 5, WorkerMode.PLATFORM, 5, 5, 4);
+    private final BulkPriceLoader bulkLoader = new BulkPriceLoader(workerPools,
+            new CryptoMetrics(new SimpleMeterRegistry()), 4, 1_000);
+    private final BitSet inserted = new BitSet();
+    private final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+    @Before
+    public void setUp() {
+        lenient().doAnswer(invocationOnMock -> {
+            CryptoPriceChunk chunk = invocationOnMock.getArgument(1);
+            long firstRow = invocationOnMock.getArgument(2);
+            for (int i = 0; i < chunk.size(); i++) {
+                // Every row must be inserted at its own position: in these series, that is its timestamp.
+                assertEquals(firstRow + i, chunk.getEpochMilli(i));
+                synchronized (inserted) {
+                    assertFalse(inserted.get((int) firstRow + i));
+                    inserted.set((int) firstRow + i);
+                }
+            }
+            threads.add(Thread.currentThread().getName());
+            return null;
+        }).when(dbConnection).insertCryptoPrices(eq("BTC"), any(CryptoPriceChunk.class), anyLong());
+    }
+
+    @After
+    public void tearDown() {
+        workerPools.shutdown();
+    }
+
+    @Test
+    public void whenTheSeriesIsVeryLarge_thenItIsSplitAcrossConnectionsAndEveryRowIsInsertedOnce() {
+        int rows = 4 * MIN_ROWS_PER_SLICE + 3;
+        bulkLoader.load(dbConnection, "BTC", series(rows));
+        assertEquals(rows, inserted.cardinality());
+        assertEquals(4, threads.size());
+        assertTrue(threads.stream().allMatch(thread -> thread.startsWith("bulk_load-worker-")));
+    }
+
+    @Test
+    public void whenTheSeriesIsSmall_thenItIsInsertedOverASingleConnection() {
+        bulkLoader.load(dbConnection, "BTC", series(MIN_ROWS_PER_SLICE + 1));
+        assertEquals(MIN_ROWS_PER_SLICE + 1, inserted.cardinality());
+        assertEquals(Set.of(Thread.currentThread().getName()), threads);
+    }
+
+    @Test(expected = DataIntegrityViolationException.class)
+    public void whenASliceFails_thenTheLoadFails() {
+        doThrow(new DataIntegrityViolationException("Duplicate entry")).when(dbConnection)
+                .insertCryptoPrices(eq("BTC"), any(CryptoPriceChunk.class), eq((long) MIN_ROWS_PER_SLICE));
+        bulkLoader.load(dbConnection, "BTC", series(2 * MIN_ROWS_PER_SLICE));
+    }
+
+    @Test
+    public void whenAFileIsBelowTheThreshold_thenItIsNotLoadedInParallel() {
+        assertFalse(bulkLoader.loadsInParallel(999));
+        assertTrue(bulkLoader.loadsInParallel(1_000));
+        assertFalse(new BulkPriceLoader(workerPools, new CryptoMetrics(new SimpleMeterRegistry()), 1, 1_000)
+                .loadsInParallel(1_000_000));
+    }
+
+    private static PriceSeries series(int rows) {
+        CryptoPriceColumns columns = new CryptoPriceColumns(rows);
+        for (int i = 0; i < rows; i++) {
+            columns.add(i, 1_0000000000L);
+        }
+        return columns.toSeries();
+    }
+}
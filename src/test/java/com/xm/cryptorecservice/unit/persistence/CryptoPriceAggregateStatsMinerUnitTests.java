@@ -8,6 +8,9 @@ import com.xm.cryptorecservice.model.crypto.CryptoPriceStats;
 import com.xm.cryptorecservice.persistence.CryptoPriceAggregateStatsMiner;
 import com.xm.cryptorecservice.persistence.DatabaseConnection;
 import com.xm.cryptorecservice.persistence.InMemoryAggregateStats;
+import com.xm.cryptorecservice.util.metrics.CryptoMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -35,6 +38,8 @@ public class CryptoPriceAggregateStatsMinerUnitTests {
             new CryptoPriceStats(
                     BigDecimal.ONE, BigDecimal.TEN, new BigDecimal("2.0"), new BigDecimal("6.0"));
 
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
     private CountDownLatch latch;
 
     @Before
@@ -48,15 +53,16 @@ public class CryptoPriceAggregateStatsMinerUnitTests {
     public void whenSomeCryptoPriceStatsExistInOnDiskDB_thenLatchIsCountedDown() {
         when(dbConn.getCryptoPriceStats(CRYPTO_NAME)).thenReturn(Optional.of(STATS));
         doNothing().when(inMemDb).add(CRYPTO_NAME, STATS);
-        miner = new CryptoPriceAggregateStatsMiner(dbConn, inMemDb, CRYPTO_NAME, latch);
+        miner = new CryptoPriceAggregateStatsMiner(dbConn, inMemDb, CRYPTO_NAME, new CryptoMetrics(registry), latch);
         miner.run();
         assertEquals( 0, latch.getCount());
+        assertEquals(1, registry.get(CryptoMetrics.STATS_MINING).tag(CryptoMetrics.CRYPTO_TAG, CRYPTO_NAME).timer().count());
     }
 
     @Test
     public void whenNoCryptoPriceStatsExistInOnDiskDB_thenLatchIsStillCountedDown(){
         when(dbConn.getCryptoPriceStats(CRYPTO_NAME)).thenReturn(Optional.empty());
-        miner = new CryptoPriceAggregateStatsMiner(dbConn, inMemDb, CRYPTO_NAME, latch);
+        miner = new CryptoPriceAggregateStatsMiner(dbConn, inMemDb, CRYPTO_NAME, new CryptoMetrics(registry), latch);
         miner.run();
         assertEquals(0, latch.getCount());
     }
@@ -1,17 +1,31 @@
 package com.xm.cryptorecservice.unit.persistence;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.xm.cryptorecservice.io.CryptoPriceFileReader;
-import com.xm.cryptorecservice.model.crypto.CryptoPrice;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceChunk;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceStats;
+import com.xm.cryptorecservice.model.crypto.PriceSeries;
+import com.xm.cryptorecservice.persistence.BulkPriceLoader;
 import com.xm.cryptorecservice.persistence.CryptoPricePersister;
 import com.xm.cryptorecservice.persistence.DatabaseConnection;
+import com.xm.cryptorecservice.persistence.InMemoryAggregateStats;
+import com.xm.cryptorecservice.persistence.InMemoryPriceSeriesStore;
+import com.xm.cryptorecservice.persistence.IngestionCheckpoints;
+import com.xm.cryptorecservice.persistence.IngestionManifest;
+import com.xm.cryptorecservice.util.metrics.CryptoMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
@@ -19,14 +33,20 @@ import org.mockito.junit.MockitoJUnitRunner;
 
 import java.io.File;
 import java.io.IOException;
-import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.sql.Timestamp;
-import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
 
 @RunWith(MockitoJUnitRunner.class)
 public class CryptoPricePersisterUnitTests {
     
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
     @InjectMocks
     private CryptoPricePersister persister;
     
@@ -39,23 +59,47 @@ public class CryptoPricePersisterUnitTests {
     @Mock
     private CryptoPriceFileReader fileReader;
 
+    private InMemoryPriceSeriesStore seriesStore;
+
+    private InMemoryAggregateStats inMemoryDb;
+
+    @Mock
+    private IngestionCheckpoints checkpoints;
+
+    @Mock
+    private IngestionManifest manifest;
+
+    @Mock
+    private BulkPriceLoader bulkLoader;
+
+    private SimpleMeterRegistry registry;
+
     private CountDownLatch latch;
 
     @Before
     public void setUp(){
         csv = new File("./task/prices/ETH.csv");
         latch = new CountDownLatch(1);
-        persister = new CryptoPricePersister(dbConn, csv, fileReader, latch);
+        seriesStore = new InMemoryPriceSeriesStore();
+        inMemoryDb = new InMemoryAggregateStats(new ObjectMapper());
+        registry = new SimpleMeterRegistry();
+        persister = new CryptoPricePersister(dbConn, csv, fileReader, seriesStore, inMemoryDb, checkpoints,
+                manifest, bulkLoader, new CryptoMetrics(registry), latch);
     }
     @Test
     public void whenReaderCompletesSuccessfully_thenLatchIsCountedDown(){
         try {
             doNothing().when(dbConn).createCryptoPriceTable(anyString());
-            doNothing().when(dbConn).insertAllCryptoPrices(anyString(), anyList());
-            when(fileReader.readCSV(csv)).thenReturn(List.of(
-                    new CryptoPrice(Timestamp.valueOf("2021-09-12 00:10:20"), new BigDecimal("201.0")),
-                    new CryptoPrice(Timestamp.valueOf("2021-09-12 00:10:21"), new BigDecimal("201.1"))
-            ));
+            doNothing().when(dbConn).truncateCryptoPriceTable(anyString());
+            doNothing().when(dbConn).insertCryptoPrices(anyString(), any(CryptoPriceChunk.class));
+            when(fileReader.tailCSV(eq(csv), eq(0L), any())).thenAnswer(invocationOnMock -> {
+                Consumer<CryptoPriceChunk> sink = invocationOnMock.getArgument(2);
+                CryptoPriceChunk chunk = new CryptoPriceChunk(2);
+                chunk.add(Timestamp.valueOf("2021-09-12 00:10:20").getTime(), 2010000000000L);
+                chunk.add(Timestamp.valueOf("2021-09-12 00:10:21").getTime(), 2011000000000L);
+                sink.accept(chunk);
+                return csv.length();
+            });
             persister.run();
             assertEquals(0, latch.getCount());
         } catch (IOException e) {
@@ -63,11 +107,167 @@ public class CryptoPricePersisterUnitTests {
         }
     }
 
+    @Test
+    public void whenReaderStreamsChunks_thenTableIsTruncatedOnce_andEveryChunkIsInserted() throws IOException {
+        when(fileReader.tailCSV(eq(csv), eq(0L), any())).thenAnswer(invocationOnMock -> {
+            Consumer<CryptoPriceChunk> sink = invocationOnMock.getArgument(2);
+            CryptoPriceChunk chunk = new CryptoPriceChunk(1);
+            for (int i = 0; i < 3; i++) {
+                chunk.add(i, i);
+                sink.accept(chunk);
+                chunk.clear();
+            }
+            return csv.length();
+        });
+        persister.run();
+        verify(dbConn).truncateCryptoPriceTable("ETH");
+        verify(dbConn, times(3)).insertCryptoPrices(eq("ETH"), any(CryptoPriceChunk.class));
+        verify(dbConn, never()).insertAllCryptoPrices(anyString(), anyList());
+        assertEquals(3, seriesStore.get("ETH").orElseThrow().size());
+        assertEquals(0, latch.getCount());
+    }
+
+    @Test
+    public void whenReaderStreamsChunks_thenTheStatsOfTheFileArePublishedWithoutQueryingTheDB() throws IOException {
+        when(fileReader.tailCSV(eq(csv), eq(0L), any())).thenAnswer(invocationOnMock -> {
+            Consumer<CryptoPriceChunk> sink = invocationOnMock.getArgument(2);
+            CryptoPriceChunk chunk = new CryptoPriceChunk(3);
+            chunk.add(20, 5);
+            chunk.add(10, 7); // Out of order: the first price.
+            chunk.add(30, 3);
+            sink.accept(chunk);
+            chunk.clear();
+            chunk.add(30, 9); // Same timestamp as the latest row so far, but inserted later: the last price.
+            chunk.add(10, 1); // Same timestamp as the earliest row so far, but inserted later: not the first price.
+            sink.accept(chunk);
+            return csv.length();
+        });
+        persister.run();
+        assertEquals(new CryptoPriceStats(1, 9, 7, 9), inMemoryDb.get("ETH"));
+        verify(dbConn, never()).getCryptoPriceStats(anyString());
+    }
+
+    @Test
+    public void whenTheFileHasNoRows_thenNoStatsArePublished() throws IOException {
+        when(fileReader.tailCSV(eq(csv), eq(0L), any())).thenReturn(csv.length());
+        persister.run();
+        assertNull(inMemoryDb.get("ETH"));
+    }
+
+    @Test
+    public void whenTheManifestShowsTheFileIsUnchanged_thenItIsOnlyLoadedToMemory() throws IOException {
+        when(manifest.get("ETH")).thenReturn(Optional.of(
+                IngestionManifest.describe(csv, csv.length(), csv.lastModified(), 2)));
+        when(fileReader.tailCSV(eq(csv), eq(0L), any())).thenAnswer(invocationOnMock -> {
+            Consumer<CryptoPriceChunk> sink = invocationOnMock.getArgument(2);
+            CryptoPriceChunk chunk = new CryptoPriceChunk(2);
+            chunk.add(10, 1);
+            chunk.add(20, 2);
+            sink.accept(chunk);
+            return csv.length();
+        });
+        persister.run();
+        verify(dbConn, never()).truncateCryptoPriceTable(anyString());
+        verify(dbConn, never()).insertCryptoPrices(anyString(), any(CryptoPriceChunk.class));
+        verify(manifest, never()).put(anyString(), any());
+        assertEquals(2, seriesStore.get("ETH").orElseThrow().size());
+        assertEquals(new CryptoPriceStats(1, 2, 1, 2), inMemoryDb.get("ETH"));
+    }
+
+    @Test
+    public void whenTheManifestShowsTheFileWasAppendedTo_thenOnlyTheAppendedLinesAreInserted() throws IOException {
+        File appended = tempFolder.newFile("ETH.csv");
+        Files.writeString(appended.toPath(), "timestamp,symbol,price\n10,ETH,1\n", StandardCharsets.US_ASCII);
+        long ingestedSize = appended.length();
+        when(manifest.get("ETH")).thenReturn(Optional.of(
+                IngestionManifest.describe(appended, ingestedSize, appended.lastModified(), 1)));
+        Files.writeString(appended.toPath(), "20,ETH,2\n", StandardCharsets.US_ASCII, StandardOpenOption.APPEND);
+        when(fileReader.tailCSV(eq(appended), eq(0L), any())).thenAnswer(invocationOnMock -> {
+            Consumer<CryptoPriceChunk> sink = invocationOnMock.getArgument(2);
+            CryptoPriceChunk chunk = new CryptoPriceChunk(2);
+            chunk.add(10, 1);
+            chunk.add(20, 2);
+            sink.accept(chunk);
+            return appended.length();
+        });
+        when(fileReader.tailCSV(eq(appended), eq(ingestedSize), any())).thenAnswer(invocationOnMock -> {
+            Consumer<CryptoPriceChunk> sink = invocationOnMock.getArgument(2);
+            CryptoPriceChunk chunk = new CryptoPriceChunk(1);
+            chunk.add(20, 2);
+            sink.accept(chunk);
+            return appended.length();
+        });
+        new CryptoPricePersister(dbConn, appended, fileReader, seriesStore, inMemoryDb, checkpoints, manifest,
+                bulkLoader, new CryptoMetrics(registry), latch).run();
+        verify(dbConn, never()).truncateCryptoPriceTable(anyString());
+        verify(dbConn, times(1)).insertCryptoPrices(eq("ETH"), any(CryptoPriceChunk.class));
+        verify(manifest).put("ETH", IngestionManifest.describe(appended, appended.length(), appended.lastModified(), 2));
+        assertEquals(2, seriesStore.get("ETH").orElseThrow().size());
+    }
+
+    @Test
+    public void whenTheLastLineHasNoNewline_thenItIsLeftOutOfTheTableTheManifestAndMemoryAlike() throws IOException {
+        File appended = tempFolder.newFile("ETH.csv");
+        Files.writeString(appended.toPath(), "timestamp,symbol,price\n10,ETH,1\n", StandardCharsets.US_ASCII);
+        long ingestedSize = appended.length();
+        when(manifest.get("ETH")).thenReturn(Optional.of(
+                IngestionManifest.describe(appended, ingestedSize, appended.lastModified(), 1)));
+        Files.writeString(appended.toPath(), "20,ETH,2\n", StandardCharsets.US_ASCII, StandardOpenOption.APPEND);
+        long completeSize = appended.length();
+        Files.writeString(appended.toPath(), "30,ETH,3", StandardCharsets.US_ASCII, StandardOpenOption.APPEND);
+        long[] inserted = new long[1];
+        doAnswer(invocationOnMock -> inserted[0] += invocationOnMock.getArgument(1, CryptoPriceChunk.class).size())
+                .when(dbConn).insertCryptoPrices(eq("ETH"), any(CryptoPriceChunk.class));
+        new CryptoPricePersister(dbConn, appended, new CryptoPriceFileReader(), seriesStore, inMemoryDb, checkpoints,
+                manifest, bulkLoader, new CryptoMetrics(registry), latch).run();
+        assertEquals(1, inserted[0]);
+        verify(manifest).put("ETH", IngestionManifest.describe(appended, completeSize, appended.lastModified(), 2));
+        assertEquals(2, seriesStore.get("ETH").orElseThrow().size());
+        assertEquals(new CryptoPriceStats(1_0000000000L, 2_0000000000L, 1_0000000000L, 2_0000000000L),
+                inMemoryDb.get("ETH"));
+    }
+
+    @Test
+    public void whenTheTableKeepsOnlyTheLastPriceOfEveryTimestamp_thenSoDoMemoryAndTheManifest() throws IOException {
+        File repeated = tempFolder.newFile("ETH.csv");
+        Files.writeString(repeated.toPath(), "timestamp,symbol,price\n10,ETH,5\n20,ETH,1\n10,ETH,7\n20,ETH,9\n",
+                StandardCharsets.US_ASCII);
+        when(dbConn.keepsLastPriceOfEveryTimestamp()).thenReturn(true);
+        new CryptoPricePersister(dbConn, repeated, new CryptoPriceFileReader(), seriesStore, inMemoryDb, checkpoints,
+                manifest, bulkLoader, new CryptoMetrics(registry), latch).run();
+        PriceSeries prices = seriesStore.get("ETH").orElseThrow();
+        assertEquals(2, prices.size());
+        assertEquals(7_0000000000L, prices.getScaledPrice(0));
+        assertEquals(9_0000000000L, prices.getScaledPrice(1));
+        assertEquals(new CryptoPriceStats(7_0000000000L, 9_0000000000L, 7_0000000000L, 9_0000000000L),
+                inMemoryDb.get("ETH"));
+        verify(manifest).put("ETH", IngestionManifest.describe(repeated, repeated.length(), repeated.lastModified(), 2));
+    }
+
+    @Test
+    public void whenTheFileIsLargeEnoughToLoadInParallel_thenItIsBulkLoadedOnceReadInFull() throws IOException {
+        when(bulkLoader.loadsInParallel(csv.length())).thenReturn(true);
+        when(fileReader.tailCSV(eq(csv), eq(0L), any())).thenAnswer(invocationOnMock -> {
+            Consumer<CryptoPriceChunk> sink = invocationOnMock.getArgument(2);
+            CryptoPriceChunk chunk = new CryptoPriceChunk(2);
+            chunk.add(20, 2);
+            chunk.add(10, 1);
+            sink.accept(chunk);
+            return csv.length();
+        });
+        persister.run();
+        verify(dbConn).truncateCryptoPriceTable("ETH");
+        verify(dbConn, never()).insertCryptoPrices(anyString(), any(CryptoPriceChunk.class));
+        PriceSeries published = seriesStore.get("ETH").orElseThrow();
+        verify(bulkLoader).load(dbConn, "ETH", published); // In timestamp order, and the very series we publish.
+        assertEquals(10, published.getEpochMilli(0));
+    }
+
     @Test(expected = RuntimeException.class) // Exceptions is changed inside run().
     public void whenReaderThrowsIOException_thenLatchIsStillCountedDown() throws IOException {
         try {
             doNothing().when(dbConn).createCryptoPriceTable(anyString());
-            doThrow(new IOException("IO Error")).when(fileReader).readCSV(csv);
+            doThrow(new IOException("IO Error")).when(fileReader).tailCSV(eq(csv), eq(0L), any());
             persister.run();
         } finally {
             assertEquals(0, latch.getCount());
@@ -76,4 +276,24 @@ public class CryptoPricePersisterUnitTests {
 
 
     
+
+    @Test
+    public void whenIncrementalIngestionIsEnabled_thenTheFileIsTailedAndItsCheckpointIsRecorded() throws IOException {
+        when(checkpoints.isEnabled()).thenReturn(true);
+        when(fileReader.tailCSV(eq(csv), eq(0L), any())).thenAnswer(invocationOnMock -> {
+            Consumer<CryptoPriceChunk> sink = invocationOnMock.getArgument(2);
+            CryptoPriceChunk chunk = new CryptoPriceChunk(2);
+            chunk.add(10, 1);
+            chunk.add(20, 2);
+            sink.accept(chunk);
+            return 42L;
+        });
+        persister.run();
+        verify(fileReader, never()).streamCSV(any(), any());
+        verify(checkpoints).put("ETH", new IngestionCheckpoints.Checkpoint(csv, 42L, 20L));
+        assertEquals(2, seriesStore.get("ETH").orElseThrow().size());
+        assertEquals(2, registry.get(CryptoMetrics.INGESTED_ROWS).tag(CryptoMetrics.CRYPTO_TAG, "ETH").counter().count(), 0);
+        assertEquals(42, registry.get(CryptoMetrics.INGESTED_BYTES).tag(CryptoMetrics.CRYPTO_TAG, "ETH").counter().count(), 0);
+        assertEquals(1, registry.get(CryptoMetrics.INGESTION_ROWS_PER_SECOND).summary().count());
+    }
 }
@@ -0,0 +1,192 @@
+package com.xm.cryptorecservice.unit.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.xm.cryptorecservice.model.crypto.CryptoPriceChunk;
+import com.xm.cryptorecservice.persistence.AdaptiveBatchSize;
+import com.xm.cryptorecservice.persistence.DatabaseConnectionImpl;
+import com.xm.cryptorecservice.util.metrics.CryptoMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.stream.LongStream;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DatabaseConnectionImplUnitTests {
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private DatabaseConnectionImpl dbConnection;
+
+    @Before
+    public void setUp() {
+        // An in-memory H2 database in MySQL mode, with the price table schema of DatabaseConnectionImpl.
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:prices;MODE=MySQL", true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE BTC (id BIGINT NOT NULL AUTO_INCREMENT, timestamp TIMESTAMP NOT NULL, "
+                + "price DECIMAL(20, 10) NOT NULL, PRIMARY KEY (id))");
+        // Statements of 16 rows, so that chunks need a batch of them and a shorter one for the rest.
+        dbConnection = new DatabaseConnectionImpl(jdbcTemplate, new CryptoMetrics(new SimpleMeterRegistry()),
+                new AdaptiveBatchSize(16, 16, 16));
+    }
+
+    @After
+    public void tearDown() {
+        dataSource.destroy();
+    }
+
+    @Test
+    public void whenTablesAreCreatedTwice_thenEachIsIndexedOnTimestampOnce() {
+        for (String crypto : List.of("eth", "xrp", "eth", "xrp")) {
+            dbConnection.createCryptoPriceTable(crypto);
+        }
+        assertEquals(List.of("ETH_TIMESTAMP_IDX"), timestampIndexesOf("ETH"));
+        assertEquals(List.of("XRP_TIMESTAMP_IDX"), timestampIndexesOf("XRP"));
+    }
+
+    @Test
+    public void whenATableIsIndexedOnTimestampUnderTheOldName_thenNoOtherIndexIsAdded() {
+        jdbcTemplate.execute("CREATE INDEX timestamp_idx ON BTC (timestamp)");
+        dbConnection.createCryptoPriceTable("BTC");
+        assertEquals(List.of("TIMESTAMP_IDX"), timestampIndexesOf("BTC"));
+    }
+
+    @Test
+    public void whenATableWithoutTheTimestampIndexIsCreated_thenTheIndexIsAdded() {
+        dbConnection.createCryptoPriceTable("BTC");
+        assertEquals(List.of("BTC_TIMESTAMP_IDX"), timestampIndexesOf("BTC"));
+    }
+
+    @Test
+    public void whenAChunkIsInserted_thenAllOfItsRowsAreInsertedInOrder() {
+        dbConnection.insertCryptoPrices("BTC", chunk(0, 100));
+        dbConnection.insertCryptoPrices("BTC", chunk(100, 5));
+        assertEquals(LongStream.range(0, 105).boxed().toList(), timestampsById());
+        assertEquals(2_5000000000L, jdbcTemplate.queryForObject("SELECT price FROM BTC WHERE id = 1",
+                BigDecimal.class).movePointRight(10).longValueExact());
+    }
+
+    @Test
+    public void whenChunksAreInsertedAtTheirRowsOutOfOrder_thenTheIdsStillFollowTheTimestamps() {
+        dbConnection.insertCryptoPrices("BTC", chunk(50, 50), 50);
+        dbConnection.insertCryptoPrices("BTC", chunk(0, 50), 0);
+        assertEquals(LongStream.range(0, 100).boxed().toList(), timestampsById());
+    }
+
+    @Test
+    public void whenStatementsAreTooLarge_thenTheRestOfTheRowsAreRetriedInSmallerOnes() {
+        AdaptiveBatchSize statementRows = new AdaptiveBatchSize(4, 64, 64);
+        new DatabaseConnectionImpl(new PacketLimitedJdbcTemplate(dataSource, 10),
+                new CryptoMetrics(new SimpleMeterRegistry()), statementRows).insertCryptoPrices("BTC", chunk(0, 100));
+        // Every row made it in exactly once, in order, and the statements shrank on the way.
+        assertEquals(LongStream.range(0, 100).boxed().toList(), timestampsById());
+        assertEquals(8, statementRows.get());
+    }
+
+    @Test(expected = DataAccessException.class)
+    public void whenEvenTheSmallestStatementsFail_thenTheInsertFails() {
+        new DatabaseConnectionImpl(new PacketLimitedJdbcTemplate(dataSource, 2),
+                new CryptoMetrics(new SimpleMeterRegistry()), new AdaptiveBatchSize(4, 64, 64))
+                .insertCryptoPrices("BTC", chunk(0, 100));
+    }
+
+    @Test
+    public void whenAStatementFailsForAnythingButItsSize_thenTheInsertFailsAtOnceWithoutShrinkingStatements() {
+        AdaptiveBatchSize statementRows = new AdaptiveBatchSize(4, 64, 64);
+        ConstraintViolatingJdbcTemplate violating = new ConstraintViolatingJdbcTemplate(dataSource);
+        try {
+            new DatabaseConnectionImpl(violating, new CryptoMetrics(new SimpleMeterRegistry()), statementRows)
+                    .insertCryptoPrices("BTC", chunk(0, 100));
+            fail("Expected a DuplicateKeyException.");
+        } catch (DuplicateKeyException exception) {
+            assertEquals(1, violating.statements);
+            assertEquals(64, statementRows.get());
+            assertEquals(List.of(), timestampsById());
+        }
+    }
+
+    private List<Long> timestampsById() {
+        return jdbcTemplate.queryForList("SELECT timestamp FROM BTC ORDER BY id", Timestamp.class).stream()
+                .map(Timestamp::getTime).toList();
+    }
+
+    private List<String> timestampIndexesOf(String table) {
+        return jdbcTemplate.queryForList("SELECT INDEX_NAME FROM INFORMATION_SCHEMA.INDEX_COLUMNS WHERE TABLE_NAME = ? "
+                + "AND COLUMN_NAME = 'TIMESTAMP'", String.class, table);
+    }
+
+    private static CryptoPriceChunk chunk(long firstEpochMilli, int rows) {
+        CryptoPriceChunk chunk = new CryptoPriceChunk(rows);
+        for (int i = 0; i < rows; i++) {
+            chunk.add(firstEpochMilli + i, 2_5000000000L);
+        }
+        return chunk;
+    }
+
+    /** Fails its first statement with a constraint violation, and counts the statements it is asked to run. */
+    private static final class ConstraintViolatingJdbcTemplate extends JdbcTemplate {
+
+        private int statements;
+
+        private ConstraintViolatingJdbcTemplate(SingleConnectionDataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public <T> T execute(String sql, PreparedStatementCallback<T> action) {
+            if (statements++ == 0) {
+                throw new DuplicateKeyException("Duplicate entry '1' for key 'PRIMARY'");
+            }
+            return super.execute(sql, action);
+        }
+    }
+
+    /** Fails statements of more than {@code maxRows} rows, like MySQL does those over its max_allowed_packet. */
+    private static final class PacketLimitedJdbcTemplate extends JdbcTemplate {
+
+        private final int maxRows;
+
+        private PacketLimitedJdbcTemplate(SingleConnectionDataSource dataSource, int maxRows) {
+            super(dataSource);
+            this.maxRows = maxRows;
+        }
+
+        @Override
+        public <T> T execute(String sql, PreparedStatementCallback<T> action) {
+            checkPacket(sql);
+            return super.execute(sql, action);
+        }
+
+        @Override
+        public int update(String sql, PreparedStatementSetter pss) {
+            checkPacket(sql);
+            return super.update(sql, pss);
+        }
+
+        private void checkPacket(String sql) {
+            if (sql.chars().filter(c -> c == '?').count() / 2 > maxRows) {
+                throw new TransientDataAccessResourceException("Packet for query is too large", new SQLException(
+                        "Packet for query is too large. You can change this value on the server by setting the "
+                                + "'max_allowed_packet' variable.", "S1000"));
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.xm.cryptorecservice.unit.persistence;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceStats;
+import com.xm.cryptorecservice.persistence.InMemoryAggregateStats;
+import com.xm.cryptorecservice.persistence.StatsSnapshot;
+import com.xm.cryptorecservice.util.SortOrder;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@RunWith(MockitoJUnitRunner.class)
+public class InMemoryAggregateStatsUnitTests {
+
+    private final InMemoryAggregateStats inMemoryDb = new InMemoryAggregateStats(new ObjectMapper());
+
+    @Test
+    public void whenTheStoreIsNotModified_thenTheSameSnapshotIsServed() {
+        inMemoryDb.add("BTC", stats("1", "2"));
+        StatsSnapshot first = inMemoryDb.snapshot();
+        assertSame(first, inMemoryDb.snapshot());
+        assertSame(first.getStats(), inMemoryDb.copyOfStats());
+        assertSame(first.getSortedByNormalizedPrice(SortOrder.DESC),
+                inMemoryDb.cryptosSortedByNormalizedPriceDescending(SortOrder.DESC));
+    }
+
+    @Test
+    public void whenTheStoreIsModified_thenANewSnapshotWithANewETagIsBuilt() {
+        inMemoryDb.add("BTC", stats("1", "2"));
+        StatsSnapshot first = inMemoryDb.snapshot();
+        inMemoryDb.add("ETH", stats("1", "3"));
+        StatsSnapshot second = inMemoryDb.snapshot();
+        assertNotSame(first, second);
+        assertEquals(first.getVersion() + 1, second.getVersion());
+        assertEquals(List.of("BTC", "ETH"), List.copyOf(second.getStats().keySet()));
+        assertNotEquals(first.getStatsPayload().eTag(), second.getStatsPayload().eTag());
+        assertEquals(StatsSnapshot.of(0, second.getStats(), new ObjectMapper()).getStatsPayload().eTag(),
+                second.getStatsPayload().eTag());
+    }
+
+    @Test
+    public void whenTheStoreIsGivenAConfiguredObjectMapper_thenThePayloadsAreSerializedWithIt() throws Exception {
+        ObjectMapper indenting = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        InMemoryAggregateStats store = new InMemoryAggregateStats(indenting);
+        store.add("BTC", stats("1", "2"));
+        StatsSnapshot snapshot = store.snapshot();
+        assertArrayEquals(indenting.writeValueAsBytes(snapshot.getStats()), snapshot.getStatsPayload().json());
+        assertArrayEquals(indenting.writeValueAsBytes(snapshot.getSortedByNormalizedPrice(SortOrder.ASC)),
+                snapshot.getSortedByNormalizedPricePayload(SortOrder.ASC).json());
+    }
+
+    @Test
+    public void whenNormalizedPricesAreEqual_thenCryptosAreSortedByNameInBothOrders() {
+        inMemoryDb.add("XRP", stats("1", "3"));
+        inMemoryDb.add("ETH", stats("2", "4"));
+        inMemoryDb.add("BTC", stats("2", "4"));
+        inMemoryDb.add("LTC", stats("4", "6"));
+        assertEquals(List.of("XRP", "BTC", "ETH", "LTC"),
+                List.copyOf(inMemoryDb.cryptosSortedByNormalizedPriceDescending(SortOrder.DESC).keySet()));
+        assertEquals(List.of("LTC", "BTC", "ETH", "XRP"),
+                List.copyOf(inMemoryDb.cryptosSortedByNormalizedPriceDescending(SortOrder.ASC).keySet()));
+        assertEquals(new BigDecimal("2.0000000000"),
+                inMemoryDb.cryptosSortedByNormalizedPriceDescending(SortOrder.DESC).get("XRP"));
+    }
+
+    private static CryptoPriceStats stats(String min, String max) {
+        return new CryptoPriceStats(new BigDecimal(min), new BigDecimal(max), new BigDecimal(min), new BigDecimal(max));
+    }
+}
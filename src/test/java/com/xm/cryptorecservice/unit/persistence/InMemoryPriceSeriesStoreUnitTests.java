@@ -0,0 +1,82 @@
+package com.xm.cryptorecservice.unit.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.xm.cryptorecservice.model.crypto.CryptoPriceColumns;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceStats;
+import com.xm.cryptorecservice.model.crypto.PriceSeries;
+import com.xm.cryptorecservice.persistence.InMemoryPriceSeriesStore;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+@RunWith(MockitoJUnitRunner.class)
+public class InMemoryPriceSeriesStoreUnitTests {
+
+    private static final long START = 1641009600000L;
+    private static final long STEP = 60_000L;
+
+    private final InMemoryPriceSeriesStore store = new InMemoryPriceSeriesStore();
+
+    @Test
+    public void whenStatsOfArbitraryWindowsAreRequested_thenTheyMatchAFullScanOfTheWindow() {
+        Random random = new Random(42);
+        long[] prices = new long[2_000];
+        CryptoPriceColumns columns = new CryptoPriceColumns();
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = 1 + random.nextInt(1_000_000);
+            columns.add(START + i * STEP, prices[i]);
+        }
+        store.put("BTC", columns.toSeries());
+        for (int query = 0; query < 1_000; query++) {
+            int from = random.nextInt(prices.length), to = from + 1 + random.nextInt(prices.length - from);
+            long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+            for (int i = from; i < to; i++) {
+                min = Math.min(min, prices[i]);
+                max = Math.max(max, prices[i]);
+            }
+            CryptoPriceStats stats = store.getStats("BTC", START + from * STEP, START + to * STEP).orElseThrow();
+            assertEquals(min, stats.getMinScaledPrice());
+            assertEquals(max, stats.getMaxScaledPrice());
+            assertEquals(prices[from], stats.getFirstScaledPrice());
+            assertEquals(prices[to - 1], stats.getLastScaledPrice());
+        }
+    }
+
+    @Test
+    public void whenWindowHasNoPricesOrCryptoIsUnknown_thenNoStatsAreReturned() {
+        CryptoPriceColumns columns = new CryptoPriceColumns();
+        columns.add(START, 1L);
+        store.put("BTC", columns.toSeries());
+        assertTrue(store.getStats("BTC", START + 1, Long.MAX_VALUE).isEmpty());
+        assertTrue(store.getStats("ETH", Long.MIN_VALUE, Long.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    public void whenRowsAreAppended_thenOlderSeriesAreUnaffectedAndTheIndicesCoverTheNewRows() {
+        CryptoPriceColumns columns = new CryptoPriceColumns();
+        columns.add(START, 5L);
+        store.put("BTC", columns.toSeries());
+        PriceSeries before = store.get("BTC").orElseThrow();
+        store.append("BTC", rows(START + STEP, 1L));
+        PriceSeries after = store.get("BTC").orElseThrow();
+        PriceSeries branch = before.append(rows(START + STEP, 9L)); // Must not overwrite the appended row.
+        assertEquals(1, before.size());
+        assertEquals(2, after.size());
+        assertEquals(1L, after.getScaledPrice(1));
+        assertEquals(9L, branch.getScaledPrice(1));
+        assertEquals(new BigDecimal("0.0000000001"),
+                store.getStats("BTC", Long.MIN_VALUE, Long.MAX_VALUE).orElseThrow().getMinPrice());
+    }
+
+    private static CryptoPriceColumns rows(long epochMilli, long scaledPrice) {
+        CryptoPriceColumns rows = new CryptoPriceColumns();
+        rows.add(epochMilli, scaledPrice);
+        return rows;
+    }
+}
@@ -0,0 +1,79 @@
+package com.xm.cryptorecservice.unit.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.xm.cryptorecservice.persistence.IngestionManifest;
+import com.xm.cryptorecservice.persistence.IngestionManifest.Change;
+import com.xm.cryptorecservice.persistence.IngestionManifest.Entry;
+import com.xm.cryptorecservice.util.PersistenceLayout;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+@RunWith(MockitoJUnitRunner.class)
+public class IngestionManifestUnitTests {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private File csv;
+    private Entry ingested;
+
+    @Before
+    public void setUp() throws IOException {
+        csv = tempFolder.newFile("BTC.csv");
+        Files.writeString(csv.toPath(), "timestamp,symbol,price\n1000,BTC,2\n", StandardCharsets.US_ASCII);
+        ingested = IngestionManifest.describe(csv, csv.length(), csv.lastModified(), 1);
+    }
+
+    @Test
+    public void whenTheFileIsUntouched_thenItIsUnchanged() throws IOException {
+        assertEquals(Change.UNCHANGED, IngestionManifest.compare(ingested, csv));
+    }
+
+    @Test
+    public void whenLinesAreAppendedToTheFile_thenItIsAppended() throws IOException {
+        Files.writeString(csv.toPath(), "2000,BTC,3\n", StandardCharsets.US_ASCII, StandardOpenOption.APPEND);
+        assertEquals(Change.APPENDED, IngestionManifest.compare(ingested, csv));
+    }
+
+    @Test
+    public void whenTheIngestedBytesChange_thenItIsRewritten() throws IOException {
+        // Same size, different contents.
+        Files.writeString(csv.toPath(), "timestamp,symbol,price\n1000,BTC,5\n", StandardCharsets.US_ASCII);
+        assertEquals(Change.REWRITTEN, IngestionManifest.compare(ingested, csv));
+        Files.writeString(csv.toPath(), "timestamp,symbol,price\n", StandardCharsets.US_ASCII);
+        assertEquals(Change.REWRITTEN, IngestionManifest.compare(ingested, csv));
+    }
+
+    @Test
+    public void whenThePersistenceLayoutChanges_thenEntriesOfTheOtherLayoutAreForgotten() {
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource("jdbc:h2:mem:manifest;MODE=MySQL", true);
+        try {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            new IngestionManifest(jdbcTemplate, true, PersistenceLayout.TABLE_PER_CRYPTO).put("BTC", ingested);
+            assertEquals(Optional.of(ingested),
+                    new IngestionManifest(jdbcTemplate, true, PersistenceLayout.TABLE_PER_CRYPTO).get("BTC"));
+            // The prices in the table of BTC are not in crypto_price.
+            assertTrue(new IngestionManifest(jdbcTemplate, true, PersistenceLayout.PARTITIONED).get("BTC").isEmpty());
+            // And once CRYPTOS may have been re-created under another layout, neither are they in the table of BTC.
+            assertTrue(new IngestionManifest(jdbcTemplate, true, PersistenceLayout.TABLE_PER_CRYPTO).get("BTC").isEmpty());
+        } finally {
+            dataSource.destroy();
+        }
+    }
+}
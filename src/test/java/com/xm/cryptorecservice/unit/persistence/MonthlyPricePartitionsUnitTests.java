@@ -0,0 +1,55 @@
+package com.xm.cryptorecservice.unit.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.xm.cryptorecservice.model.crypto.CryptoPriceChunk;
+import com.xm.cryptorecservice.persistence.MonthlyPricePartitions;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MonthlyPricePartitionsUnitTests {
+
+    private final MonthlyPricePartitions partitions = new MonthlyPricePartitions("crypto_price", ZoneOffset.UTC);
+
+    @Test
+    public void whenPricesSpanMonthsWithoutPartitions_thenBothBoundsOfEveryMonthAreMissing() {
+        CryptoPriceChunk chunk = chunk(LocalDate.of(2022, 1, 31), LocalDate.of(2022, 1, 1), LocalDate.of(2022, 3, 15));
+        assertEquals(List.of(LocalDate.of(2022, 1, 1), LocalDate.of(2022, 2, 1), LocalDate.of(2022, 3, 1),
+                LocalDate.of(2022, 4, 1)), List.copyOf(partitions.missingBounds(chunk)));
+        partitions.recordSplit(LocalDate.of(2022, 2, 1));
+        assertTrue(partitions.addExisting("p20220101"));
+        assertFalse(partitions.addExisting("p_max"));
+        assertEquals(List.of(LocalDate.of(2022, 3, 1), LocalDate.of(2022, 4, 1)),
+                List.copyOf(partitions.missingBounds(chunk)));
+    }
+
+    @Test
+    public void whenMonthsAreAddedOutOfOrder_thenThePartitionTheyFallInIsSplit() {
+        assertEquals(Optional.of("ALTER TABLE crypto_price REORGANIZE PARTITION p_max INTO (PARTITION p20220401 "
+                        + "VALUES LESS THAN ('2022-04-01'), PARTITION p_max VALUES LESS THAN (MAXVALUE))"),
+                partitions.split(LocalDate.of(2022, 4, 1)));
+        partitions.recordSplit(LocalDate.of(2022, 4, 1));
+        assertEquals(Optional.of("ALTER TABLE crypto_price REORGANIZE PARTITION p20220401 INTO (PARTITION p20220201 "
+                        + "VALUES LESS THAN ('2022-02-01'), PARTITION p20220401 VALUES LESS THAN ('2022-04-01'))"),
+                partitions.split(LocalDate.of(2022, 2, 1)));
+        assertEquals(Optional.empty(), partitions.split(LocalDate.of(2022, 4, 1)));
+    }
+
+    private static CryptoPriceChunk chunk(LocalDate... days) {
+        CryptoPriceChunk chunk = new CryptoPriceChunk(days.length);
+        for (LocalDate day : days) {
+            chunk.add(day.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli(), 1L);
+        }
+        return chunk;
+    }
+}
@@ -0,0 +1,53 @@
+package com.xm.cryptorecservice.unit.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.when;
+
+import com.xm.cryptorecservice.model.crypto.CryptoPrice;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceStats;
+import com.xm.cryptorecservice.persistence.PriceRowMappers;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PriceRowMappersUnitTests {
+
+    @Mock
+    private ResultSet rs;
+
+    @Test
+    public void whenAPriceRowIsMapped_thenThePriceLosesItsTrailingZerosButStaysPlain() throws SQLException {
+        Timestamp timestamp = new Timestamp(1641009600000L);
+        when(rs.getTimestamp(1)).thenReturn(timestamp);
+        when(rs.getBigDecimal(2)).thenReturn(new BigDecimal("40.0000000000"));
+        CryptoPrice price = PriceRowMappers.CRYPTO_PRICE.mapRow(rs, 0);
+        assertEquals(timestamp, price.getTimestamp());
+        assertEquals("40", price.getPrice().toPlainString());
+        assertEquals(0, price.getPrice().scale());
+    }
+
+    @Test
+    public void whenAStatsRowIsMapped_thenAllFourPricesAreRead() throws SQLException {
+        when(rs.getBigDecimal(1)).thenReturn(new BigDecimal("1.5000000000"));
+        when(rs.getBigDecimal(2)).thenReturn(new BigDecimal("3.2500000000"));
+        when(rs.getBigDecimal(3)).thenReturn(new BigDecimal("2.0000000000"));
+        when(rs.getBigDecimal(4)).thenReturn(new BigDecimal("3.0000000000"));
+        assertEquals(new CryptoPriceStats(new BigDecimal("1.5"), new BigDecimal("3.25"), new BigDecimal("2"),
+                new BigDecimal("3")), PriceRowMappers.CRYPTO_PRICE_STATS.mapRow(rs, 0));
+    }
+
+    @Test
+    public void whenTheAggregatesOfAnEmptyTableAreMapped_thenThereAreNoStats() throws SQLException {
+        when(rs.getBigDecimal(1)).thenReturn(null);
+        assertNull(PriceRowMappers.CRYPTO_PRICE_STATS.mapRow(rs, 0));
+    }
+}
@@ -0,0 +1,164 @@
+package com.xm.cryptorecservice.unit.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceColumns;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceStats;
+import com.xm.cryptorecservice.model.crypto.PriceSeries;
+import com.xm.cryptorecservice.persistence.InMemoryAggregateStats;
+import com.xm.cryptorecservice.persistence.InMemoryPriceSeriesStore;
+import com.xm.cryptorecservice.persistence.IngestionCheckpoints;
+import com.xm.cryptorecservice.persistence.IngestionCheckpoints.Checkpoint;
+import com.xm.cryptorecservice.persistence.IngestionManifest;
+import com.xm.cryptorecservice.persistence.StoreSnapshotFile;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Optional;
+
+@RunWith(MockitoJUnitRunner.class)
+public class StoreSnapshotFileUnitTests {
+
+    private static final long LAST_MODIFIED = 1_600_000_000_000L;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Mock
+    private IngestionCheckpoints checkpoints;
+
+    @Mock
+    private IngestionManifest manifest;
+
+    private File snapshot;
+    private File btc, eth;
+
+    @Before
+    public void setUp() throws IOException {
+        snapshot = new File(tempFolder.getRoot(), "store.snapshot");
+        btc = csv("BTC.csv", "timestamp,symbol,price\n1000,BTC,2\n2000,BTC,4\n");
+        eth = csv("ETH.csv", "timestamp,symbol,price\n1000,ETH,3\n");
+        InMemoryPriceSeriesStore seriesStore = new InMemoryPriceSeriesStore();
+        InMemoryAggregateStats inMemoryDb = new InMemoryAggregateStats(new ObjectMapper());
+        seriesStore.put("BTC", series(1000, 2_0000000000L, 2000, 4_0000000000L));
+        inMemoryDb.add("BTC", new CryptoPriceStats(2_0000000000L, 4_0000000000L, 2_0000000000L, 4_0000000000L));
+        seriesStore.put("ETH", series(1000, 3_0000000000L));
+        inMemoryDb.add("ETH", new CryptoPriceStats(3_0000000000L, 3_0000000000L, 3_0000000000L, 3_0000000000L));
+        new StoreSnapshotFile(seriesStore, inMemoryDb, checkpoints, manifest, true, snapshot.getPath())
+                .write(List.of(btc, eth), System.currentTimeMillis());
+        // Both tables were written from these very files.
+        lenient().when(manifest.isEnabled()).thenReturn(true);
+        lenient().when(manifest.get("BTC")).thenReturn(Optional.of(IngestionManifest.describe(btc, btc.length(),
+                LAST_MODIFIED, 2)));
+        lenient().when(manifest.get("ETH")).thenReturn(Optional.of(IngestionManifest.describe(eth, eth.length(),
+                LAST_MODIFIED, 1)));
+    }
+
+    @Test
+    public void whenTheFilesAreUnchanged_thenEveryCryptoIsRestoredFromTheSnapshot() {
+        when(checkpoints.isEnabled()).thenReturn(true);
+        InMemoryPriceSeriesStore seriesStore = new InMemoryPriceSeriesStore();
+        InMemoryAggregateStats inMemoryDb = new InMemoryAggregateStats(new ObjectMapper());
+        StoreSnapshotFile storeSnapshot = new StoreSnapshotFile(seriesStore, inMemoryDb, checkpoints, manifest, true,
+                snapshot.getPath());
+        assertEquals(List.of(btc, eth), storeSnapshot.restore(List.of(btc, eth)));
+        PriceSeries restored = seriesStore.get("BTC").orElseThrow();
+        assertEquals(2, restored.size());
+        assertEquals(2000, restored.getEpochMilli(1));
+        assertEquals(4_0000000000L, restored.getScaledPrice(1));
+        assertEquals(new CryptoPriceStats(3_0000000000L, 3_0000000000L, 3_0000000000L, 3_0000000000L),
+                inMemoryDb.get("ETH"));
+        verify(checkpoints).put("BTC", new Checkpoint(btc, btc.length(), 2000));
+    }
+
+    @Test
+    public void whenAFileIsRewrittenInPlace_thenItsCryptoIsNotRestored() throws IOException {
+        // Same size and modification time: only the hash tells them apart.
+        Files.writeString(eth.toPath(), "timestamp,symbol,price\n1000,ETH,5\n", StandardCharsets.US_ASCII);
+        assertTrue(eth.setLastModified(LAST_MODIFIED));
+        InMemoryPriceSeriesStore seriesStore = new InMemoryPriceSeriesStore();
+        StoreSnapshotFile storeSnapshot = new StoreSnapshotFile(seriesStore, new InMemoryAggregateStats(new ObjectMapper()), checkpoints,
+                manifest, true, snapshot.getPath());
+        assertEquals(List.of(btc), storeSnapshot.restore(List.of(btc, eth)));
+        assertFalse(seriesStore.containsCrypto("ETH"));
+    }
+
+    @Test
+    public void whenATableNoLongerAgreesWithItsFile_thenItsCryptoIsNotRestored() {
+        when(manifest.get("ETH")).thenReturn(Optional.empty()); // E.g. the database was reset.
+        InMemoryPriceSeriesStore seriesStore = new InMemoryPriceSeriesStore();
+        StoreSnapshotFile storeSnapshot = new StoreSnapshotFile(seriesStore, new InMemoryAggregateStats(new ObjectMapper()), checkpoints,
+                manifest, true, snapshot.getPath());
+        assertEquals(List.of(btc), storeSnapshot.restore(List.of(btc, eth)));
+        assertFalse(seriesStore.containsCrypto("ETH"));
+    }
+
+    @Test
+    public void whenTheManifestIsDisabled_thenNothingIsRestored() {
+        when(manifest.isEnabled()).thenReturn(false);
+        StoreSnapshotFile storeSnapshot = new StoreSnapshotFile(new InMemoryPriceSeriesStore(),
+                new InMemoryAggregateStats(new ObjectMapper()), checkpoints, manifest, true, snapshot.getPath());
+        assertEquals(List.of(), storeSnapshot.restore(List.of(btc, eth)));
+    }
+
+    @Test
+    public void whenTheSnapshotIsCorrupt_thenNothingIsRestored() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(snapshot, "rw")) {
+            file.seek(file.length() / 2);
+            int value = file.read();
+            file.seek(file.length() / 2);
+            file.write(value ^ 1);
+        }
+        InMemoryPriceSeriesStore seriesStore = new InMemoryPriceSeriesStore();
+        StoreSnapshotFile storeSnapshot = new StoreSnapshotFile(seriesStore, new InMemoryAggregateStats(new ObjectMapper()), checkpoints,
+                manifest, true, snapshot.getPath());
+        assertEquals(List.of(), storeSnapshot.restore(List.of(btc, eth)));
+        assertTrue(seriesStore.getCryptos().isEmpty());
+    }
+
+    @Test
+    public void whenAFileWasModifiedSinceIngestionStarted_thenItIsLeftOutOfTheSnapshot() throws IOException {
+        InMemoryPriceSeriesStore seriesStore = new InMemoryPriceSeriesStore();
+        seriesStore.put("BTC", series(1000, 2_0000000000L));
+        InMemoryAggregateStats inMemoryDb = new InMemoryAggregateStats(new ObjectMapper());
+        inMemoryDb.add("BTC", new CryptoPriceStats(2_0000000000L, 2_0000000000L, 2_0000000000L, 2_0000000000L));
+        new StoreSnapshotFile(seriesStore, inMemoryDb, checkpoints, manifest, true, snapshot.getPath())
+                .write(List.of(btc), LAST_MODIFIED);
+        StoreSnapshotFile storeSnapshot = new StoreSnapshotFile(new InMemoryPriceSeriesStore(),
+                new InMemoryAggregateStats(new ObjectMapper()), checkpoints, manifest, true, snapshot.getPath());
+        assertEquals(List.of(), storeSnapshot.restore(List.of(btc)));
+    }
+
+    private File csv(String name, String contents) throws IOException {
+        File csv = tempFolder.newFile(name);
+        Files.writeString(csv.toPath(), contents, StandardCharsets.US_ASCII);
+        assertTrue(csv.setLastModified(LAST_MODIFIED));
+        return csv;
+    }
+
+    private static PriceSeries series(long... rows) {
+        CryptoPriceColumns columns = new CryptoPriceColumns();
+        for (int i = 0; i < rows.length; i += 2) {
+            columns.add(rows[i], rows[i + 1]);
+        }
+        return columns.toSeries();
+    }
+}
@@ -0,0 +1,102 @@
+package com.xm.cryptorecservice.unit.service;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.xm.cryptorecservice.io.CryptoDirectoryParser;
+import com.xm.cryptorecservice.persistence.DatabaseConnection;
+import com.xm.cryptorecservice.persistence.IngestionCheckpoints;
+import com.xm.cryptorecservice.persistence.IngestionCheckpoints.Checkpoint;
+import com.xm.cryptorecservice.service.CryptoDirectoryWatcher;
+import com.xm.cryptorecservice.service.IncrementalIngestionService;
+import com.xm.cryptorecservice.service.StatsCalculationService;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Optional;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CryptoDirectoryWatcherUnitTests {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Mock
+    private CryptoDirectoryParser directoryParser;
+
+    @Mock
+    private StatsCalculationService statsService;
+
+    @Mock
+    private IncrementalIngestionService incrementalIngestionService;
+
+    @Mock
+    private IngestionCheckpoints checkpoints;
+
+    @Mock
+    private DatabaseConnection dbConnection;
+
+    private CryptoDirectoryWatcher watcher;
+
+    @After
+    public void tearDown() {
+        if (watcher != null) {
+            watcher.stop();
+        }
+    }
+
+    @Test
+    public void whenFilesAreDroppedInTheWatchedDirectory_thenTheCSVsAreLoadedOnceAsASingleBatch() throws IOException {
+        watcher = watcher(true);
+        when(directoryParser.persistCSVs(anyList())).thenReturn(List.of("BTC", "ETH"));
+        watcher.start(tempFolder.getRoot().getPath());
+        File btc = tempFolder.newFile("BTC.csv"), eth = tempFolder.newFile("ETH.csv");
+        for (int i = 0; i < 5; i++) { // Keep writing, as if the files were being copied over.
+            Files.writeString(btc.toPath(), "timestamp,symbol,price\n" + i, StandardCharsets.US_ASCII);
+            Files.writeString(eth.toPath(), "timestamp,symbol,price\n" + i, StandardCharsets.US_ASCII);
+        }
+        tempFolder.newFile("notes.txt");
+        verify(dbConnection, timeout(5_000)).addCryptoNames(List.of("BTC", "ETH"));
+        verify(directoryParser, times(1)).persistCSVs(anyList());
+        verify(statsService, times(1)).computeAndLoadMissingStats(List.of("BTC", "ETH"));
+    }
+
+    @Test
+    public void whenAFileAlreadyIngestedIncrementallyIsModified_thenOnlyItsAppendedRowsAreIngested() throws IOException {
+        watcher = watcher(false);
+        when(checkpoints.isEnabled()).thenReturn(true);
+        when(checkpoints.get("BTC")).thenReturn(Optional.of(new Checkpoint(new File("BTC.csv"), 10, 10)));
+        watcher.load(List.of(tempFolder.newFile("BTC.csv")));
+        verify(incrementalIngestionService, times(1)).ingestAppendedRows("BTC");
+        verify(directoryParser, never()).persistCSVs(anyList());
+        verify(dbConnection, never()).addCryptoNames(anyList());
+    }
+
+    @Test
+    public void whenWatchingIsDisabled_thenNothingIsLoaded() throws IOException {
+        watcher = watcher(false);
+        watcher.start(tempFolder.getRoot().getPath());
+        tempFolder.newFile("BTC.csv");
+        verify(directoryParser, timeout(500).times(0)).persistCSVs(anyList());
+    }
+
+    private CryptoDirectoryWatcher watcher(boolean enabled) {
+        return new CryptoDirectoryWatcher(directoryParser, statsService, incrementalIngestionService, checkpoints,
+                dbConnection, enabled, 200);
+    }
+}
@@ -3,11 +3,20 @@ package com.xm.cryptorecservice.unit.service;
 import static com.xm.cryptorecservice.unit.TestUtils.collectionIsSortedByFieldInGivenDirection;
 
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.xm.cryptorecservice.model.crypto.CryptoPriceColumns;
 import com.xm.cryptorecservice.model.crypto.CryptoPriceStats;
+import com.xm.cryptorecservice.model.crypto.DailyPriceIndex;
+import com.xm.cryptorecservice.model.crypto.PriceSeries;
 import com.xm.cryptorecservice.persistence.DatabaseConnection;
 import com.xm.cryptorecservice.persistence.InMemoryAggregateStats;
+import com.xm.cryptorecservice.persistence.InMemoryPriceSeriesStore;
 import com.xm.cryptorecservice.service.CryptoRecService;
 import com.xm.cryptorecservice.util.SortOrder;
 
@@ -18,7 +27,13 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.SortedMap;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -33,6 +48,9 @@ public class CryptoRecServiceUnitTests {
     @Mock
     private InMemoryAggregateStats inMemoryDb;
 
+    @Mock
+    private InMemoryPriceSeriesStore seriesStore;
+
     @Test
     public void whenInMemoryDB_returnsAggStats_thenSoDoWe(){
         Map<String, CryptoPriceStats> aggStatsMap = Map.of(
@@ -80,4 +98,81 @@ public class CryptoRecServiceUnitTests {
                 "normalizedPrice", sortOrder));
     }
 
+    @Test
+    public void whenPriceSeriesAreInMemory_thenBestCryptoForDateIsComputedWithoutTheOnDiskDB(){
+        String date = "2022-01-01";
+        PriceSeries btc = series(date, 100_0000000000L, 110_0000000000L, 105_0000000000L); // 0.1
+        PriceSeries eth = series(date, 10_0000000000L, 13_0000000000L); // 0.3
+        PriceSeries ltc = series("2022-01-02", 1_0000000000L, 9_0000000000L); // Other day, ignored.
+        mockDailyIndices(Map.of("BTC", btc, "ETH", eth, "LTC", ltc));
+        Map.Entry<String, BigDecimal> best = cryptoRecService.getBestCryptoForDate(date);
+        assertEquals("ETH", best.getKey());
+        assertEquals(new BigDecimal("0.3000000000"), best.getValue());
+        verify(onDiskDb, never()).getCryptoPricesForDate(anyString(), anyString());
+    }
+
+    @Test
+    public void whenInMemoryCryptosTieForBestOfDay_thenTheAlphabeticallyFirstOneIsReturned(){
+        String date = "2022-01-01";
+        mockDailyIndices(Map.of(
+                "XRP", series(date, 2_0000000000L, 3_0000000000L), // 0.5
+                "DOGE", series(date, 4_0000000000L, 6_0000000000L), // 0.5
+                "BTC", series(date, 4_0000000000L, 5_0000000000L))); // 0.25
+        Map.Entry<String, BigDecimal> best = cryptoRecService.getBestCryptoForDate(date);
+        assertEquals("DOGE", best.getKey());
+        assertEquals(new BigDecimal("0.5000000000"), best.getValue());
+    }
+
+    @Test
+    public void whenTheOnDiskDBAnswersForAllCryptosAtOnce_thenBestCryptoForDateIsComputedWithASingleQuery(){
+        String date = "2022-01-01";
+        when(inMemoryDb.getSupportedCryptos()).thenReturn(Set.of("BTC", "ETH"));
+        when(seriesStore.getDailyIndex(anyString())).thenReturn(Optional.empty());
+        when(onDiskDb.getNormalizedPricesForDate(anyCollection(), eq(date))).thenReturn(Optional.of(Map.of(
+                "BTC", new BigDecimal("0.1000000000"), "ETH", new BigDecimal("0.3000000000"))));
+        Map.Entry<String, BigDecimal> best = cryptoRecService.getBestCryptoForDate(date);
+        assertEquals("ETH", best.getKey());
+        verify(onDiskDb, never()).getCryptoPricesForDate(anyString(), anyString());
+    }
+
+    @Test
+    public void whenNoCryptoHasPricesForDate_thenBestCryptoForDateIsNull(){
+        mockDailyIndices(Map.of("BTC", series("2022-01-02", 1_0000000000L)));
+        assertNull(cryptoRecService.getBestCryptoForDate("2022-01-01"));
+    }
+
+    @Test
+    public void whenAWindowIsProvided_thenCryptosAreSortedByTheirNormalizedPriceOverTheWindowAndTiesByName(){
+        LocalDate from = LocalDate.of(2022, 1, 1), to = LocalDate.of(2022, 1, 2);
+        long windowStart = from.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long windowEnd = to.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        when(seriesStore.getZone()).thenReturn(ZoneId.systemDefault());
+        when(seriesStore.getCryptos()).thenReturn(Set.of("BTC", "ETH", "LTC", "XRP"));
+        when(seriesStore.getStats("BTC", windowStart, windowEnd)).thenReturn(Optional.of(stats("1", "2"))); // 1
+        when(seriesStore.getStats("ETH", windowStart, windowEnd)).thenReturn(Optional.of(stats("2", "3"))); // 0.5
+        when(seriesStore.getStats("XRP", windowStart, windowEnd)).thenReturn(Optional.of(stats("4", "6"))); // 0.5
+        when(seriesStore.getStats("LTC", windowStart, windowEnd)).thenReturn(Optional.empty());
+        SortedMap<String, BigDecimal> sorted = cryptoRecService.getCryptosSortedByNormalizedPrice(SortOrder.DESC, from, to);
+        assertEquals(List.of("BTC", "ETH", "XRP"), List.copyOf(sorted.keySet()));
+    }
+
+    private static CryptoPriceStats stats(String min, String max) {
+        return new CryptoPriceStats(new BigDecimal(min), new BigDecimal(max), new BigDecimal(min), new BigDecimal(max));
+    }
+
+    private void mockDailyIndices(Map<String, PriceSeries> seriesPerCrypto) {
+        when(inMemoryDb.getSupportedCryptos()).thenReturn(seriesPerCrypto.keySet());
+        when(seriesStore.getDailyIndex(anyString())).thenAnswer(invocation -> Optional.of(
+                DailyPriceIndex.of(seriesPerCrypto.get(invocation.<String>getArgument(0)), ZoneId.systemDefault())));
+    }
+
+    private static PriceSeries series(String date, long... scaledPrices) {
+        CryptoPriceColumns columns = new CryptoPriceColumns();
+        long timestamp = Timestamp.valueOf(date + " 00:00:00").getTime();
+        for (long scaledPrice : scaledPrices) {
+            columns.add(timestamp, scaledPrice);
+            timestamp += 60_000;
+        }
+        return columns.toSeries();
+    }
 }
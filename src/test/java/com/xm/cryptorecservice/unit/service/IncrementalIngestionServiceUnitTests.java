@@ -0,0 +1,122 @@
+package com.xm.cryptorecservice.unit.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xm.cryptorecservice.io.CryptoPriceFileReader;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceChunk;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceColumns;
+import com.xm.cryptorecservice.model.crypto.CryptoPriceStats;
+import com.xm.cryptorecservice.persistence.BulkPriceLoader;
+import com.xm.cryptorecservice.persistence.DatabaseConnection;
+import com.xm.cryptorecservice.persistence.InMemoryAggregateStats;
+import com.xm.cryptorecservice.persistence.InMemoryPriceSeriesStore;
+import com.xm.cryptorecservice.persistence.IngestionCheckpoints;
+import com.xm.cryptorecservice.persistence.IngestionManifest;
+import com.xm.cryptorecservice.service.IncrementalIngestionService;
+import com.xm.cryptorecservice.util.concurrent.WorkerPools;
+import com.xm.cryptorecservice.util.metrics.CryptoMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+@RunWith(MockitoJUnitRunner.class)
+public class IncrementalIngestionServiceUnitTests {
+
+    private static final String HEADER = "timestamp,symbol,price\n";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Mock
+    private DatabaseConnection dbConnection;
+
+    @Mock
+    private IngestionManifest manifest;
+
+    @Mock
+    private BulkPriceLoader bulkLoader;
+
+    @Mock
+    private WorkerPools workerPools;
+
+    private final InMemoryPriceSeriesStore seriesStore = new InMemoryPriceSeriesStore();
+    private final InMemoryAggregateStats inMemoryDb = new InMemoryAggregateStats(new ObjectMapper());
+    private final IngestionCheckpoints checkpoints = new IngestionCheckpoints();
+
+    private IncrementalIngestionService service;
+    private File csv;
+
+    @Before
+    public void setUp() throws IOException {
+        service = new IncrementalIngestionService(dbConnection, new CryptoPriceFileReader(), seriesStore, inMemoryDb,
+                checkpoints, manifest, bulkLoader, workerPools, new CryptoMetrics(new SimpleMeterRegistry()));
+        // BTC was pre-loaded with two prices, 2 and 4.
+        csv = tempFolder.newFile("BTC.csv");
+        Files.writeString(csv.toPath(), HEADER + "1000,BTC,2\n2000,BTC,4\n", StandardCharsets.US_ASCII);
+        CryptoPriceColumns preloaded = new CryptoPriceColumns();
+        preloaded.add(1000, 2_0000000000L);
+        preloaded.add(2000, 4_0000000000L);
+        seriesStore.put("BTC", preloaded.toSeries());
+        inMemoryDb.add("BTC", new CryptoPriceStats(new BigDecimal("2"), new BigDecimal("4"),
+                new BigDecimal("2"), new BigDecimal("4")));
+        checkpoints.put("BTC", new IngestionCheckpoints.Checkpoint(csv, csv.length(), 2000));
+    }
+
+    @Test
+    public void whenRowsAreAppended_thenOnlyTheyAreIngestedAndStatsAreExtended() throws IOException {
+        append("3000,BTC,1\n4000,BTC,3\n");
+        assertEquals(2, service.ingestAppendedRows("BTC"));
+        verify(dbConnection, times(1)).insertCryptoPrices(eq("BTC"), any(CryptoPriceChunk.class));
+        verify(dbConnection, never()).truncateCryptoPriceTable(anyString());
+        assertEquals(4, seriesStore.get("BTC").orElseThrow().size());
+        CryptoPriceStats stats = inMemoryDb.get("BTC");
+        assertEquals(new BigDecimal("1"), stats.getMinPrice());
+        assertEquals(new BigDecimal("4"), stats.getMaxPrice());
+        assertEquals(new BigDecimal("2"), stats.getFirstPrice());
+        assertEquals(new BigDecimal("3"), stats.getLastPrice());
+        assertEquals(csv.length(), checkpoints.get("BTC").orElseThrow().offset());
+        assertEquals(0, service.ingestAppendedRows("BTC"));
+    }
+
+    @Test
+    public void whenAppendedRowsAreNotLaterThanTheLatestPrice_thenTheyAreDroppedAsDuplicates() throws IOException {
+        append("2000,BTC,4\n1500,BTC,9\n5000,BTC,5\n");
+        assertEquals(1, service.ingestAppendedRows("BTC"));
+        assertEquals(3, seriesStore.get("BTC").orElseThrow().size());
+        assertEquals(new BigDecimal("5"), inMemoryDb.get("BTC").getMaxPrice());
+    }
+
+    @Test
+    public void whenTheLastAppendedLineIsIncomplete_thenItIsLeftForTheNextRound() throws IOException {
+        append("3000,BTC,5\n4000,BTC,");
+        assertEquals(1, service.ingestAppendedRows("BTC"));
+        append("6\n");
+        assertEquals(1, service.ingestAppendedRows("BTC"));
+        assertEquals(new BigDecimal("6"), inMemoryDb.get("BTC").getLastPrice());
+    }
+
+    private void append(String rows) throws IOException {
+        Files.writeString(csv.toPath(), rows, StandardCharsets.US_ASCII, StandardOpenOption.APPEND);
+    }
+}
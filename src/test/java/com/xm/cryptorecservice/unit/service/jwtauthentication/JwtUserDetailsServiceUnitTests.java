@@ -1,8 +1,11 @@
 package com.xm.cryptorecservice.unit.service.jwtauthentication;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.xm.cryptorecservice.model.user.UserDto;
@@ -47,6 +50,25 @@ public class JwtUserDetailsServiceUnitTests {
     assertEquals(userDetails.getPassword(), PASSWORD);
   }
 
+  @Test
+  public void whenUserIsLoadedTwice_thenTheDatabaseIsOnlyQueriedOnceAndCopiesAreReturned() {
+    when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(USER_ENTITY));
+    UserDetails first = jwtUserDetailsService.loadUserByUsername(EMAIL);
+    UserDetails second = jwtUserDetailsService.loadUserByUsername(EMAIL);
+    assertNotSame(first, second);
+    assertEquals(PASSWORD, second.getPassword());
+    verify(userRepository, times(1)).findByEmail(EMAIL);
+  }
+
+  @Test
+  public void whenUserIsEvicted_thenTheDatabaseIsQueriedAgain() {
+    when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(USER_ENTITY));
+    jwtUserDetailsService.loadUserByUsername(EMAIL);
+    jwtUserDetailsService.evictUser(EMAIL);
+    jwtUserDetailsService.loadUserByUsername(EMAIL);
+    verify(userRepository, times(2)).findByEmail(EMAIL);
+  }
+
   @Test(expected = UsernameNotFoundException.class)
   public void whenUserIsNotInDB_thenUsernameNotFoundExceptionIsThrown() {
     when(userRepository.findByEmail(anyString())).thenReturn(Optional.empty());
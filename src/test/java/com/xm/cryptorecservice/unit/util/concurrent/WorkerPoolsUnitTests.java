@@ -0,0 +1,185 @@
+package com.xm.cryptorecservice.unit.util.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.xm.cryptorecservice.util.concurrent.WorkerMode;
+import com.xm.cryptorecservice.util.concurrent.WorkerPool;
+import com.xm.cryptorecservice.util.concurrent.WorkerPoolStats;
+import com.xm.cryptorecservice.util.concurrent.WorkerPools;
+import com.xm.cryptorecservice.util.exceptions.DeadlineExceededException;
+import com.xm.cryptorecservice.util.exceptions.FanOutInterruptedException;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+@RunWith(MockitoJUnitRunner.class)
+public class WorkerPoolsUnitTests {
+
+    // Two threads and a queue of two, so that 50 tasks overflow the queue and some run on the caller.
+    private final WorkerPools workerPools = new WorkerPools(2, 2, 5, WorkerMode.PLATFORM, 5, 5, 2);
+
+    private final WorkerPools virtualWorkerPools = new WorkerPools(2, 2, 5, WorkerMode.VIRTUAL, 5, 1, 2);
+
+    @After
+    public void tearDown() {
+        workerPools.shutdown();
+        virtualWorkerPools.shutdown();
+    }
+
+    @Test
+    public void whenMoreTasksThanThreadsAndQueueSlotsAreSubmitted_thenAllOfThemRunBeforeWeReturn() {
+        List<Integer> items = IntStream.range(0, 50).boxed().toList();
+        AtomicInteger ran = new AtomicInteger();
+        Set<String> threadNames = ConcurrentHashMap.newKeySet();
+        workerPools.runAllAndWait(WorkerPool.QUERY, items, (item, latch) -> () -> {
+            try {
+                threadNames.add(Thread.currentThread().getName());
+                ran.incrementAndGet();
+            } finally {
+                latch.countDown();
+            }
+        });
+        assertEquals(50, ran.get());
+        assertTrue(threadNames.stream().anyMatch(name -> name.startsWith("query-worker-")));
+        WorkerPoolStats stats = workerPools.stats().stream()
+                .filter(poolStats -> poolStats.pool() == WorkerPool.QUERY).findFirst().orElseThrow();
+        assertEquals(0, stats.queueDepth());
+        assertEquals(2, stats.remainingQueueCapacity());
+        assertTrue(stats.poolSize() <= 2);
+    }
+
+    @Test
+    public void whenBulkLoadTasksRun_thenNoMoreOfThemRunAtOnceThanThereAreBulkConnections() {
+        WorkerPools pools = new WorkerPools(4, 100, 5, WorkerMode.PLATFORM, 5, 5, 1);
+        try {
+            AtomicInteger running = new AtomicInteger(), maxRunning = new AtomicInteger();
+            pools.runAllAndWait(WorkerPool.BULK_LOAD, IntStream.range(0, 8).boxed().toList(), (item, latch) -> () -> {
+                try {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.sleep(10);
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    running.decrementAndGet();
+                    latch.countDown();
+                }
+            });
+            assertEquals(1, maxRunning.get());
+        } finally {
+            pools.shutdown();
+        }
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void whenPoolsAreShutDown_thenNewTasksAreRejectedInsteadOfSilentlyDropped() {
+        workerPools.shutdown();
+        workerPools.runAllAndWait(WorkerPool.STATS, List.of("BTC"), (crypto, latch) -> latch::countDown);
+    }
+
+    @Test
+    public void whenInVirtualMode_thenEveryTaskRunsOnItsOwnVirtualThread() {
+        List<Integer> items = IntStream.range(0, 200).boxed().toList();
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        virtualWorkerPools.runAllAndWait(WorkerPool.QUERY, items, (item, latch) -> () -> {
+            try {
+                threads.add(Thread.currentThread());
+            } finally {
+                latch.countDown();
+            }
+        });
+        assertEquals(200, threads.size());
+        assertTrue(threads.stream().allMatch(thread -> thread.isVirtual() && thread.getName().startsWith("query-worker-")));
+    }
+
+    @Test
+    public void whenVirtualFanOutMissesItsDeadline_thenItIsCancelledAndDeadlineExceededExceptionIsThrown()
+            throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        try {
+            virtualWorkerPools.runAllAndWait(WorkerPool.QUERY, List.of("BTC"), (crypto, latch) -> () -> {
+                try {
+                    Thread.sleep(60_000);
+                } catch (InterruptedException exception) {
+                    interrupted.countDown();
+                } finally {
+                    latch.countDown();
+                }
+            });
+            fail("Expected a DeadlineExceededException.");
+        } catch (DeadlineExceededException exception) {
+            assertEquals(Duration.ofSeconds(1), exception.getDeadline());
+        }
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void whenTheWaitingThreadIsInterrupted_thenFanOutInterruptedExceptionIsThrownWithTheFlagStillSet() {
+        CountDownLatch release = new CountDownLatch(1);
+        Thread.currentThread().interrupt();
+        try {
+            workerPools.runAllAndWait(WorkerPool.QUERY, List.of("BTC"), (crypto, latch) -> () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    latch.countDown();
+                }
+            });
+            fail("Expected a FanOutInterruptedException.");
+        } catch (FanOutInterruptedException exception) {
+            assertTrue(exception.getCause() instanceof InterruptedException);
+            assertTrue(Thread.interrupted()); // Also clears the flag for the tests that follow.
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void whenTheWaitingThreadIsInterruptedInVirtualMode_thenTheTasksAreInterruptedAndTheFanOutFails()
+            throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        Thread caller = Thread.currentThread();
+        Thread.ofPlatform().start(() -> {
+            try {
+                started.await();
+                caller.interrupt();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        try {
+            virtualWorkerPools.runAllAndWait(WorkerPool.QUERY, List.of("BTC"), (crypto, latch) -> () -> {
+                try {
+                    started.countDown();
+                    Thread.sleep(60_000);
+                } catch (InterruptedException exception) {
+                    interrupted.countDown();
+                } finally {
+                    latch.countDown();
+                }
+            });
+            fail("Expected a FanOutInterruptedException.");
+        } catch (FanOutInterruptedException exception) {
+            assertTrue(Thread.interrupted());
+        }
+        assertFalse(Thread.currentThread().isInterrupted());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+}
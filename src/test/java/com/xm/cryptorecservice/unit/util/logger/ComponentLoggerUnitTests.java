@@ -0,0 +1,96 @@
+package com.xm.cryptorecservice.unit.util.logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.xm.cryptorecservice.util.logger.ComponentLogger;
+import com.xm.cryptorecservice.util.logger.Logged;
+import com.xm.cryptorecservice.util.logger.MethodLoggingMessages;
+import com.xm.cryptorecservice.util.logger.MethodTimingStats;
+import com.xm.cryptorecservice.util.logger.MethodTracer;
+import com.xm.cryptorecservice.util.logger.TraceLevel;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ComponentLoggerUnitTests {
+
+    @Logged
+    public static class TracedComponent {
+        public int sum(List<Integer> values) {
+            return values.stream().mapToInt(Integer::intValue).sum();
+        }
+
+        public void fail() {
+            throw new IllegalStateException();
+        }
+    }
+
+    @Test
+    public void whenEveryCallIsSampled_thenEveryCallIsTimed() {
+        MethodTracer tracer = new MethodTracer(TraceLevel.TIMINGS, 1, "", 100);
+        TracedComponent component = traced(tracer);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(3, component.sum(List.of(1, 2)));
+        }
+        try {
+            component.fail();
+        } catch (IllegalStateException ignored) {
+        }
+        List<MethodTimingStats> timings = tracer.timings();
+        assertEquals(2, timings.size());
+        MethodTimingStats sum = timings.stream().filter(t -> t.method().equals("TracedComponent.sum")).findFirst()
+                .orElseThrow();
+        assertEquals(10, sum.sampledCalls());
+        assertEquals(0, sum.failedCalls());
+        assertTrue(sum.p50Micros() <= sum.p99Micros() && sum.p99Micros() <= sum.maxMicros());
+        assertEquals(1, timings.stream().filter(t -> t.method().equals("TracedComponent.fail")).findFirst()
+                .orElseThrow().failedCalls());
+    }
+
+    @Test
+    public void whenTracingIsTurnedOffAtRuntime_thenNoCallIsTimed() {
+        MethodTracer tracer = new MethodTracer(TraceLevel.TIMINGS, 1, "", 100);
+        TracedComponent component = traced(tracer);
+        tracer.setLevel("off");
+        component.sum(List.of(1));
+        assertTrue(tracer.timings().isEmpty());
+        assertFalse(tracer.isEnabled());
+        tracer.setClassLevel(TracedComponent.class.getSimpleName(), "CALLS");
+        component.sum(List.of(1));
+        assertEquals(1, tracer.timings().size());
+    }
+
+    @Test
+    public void whenAClassIsOverriddenToOff_thenItIsNotTimedAndNothingIsSampledAtRateZero() {
+        MethodTracer classOff = new MethodTracer(TraceLevel.CALLS, 1, "TracedComponent:OFF", 100);
+        traced(classOff).sum(List.of(1));
+        assertTrue(classOff.timings().isEmpty());
+        MethodTracer neverSampling = new MethodTracer(TraceLevel.CALLS, 0, "", 100);
+        traced(neverSampling).sum(List.of(1));
+        assertTrue(neverSampling.timings().isEmpty());
+    }
+
+    @Test
+    public void whenArgumentsAreAbbreviated_thenCollectionsAreNotWalkedAndLongValuesAreTruncated() {
+        assertEquals("ArrayList(size=1000)",
+                MethodLoggingMessages.abbreviate(new ArrayList<>(Collections.nCopies(1000, 1)), 100));
+        assertEquals("long[3]", MethodLoggingMessages.abbreviate(new long[3], 100));
+        assertEquals("abcd...", MethodLoggingMessages.abbreviate("abcdefghij", 7));
+        assertEquals("null", MethodLoggingMessages.abbreviate(null, 7));
+    }
+
+    private static TracedComponent traced(MethodTracer tracer) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(new TracedComponent());
+        factory.addAspect(new ComponentLogger(tracer));
+        return factory.getProxy();
+    }
+}
@@ -0,0 +1,81 @@
+package com.xm.cryptorecservice.unit.util.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import com.xm.cryptorecservice.util.concurrent.WorkerMode;
+import com.xm.cryptorecservice.util.concurrent.WorkerPool;
+import com.xm.cryptorecservice.util.concurrent.WorkerPools;
+import com.xm.cryptorecservice.util.metrics.CryptoMetrics;
+import com.xm.cryptorecservice.util.metrics.WorkerPoolMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CryptoMetricsUnitTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CryptoMetrics metrics = new CryptoMetrics(registry);
+    private final WorkerPools workerPools = new WorkerPools(2, 2, 5, WorkerMode.PLATFORM, 5, 5, 2);
+
+    @After
+    public void tearDown() {
+        workerPools.shutdown();
+    }
+
+    @Test
+    public void whenACsvIsIngested_thenItsRowsAndBytesAreCountedAndItsThroughputIsRecordedPerCrypto() {
+        metrics.recordCsvIngested("BTC", 1_000, 50_000, TimeUnit.MILLISECONDS.toNanos(500));
+        metrics.recordCsvIngested("BTC", 1_000, 50_000, TimeUnit.MILLISECONDS.toNanos(500));
+        metrics.recordCsvIngested("ETH", 10, 500, TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(2_000, registry.get(CryptoMetrics.INGESTED_ROWS).tag(CryptoMetrics.CRYPTO_TAG, "BTC")
+                .counter().count(), 0);
+        assertEquals(100_000, registry.get(CryptoMetrics.INGESTED_BYTES).tag(CryptoMetrics.CRYPTO_TAG, "BTC")
+                .counter().count(), 0);
+        assertEquals(2_000, registry.get(CryptoMetrics.INGESTION_ROWS_PER_SECOND).tag(CryptoMetrics.CRYPTO_TAG, "BTC")
+                .summary().max(), 1e-6);
+        assertEquals(500_000, registry.get(CryptoMetrics.INGESTION_BYTES_PER_SECOND).tag(CryptoMetrics.CRYPTO_TAG, "ETH")
+                .summary().max(), 1e-6);
+    }
+
+    @Test
+    public void whenJdbcBatchesAndJwtFilteringAreRecorded_thenTheyAreTimedPerOperation() {
+        metrics.recordJdbcBatch("insert_prices", 100, 2_000_000);
+        metrics.recordJdbcBatch("insert_prices", 50, 1_000_000);
+        metrics.recordJwtFilter(10_000);
+        assertEquals(2, registry.get(CryptoMetrics.JDBC_BATCH).tag(CryptoMetrics.OPERATION_TAG, "insert_prices")
+                .timer().count());
+        assertEquals(150, registry.get(CryptoMetrics.JDBC_BATCH_ROWS).summary().totalAmount(), 0);
+        assertEquals(3, registry.get(CryptoMetrics.JDBC_BATCH).timer().totalTime(TimeUnit.MILLISECONDS), 1e-6);
+        assertEquals(1, registry.get(CryptoMetrics.JWT_FILTER).timer().count());
+    }
+
+    @Test
+    public void whenABulkLoadIsRecorded_thenItsRowsPerSecondAreRecordedPerCryptoAndConnections() {
+        metrics.recordBulkLoad("BTC", 1_000_000, 4, TimeUnit.MILLISECONDS.toNanos(2_000));
+        assertEquals(500_000, registry.get(CryptoMetrics.BULK_LOAD_ROWS_PER_SECOND).tag(CryptoMetrics.CRYPTO_TAG, "BTC")
+                .tag(CryptoMetrics.CONNECTIONS_TAG, "4").summary().max(), 1e-6);
+        assertEquals(2, registry.get(CryptoMetrics.BULK_LOAD).timer().totalTime(TimeUnit.SECONDS), 1e-6);
+    }
+
+    @Test
+    public void whenWorkerPoolsAreBound_thenTheirStatsAreReadOnEveryScrape() throws InterruptedException {
+        new WorkerPoolMetrics(workerPools).bindTo(registry);
+        assertEquals(0, registry.get("crypto.workers.completed").tag(WorkerPoolMetrics.POOL_TAG, "stats")
+                .functionCounter().count(), 0);
+        workerPools.runAllAndWait(WorkerPool.STATS, List.of(1, 2, 3), (item, latch) -> latch::countDown);
+        workerPools.get(WorkerPool.STATS).shutdown();
+        workerPools.get(WorkerPool.STATS).awaitTermination(5, TimeUnit.SECONDS);
+        assertEquals(3, registry.get("crypto.workers.completed").tag(WorkerPoolMetrics.POOL_TAG, "stats")
+                .functionCounter().count(), 0);
+        assertEquals(0, registry.get("crypto.workers.queue.depth").tag(WorkerPoolMetrics.POOL_TAG, "stats")
+                .gauge().value(), 0);
+    }
+}